@@ -5,6 +5,8 @@ module.exports = {
   collectCoverageFrom: [
     'src/**/*.js',
     '!src/server.js', // Exclude server startup file
+    '!src/scripts/**', // Exclude command-line entry points
+    '!src/__tests__/fixtures/**',
     '!**/node_modules/**'
   ],
   coverageReporters: ['text', 'lcov', 'html'],
@@ -0,0 +1,175 @@
+const { EventEmitter } = require('events');
+const cluster = require('cluster');
+const { initializeDatabase, closeDatabase } = require('../database/init');
+const { clusterOptionsFromEnv, canCluster, startPrimary } = require('../cluster');
+
+jest.mock('../database/init', () => ({
+  initializeDatabase: jest.fn().mockResolvedValue(undefined),
+  closeDatabase: jest.fn().mockResolvedValue(undefined)
+}));
+
+jest.mock('cluster', () => {
+  const { EventEmitter } = require('events');
+  const mockCluster = new EventEmitter();
+  mockCluster.workers = {};
+  mockCluster.fork = jest.fn();
+  return mockCluster;
+});
+
+describe('Cluster', () => {
+  const originalEnv = process.env;
+  let nextId;
+  let consoleLogSpy;
+  let consoleErrorSpy;
+  let consoleWarnSpy;
+
+  beforeEach(() => {
+    process.env = { ...originalEnv };
+    nextId = 1;
+    cluster.removeAllListeners();
+    cluster.workers = {};
+    cluster.fork.mockImplementation(() => {
+      const worker = new EventEmitter();
+      worker.id = nextId++;
+      worker.process = { pid: 1000 + worker.id };
+      worker.kill = jest.fn();
+      cluster.workers[worker.id] = worker;
+      return worker;
+    });
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    consoleErrorSpy = jest.spyOn(console, 'error').mockImplementation();
+    consoleWarnSpy = jest.spyOn(console, 'warn').mockImplementation();
+  });
+
+  afterEach(() => {
+    process.env = originalEnv;
+    consoleLogSpy.mockRestore();
+    consoleErrorSpy.mockRestore();
+    consoleWarnSpy.mockRestore();
+    jest.clearAllMocks();
+  });
+
+  // Simulate a worker process dying
+  function exitWorker(worker, code = 1) {
+    delete cluster.workers[worker.id];
+    cluster.emit('exit', worker, code, null);
+  }
+
+  describe('configuration', () => {
+    test('should read the worker count from CLUSTER_WORKERS', () => {
+      process.env.CLUSTER_WORKERS = '3';
+      expect(clusterOptionsFromEnv()).toEqual({ workers: 3 });
+    });
+
+    test('should default to one worker per core', () => {
+      delete process.env.CLUSTER_WORKERS;
+      expect(clusterOptionsFromEnv().workers).toBeGreaterThan(0);
+    });
+
+    test('should only cluster a file-backed database', () => {
+      delete process.env.DATABASE_PATH;
+      expect(canCluster()).toBe(false);
+
+      process.env.DATABASE_PATH = ':memory:';
+      expect(canCluster()).toBe(false);
+
+      process.env.DATABASE_PATH = '/tmp/timesheet.db';
+      expect(canCluster()).toBe(true);
+    });
+
+    test('should cluster a shared PostgreSQL database but not the in-memory fake', () => {
+      delete process.env.DATABASE_PATH;
+      process.env.REPOSITORY_BACKEND = 'postgres';
+      expect(canCluster()).toBe(true);
+
+      process.env.DATABASE_PATH = '/tmp/timesheet.db';
+      process.env.REPOSITORY_BACKEND = 'memory';
+      expect(canCluster()).toBe(false);
+    });
+  });
+
+  describe('startPrimary', () => {
+    test('should migrate the database once and then fork the workers', async () => {
+      await startPrimary({ workers: 3 });
+
+      expect(initializeDatabase).toHaveBeenCalledTimes(1);
+      expect(closeDatabase).toHaveBeenCalledTimes(1);
+      expect(cluster.fork).toHaveBeenCalledTimes(3);
+      expect(closeDatabase.mock.invocationCallOrder[0]).toBeLessThan(cluster.fork.mock.invocationCallOrder[0]);
+    });
+
+    test('should not fork when the database fails to initialize', async () => {
+      initializeDatabase.mockRejectedValueOnce(new Error('disk full'));
+
+      await expect(startPrimary({ workers: 2 })).rejects.toThrow('disk full');
+      expect(cluster.fork).not.toHaveBeenCalled();
+    });
+
+    test('should share one generated JWT secret with the workers', async () => {
+      delete process.env.JWT_SECRET;
+
+      await startPrimary({ workers: 1 });
+
+      expect(process.env.JWT_SECRET).toMatch(/^[0-9a-f]{64}$/);
+    });
+
+    test('should keep a configured JWT secret', async () => {
+      process.env.JWT_SECRET = 'configured';
+
+      await startPrimary({ workers: 1 });
+
+      expect(process.env.JWT_SECRET).toBe('configured');
+    });
+
+    test('should share rate-limit buckets between workers by default', async () => {
+      delete process.env.RATE_LIMIT_STORE;
+
+      await startPrimary({ workers: 1 });
+
+      expect(process.env.RATE_LIMIT_STORE).toBe('sqlite');
+    });
+
+    test('should keep a configured rate-limit store', async () => {
+      process.env.RATE_LIMIT_STORE = 'memory';
+
+      await startPrimary({ workers: 1 });
+
+      expect(process.env.RATE_LIMIT_STORE).toBe('memory');
+    });
+
+    test('should replace a worker that dies after it started listening', async () => {
+      await startPrimary({ workers: 2 });
+      const worker = cluster.workers[1];
+
+      cluster.emit('listening', worker);
+      exitWorker(worker);
+
+      expect(cluster.fork).toHaveBeenCalledTimes(3);
+    });
+
+    test('should not restart a worker that failed during startup', async () => {
+      const exitSpy = jest.spyOn(process, 'exit').mockImplementation(() => {});
+      await startPrimary({ workers: 2 });
+
+      exitWorker(cluster.workers[1]);
+      expect(cluster.fork).toHaveBeenCalledTimes(2);
+      expect(exitSpy).not.toHaveBeenCalled();
+
+      exitWorker(cluster.workers[2]);
+      expect(exitSpy).toHaveBeenCalledWith(1);
+      exitSpy.mockRestore();
+    });
+
+    test('should stop every worker on shutdown without replacing them', async () => {
+      const { shutdown } = await startPrimary({ workers: 2 });
+      const workers = Object.values(cluster.workers);
+      workers.forEach(worker => cluster.emit('listening', worker));
+
+      shutdown();
+      workers.forEach(worker => exitWorker(worker, 0));
+
+      workers.forEach(worker => expect(worker.kill).toHaveBeenCalledWith('SIGTERM'));
+      expect(cluster.fork).toHaveBeenCalledTimes(2);
+    });
+  });
+});
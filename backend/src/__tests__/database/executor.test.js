@@ -0,0 +1,74 @@
+const { WorkerExecutor } = require('../../database/executor');
+const { WorkerPool } = require('../../workers/pool');
+
+jest.mock('../../workers/pool', () => ({
+  WorkerPool: jest.fn().mockImplementation(() => ({
+    run: jest.fn(),
+    stats: jest.fn(() => ({ size: 2, busy: 1, queued: 0 })),
+    close: jest.fn().mockResolvedValue(undefined)
+  }))
+}));
+
+describe('WorkerExecutor', () => {
+  let executor;
+  let pool;
+
+  beforeEach(() => {
+    executor = new WorkerExecutor('/tmp/test.db', { workerThreads: 2, busyTimeoutMs: 1000 });
+    pool = WorkerPool.mock.results[WorkerPool.mock.results.length - 1].value;
+  });
+
+  afterEach(() => {
+    jest.clearAllMocks();
+  });
+
+  test('should start the pool with the db worker script and connection settings', () => {
+    expect(WorkerPool).toHaveBeenCalledWith(
+      expect.stringContaining('dbWorker.js'),
+      expect.objectContaining({
+        size: 2,
+        workerData: expect.objectContaining({ filename: '/tmp/test.db', busyTimeoutMs: 1000 })
+      })
+    );
+  });
+
+  test('should pass rows from the worker to the callback', (done) => {
+    const rows = [{ id: 1 }, { id: 2 }];
+    pool.run.mockResolvedValue(rows);
+
+    executor.all('SELECT id FROM clients WHERE user_email = ?', ['test@example.com'], (err, result) => {
+      expect(err).toBeNull();
+      expect(result).toEqual(rows);
+      expect(pool.run).toHaveBeenCalledWith({
+        method: 'all',
+        sql: 'SELECT id FROM clients WHERE user_email = ?',
+        params: ['test@example.com']
+      });
+      done();
+    });
+  });
+
+  test('should pass worker errors to the callback', (done) => {
+    const error = new Error('SQLITE_BUSY: database is locked');
+    error.code = 'SQLITE_BUSY';
+    pool.run.mockRejectedValue(error);
+
+    executor.get('SELECT 1', (err) => {
+      expect(err.code).toBe('SQLITE_BUSY');
+      expect(pool.run).toHaveBeenCalledWith({ method: 'get', sql: 'SELECT 1', params: [] });
+      done();
+    });
+  });
+
+  test('should report pool stats', () => {
+    expect(executor.stats()).toEqual({ size: 2, busy: 1, queued: 0 });
+  });
+
+  test('should close the pool', (done) => {
+    executor.close((err) => {
+      expect(err).toBeNull();
+      expect(pool.close).toHaveBeenCalled();
+      done();
+    });
+  });
+});
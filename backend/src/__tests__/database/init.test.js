@@ -1,5 +1,5 @@
 const sqlite3 = require('sqlite3');
-const { getDatabase, initializeDatabase, closeDatabase } = require('../../database/init');
+const { getDatabase, initializeDatabase, closeDatabase, getStatementCacheStats } = require('../../database/init');
 
 // Mock sqlite3
 jest.mock('sqlite3', () => {
@@ -8,6 +8,9 @@ jest.mock('sqlite3', () => {
     run: jest.fn((query, callback) => {
       if (typeof callback === 'function') callback(null);
     }),
+    get: jest.fn((query, callback) => callback(null, { user_version: 0 })),
+    all: jest.fn((query, callback) => callback(null, [])),
+    exec: jest.fn((query, callback) => callback(null)),
     close: jest.fn((callback) => callback(null))
   };
 
@@ -46,6 +49,13 @@ describe('Database Initialization', () => {
       expect(consoleLogSpy).toHaveBeenCalledWith('Connected to SQLite in-memory database');
     });
 
+    test('should enforce foreign keys on the in-memory database', () => {
+      const { getDatabase: getFreshDatabase } = require('../../database/init');
+      const db = getFreshDatabase().connection;
+
+      expect(db.run).toHaveBeenCalledWith('PRAGMA foreign_keys = ON');
+    });
+
     test('should return same database instance on multiple calls', () => {
       const db1 = getDatabase();
       const db2 = getDatabase();
@@ -76,7 +86,7 @@ describe('Database Initialization', () => {
 
   describe('initializeDatabase', () => {
     test('should create all required tables', async () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       await initializeDatabase();
 
       expect(db.serialize).toHaveBeenCalled();
@@ -91,8 +101,20 @@ describe('Database Initialization', () => {
       expect(queries.some(q => q.includes('CREATE TABLE IF NOT EXISTS work_entries'))).toBe(true);
     });
 
+    test('should run schema migrations after creating tables', async () => {
+      const db = getDatabase().connection;
+      await initializeDatabase();
+
+      const queries = db.run.mock.calls.map(call => call[0]);
+
+      expect(db.get).toHaveBeenCalledWith('PRAGMA user_version', expect.any(Function));
+      expect(queries).toContain('BEGIN IMMEDIATE');
+      expect(queries.some(q => q.startsWith('PRAGMA user_version ='))).toBe(true);
+      expect(queries).toContain('COMMIT');
+    });
+
     test('should create indexes for performance', async () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       await initializeDatabase();
 
       const runCalls = db.run.mock.calls;
@@ -115,9 +137,21 @@ describe('Database Initialization', () => {
     });
   });
 
+  describe('getStatementCacheStats', () => {
+    test('should report statement cache counters for the open connection', () => {
+      getDatabase();
+
+      expect(getStatementCacheStats()).toEqual(expect.objectContaining({
+        hits: expect.any(Number),
+        misses: expect.any(Number),
+        evictions: expect.any(Number)
+      }));
+    });
+  });
+
   describe('closeDatabase', () => {
     test('should close database connection', () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       closeDatabase();
 
       expect(db.close).toHaveBeenCalled();
@@ -125,7 +159,7 @@ describe('Database Initialization', () => {
     });
 
     test('should handle close error gracefully', () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       db.close.mockImplementation((callback) => callback(new Error('Close error')));
 
       closeDatabase();
@@ -134,7 +168,7 @@ describe('Database Initialization', () => {
     });
 
     test('should handle multiple close calls safely', () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       // Reset close mock to default behavior (no error)
       db.close.mockImplementation((callback) => callback(null));
       closeDatabase();
@@ -146,7 +180,7 @@ describe('Database Initialization', () => {
 
   describe('Database Schema', () => {
     test('users table should have correct structure', async () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       await initializeDatabase();
 
       const userTableQuery = db.run.mock.calls.find(call => 
@@ -159,7 +193,7 @@ describe('Database Initialization', () => {
     });
 
     test('clients table should have foreign key to users', async () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       await initializeDatabase();
 
       const clientTableQuery = db.run.mock.calls.find(call => 
@@ -172,7 +206,7 @@ describe('Database Initialization', () => {
     });
 
     test('work_entries table should have foreign keys', async () => {
-      const db = getDatabase();
+      const db = getDatabase().connection;
       await initializeDatabase();
 
       const workEntriesQuery = db.run.mock.calls.find(call => 
@@ -180,6 +214,7 @@ describe('Database Initialization', () => {
       );
 
       expect(workEntriesQuery).toBeDefined();
+      expect(workEntriesQuery[0]).toContain('centihours INTEGER NOT NULL');
       expect(workEntriesQuery[0]).toContain('FOREIGN KEY (client_id) REFERENCES clients (id) ON DELETE CASCADE');
       expect(workEntriesQuery[0]).toContain('FOREIGN KEY (user_email) REFERENCES users (email) ON DELETE CASCADE');
     });
@@ -0,0 +1,180 @@
+const { runMigrations, migrations } = require('../../database/migrations');
+
+// Migrations rewrite real data, so run them against an actual SQLite database
+const sqlite3 = jest.requireActual('sqlite3');
+
+const LATEST_VERSION = migrations[migrations.length - 1].version;
+
+function open() {
+  return new Promise((resolve, reject) => {
+    const db = new sqlite3.Database(':memory:', err => (err ? reject(err) : resolve(db)));
+  });
+}
+
+function exec(db, sql) {
+  return new Promise((resolve, reject) => db.exec(sql, err => (err ? reject(err) : resolve())));
+}
+
+function all(db, sql, params = []) {
+  return new Promise((resolve, reject) => db.all(sql, params, (err, rows) => (err ? reject(err) : resolve(rows))));
+}
+
+function close(db) {
+  return new Promise(resolve => db.close(() => resolve()));
+}
+
+const BASE_TABLES = `
+  CREATE TABLE users (email TEXT PRIMARY KEY, created_at DATETIME DEFAULT CURRENT_TIMESTAMP);
+  CREATE TABLE clients (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    name TEXT NOT NULL,
+    user_email TEXT NOT NULL,
+    FOREIGN KEY (user_email) REFERENCES users (email) ON DELETE CASCADE
+  );
+  INSERT INTO users (email) VALUES ('test@example.com');
+  INSERT INTO clients (name, user_email) VALUES ('Client A', 'test@example.com');
+`;
+
+const LEGACY_WORK_ENTRIES = `
+  CREATE TABLE work_entries (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    client_id INTEGER NOT NULL,
+    user_email TEXT NOT NULL,
+    hours DECIMAL(5,2) NOT NULL,
+    description TEXT,
+    date DATE NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (client_id) REFERENCES clients (id) ON DELETE CASCADE,
+    FOREIGN KEY (user_email) REFERENCES users (email) ON DELETE CASCADE
+  );
+`;
+
+describe('Database Migrations', () => {
+  let db;
+  let consoleLogSpy;
+
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    db = await open();
+    await exec(db, BASE_TABLES);
+  });
+
+  afterEach(async () => {
+    consoleLogSpy.mockRestore();
+    await close(db);
+  });
+
+  test('should stamp a fresh schema with the latest version without rewriting', async () => {
+    await exec(db, LEGACY_WORK_ENTRIES.replace('hours DECIMAL(5,2) NOT NULL', 'centihours INTEGER NOT NULL'));
+
+    await runMigrations(db);
+
+    const [{ user_version: version }] = await all(db, 'PRAGMA user_version');
+    expect(version).toBe(LATEST_VERSION);
+    expect(consoleLogSpy).not.toHaveBeenCalledWith(expect.stringContaining('Applied migration'));
+  });
+
+  test('should be a no-op when already at the latest version', async () => {
+    await exec(db, LEGACY_WORK_ENTRIES.replace('hours DECIMAL(5,2) NOT NULL', 'centihours INTEGER NOT NULL'));
+    await runMigrations(db);
+
+    await expect(runMigrations(db)).resolves.toBeUndefined();
+  });
+
+  describe('v1: integer centihours', () => {
+    test('should convert decimal hours to integer hundredths', async () => {
+      await exec(db, LEGACY_WORK_ENTRIES);
+      await exec(db, `
+        INSERT INTO work_entries (client_id, user_email, hours, description, date)
+        VALUES (1, 'test@example.com', 7.35, 'Work', '2024-01-01'),
+               (1, 'test@example.com', 0.1, NULL, '2024-01-02'),
+               (1, 'test@example.com', 8, 'Full day', '2024-01-03')
+      `);
+
+      await runMigrations(db);
+
+      const rows = await all(db, 'SELECT id, centihours, typeof(centihours) AS type FROM work_entries ORDER BY id');
+      expect(rows).toEqual([
+        { id: 1, centihours: 735, type: 'integer' },
+        { id: 2, centihours: 10, type: 'integer' },
+        { id: 3, centihours: 800, type: 'integer' }
+      ]);
+      expect(consoleLogSpy).toHaveBeenCalledWith('Applied migration 1: store work_entries hours as integer centihours');
+    });
+
+    test('should keep ids, foreign keys and indexes', async () => {
+      await exec(db, LEGACY_WORK_ENTRIES);
+      await exec(db, `INSERT INTO work_entries (id, client_id, user_email, hours, date) VALUES (42, 1, 'test@example.com', 2.5, '2024-01-01')`);
+
+      await runMigrations(db);
+
+      const columns = (await all(db, 'PRAGMA table_info(work_entries)')).map(column => column.name);
+      const foreignKeys = await all(db, 'PRAGMA foreign_key_list(work_entries)');
+      const indexes = (await all(db, 'PRAGMA index_list(work_entries)')).map(index => index.name);
+
+      expect(columns).toContain('centihours');
+      expect(columns).not.toContain('hours');
+      expect(foreignKeys.map(fk => fk.table).sort()).toEqual(['clients', 'users']);
+      expect(indexes).toEqual(expect.arrayContaining([
+        'idx_work_entries_client_id',
+        'idx_work_entries_user_email',
+        'idx_work_entries_date'
+      ]));
+      expect(await all(db, 'SELECT id FROM work_entries')).toEqual([{ id: 42 }]);
+    });
+  });
+
+  describe('v2: canonical YYYY-MM-DD dates', () => {
+    const insert = date => exec(db, `
+      INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES (1, 'test@example.com', 100, ${date})
+    `);
+
+    beforeEach(async () => {
+      await exec(db, LEGACY_WORK_ENTRIES.replace('hours DECIMAL(5,2) NOT NULL', 'centihours INTEGER NOT NULL'));
+    });
+
+    test('should normalize epoch milliseconds and ISO timestamps', async () => {
+      await insert(Date.UTC(2024, 0, 15));
+      await insert(`'2024-01-16T10:30:00.000Z'`);
+      await insert(`'2024-01-17'`);
+
+      await runMigrations(db);
+
+      const rows = await all(db, 'SELECT date, typeof(date) AS type FROM work_entries ORDER BY id');
+      expect(rows).toEqual([
+        { date: '2024-01-15', type: 'text' },
+        { date: '2024-01-16', type: 'text' },
+        { date: '2024-01-17', type: 'text' }
+      ]);
+      expect(consoleLogSpy).toHaveBeenCalledWith('Applied migration 2: store work_entries dates as YYYY-MM-DD');
+    });
+
+    test('should reject non-canonical dates on insert and update', async () => {
+      await runMigrations(db);
+
+      await expect(insert(Date.UTC(2024, 0, 15))).rejects.toThrow('work_entries.date must be YYYY-MM-DD');
+      await expect(insert(`'2024-01-15T10:30:00.000Z'`)).rejects.toThrow('work_entries.date must be YYYY-MM-DD');
+      await expect(insert(`'2024-13-01'`)).rejects.toThrow('work_entries.date must be YYYY-MM-DD');
+
+      await insert(`'2024-01-15'`);
+      await expect(exec(db, `UPDATE work_entries SET date = '15/01/2024'`)).rejects.toThrow('work_entries.date must be YYYY-MM-DD');
+      await exec(db, `UPDATE work_entries SET date = '2024-02-01'`);
+      expect(await all(db, 'SELECT date FROM work_entries')).toEqual([{ date: '2024-02-01' }]);
+    });
+  });
+
+  test('should roll back and keep the previous version when a migration fails', async () => {
+    await exec(db, LEGACY_WORK_ENTRIES);
+    migrations.push({ version: LATEST_VERSION + 1, name: 'broken', up: () => Promise.reject(new Error('boom')) });
+
+    try {
+      await expect(runMigrations(db)).rejects.toThrow('boom');
+    } finally {
+      migrations.pop();
+    }
+
+    const [{ user_version: version }] = await all(db, 'PRAGMA user_version');
+    expect(version).toBe(LATEST_VERSION);
+  });
+});
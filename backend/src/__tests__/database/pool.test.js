@@ -0,0 +1,300 @@
+const sqlite3 = require('sqlite3');
+const { PooledDatabase, storageOptionsFromEnv } = require('../../database/pool');
+
+// Mock sqlite3 with connections that record which handle served each call
+jest.mock('sqlite3', () => {
+  const instances = [];
+
+  function createConnection(filename, mode) {
+    const connection = {
+      filename,
+      mode,
+      configure: jest.fn(),
+      serialize: jest.fn((callback) => callback()),
+      run: jest.fn((query, ...args) => {
+        const callback = args.find(arg => typeof arg === 'function');
+        if (callback) callback.call({ lastID: 7, changes: 1 }, null);
+      }),
+      get: jest.fn((query, params, callback) => callback(null, { mode: connection.mode })),
+      all: jest.fn((query, params, callback) => callback(null, [])),
+      each: jest.fn((query, params, onRow, onComplete) => onComplete(null, 0)),
+      exec: jest.fn((query, callback) => callback && callback(null)),
+      prepare: jest.fn((query, callback) => {
+        if (callback) callback(null);
+        return {
+          get: (...args) => connection.get(query, ...args),
+          all: (...args) => connection.all(query, ...args),
+          run: (...args) => connection.run(query, ...args),
+          each: (...args) => connection.each(query, ...args),
+          reset: jest.fn(),
+          finalize: jest.fn((callback) => callback && callback())
+        };
+      }),
+      close: jest.fn((callback) => callback && callback(null))
+    };
+    return connection;
+  }
+
+  const binding = {
+    OPEN_READONLY: 1,
+    instances,
+    Database: jest.fn((filename, modeOrCallback, callback) => {
+      const mode = typeof modeOrCallback === 'number' ? modeOrCallback : undefined;
+      const cb = typeof modeOrCallback === 'function' ? modeOrCallback : callback;
+      const connection = createConnection(filename, mode);
+      instances.push(connection);
+      if (cb) cb(null);
+      return connection;
+    })
+  };
+
+  return {
+    verbose: jest.fn(() => binding)
+  };
+});
+
+jest.mock('../../database/executor', () => ({
+  WorkerExecutor: jest.fn().mockImplementation(() => ({
+    get: jest.fn((query, params, callback) => callback(null, { mode: 'worker' })),
+    all: jest.fn((query, params, callback) => callback(null, [])),
+    stats: jest.fn(() => ({ size: 2, busy: 0, queued: 0 })),
+    close: jest.fn((callback) => callback && callback(null))
+  })),
+  DEFAULT_WORKER_THREADS: 2,
+  DEFAULT_WORKER_TIMEOUT_MS: 30000
+}));
+
+describe('PooledDatabase', () => {
+  let binding;
+  let pool;
+
+  beforeEach(() => {
+    binding = sqlite3.verbose();
+    binding.instances.length = 0;
+  });
+
+  afterEach(() => {
+    if (pool) {
+      pool.close();
+      pool = null;
+    }
+    jest.clearAllMocks();
+    jest.useRealTimers();
+  });
+
+  describe('connections', () => {
+    test('should open a WAL writer and read-only readers', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 3, checkpointIntervalMs: 0 });
+
+      const [writer, ...readers] = binding.instances;
+      const pragmas = writer.run.mock.calls.map(call => call[0]);
+
+      expect(pragmas).toContain('PRAGMA journal_mode = WAL');
+      expect(pragmas).toContain('PRAGMA foreign_keys = ON');
+      expect(writer.mode).toBeUndefined();
+      expect(readers).toHaveLength(3);
+      readers.forEach(reader => expect(reader.mode).toBe(binding.OPEN_READONLY));
+    });
+
+    test('should apply busy timeout to every connection', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 0, busyTimeoutMs: 1234 });
+
+      binding.instances.forEach((connection) => {
+        expect(connection.configure).toHaveBeenCalledWith('busyTimeout', 1234);
+      });
+    });
+  });
+
+  describe('query routing', () => {
+    test('should send reads to readers and writes to the writer', (done) => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 0 });
+      const [writer] = binding.instances;
+
+      pool.run('INSERT INTO users (email) VALUES (?)', ['a@example.com'], function(err) {
+        expect(err).toBeNull();
+        expect(this.lastID).toBe(7);
+
+        pool.get('SELECT email FROM users WHERE email = ?', ['a@example.com'], (err, row) => {
+          expect(row.mode).toBe(binding.OPEN_READONLY);
+          expect(writer.get).not.toHaveBeenCalled();
+          done();
+        });
+      });
+    });
+
+    test('should pick the reader with the fewest pending queries', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 0 });
+      const [, first, second] = binding.instances;
+
+      // First reader never completes, so it stays busy
+      first.all.mockImplementation(() => {});
+
+      pool.all('SELECT 1', [], () => {});
+      pool.all('SELECT 2', [], () => {});
+
+      expect(first.all).toHaveBeenCalledTimes(1);
+      expect(second.all).toHaveBeenCalledTimes(1);
+    });
+
+    test('should track completion of each() through its final callback', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 0 });
+      const onRow = jest.fn();
+      const onComplete = jest.fn();
+
+      pool.each('SELECT 1', [], onRow, onComplete);
+
+      expect(onComplete).toHaveBeenCalledWith(null, 0);
+      expect(pool.readers[0].pending).toBe(0);
+    });
+
+    test('should keep reads on the writer inside serialize()', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 0 });
+      const [writer] = binding.instances;
+
+      pool.serialize(() => {
+        pool.get('SELECT 1', [], () => {});
+      });
+
+      expect(writer.get).toHaveBeenCalled();
+    });
+
+    test('should send RETURNING writes to the writer', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 0 });
+      const [writer, first, second] = binding.instances;
+      const callback = jest.fn();
+
+      pool.writeAll('DELETE FROM clients WHERE id = ? RETURNING id', [1], callback);
+
+      expect(writer.all).toHaveBeenCalled();
+      expect(first.all).not.toHaveBeenCalled();
+      expect(second.all).not.toHaveBeenCalled();
+      expect(callback).toHaveBeenCalledWith(null, []);
+    });
+
+    test('should fall back to the writer when no reader is open', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 0, checkpointIntervalMs: 0 });
+      const [writer] = binding.instances;
+
+      pool.all('SELECT 1', [], () => {});
+
+      expect(writer.all).toHaveBeenCalled();
+    });
+  });
+
+  describe('worker executor', () => {
+    const { WorkerExecutor } = require('../../database/executor');
+
+    test('should not start workers by default', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 0 });
+
+      expect(WorkerExecutor).not.toHaveBeenCalled();
+      expect(pool.executorStats()).toBeNull();
+    });
+
+    test('should run get/all on the executor when enabled', (done) => {
+      pool = new PooledDatabase('/tmp/test.db', {
+        readPoolSize: 1,
+        checkpointIntervalMs: 0,
+        executor: 'worker',
+        workerThreads: 3
+      });
+      const executor = WorkerExecutor.mock.results[0].value;
+
+      expect(WorkerExecutor).toHaveBeenCalledWith('/tmp/test.db', expect.objectContaining({ workerThreads: 3 }));
+
+      pool.get('SELECT 1 WHERE 1 = ?', [1], (err, row) => {
+        expect(row).toEqual({ mode: 'worker' });
+        expect(executor.get).toHaveBeenCalled();
+        done();
+      });
+    });
+
+    test('should keep each() on local readers', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 0, executor: 'worker' });
+      const [, reader] = binding.instances;
+
+      pool.each('SELECT 1 WHERE 1 = ?', [1], () => {}, () => {});
+
+      expect(reader.each).toHaveBeenCalled();
+    });
+
+    test('should close the executor with the pool', (done) => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 0, executor: 'worker' });
+      const executor = WorkerExecutor.mock.results[0].value;
+
+      pool.close(() => {
+        expect(executor.close).toHaveBeenCalled();
+        pool = null;
+        done();
+      });
+    });
+  });
+
+  describe('statement cache', () => {
+    test('should report merged cache counters across connections', () => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 0 });
+
+      pool.get('SELECT 1 WHERE 1 = ?', [1], () => {});
+      pool.get('SELECT 1 WHERE 1 = ?', [1], () => {});
+      pool.run('DELETE FROM users WHERE email = ?', ['a@example.com'], () => {});
+
+      expect(pool.stats()).toEqual(expect.objectContaining({ hits: 1, misses: 2 }));
+    });
+  });
+
+  describe('checkpoints', () => {
+    test('should run passive WAL checkpoints on the configured interval', () => {
+      jest.useFakeTimers();
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 1, checkpointIntervalMs: 1000 });
+      const [writer] = binding.instances;
+
+      jest.advanceTimersByTime(2500);
+
+      const checkpoints = writer.run.mock.calls.filter(call => call[0] === 'PRAGMA wal_checkpoint(PASSIVE)');
+      expect(checkpoints).toHaveLength(2);
+    });
+  });
+
+  describe('close', () => {
+    test('should close readers and the writer', (done) => {
+      pool = new PooledDatabase('/tmp/test.db', { readPoolSize: 2, checkpointIntervalMs: 1000 });
+      const connections = [...binding.instances];
+
+      pool.close((err) => {
+        expect(err).toBeNull();
+        connections.forEach(connection => expect(connection.close).toHaveBeenCalled());
+        expect(pool.checkpointTimer).toBeNull();
+        pool = null;
+        done();
+      });
+    });
+  });
+
+  describe('storageOptionsFromEnv', () => {
+    const originalEnv = process.env;
+
+    afterEach(() => {
+      process.env = originalEnv;
+    });
+
+    test('should read pool settings from the environment', () => {
+      process.env = { ...originalEnv, DB_READ_POOL_SIZE: '8', DB_CHECKPOINT_INTERVAL_MS: '0' };
+
+      expect(storageOptionsFromEnv()).toEqual({
+        readPoolSize: 8,
+        checkpointIntervalMs: 0,
+        busyTimeoutMs: 5000,
+        statementCacheSize: 100,
+        executor: 'inline',
+        workerThreads: 2,
+        workerTimeoutMs: 30000
+      });
+    });
+
+    test('should fall back to defaults for invalid values', () => {
+      process.env = { ...originalEnv, DB_READ_POOL_SIZE: 'lots' };
+
+      expect(storageOptionsFromEnv().readPoolSize).toBe(4);
+    });
+  });
+});
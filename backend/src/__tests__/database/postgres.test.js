@@ -0,0 +1,106 @@
+const pg = require('pg');
+const {
+  postgresOptionsFromEnv,
+  createPostgresPool,
+  toPostgresPlaceholders,
+  statementName
+} = require('../../database/postgres');
+
+// pg is an optional dependency, loaded only for REPOSITORY_BACKEND=postgres
+jest.mock('pg', () => {
+  const defaultParser = jest.fn(() => String);
+  return {
+    Pool: jest.fn(function(config) {
+      this.config = config;
+      this.on = jest.fn();
+    }),
+    types: { getTypeParser: defaultParser }
+  };
+}, { virtual: true });
+
+describe('PostgreSQL connection', () => {
+  const savedEnv = { ...process.env };
+
+  afterEach(() => {
+    process.env = { ...savedEnv };
+    pg.Pool.mockClear();
+  });
+
+  describe('postgresOptionsFromEnv', () => {
+    test('should use defaults when unset', () => {
+      delete process.env.DATABASE_URL;
+      delete process.env.PG_POOL_SIZE;
+      delete process.env.PG_IDLE_TIMEOUT_MS;
+      delete process.env.PG_CONNECT_TIMEOUT_MS;
+
+      expect(postgresOptionsFromEnv()).toEqual({
+        connectionString: undefined,
+        poolSize: 10,
+        idleTimeoutMs: 30000,
+        connectTimeoutMs: 5000
+      });
+    });
+
+    test('should read the environment', () => {
+      process.env.DATABASE_URL = 'postgres://app@db/timesheet';
+      process.env.PG_POOL_SIZE = '25';
+      process.env.PG_IDLE_TIMEOUT_MS = '1000';
+      process.env.PG_CONNECT_TIMEOUT_MS = '0';
+
+      expect(postgresOptionsFromEnv()).toEqual({
+        connectionString: 'postgres://app@db/timesheet',
+        poolSize: 25,
+        idleTimeoutMs: 1000,
+        connectTimeoutMs: 0
+      });
+    });
+  });
+
+  describe('createPostgresPool', () => {
+    test('should pass the pool options to pg', () => {
+      const pool = createPostgresPool({ connectionString: 'postgres://db/app', poolSize: 4, idleTimeoutMs: 100, connectTimeoutMs: 200 });
+
+      expect(pool.config).toEqual(expect.objectContaining({
+        connectionString: 'postgres://db/app',
+        max: 4,
+        idleTimeoutMillis: 100,
+        connectionTimeoutMillis: 200
+      }));
+      expect(pool.on).toHaveBeenCalledWith('error', expect.any(Function));
+    });
+
+    test('should parse BIGINT and NUMERIC columns as numbers', () => {
+      const { getTypeParser } = createPostgresPool({}).config.types;
+
+      expect(getTypeParser(20, 'text')('9007199254740991')).toBe(9007199254740991);
+      expect(getTypeParser(1700, 'text')('5.5000000000000000')).toBe(5.5);
+      expect(getTypeParser(25, 'text')).toBe(String);
+      expect(pg.types.getTypeParser).toHaveBeenCalledWith(25, 'text');
+    });
+  });
+
+  describe('toPostgresPlaceholders', () => {
+    test('should number the placeholders in order', () => {
+      expect(toPostgresPlaceholders('SELECT id FROM clients WHERE id = ? AND user_email = ?'))
+        .toBe('SELECT id FROM clients WHERE id = $1 AND user_email = $2');
+    });
+
+    test('should leave question marks in string literals alone', () => {
+      expect(toPostgresPlaceholders('SELECT \'why?\' AS q, ? AS a')).toBe('SELECT \'why?\' AS q, $1 AS a');
+    });
+
+    test('should keep statements without parameters', () => {
+      expect(toPostgresPlaceholders('SELECT 1')).toBe('SELECT 1');
+    });
+  });
+
+  describe('statementName', () => {
+    test('should name a statement by its text', () => {
+      const name = statementName('SELECT $1');
+
+      expect(name).toMatch(/^s_[0-9a-f]{20}$/);
+      expect(statementName('SELECT $1')).toBe(name);
+      expect(statementName('SELECT $2')).not.toBe(name);
+    });
+  });
+});
@@ -0,0 +1,83 @@
+const { runPostgresMigrations, migrations } = require('../../database/postgresMigrations');
+
+describe('PostgreSQL Migrations', () => {
+  let client;
+  let pool;
+  let applied;
+  let consoleLogSpy;
+
+  beforeEach(() => {
+    applied = new Set();
+    client = {
+      query: jest.fn(async (sql, params) => {
+        if (sql.startsWith('SELECT 1 FROM schema_migrations')) {
+          return { rowCount: applied.has(params[0]) ? 1 : 0, rows: [] };
+        }
+        if (sql.startsWith('INSERT INTO schema_migrations')) {
+          applied.add(params[0]);
+        }
+        return { rowCount: 0, rows: [] };
+      }),
+      release: jest.fn()
+    };
+    pool = { connect: jest.fn().mockResolvedValue(client) };
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+  });
+
+  afterEach(() => {
+    consoleLogSpy.mockRestore();
+  });
+
+  const statements = () => client.query.mock.calls.map(([sql]) => sql);
+
+  test('should apply every migration in its own locked transaction', async () => {
+    await runPostgresMigrations(pool);
+
+    const sql = statements();
+    expect(sql.filter(statement => statement === 'BEGIN')).toHaveLength(migrations.length);
+    expect(sql.filter(statement => statement === 'COMMIT')).toHaveLength(migrations.length);
+    expect(sql[1]).toBe('SELECT pg_advisory_xact_lock($1)');
+    expect(sql).toContain(migrations[0].sql);
+    expect(sql).toContain(migrations[1].sql);
+    expect([...applied]).toEqual([1, 2]);
+    expect(client.release).toHaveBeenCalledTimes(1);
+  });
+
+  test('should skip migrations that are already recorded', async () => {
+    applied.add(1);
+    applied.add(2);
+
+    await runPostgresMigrations(pool);
+
+    expect(statements()).not.toContain(migrations[0].sql);
+    expect(statements()).not.toContain(migrations[1].sql);
+    expect(consoleLogSpy).not.toHaveBeenCalled();
+  });
+
+  test('should roll back and stop when a migration fails', async () => {
+    const error = new Error('permission denied for schema public');
+    client.query.mockImplementation(async (sql) => {
+      if (sql === migrations[0].sql) {
+        throw error;
+      }
+      return { rowCount: 0, rows: [] };
+    });
+
+    await expect(runPostgresMigrations(pool)).rejects.toBe(error);
+
+    expect(statements()).toContain('ROLLBACK');
+    expect(statements()).not.toContain('COMMIT');
+    expect(client.release).toHaveBeenCalledTimes(1);
+  });
+
+  test('should keep the schema equivalent to SQLite', () => {
+    const [schema, rollup] = migrations.map(migration => migration.sql);
+
+    expect(schema).toContain('CREATE INDEX idx_clients_user_name ON clients (user_email, name)');
+    expect(schema).toContain('idx_work_entries_user_date ON work_entries (user_email, date, created_at, id)');
+    expect(schema).toContain('idx_work_entries_user_client_date ON work_entries (user_email, client_id, date, created_at, id)');
+    expect(schema).toContain('ON DELETE CASCADE');
+    expect(rollup).toContain('CREATE TABLE work_entry_daily_rollup');
+    expect(rollup).toContain('AFTER INSERT OR DELETE OR UPDATE OF user_email, client_id, date, centihours ON work_entries');
+  });
+});
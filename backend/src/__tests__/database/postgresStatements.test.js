@@ -0,0 +1,38 @@
+const queries = require('../../database/queries');
+const writes = require('../../database/writes');
+const postgres = require('../../database/postgresStatements');
+
+// Dynamic statements are checked with a representative SET and WHERE clause
+function statementText(statement) {
+  return typeof statement === 'function' ? statement('name = ?', 'id = ?') : statement;
+}
+
+describe('PostgreSQL statements', () => {
+  test('should cover every shared statement', () => {
+    expect(Object.keys(postgres.queries).sort()).toEqual(Object.keys(queries).sort());
+    expect(Object.keys(postgres.writes).sort()).toEqual(Object.keys(writes).sort());
+  });
+
+  test.each([
+    ['json_each', /json_each/],
+    ['CURRENT_TIMESTAMP', /CURRENT_TIMESTAMP/],
+    ['unquoted camelCase aliases', /\bAS [a-z]+[A-Z]\w*/]
+  ])('should not use %s', (name, pattern) => {
+    const statements = [...Object.values(postgres.queries), ...Object.values(postgres.writes)].map(statementText);
+
+    statements.forEach(sql => expect(sql).not.toMatch(pattern));
+  });
+
+  test('should keep the SQLite statements where the dialects agree', () => {
+    expect(postgres.queries.listWorkEntriesPage).toBe(queries.listWorkEntriesPage);
+    expect(postgres.writes.insertClient).toBe(writes.insertClient);
+    expect(postgres.writes.updateWorkEntry).toBe(writes.updateWorkEntry);
+  });
+
+  test('should return the same columns as SQLite from work entry writes', () => {
+    const returning = sql => sql.slice(sql.indexOf('RETURNING')).replace(/\s+/g, ' ');
+
+    expect(returning(postgres.writes.insertWorkEntry)).toBe(returning(writes.insertWorkEntry));
+    expect(returning(postgres.writes.insertWorkEntries)).toBe(returning(writes.insertWorkEntries));
+  });
+});
@@ -0,0 +1,78 @@
+const { timeQuery, timedCallback, statementLabel } = require('../../database/queryMetrics');
+const { registry } = require('../../utils/metrics');
+const queries = require('../../database/queries');
+
+function queryCount(statement) {
+  const match = new RegExp(`db_query_duration_seconds_count\\{statement="${statement}"\\} (\\d+)`).exec(registry.render());
+  return match ? Number(match[1]) : 0;
+}
+
+describe('Query Metrics', () => {
+  describe('statementLabel', () => {
+    test('should name catalogued queries', () => {
+      expect(statementLabel(queries.listClients)).toBe('listClients');
+      expect(statementLabel(queries.getClientTotals)).toBe('getClientTotals');
+    });
+
+    test('should label other statements by verb and table', () => {
+      expect(statementLabel('INSERT INTO clients (name, user_email) VALUES (?, ?)')).toBe('INSERT clients');
+      expect(statementLabel('UPDATE work_entries SET centihours = ? WHERE id = ?')).toBe('UPDATE work_entries');
+      expect(statementLabel('DELETE FROM clients WHERE id = ?')).toBe('DELETE clients');
+      expect(statementLabel('select id from users where email = ?')).toBe('SELECT users');
+      expect(statementLabel('PRAGMA user_version')).toBe('other');
+    });
+  });
+
+  describe('timeQuery', () => {
+    test('should time the completion callback and keep its this', () => {
+      const before = queryCount('findOwnClient');
+      const callback = jest.fn(function() {
+        return this.changes;
+      });
+      const args = [[1, 'test@example.com'], callback];
+
+      timeQuery('get', queries.findOwnClient, args);
+      const result = args[1].call({ changes: 2 }, null, { id: 1 });
+
+      expect(result).toBe(2);
+      expect(callback).toHaveBeenCalledWith(null, { id: 1 });
+      expect(queryCount('findOwnClient')).toBe(before + 1);
+    });
+
+    test('should leave calls without a completion callback alone', () => {
+      const args = [['test@example.com']];
+      timeQuery('run', 'INSERT INTO users (email) VALUES (?)', args);
+      expect(args).toEqual([['test@example.com']]);
+
+      const onRow = jest.fn();
+      const eachArgs = [[1], onRow];
+      timeQuery('each', queries.listExportEntries, eachArgs);
+      expect(eachArgs[1]).toBe(onRow);
+    });
+
+    test('should time each() on its completion callback', () => {
+      const before = queryCount('listReportEntries');
+      const onRow = jest.fn();
+      const onComplete = jest.fn();
+      const args = [[1, 'test@example.com'], onRow, onComplete];
+
+      timeQuery('each', queries.listReportEntries, args);
+      args[1](null, {});
+      args[1](null, {});
+      args[2](null, 2);
+
+      expect(args[1]).toBe(onRow);
+      expect(onComplete).toHaveBeenCalledWith(null, 2);
+      expect(queryCount('listReportEntries')).toBe(before + 1);
+    });
+  });
+
+  test('timedCallback should record one observation per call', () => {
+    const before = queryCount('DELETE work_entries');
+    const callback = timedCallback('DELETE FROM work_entries WHERE id = ?', jest.fn());
+
+    callback(null);
+
+    expect(queryCount('DELETE work_entries')).toBe(before + 1);
+  });
+});
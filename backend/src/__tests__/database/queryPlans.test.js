@@ -0,0 +1,127 @@
+// Query plans depend on the real schema and indexes, so run against an
+// actual in-memory SQLite database instead of the global mock
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { getDatabase, initializeDatabase, closeDatabase } = require('../../database/init');
+const queries = require('../../database/queries');
+const writes = require('../../database/writes');
+
+// Every hot query with representative parameters
+const cases = [
+  ['listWorkEntriesPage', ['test@example.com', '0000-01-01', '9999-12-31', '~', Number.MAX_SAFE_INTEGER, 51]],
+  ['listWorkEntriesForClientPage', ['test@example.com', 1, '2024-01-01', '2024-01-15', '2024-01-15 10:00:00', 42, 51]],
+  ['getWorkEntry', [1, 'test@example.com']],
+  ['findOwnWorkEntry', [1, 'test@example.com']],
+  ['getDashboardTotals', ['test@example.com', 'test@example.com']],
+  ['getUser', ['test@example.com']],
+  ['listClients', ['test@example.com']],
+  ['getClient', [1, 'test@example.com']],
+  ['findOwnClient', [1, 'test@example.com']],
+  ['findOwnClients', ['[1, 2]', 'test@example.com']],
+  ['getReportClient', [1, 'test@example.com']],
+  ['getClientTotals', ['test@example.com', 1]],
+  ['listReportEntries', [1, 'test@example.com']],
+  ['listReportEntriesPage', [1, 'test@example.com', 51, 0]],
+  ['listExportEntries', [1, 'test@example.com', 500]],
+  ['listExportEntriesAfter', [1, 'test@example.com', '2024-01-15', '2024-01-15 10:00:00', 42, 500]]
+];
+
+// Every write, dynamic statements with the clauses the repositories build.
+// The SET fragment, id list and target client check are planned as part of
+// the bulk statements.
+const set = `description = ?, ${writes.setUpdatedAt}`;
+const byIds = `user_email = ? AND ${writes.workEntryIdsIn}`;
+const byFilter = 'user_email = ? AND client_id = ? AND date >= ? AND date <= ?';
+const fragments = ['setUpdatedAt', 'workEntryIdsIn', 'ownClientExists'];
+const writeCases = [
+  ['insertUser', writes.insertUser, ['test@example.com']],
+  ['insertClient', writes.insertClient, ['Acme', null, null, null, 'test@example.com']],
+  ['updateClient', writes.updateClient(`name = ?, ${writes.setUpdatedAt}`), ['Acme', 1, 'test@example.com']],
+  ['deleteClient', writes.deleteClient, [1, 'test@example.com']],
+  ['deleteClients', writes.deleteClients, ['test@example.com']],
+  ['insertWorkEntry', writes.insertWorkEntry, [100, null, '2024-01-15', 1, 'test@example.com']],
+  ['insertWorkEntries', writes.insertWorkEntries, ['[[1, 100, null, "2024-01-15"]]', 'test@example.com', '[[1, 100, null, "2024-01-15"]]', 'test@example.com']],
+  ['updateWorkEntry', writes.updateWorkEntry(set), ['Standup', 1, 'test@example.com']],
+  ['updateWorkEntryAndClient', writes.updateWorkEntryAndClient(`client_id = ?, ${writes.setUpdatedAt}`), [2, 1, 'test@example.com', 2, 'test@example.com']],
+  ['deleteWorkEntry', writes.deleteWorkEntry, [1, 'test@example.com']],
+  ['updateWorkEntries by ids', writes.updateWorkEntries(set, byIds), ['Standup', 'test@example.com', '[1, 2]']],
+  ['updateWorkEntries by filter', writes.updateWorkEntries(set, byFilter), ['Standup', 'test@example.com', 1, '2024-01-01', '2024-01-31']],
+  ['updateWorkEntries moving clients', writes.updateWorkEntries(`client_id = ?, ${writes.setUpdatedAt}`, `${byIds} AND ${writes.ownClientExists}`), [2, 'test@example.com', '[1, 2]', 2, 'test@example.com']],
+  ['deleteWorkEntries by ids', writes.deleteWorkEntries(byIds), ['test@example.com', '[1, 2]']],
+  ['deleteWorkEntries by filter', writes.deleteWorkEntries(byFilter), ['test@example.com', 1, '2024-01-01', '2024-01-31']]
+];
+
+// insertWorkEntries sorts its JSON parameter by array index so the new ids
+// follow the input order (createMany relies on it). That sort is over at
+// most one batch of request items, never a table.
+const allowedSorts = {
+  insertWorkEntries: ['USE TEMP B-TREE FOR ORDER BY']
+};
+
+function explain(sql, params) {
+  return new Promise((resolve, reject) => {
+    getDatabase().all(`EXPLAIN QUERY PLAN ${sql}`, params, (err, rows) => (err ? reject(err) : resolve(rows)));
+  });
+}
+
+describe('Query Plans', () => {
+  let consoleLogSpy;
+
+  beforeAll(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    await initializeDatabase();
+  });
+
+  afterAll(async () => {
+    await closeDatabase();
+    consoleLogSpy.mockRestore();
+  });
+
+  test('should cover every catalogued query', () => {
+    expect(cases.map(([name]) => name).sort()).toEqual(Object.keys(queries).sort());
+  });
+
+  test.each(cases)('%s should use indexes without sorting', async (name, params) => {
+    const plan = (await explain(queries[name], params)).map(step => step.detail);
+
+    // Walking a json_each() parameter is fine; scanning a table is not
+    expect(plan.filter(detail => detail.startsWith('SCAN') && !detail.includes('VIRTUAL TABLE'))).toEqual([]);
+    expect(plan.filter(detail => detail.includes('USE TEMP B-TREE'))).toEqual([]);
+  });
+
+  test('should cover every catalogued write', () => {
+    const covered = new Set(writeCases.map(([name]) => name.split(' ')[0]));
+
+    expect([...covered, ...fragments].sort()).toEqual(Object.keys(writes).sort());
+  });
+
+  test.each(writeCases)('%s should use indexes', async (name, sql, params) => {
+    const plan = (await explain(sql, params)).map(step => step.detail);
+    const allowed = allowedSorts[name] || [];
+
+    expect(plan.filter(detail => detail.startsWith('SCAN') && !detail.includes('VIRTUAL TABLE'))).toEqual([]);
+    expect(plan.filter(detail => detail.includes('USE TEMP B-TREE') && !allowed.includes(detail))).toEqual([]);
+  });
+
+  test('should find bulk selections through the user indexes', async () => {
+    const byIdsPlan = (await explain(writes.deleteWorkEntries(byIds), ['test@example.com', '[1, 2]'])).map(step => step.detail);
+    const byFilterPlan = (await explain(writes.deleteWorkEntries(byFilter), ['test@example.com', 1, '2024-01-01', '2024-01-31'])).map(step => step.detail);
+
+    expect(byIdsPlan.join('\n')).toContain('SEARCH work_entries USING COVERING INDEX idx_work_entries_user_email (user_email=? AND rowid=?)');
+    expect(byFilterPlan.join('\n')).toContain('idx_work_entries_user_client_date');
+  });
+
+  test('should read report entries from the composite index', async () => {
+    const plan = (await explain(queries.listReportEntries, [1, 'test@example.com'])).map(step => step.detail);
+
+    expect(plan.join('\n')).toContain('idx_work_entries_user_client_date');
+  });
+
+  test('should read listing entries from the composite indexes', async () => {
+    const all = (await explain(queries.listWorkEntriesPage, ['test@example.com', '0000-01-01', '9999-12-31', '~', Number.MAX_SAFE_INTEGER, 51])).map(step => step.detail);
+    const forClient = (await explain(queries.listWorkEntriesForClientPage, ['test@example.com', 1, '0000-01-01', '9999-12-31', '~', Number.MAX_SAFE_INTEGER, 51])).map(step => step.detail);
+
+    expect(all.join('\n')).toContain('idx_work_entries_user_date');
+    expect(forClient.join('\n')).toContain('idx_work_entries_user_client_date');
+  });
+});
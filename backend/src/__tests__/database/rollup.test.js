@@ -0,0 +1,210 @@
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { getDatabase, initializeDatabase, closeDatabase } = require('../../database/init');
+const { runMigrations } = require('../../database/migrations');
+const { rebuildDailyRollup } = require('../../database/rollup');
+const queries = require('../../database/queries');
+
+// The rollup is maintained by triggers, so exercise a real SQLite database
+const sqlite3 = jest.requireActual('sqlite3');
+
+function open() {
+  return new Promise((resolve, reject) => {
+    const db = new sqlite3.Database(':memory:', err => (err ? reject(err) : resolve(db)));
+  });
+}
+
+function exec(db, sql) {
+  return new Promise((resolve, reject) => db.exec(sql, err => (err ? reject(err) : resolve())));
+}
+
+function all(db, sql) {
+  return new Promise((resolve, reject) => db.all(sql, (err, rows) => (err ? reject(err) : resolve(rows))));
+}
+
+function rollup(db) {
+  return all(db, `
+    SELECT user_email, client_id, day, total_centihours, entry_count
+    FROM work_entry_daily_rollup
+    ORDER BY user_email, client_id, day
+  `);
+}
+
+const SEED = `
+  INSERT INTO users (email) VALUES ('a@example.com'), ('b@example.com');
+  INSERT INTO clients (name, user_email) VALUES ('Client A', 'a@example.com'), ('Client B', 'a@example.com');
+`;
+
+// Pre-rollup schema (migration 3) for checking that migration 4 seeds the
+// rollup from existing rows
+const LEGACY_SCHEMA = `
+  CREATE TABLE users (email TEXT PRIMARY KEY);
+  CREATE TABLE clients (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    name TEXT NOT NULL,
+    user_email TEXT NOT NULL
+  );
+  CREATE TABLE work_entries (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    client_id INTEGER NOT NULL,
+    user_email TEXT NOT NULL,
+    centihours INTEGER NOT NULL,
+    description TEXT,
+    date DATE NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
+  );
+  PRAGMA user_version = 3;
+  ${SEED}
+`;
+
+describe('Daily Rollup', () => {
+  let db;
+  let consoleLogSpy;
+
+  // The database as the application opens it, through initializeDatabase()
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    await initializeDatabase();
+    db = getDatabase();
+    await exec(db, SEED);
+  });
+
+  afterEach(async () => {
+    await closeDatabase();
+    consoleLogSpy.mockRestore();
+  });
+
+  describe('on a pre-rollup schema', () => {
+    let legacy;
+
+    beforeEach(async () => {
+      legacy = await open();
+      await exec(legacy, LEGACY_SCHEMA);
+    });
+
+    afterEach(async () => {
+      await new Promise(resolve => legacy.close(() => resolve()));
+    });
+
+    test('should seed the rollup from existing entries when migrating', async () => {
+      await exec(legacy, `
+        INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES
+          (1, 'a@example.com', 150, '2024-01-01'),
+          (1, 'a@example.com', 250, '2024-01-01'),
+          (2, 'a@example.com', 800, '2024-01-02')
+      `);
+
+      await runMigrations(legacy);
+
+      expect(await rollup(legacy)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-01', total_centihours: 400, entry_count: 2 },
+        { user_email: 'a@example.com', client_id: 2, day: '2024-01-02', total_centihours: 800, entry_count: 1 }
+      ]);
+    });
+
+    test('should roll back and reject when the rebuild fails', async () => {
+      await exec(legacy, 'CREATE TABLE work_entry_daily_rollup (user_email TEXT)');
+
+      await expect(rebuildDailyRollup(legacy)).rejects.toThrow();
+      expect(await all(legacy, 'SELECT * FROM work_entry_daily_rollup')).toEqual([]);
+    });
+  });
+
+  describe('triggers', () => {
+    beforeEach(async () => {
+      await exec(db, `
+        INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES
+          (1, 'a@example.com', 150, '2024-01-01'),
+          (1, 'a@example.com', 250, '2024-01-01')
+      `);
+    });
+
+    test('should accumulate inserts into one row per day', async () => {
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-01', total_centihours: 400, entry_count: 2 }
+      ]);
+    });
+
+    test('should move hours when an entry changes day or client', async () => {
+      await exec(db, `UPDATE work_entries SET date = '2024-01-02', centihours = 300 WHERE id = 2`);
+      await exec(db, `UPDATE work_entries SET client_id = 2 WHERE id = 1`);
+
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-02', total_centihours: 300, entry_count: 1 },
+        { user_email: 'a@example.com', client_id: 2, day: '2024-01-01', total_centihours: 150, entry_count: 1 }
+      ]);
+    });
+
+    test('should ignore updates that do not touch rolled-up columns', async () => {
+      await exec(db, `UPDATE work_entries SET description = 'Notes' WHERE id = 1`);
+
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-01', total_centihours: 400, entry_count: 2 }
+      ]);
+    });
+
+    test('should drop days whose last entry is deleted', async () => {
+      await exec(db, 'DELETE FROM work_entries WHERE id = 1');
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-01', total_centihours: 250, entry_count: 1 }
+      ]);
+
+      await exec(db, 'DELETE FROM work_entries WHERE id = 2');
+      expect(await rollup(db)).toEqual([]);
+    });
+
+    test('should give exact decimal totals for the client report', async () => {
+      await exec(db, `
+        INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES
+          (1, 'a@example.com', 10, '2024-01-02'),
+          (1, 'a@example.com', 20, '2024-01-03')
+      `);
+
+      const totals = await new Promise((resolve, reject) => {
+        db.get(queries.getClientTotals, ['a@example.com', 1], (err, row) => (err ? reject(err) : resolve(row)));
+      });
+
+      expect(totals).toEqual({ totalHours: 4.3, entryCount: 4 });
+    });
+
+    test('should give dashboard totals across clients', async () => {
+      await exec(db, `INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES (2, 'a@example.com', 25, '2024-01-02')`);
+
+      const totals = await new Promise((resolve, reject) => {
+        db.get(queries.getDashboardTotals, ['a@example.com', 'a@example.com'], (err, row) => (err ? reject(err) : resolve(row)));
+      });
+
+      expect(totals).toEqual({ clientCount: 2, entryCount: 3, totalHours: 4.25 });
+    });
+
+    test('should follow cascading client and user deletes', async () => {
+      await exec(db, `INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES (2, 'a@example.com', 25, '2024-01-02')`);
+
+      await exec(db, 'DELETE FROM clients WHERE id = 1');
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 2, day: '2024-01-02', total_centihours: 25, entry_count: 1 }
+      ]);
+
+      await exec(db, 'DELETE FROM users WHERE email = \'a@example.com\'');
+      expect(await rollup(db)).toEqual([]);
+    });
+  });
+
+  describe('rebuildDailyRollup', () => {
+    test('should repair drift from work_entries', async () => {
+      await exec(db, `INSERT INTO work_entries (client_id, user_email, centihours, date) VALUES (1, 'a@example.com', 100, '2024-01-01')`);
+      await exec(db, `
+        UPDATE work_entry_daily_rollup SET total_centihours = 999;
+        INSERT INTO work_entry_daily_rollup (user_email, client_id, day, total_centihours, entry_count)
+        VALUES ('b@example.com', 2, '2024-02-01', 50, 1);
+      `);
+
+      await rebuildDailyRollup(db);
+
+      expect(await rollup(db)).toEqual([
+        { user_email: 'a@example.com', client_id: 1, day: '2024-01-01', total_centihours: 100, entry_count: 1 }
+      ]);
+    });
+  });
+});
@@ -0,0 +1,170 @@
+const { CachedDatabase, mergeStatementStats } = require('../../database/statementCache');
+
+describe('CachedDatabase', () => {
+  let connection;
+  let statements;
+
+  function createStatement(sql) {
+    const statement = {
+      sql,
+      get: jest.fn((params, callback) => callback(null, { sql })),
+      all: jest.fn((params, callback) => callback(null, [])),
+      run: jest.fn(function(params, callback) {
+        callback.call({ lastID: 42, changes: 1 }, null);
+      }),
+      each: jest.fn(),
+      reset: jest.fn(),
+      finalize: jest.fn((callback) => callback && callback())
+    };
+    statements.push(statement);
+    return statement;
+  }
+
+  beforeEach(() => {
+    statements = [];
+    connection = {
+      prepare: jest.fn((sql, callback) => createStatement(sql)),
+      get: jest.fn(),
+      all: jest.fn(),
+      run: jest.fn(),
+      exec: jest.fn(),
+      serialize: jest.fn((callback) => callback()),
+      close: jest.fn((callback) => callback && callback(null))
+    };
+  });
+
+  afterEach(() => {
+    jest.clearAllMocks();
+  });
+
+  describe('statement reuse', () => {
+    test('should prepare each SQL text once', () => {
+      const db = new CachedDatabase(connection);
+      const sql = 'SELECT id FROM clients WHERE id = ? AND user_email = ?';
+
+      db.get(sql, [1, 'test@example.com'], () => {});
+      db.get(sql, [2, 'test@example.com'], () => {});
+
+      expect(connection.prepare).toHaveBeenCalledTimes(1);
+      expect(statements[0].get).toHaveBeenCalledTimes(2);
+      expect(db.stats()).toEqual(expect.objectContaining({ hits: 1, misses: 1 }));
+    });
+
+    test('should reset statements after get()', () => {
+      const db = new CachedDatabase(connection);
+
+      db.get('SELECT 1 WHERE 1 = ?', [1], () => {});
+
+      expect(statements[0].reset).toHaveBeenCalled();
+    });
+
+    test('should expose lastID and changes to run() callbacks', (done) => {
+      const db = new CachedDatabase(connection);
+
+      db.run('INSERT INTO users (email) VALUES (?)', ['test@example.com'], function(err) {
+        expect(err).toBeNull();
+        expect(this.lastID).toBe(42);
+        expect(this.changes).toBe(1);
+        done();
+      });
+    });
+
+    test('should run RETURNING writes through cached statements', () => {
+      const db = new CachedDatabase(connection);
+      const sql = 'DELETE FROM clients WHERE id = ? RETURNING id';
+
+      db.writeAll(sql, [1], () => {});
+      db.writeAll(sql, [2], () => {});
+
+      expect(connection.prepare).toHaveBeenCalledTimes(1);
+      expect(statements[0].all).toHaveBeenCalledTimes(2);
+    });
+
+    test('should cache each dynamic UPDATE shape separately', () => {
+      const db = new CachedDatabase(connection);
+
+      db.run('UPDATE clients SET name = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND user_email = ?', ['A', 1, 'a@example.com'], () => {});
+      db.run('UPDATE clients SET email = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND user_email = ?', ['a@b.com', 1, 'a@example.com'], () => {});
+      db.run('UPDATE clients SET name = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND user_email = ?', ['B', 2, 'a@example.com'], () => {});
+
+      expect(connection.prepare).toHaveBeenCalledTimes(2);
+    });
+  });
+
+  describe('bypass', () => {
+    test('should pass unparameterized statements straight to the connection', () => {
+      const db = new CachedDatabase(connection);
+      const callback = jest.fn();
+
+      db.run('CREATE TABLE IF NOT EXISTS users (email TEXT PRIMARY KEY)', callback);
+
+      expect(connection.run).toHaveBeenCalledWith('CREATE TABLE IF NOT EXISTS users (email TEXT PRIMARY KEY)', callback);
+      expect(connection.prepare).not.toHaveBeenCalled();
+    });
+
+    test('should not use cached statements inside serialize()', () => {
+      const db = new CachedDatabase(connection);
+
+      db.serialize(() => {
+        db.run('INSERT INTO users (email) VALUES (?)', ['test@example.com']);
+      });
+
+      expect(connection.run).toHaveBeenCalled();
+      expect(connection.prepare).not.toHaveBeenCalled();
+    });
+  });
+
+  describe('eviction', () => {
+    test('should finalize the least recently used statement when full', () => {
+      const db = new CachedDatabase(connection, { capacity: 2 });
+
+      db.all('SELECT 1 WHERE 1 = ?', [1], () => {});
+      db.all('SELECT 2 WHERE 2 = ?', [2], () => {});
+      db.all('SELECT 3 WHERE 3 = ?', [3], () => {});
+
+      expect(statements[0].finalize).toHaveBeenCalled();
+      expect(statements[1].finalize).not.toHaveBeenCalled();
+      expect(db.stats().evictions).toBe(1);
+    });
+
+    test('should drop statements that fail to prepare', () => {
+      connection.prepare.mockImplementation((sql, callback) => {
+        const statement = createStatement(sql);
+        process.nextTick(() => callback(new Error('SQLITE_ERROR: no such table')));
+        return statement;
+      });
+      const db = new CachedDatabase(connection);
+
+      db.all('SELECT * FROM missing WHERE id = ?', [1], () => {});
+
+      return new Promise(resolve => process.nextTick(resolve)).then(() => {
+        expect(db.stats().size).toBe(0);
+      });
+    });
+  });
+
+  describe('close', () => {
+    test('should finalize cached statements before closing the connection', (done) => {
+      const db = new CachedDatabase(connection);
+      db.get('SELECT 1 WHERE 1 = ?', [1], () => {});
+
+      db.close((err) => {
+        expect(err).toBeNull();
+        expect(statements[0].finalize).toHaveBeenCalled();
+        expect(connection.close).toHaveBeenCalled();
+        done();
+      });
+    });
+  });
+
+  describe('mergeStatementStats', () => {
+    test('should sum counters and recompute the hit rate', () => {
+      const merged = mergeStatementStats([
+        { size: 1, capacity: 10, hits: 3, misses: 1, evictions: 0 },
+        { size: 2, capacity: 10, hits: 1, misses: 3, evictions: 1 }
+      ]);
+
+      expect(merged).toEqual({ size: 3, capacity: 20, hits: 4, misses: 4, evictions: 1, hitRate: 0.5 });
+    });
+  });
+});
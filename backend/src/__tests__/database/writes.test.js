@@ -0,0 +1,134 @@
+// RETURNING and the ownership predicates only mean something against the real
+// schema, so run against an actual in-memory SQLite database
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { getDatabase, initializeDatabase, closeDatabase } = require('../../database/init');
+const writes = require('../../database/writes');
+
+function writeAll(sql, params) {
+  return new Promise((resolve, reject) => {
+    getDatabase().writeAll(sql, params, (err, rows) => (err ? reject(err) : resolve(rows)));
+  });
+}
+
+function run(sql, params = []) {
+  return new Promise((resolve, reject) => {
+    getDatabase().run(sql, params, function(err) {
+      return err ? reject(err) : resolve(this.changes);
+    });
+  });
+}
+
+function get(sql, params = []) {
+  return new Promise((resolve, reject) => {
+    getDatabase().get(sql, params, (err, row) => (err ? reject(err) : resolve(row)));
+  });
+}
+
+describe('Writes', () => {
+  let consoleLogSpy;
+
+  beforeAll(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    await initializeDatabase();
+    await run("INSERT INTO users (email) VALUES ('a@example.com'), ('b@example.com')");
+    await run(`INSERT INTO clients (id, name, user_email)
+               VALUES (1, 'Client A', 'a@example.com'), (2, 'Client B', 'a@example.com'), (3, 'Other', 'b@example.com')`);
+  });
+
+  afterAll(async () => {
+    await closeDatabase();
+    consoleLogSpy.mockRestore();
+  });
+
+  describe('clients', () => {
+    test('should return the inserted client', async () => {
+      const [client] = await writeAll(writes.insertClient, ['New', 'Desc', null, 'x@example.com', 'a@example.com']);
+
+      expect(client).toEqual(expect.objectContaining({
+        name: 'New',
+        description: 'Desc',
+        department: null,
+        email: 'x@example.com'
+      }));
+      expect(Object.keys(client)).toEqual(['id', 'name', 'description', 'department', 'email', 'created_at', 'updated_at']);
+      await run('DELETE FROM clients WHERE id = ?', [client.id]);
+    });
+
+    test('should update and return only the owner\'s client', async () => {
+      const sql = writes.updateClient('description = ?, updated_at = CURRENT_TIMESTAMP');
+
+      const [client] = await writeAll(sql, ['Updated', 1, 'a@example.com']);
+      const foreign = await writeAll(sql, ['Updated', 3, 'a@example.com']);
+
+      expect(client).toEqual(expect.objectContaining({ id: 1, name: 'Client A', description: 'Updated' }));
+      expect(foreign).toEqual([]);
+      expect((await get('SELECT description FROM clients WHERE id = 3')).description).toBeNull();
+    });
+
+    test('should delete only the owner\'s client', async () => {
+      await run("INSERT INTO clients (id, name, user_email) VALUES (9, 'Doomed', 'a@example.com')");
+
+      expect(await run(writes.deleteClient, [9, 'b@example.com'])).toBe(0);
+      expect(await run(writes.deleteClient, [9, 'a@example.com'])).toBe(1);
+      expect(await run(writes.deleteClient, [9, 'a@example.com'])).toBe(0);
+    });
+  });
+
+  describe('work entries', () => {
+    test('should insert an entry for an owned client and return it with the client name', async () => {
+      const [entry] = await writeAll(writes.insertWorkEntry, [550, 'Work', '2024-01-15', 1, 'a@example.com']);
+
+      expect(entry).toEqual(expect.objectContaining({
+        client_id: 1,
+        hours: 5.5,
+        description: 'Work',
+        date: '2024-01-15',
+        client_name: 'Client A'
+      }));
+      expect(Object.keys(entry)).toEqual([
+        'id', 'client_id', 'hours', 'description', 'date', 'created_at', 'updated_at', 'client_name'
+      ]);
+      expect((await get('SELECT user_email FROM work_entries WHERE id = ?', [entry.id])).user_email).toBe('a@example.com');
+    });
+
+    test('should insert nothing for another user\'s client', async () => {
+      const rows = await writeAll(writes.insertWorkEntry, [100, null, '2024-01-15', 3, 'a@example.com']);
+
+      expect(rows).toEqual([]);
+      expect((await get('SELECT COUNT(*) AS n FROM work_entries WHERE client_id = 3')).n).toBe(0);
+    });
+
+    test('should update an entry and return the new client name', async () => {
+      const [entry] = await writeAll(writes.insertWorkEntry, [100, null, '2024-01-16', 1, 'a@example.com']);
+      const assignments = 'client_id = ?, centihours = ?, updated_at = CURRENT_TIMESTAMP';
+
+      const [moved] = await writeAll(writes.updateWorkEntryAndClient(assignments), [2, 300, entry.id, 'a@example.com', 2, 'a@example.com']);
+
+      expect(moved).toEqual(expect.objectContaining({ id: entry.id, client_id: 2, hours: 3, client_name: 'Client B' }));
+    });
+
+    test('should not update someone else\'s entry or move it to someone else\'s client', async () => {
+      const [entry] = await writeAll(writes.insertWorkEntry, [100, null, '2024-01-17', 1, 'a@example.com']);
+
+      const foreignEntry = await writeAll(writes.updateWorkEntry('centihours = ?'), [200, entry.id, 'b@example.com']);
+      const foreignClient = await writeAll(writes.updateWorkEntryAndClient('client_id = ?'), [3, entry.id, 'a@example.com', 3, 'a@example.com']);
+
+      expect(foreignEntry).toEqual([]);
+      expect(foreignClient).toEqual([]);
+      expect(await get('SELECT client_id, centihours FROM work_entries WHERE id = ?', [entry.id])).toEqual({ client_id: 1, centihours: 100 });
+    });
+
+    test('should keep the daily rollup in step', async () => {
+      const [entry] = await writeAll(writes.insertWorkEntry, [250, null, '2024-02-01', 1, 'a@example.com']);
+      await writeAll(writes.updateWorkEntry('centihours = ?'), [400, entry.id, 'a@example.com']);
+      const total = () => get("SELECT total_centihours, entry_count FROM work_entry_daily_rollup WHERE client_id = 1 AND day = '2024-02-01'");
+
+      expect(await total()).toEqual({ total_centihours: 400, entry_count: 1 });
+
+      expect(await run(writes.deleteWorkEntry, [entry.id, 'b@example.com'])).toBe(0);
+      expect(await run(writes.deleteWorkEntry, [entry.id, 'a@example.com'])).toBe(1);
+      expect(await total()).toBeUndefined();
+    });
+  });
+});
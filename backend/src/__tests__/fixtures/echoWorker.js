@@ -0,0 +1,33 @@
+const { parentPort } = require('worker_threads');
+
+// Test worker for WorkerPool: echoes, streams chunks, asks the caller, fails
+// or hangs on request
+parentPort.on('message', ({ id, task, reply }) => {
+  // Replies are picked up by the 'ask' listener below
+  if (reply !== undefined) {
+    return;
+  }
+
+  switch (task.type) {
+    case 'echo':
+      parentPort.postMessage({ id, result: task.value });
+      break;
+    case 'chunks':
+      task.chunks.forEach(chunk => parentPort.postMessage({ id, chunk }));
+      parentPort.postMessage({ id, result: task.chunks.length });
+      break;
+    case 'ask':
+      parentPort.once('message', message => parentPort.postMessage({ id, result: message.reply }));
+      parentPort.postMessage({ id, request: task.question });
+      break;
+    case 'fail':
+      parentPort.postMessage({ id, error: { message: 'Task failed', code: 'SQLITE_ERROR' } });
+      break;
+    case 'hang':
+      break;
+    case 'crash':
+      throw new Error('Worker crashed');
+    default:
+      parentPort.postMessage({ id, error: { message: `Unknown task ${task.type}` } });
+  }
+});
@@ -0,0 +1,53 @@
+const { initializeDatabase, closeDatabase } = require('../../database/init');
+const { createRepositories } = require('../../repositories');
+const { SqliteBackend } = require('../../repositories/sqliteBackend');
+const { PostgresBackend } = require('../../repositories/postgresBackend');
+const { createMemoryRepositories } = require('../../repositories/memory');
+
+// Repository implementations for the contract tests. The sqlite one needs a
+// real sqlite3, so test files using it unmock the module first. The postgres
+// one runs only when TEST_DATABASE_URL points at a scratch database (its
+// tables are emptied before every test); CI provides one.
+const backends = [
+  ['sqlite', {
+    open: async () => {
+      await initializeDatabase();
+      return createRepositories(new SqliteBackend());
+    },
+    close: closeDatabase
+  }],
+  ['memory', {
+    open: async () => createMemoryRepositories(),
+    close: async () => {}
+  }]
+];
+
+if (process.env.TEST_DATABASE_URL) {
+  let postgres = null;
+  backends.push(['postgres', {
+    open: async () => {
+      postgres = new PostgresBackend({ connectionString: process.env.TEST_DATABASE_URL, poolSize: 2 });
+      await postgres.initialize();
+      await postgres.run('TRUNCATE users, clients, work_entries, work_entry_daily_rollup RESTART IDENTITY CASCADE', []);
+      return createRepositories(postgres);
+    },
+    close: () => postgres.close()
+  }]);
+}
+
+// Two users: a@example.com with clients A and B, b@example.com with client C
+async function seed(repositories) {
+  const { users, clients } = repositories;
+  await users.create('a@example.com');
+  await users.create('b@example.com');
+
+  const clientA = await clients.create('a@example.com', { name: 'Client A' });
+  const clientB = await clients.create('a@example.com', { name: 'Client B' });
+  const clientC = await clients.create('b@example.com', { name: 'Client C' });
+  return { clientA, clientB, clientC };
+}
+
+module.exports = {
+  backends,
+  seed
+};
@@ -0,0 +1,134 @@
+const { EventEmitter } = require('events');
+const { createAccessLog, accessLogOptionsFromEnv } = require('../../middleware/accessLog');
+
+const options = {
+  samplePercent: 10,
+  slowRequestMs: 1000
+};
+
+function mockLogger() {
+  return {
+    enabled: jest.fn().mockReturnValue(true),
+    log: jest.fn()
+  };
+}
+
+function mockRequest() {
+  return {
+    method: 'GET',
+    originalUrl: '/api/clients?page=2',
+    ip: '10.0.0.1',
+    get: jest.fn(name => (name === 'user-agent' ? 'jest' : undefined))
+  };
+}
+
+function mockResponse(statusCode) {
+  const res = new EventEmitter();
+  res.statusCode = statusCode;
+  res.getHeader = jest.fn(name => (name === 'Content-Length' ? '42' : undefined));
+  return res;
+}
+
+describe('Access Log Middleware', () => {
+  let logger;
+  let next;
+
+  beforeEach(() => {
+    logger = mockLogger();
+    next = jest.fn();
+  });
+
+  // Run one request through the middleware and finish it
+  function serve(middleware, statusCode) {
+    const res = mockResponse(statusCode);
+    middleware(mockRequest(), res, next);
+    res.emit('finish');
+  }
+
+  test('should log a structured record when the response finishes', () => {
+    const accessLog = createAccessLog({ ...options, samplePercent: 100 }, logger);
+    const res = mockResponse(200);
+
+    accessLog(mockRequest(), res, next);
+
+    expect(next).toHaveBeenCalled();
+    expect(logger.log).not.toHaveBeenCalled();
+
+    res.emit('finish');
+
+    expect(logger.log).toHaveBeenCalledWith('info', 'request', {
+      method: 'GET',
+      url: '/api/clients?page=2',
+      status: 200,
+      durationMs: expect.any(Number),
+      bytes: 42,
+      ip: '10.0.0.1',
+      userAgent: 'jest'
+    });
+  });
+
+  test('should sample successful requests', () => {
+    const random = jest.fn()
+      .mockReturnValueOnce(0.05)
+      .mockReturnValueOnce(0.5);
+    const accessLog = createAccessLog(options, logger, random);
+
+    serve(accessLog, 200);
+    serve(accessLog, 304);
+
+    expect(logger.log).toHaveBeenCalledTimes(1);
+  });
+
+  test('should always log client and server errors', () => {
+    const accessLog = createAccessLog({ ...options, samplePercent: 0 }, logger, () => 0.99);
+
+    serve(accessLog, 404);
+    serve(accessLog, 503);
+
+    expect(logger.log.mock.calls.map(([level, , record]) => [level, record.status])).toEqual([
+      ['warn', 404],
+      ['error', 503]
+    ]);
+  });
+
+  test('should always log slow requests', () => {
+    const accessLog = createAccessLog({ ...options, samplePercent: 0, slowRequestMs: 1 }, logger);
+    const res = mockResponse(200);
+
+    accessLog(mockRequest(), res, next);
+    const start = Date.now();
+    while (Date.now() - start < 5) {
+      // Busy-wait past the slow threshold
+    }
+    res.emit('finish');
+
+    expect(logger.log).toHaveBeenCalledWith('warn', 'request', expect.objectContaining({ status: 200 }));
+  });
+
+  test('should skip building records for disabled levels', () => {
+    logger.enabled.mockReturnValue(false);
+    const accessLog = createAccessLog({ ...options, samplePercent: 100 }, logger);
+
+    serve(accessLog, 200);
+
+    expect(logger.log).not.toHaveBeenCalled();
+  });
+
+  describe('accessLogOptionsFromEnv', () => {
+    afterEach(() => {
+      delete process.env.LOG_SAMPLE_PERCENT;
+      delete process.env.LOG_SLOW_REQUEST_MS;
+    });
+
+    test('should log every request by default', () => {
+      expect(accessLogOptionsFromEnv()).toEqual({ samplePercent: 100, slowRequestMs: 1000 });
+    });
+
+    test('should cap the sample percentage at 100', () => {
+      process.env.LOG_SAMPLE_PERCENT = '250';
+      process.env.LOG_SLOW_REQUEST_MS = '0';
+
+      expect(accessLogOptionsFromEnv()).toEqual({ samplePercent: 100, slowRequestMs: 0 });
+    });
+  });
+});
@@ -1,12 +1,25 @@
-const { authenticateUser } = require('../../middleware/auth');
+const {
+  authenticateUser,
+  createUser,
+  rememberUser,
+  forgetUser,
+  clearKnownUsers,
+  getKnownUserCacheStats
+} = require('../../middleware/auth');
 const { getDatabase } = require('../../database/init');
+const { issueTokens } = require('../../utils/tokens');
+const { rateLimitKey } = require('../../middleware/rateLimit');
+const jwt = require('jsonwebtoken');
 
 jest.mock('../../database/init');
 
 describe('Authentication Middleware', () => {
   let req, res, next, mockDb;
+  const originalEnv = process.env;
 
   beforeEach(() => {
+    // The header-based tests below exercise compatibility mode
+    process.env = { ...originalEnv, JWT_SECRET: 'test-secret', AUTH_ALLOW_EMAIL_HEADER: 'true' };
     req = {
       headers: {}
     };
@@ -25,9 +38,139 @@ describe('Authentication Middleware', () => {
   });
 
   afterEach(() => {
+    process.env = originalEnv;
+    clearKnownUsers();
     jest.clearAllMocks();
   });
 
+  describe('Bearer Tokens', () => {
+    beforeEach(() => {
+      delete process.env.AUTH_ALLOW_EMAIL_HEADER;
+    });
+
+    test('should authenticate a known subject without touching the database', () => {
+      rememberUser('test@example.com');
+      mockDb.run.mockClear();
+      req.headers.authorization = `Bearer ${issueTokens('test@example.com').accessToken}`;
+
+      authenticateUser(req, res, next);
+
+      expect(req.userEmail).toBe('test@example.com');
+      expect(next).toHaveBeenCalled();
+      expect(mockDb.run).not.toHaveBeenCalled();
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should upsert the users row on the first sight of a subject only', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback.call({ changes: 1 }, null));
+      req.headers.authorization = `Bearer ${issueTokens('restart@example.com').accessToken}`;
+
+      await authenticateUser(req, res, next);
+      authenticateUser({ headers: { authorization: req.headers.authorization } }, res, next);
+
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(mockDb.run.mock.calls[0][0]).toContain('INSERT INTO users');
+      expect(mockDb.run.mock.calls[0][1]).toEqual(['restart@example.com']);
+      expect(req.userEmail).toBe('restart@example.com');
+      expect(next).toHaveBeenCalledTimes(2);
+    });
+
+    test('should return 500 when the users row cannot be created', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback(new Error('Insert failed')));
+      req.headers.authorization = `Bearer ${issueTokens('test@example.com').accessToken}`;
+
+      await authenticateUser(req, res, next);
+
+      expect(res.status).toHaveBeenCalledWith(500);
+      expect(res.json).toHaveBeenCalledWith({ error: 'Failed to create user' });
+      expect(next).not.toHaveBeenCalled();
+    });
+
+    test('should reuse the token check made by the rate limiter', () => {
+      rememberUser('test@example.com');
+      req.headers.authorization = `Bearer ${issueTokens('test@example.com').accessToken}`;
+      const verify = jest.spyOn(jwt, 'verify');
+
+      expect(rateLimitKey(req)).toBe('user:test@example.com');
+      authenticateUser(req, res, next);
+
+      expect(verify).toHaveBeenCalledTimes(1);
+      expect(req.userEmail).toBe('test@example.com');
+      expect(next).toHaveBeenCalled();
+      verify.mockRestore();
+    });
+
+    test('should reject an invalid token the rate limiter already checked', () => {
+      req.headers.authorization = 'Bearer not-a-token';
+      req.ip = '10.0.0.1';
+      const verify = jest.spyOn(jwt, 'verify');
+
+      expect(rateLimitKey(req)).toBe('ip:10.0.0.1');
+      authenticateUser(req, res, next);
+
+      expect(verify).toHaveBeenCalledTimes(1);
+      expect(res.status).toHaveBeenCalledWith(401);
+      expect(next).not.toHaveBeenCalled();
+      verify.mockRestore();
+    });
+
+    test('should reject a refresh token used as an access token', () => {
+      req.headers.authorization = `Bearer ${issueTokens('test@example.com').refreshToken}`;
+
+      authenticateUser(req, res, next);
+
+      expect(res.status).toHaveBeenCalledWith(401);
+      expect(res.json).toHaveBeenCalledWith({ error: 'Invalid or expired token' });
+      expect(next).not.toHaveBeenCalled();
+    });
+
+    test('should reject a token signed with another secret', () => {
+      const token = jwt.sign({ typ: 'access' }, 'other-secret', { subject: 'test@example.com', expiresIn: 60 });
+      req.headers.authorization = `Bearer ${token}`;
+
+      authenticateUser(req, res, next);
+
+      expect(res.status).toHaveBeenCalledWith(401);
+      expect(next).not.toHaveBeenCalled();
+    });
+
+    test('should reject an expired token', () => {
+      const token = jwt.sign(
+        { typ: 'access', exp: Math.floor(Date.now() / 1000) - 10 },
+        'test-secret',
+        { subject: 'test@example.com' }
+      );
+      req.headers.authorization = `Bearer ${token}`;
+
+      authenticateUser(req, res, next);
+
+      expect(res.status).toHaveBeenCalledWith(401);
+      expect(res.json).toHaveBeenCalledWith({ error: 'Invalid or expired token' });
+    });
+
+    test('should ignore x-user-email unless compatibility mode is enabled', () => {
+      req.headers['x-user-email'] = 'test@example.com';
+
+      authenticateUser(req, res, next);
+
+      expect(res.status).toHaveBeenCalledWith(401);
+      expect(res.json).toHaveBeenCalledWith({ error: 'Bearer token required' });
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should prefer the token over x-user-email in compatibility mode', () => {
+      process.env.AUTH_ALLOW_EMAIL_HEADER = 'true';
+      rememberUser('token@example.com');
+      req.headers.authorization = `Bearer ${issueTokens('token@example.com').accessToken}`;
+      req.headers['x-user-email'] = 'header@example.com';
+
+      authenticateUser(req, res, next);
+
+      expect(req.userEmail).toBe('token@example.com');
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+  });
+
   describe('Email Header Validation', () => {
     test('should return 401 if x-user-email header is missing', () => {
       authenticateUser(req, res, next);
@@ -111,14 +254,14 @@ describe('Authentication Middleware', () => {
       });
       
       mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+        callback.call({ changes: 1 }, null);
       });
 
       authenticateUser(req, res, next);
 
       setImmediate(() => {
         expect(mockDb.run).toHaveBeenCalledWith(
-          'INSERT INTO users (email) VALUES (?)',
+          'INSERT INTO users (email) VALUES (?) ON CONFLICT (email) DO NOTHING',
           ['newuser@example.com'],
           expect.any(Function)
         );
@@ -182,4 +325,173 @@ describe('Authentication Middleware', () => {
       expect(mockDb.get).toHaveBeenCalled();
     });
   });
+
+  describe('Known User Cache', () => {
+    const existingUser = () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, { email: params[0] });
+      });
+    };
+
+    test('should skip the users lookup for a repeat request', async () => {
+      req.headers['x-user-email'] = 'cached@example.com';
+      existingUser();
+
+      authenticateUser(req, res, next);
+      await new Promise(resolve => setImmediate(resolve));
+      authenticateUser(req, res, next);
+
+      expect(mockDb.get).toHaveBeenCalledTimes(1);
+      expect(next).toHaveBeenCalledTimes(2);
+      expect(req.userEmail).toBe('cached@example.com');
+    });
+
+    test('should cache users created on first request', async () => {
+      req.headers['x-user-email'] = 'newuser@example.com';
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, null));
+      mockDb.run.mockImplementation((query, params, callback) => callback.call({ changes: 1 }, null));
+
+      authenticateUser(req, res, next);
+      await new Promise(resolve => setImmediate(resolve));
+      authenticateUser(req, res, next);
+
+      expect(mockDb.get).toHaveBeenCalledTimes(1);
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(next).toHaveBeenCalledTimes(2);
+    });
+
+    test('should not cache failed lookups or inserts', () => {
+      req.headers['x-user-email'] = 'test@example.com';
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, null));
+      mockDb.run.mockImplementation((query, params, callback) => callback(new Error('Insert failed')));
+
+      authenticateUser(req, res, next);
+      authenticateUser(req, res, next);
+
+      expect(mockDb.get).toHaveBeenCalledTimes(2);
+      expect(next).not.toHaveBeenCalled();
+    });
+
+    test('should look the user up again after forgetUser', () => {
+      req.headers['x-user-email'] = 'test@example.com';
+      existingUser();
+
+      authenticateUser(req, res, next);
+      forgetUser('test@example.com');
+      authenticateUser(req, res, next);
+
+      expect(mockDb.get).toHaveBeenCalledTimes(2);
+    });
+
+    test('should trust users recorded with rememberUser', () => {
+      req.headers['x-user-email'] = 'test@example.com';
+
+      rememberUser('test@example.com');
+      authenticateUser(req, res, next);
+
+      expect(mockDb.get).not.toHaveBeenCalled();
+      expect(next).toHaveBeenCalled();
+    });
+
+    test('should drop cached users when the database handle changes', () => {
+      req.headers['x-user-email'] = 'test@example.com';
+      existingUser();
+      authenticateUser(req, res, next);
+
+      const freshDb = { get: jest.fn((query, params, callback) => callback(null, { email: params[0] })), run: jest.fn() };
+      getDatabase.mockReturnValue(freshDb);
+      authenticateUser(req, res, next);
+
+      expect(freshDb.get).toHaveBeenCalledTimes(1);
+    });
+
+    test('should report hit and miss counts', async () => {
+      req.headers['x-user-email'] = 'test@example.com';
+      existingUser();
+      const before = getKnownUserCacheStats();
+
+      authenticateUser(req, res, next);
+      await new Promise(resolve => setImmediate(resolve));
+      authenticateUser(req, res, next);
+      authenticateUser(req, res, next);
+
+      const after = getKnownUserCacheStats();
+      expect(after.hits - before.hits).toBe(2);
+      expect(after.misses - before.misses).toBe(1);
+      expect(after.size).toBe(1);
+      expect(after).toHaveProperty('hitRate');
+    });
+  });
+
+  describe('Concurrent First Requests', () => {
+    const flush = () => new Promise(resolve => setImmediate(resolve));
+
+    beforeEach(() => {
+      // Answer asynchronously, like SQLite, so the requests overlap
+      mockDb.get.mockImplementation((query, params, callback) => setImmediate(() => callback(null, undefined)));
+    });
+
+    test('should create a new user with one insert for a burst of requests', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => setImmediate(() => callback.call({ changes: 1 }, null)));
+      const requests = Array.from({ length: 5 }, () => ({ headers: { 'x-user-email': 'burst@example.com' } }));
+
+      requests.forEach(request => authenticateUser(request, res, next));
+      await flush();
+      await flush();
+
+      expect(mockDb.get).toHaveBeenCalledTimes(5);
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(next).toHaveBeenCalledTimes(5);
+      expect(res.status).not.toHaveBeenCalled();
+      expect(requests.map(request => request.userEmail)).toEqual(Array(5).fill('burst@example.com'));
+    });
+
+    test('should not insert again for requests whose lookup finishes after the insert', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback.call({ changes: 1 }, null));
+      const first = { headers: { 'x-user-email': 'late@example.com' } };
+      const late = { headers: { 'x-user-email': 'late@example.com' } };
+
+      authenticateUser(first, res, next);
+      let lateLookup;
+      mockDb.get.mockImplementationOnce((query, params, callback) => { lateLookup = () => callback(null, undefined); });
+      authenticateUser(late, res, next);
+      await flush();
+      lateLookup();
+      await flush();
+
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(next).toHaveBeenCalledTimes(2);
+    });
+
+    test('should share an insert failure and retry on the next request', async () => {
+      jest.spyOn(console, 'error').mockImplementation(() => {});
+      mockDb.run.mockImplementationOnce((query, params, callback) => setImmediate(() => callback(new Error('disk I/O error'))));
+      const requests = Array.from({ length: 3 }, () => ({ headers: { 'x-user-email': 'retry@example.com' } }));
+
+      requests.forEach(request => authenticateUser(request, res, next));
+      await flush();
+      await flush();
+
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(res.status).toHaveBeenCalledTimes(3);
+      expect(res.status).toHaveBeenCalledWith(500);
+
+      mockDb.run.mockImplementation((query, params, callback) => callback.call({ changes: 1 }, null));
+      req.headers['x-user-email'] = 'retry@example.com';
+      authenticateUser(req, res, next);
+      await flush();
+
+      expect(mockDb.run).toHaveBeenCalledTimes(2);
+      expect(next).toHaveBeenCalledTimes(1);
+      console.error.mockRestore();
+    });
+
+    test('should treat a row inserted by someone else as success', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback.call({ changes: 0 }, null));
+
+      await expect(createUser('exists@example.com')).resolves.toBe(false);
+      await expect(createUser('exists@example.com')).resolves.toBe(false);
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+    });
+  });
 });
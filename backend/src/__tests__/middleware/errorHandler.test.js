@@ -1,4 +1,5 @@
 const { errorHandler } = require('../../middleware/errorHandler');
+const { getLogger } = require('../../utils/logger');
 
 describe('Error Handler Middleware', () => {
   let req, res, next;
@@ -11,8 +12,8 @@ describe('Error Handler Middleware', () => {
     };
     next = jest.fn();
     
-    // Mock console.error to avoid cluttering test output
-    jest.spyOn(console, 'error').mockImplementation(() => {});
+    // Keep error records out of the log buffer
+    jest.spyOn(getLogger(), 'error').mockImplementation(() => {});
   });
 
   afterEach(() => {
@@ -126,13 +127,29 @@ describe('Error Handler Middleware', () => {
     });
   });
 
-  describe('Console Logging', () => {
-    test('should log error to console', () => {
+  describe('Logging', () => {
+    test('should log server errors with the request', () => {
       const error = new Error('Test error');
-      
+      req = { method: 'GET', originalUrl: '/api/clients' };
+
       errorHandler(error, req, res, next);
 
-      expect(console.error).toHaveBeenCalledWith('Error:', error);
+      expect(getLogger().error).toHaveBeenCalledWith('Request failed', error, { method: 'GET', url: '/api/clients' });
+    });
+
+    test('should log database errors', () => {
+      const error = { code: 'SQLITE_BUSY', message: 'database is locked' };
+
+      errorHandler(error, req, res, next);
+
+      expect(getLogger().error).toHaveBeenCalledWith('Database error', error, expect.any(Object));
+    });
+
+    test('should not log client errors', () => {
+      errorHandler({ isJoi: true, details: [{ message: 'Name is required' }] }, req, res, next);
+      errorHandler({ status: 404, message: 'Not found' }, req, res, next);
+
+      expect(getLogger().error).not.toHaveBeenCalled();
     });
   });
 });
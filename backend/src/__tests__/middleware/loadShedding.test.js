@@ -0,0 +1,207 @@
+const { EventEmitter } = require('events');
+const {
+  LoadShedder,
+  loadSheddingOptionsFromEnv,
+  requestPriority
+} = require('../../middleware/loadShedding');
+
+const options = {
+  targetLagMs: 100,
+  minConcurrency: 2,
+  maxConcurrency: 8,
+  retryAfterSeconds: 3
+};
+
+function mockResponse() {
+  const res = new EventEmitter();
+  res.set = jest.fn().mockReturnValue(res);
+  res.status = jest.fn().mockReturnValue(res);
+  res.json = jest.fn().mockReturnValue(res);
+  return res;
+}
+
+const request = url => ({ originalUrl: url });
+
+describe('Load Shedding Middleware', () => {
+  let shedder;
+  let next;
+
+  beforeEach(() => {
+    shedder = new LoadShedder(options);
+    next = jest.fn();
+  });
+
+  afterEach(() => {
+    shedder.stop();
+  });
+
+  // Admit requests to a URL and leave them in flight
+  function occupy(count, url = '/api/work-entries') {
+    for (let i = 0; i < count; i++) {
+      shedder.handle(request(url), mockResponse(), next);
+    }
+  }
+
+  describe('requestPriority', () => {
+    test('should rank exports lowest and CRUD highest', () => {
+      expect(requestPriority(request('/api/reports/export/pdf/1'))).toBe('low');
+      expect(requestPriority(request('/api/reports/export/csv/1?x=1'))).toBe('low');
+      expect(requestPriority(request('/api/reports/client/1?summary=true'))).toBe('normal');
+      expect(requestPriority(request('/api/work-entries'))).toBe('high');
+      expect(requestPriority(request('/api/auth/login'))).toBe('high');
+    });
+  });
+
+  describe('configuration', () => {
+    const originalEnv = process.env;
+
+    afterEach(() => {
+      process.env = originalEnv;
+    });
+
+    test('should read options from the environment', () => {
+      process.env = {
+        ...originalEnv,
+        LOAD_SHED_TARGET_LAG_MS: '50',
+        LOAD_SHED_MIN_CONCURRENCY: '4',
+        LOAD_SHED_MAX_CONCURRENCY: '64',
+        LOAD_SHED_RETRY_AFTER_SECONDS: '2'
+      };
+
+      expect(loadSheddingOptionsFromEnv()).toEqual({
+        targetLagMs: 50,
+        minConcurrency: 4,
+        maxConcurrency: 64,
+        retryAfterSeconds: 2
+      });
+    });
+
+    test('should keep the maximum at or above the minimum', () => {
+      process.env = { ...originalEnv, LOAD_SHED_MIN_CONCURRENCY: '16', LOAD_SHED_MAX_CONCURRENCY: '4' };
+
+      expect(loadSheddingOptionsFromEnv().maxConcurrency).toBe(16);
+    });
+  });
+
+  describe('admission', () => {
+    test('should admit requests and track them until the response finishes', () => {
+      const res = mockResponse();
+
+      shedder.handle(request('/api/clients'), res, next);
+      expect(next).toHaveBeenCalled();
+      expect(shedder.stats().inFlight).toBe(1);
+
+      res.emit('finish');
+      res.emit('close');
+      expect(shedder.stats().inFlight).toBe(0);
+    });
+
+    test('should release requests whose connection closes early', () => {
+      const res = mockResponse();
+
+      shedder.handle(request('/api/reports/export/pdf/1'), res, next);
+      res.emit('close');
+
+      expect(shedder.stats().inFlight).toBe(0);
+    });
+
+    test('should cap each priority at its share of the limit', () => {
+      occupy(4);
+
+      const res = mockResponse();
+      shedder.handle(request('/api/reports/export/csv/1'), res, next);
+
+      expect(res.status).toHaveBeenCalledWith(503);
+      expect(res.set).toHaveBeenCalledWith('Retry-After', '3');
+      expect(res.json).toHaveBeenCalledWith({ error: 'Server is busy, please retry shortly' });
+      expect(next).toHaveBeenCalledTimes(4);
+
+      shedder.handle(request('/api/reports/client/1'), mockResponse(), next);
+      shedder.handle(request('/api/reports/client/1'), mockResponse(), next);
+      shedder.handle(request('/api/work-entries'), mockResponse(), next);
+      shedder.handle(request('/api/work-entries'), mockResponse(), next);
+      expect(next).toHaveBeenCalledTimes(8);
+
+      const rejected = mockResponse();
+      shedder.handle(request('/api/work-entries'), rejected, next);
+      expect(rejected.status).toHaveBeenCalledWith(503);
+      expect(shedder.stats().shed).toEqual({ low: 1, normal: 0, high: 1 });
+    });
+
+    test('should reject exports while the event loop is lagging', () => {
+      shedder.recordLag(250);
+
+      const res = mockResponse();
+      shedder.handle(request('/api/reports/export/pdf/1'), res, next);
+      shedder.handle(request('/api/work-entries'), mockResponse(), next);
+
+      expect(res.status).toHaveBeenCalledWith(503);
+      expect(next).toHaveBeenCalledTimes(1);
+    });
+
+    test('should admit everything when disabled', () => {
+      shedder = new LoadShedder({ ...options, targetLagMs: 0 });
+      shedder.recordLag(1000);
+
+      occupy(20, '/api/reports/export/pdf/1');
+
+      expect(next).toHaveBeenCalledTimes(20);
+    });
+  });
+
+  describe('adaptive limit', () => {
+    test('should cut the limit while lagging and recover one step per sample', () => {
+      shedder.recordLag(150);
+      expect(shedder.stats().limit).toBe(6);
+      shedder.recordLag(150);
+      shedder.recordLag(150);
+      shedder.recordLag(150);
+      expect(shedder.stats().limit).toBe(2);
+
+      shedder.recordLag(5);
+      expect(shedder.stats()).toMatchObject({ limit: 3, overloaded: false, lagMs: 5 });
+      for (let i = 0; i < 10; i++) {
+        shedder.recordLag(5);
+      }
+      expect(shedder.stats().limit).toBe(8);
+    });
+
+    test('should always admit at least one request per priority', () => {
+      shedder = new LoadShedder({ ...options, minConcurrency: 1, maxConcurrency: 1 });
+
+      shedder.handle(request('/api/reports/export/pdf/1'), mockResponse(), next);
+
+      expect(next).toHaveBeenCalledTimes(1);
+    });
+  });
+
+  describe('sampling', () => {
+    test('should follow the p99 of the shared sampler until stopped', () => {
+      const listeners = new Set();
+      const sampler = {
+        onSample: jest.fn((listener) => {
+          listeners.add(listener);
+          return () => listeners.delete(listener);
+        })
+      };
+      shedder = new LoadShedder(options, sampler).start();
+      shedder.start();
+
+      listeners.forEach(listener => listener({ p50: 5, p99: 150, max: 200 }));
+
+      expect(sampler.onSample).toHaveBeenCalledTimes(1);
+      expect(shedder.stats()).toEqual(expect.objectContaining({ lagMs: 150, overloaded: true }));
+
+      shedder.stop();
+      expect(listeners.size).toBe(0);
+    });
+
+    test('should not subscribe when disabled', () => {
+      const sampler = { onSample: jest.fn() };
+
+      new LoadShedder({ ...options, targetLagMs: 0 }, sampler).start();
+
+      expect(sampler.onSample).not.toHaveBeenCalled();
+    });
+  });
+});
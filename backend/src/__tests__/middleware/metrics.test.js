@@ -0,0 +1,125 @@
+const express = require('express');
+const request = require('supertest');
+
+jest.mock('../../database/init', () => ({
+  getStatementCacheStats: jest.fn(() => ({ size: 4, hits: 30, misses: 10, hitRate: 0.75 }))
+}));
+
+jest.mock('../../workers/pdfRenderer', () => ({
+  pdfRendererStats: jest.fn(() => null)
+}));
+
+const { recordRequestMetrics, metricsHandler } = require('../../middleware/metrics');
+const { pdfRendererStats } = require('../../workers/pdfRenderer');
+
+let scrape;
+
+function requestCount(labels) {
+  const match = new RegExp(`http_request_duration_seconds_count\\{${labels}\\} (\\d+)`).exec(scrape.text);
+  return match ? Number(match[1]) : 0;
+}
+
+describe('Metrics Middleware', () => {
+  let app;
+
+  beforeEach(() => {
+    app = express();
+    app.use(recordRequestMetrics);
+    const router = express.Router();
+    router.get('/:id', (req, res) => res.json({ id: req.params.id }));
+    app.use('/api/work-entries', router);
+    app.get('/metrics', metricsHandler);
+  });
+
+  test('should serve the Prometheus text format', async () => {
+    scrape = await request(app).get('/metrics');
+
+    expect(scrape.status).toBe(200);
+    expect(scrape.headers['content-type']).toContain('text/plain');
+    expect(scrape.headers['content-type']).toContain('version=0.0.4');
+    expect(scrape.text).toContain('# TYPE http_request_duration_seconds histogram');
+  });
+
+  test('should label request timings with the route template', async () => {
+    await request(app).get('/api/work-entries/1');
+    await request(app).get('/api/work-entries/2');
+
+    scrape = await request(app).get('/metrics');
+
+    expect(requestCount('method="GET",route="/api/work-entries/:id",status="200"')).toBeGreaterThanOrEqual(2);
+    expect(scrape.text).not.toContain('route="/api/work-entries/1"');
+  });
+
+  test('should label requests that matched no route as unmatched', async () => {
+    await request(app).get('/nowhere');
+
+    scrape = await request(app).get('/metrics');
+
+    expect(requestCount('method="GET",route="unmatched",status="404"')).toBeGreaterThanOrEqual(1);
+  });
+
+  test('should report process and cache gauges', async () => {
+    scrape = await request(app).get('/metrics');
+
+    expect(scrape.text).toMatch(/nodejs_eventloop_delay_seconds\{quantile="0.99"\} /);
+    expect(scrape.text).toMatch(/nodejs_memory_bytes\{type="heap_used"\} \d+/);
+    expect(scrape.text).toContain('cache_hits_total{cache="statements"} 30\n');
+    expect(scrape.text).toContain('cache_hit_ratio{cache="statements"} 0.75\n');
+    expect(scrape.text).toContain('cache_entries{cache="known_users"} ');
+  });
+
+  test('should report the PDF queue only while the renderer runs', async () => {
+    scrape = await request(app).get('/metrics');
+    expect(scrape.text).not.toContain('pdf_export_queue_depth ');
+
+    pdfRendererStats.mockReturnValue({ size: 2, busy: 2, queued: 5 });
+    scrape = await request(app).get('/metrics');
+
+    expect(scrape.text).toContain('pdf_export_workers_busy 2\n');
+    expect(scrape.text).toContain('pdf_export_queue_depth 5\n');
+  });
+
+  describe('Access', () => {
+    const originalEnv = process.env;
+
+    afterEach(() => {
+      process.env = originalEnv;
+    });
+
+    function remoteScrape(headers = {}) {
+      const res = { status: jest.fn().mockReturnThis(), json: jest.fn(), set: jest.fn(), send: jest.fn() };
+      metricsHandler({ headers, socket: { remoteAddress: '203.0.113.7' } }, res);
+      return res;
+    }
+
+    test('should refuse remote scrapes when no token is configured', () => {
+      process.env = { ...originalEnv };
+      delete process.env.METRICS_TOKEN;
+
+      const res = remoteScrape();
+
+      expect(res.status).toHaveBeenCalledWith(403);
+      expect(res.send).not.toHaveBeenCalled();
+    });
+
+    test('should require the configured token', async () => {
+      process.env = { ...originalEnv, METRICS_TOKEN: 'scrape-secret' };
+
+      const missing = await request(app).get('/metrics');
+      const wrong = await request(app).get('/metrics').set('Authorization', 'Bearer nope');
+
+      expect(missing.status).toBe(401);
+      expect(missing.body).toEqual({ error: 'Metrics token required' });
+      expect(wrong.status).toBe(401);
+    });
+
+    test('should serve any peer that sends the configured token', () => {
+      process.env = { ...originalEnv, METRICS_TOKEN: 'scrape-secret' };
+
+      const res = remoteScrape({ authorization: 'Bearer scrape-secret' });
+
+      expect(res.status).not.toHaveBeenCalled();
+      expect(res.send).toHaveBeenCalledWith(expect.stringContaining('# TYPE http_request_duration_seconds histogram'));
+    });
+  });
+});
@@ -0,0 +1,193 @@
+const {
+  RateLimiter,
+  rateLimitOptionsFromEnv,
+  routeClass,
+  rateLimitKey
+} = require('../../middleware/rateLimit');
+const { MemoryBucketStore } = require('../../utils/tokenBuckets');
+const { issueTokens } = require('../../utils/tokens');
+const { getLogger } = require('../../utils/logger');
+
+const limits = {
+  read: { burst: 3, perMinute: 60 },
+  write: { burst: 1, perMinute: 60 },
+  export: { burst: 1, perMinute: 0 }
+};
+
+function mockRequest(method, url, headers = {}) {
+  return { method, originalUrl: url, headers, ip: '10.0.0.1' };
+}
+
+function mockResponse() {
+  const res = {};
+  res.set = jest.fn().mockReturnValue(res);
+  res.status = jest.fn().mockReturnValue(res);
+  res.json = jest.fn().mockReturnValue(res);
+  return res;
+}
+
+const flush = () => new Promise(resolve => setImmediate(resolve));
+
+describe('Rate Limit Middleware', () => {
+  const originalEnv = process.env;
+
+  beforeEach(() => {
+    process.env = { ...originalEnv, JWT_SECRET: 'test-secret' };
+  });
+
+  afterEach(() => {
+    process.env = originalEnv;
+    jest.clearAllMocks();
+  });
+
+  describe('routeClass', () => {
+    test('should classify requests by route', () => {
+      expect(routeClass(mockRequest('GET', '/health'))).toBe('health');
+      expect(routeClass(mockRequest('GET', '/assets/index-abc123.js'))).toBe('static');
+      expect(routeClass(mockRequest('GET', '/clients'))).toBe('static');
+      expect(routeClass(mockRequest('GET', '/api/work-entries?clientId=1'))).toBe('read');
+      expect(routeClass(mockRequest('HEAD', '/api/clients'))).toBe('read');
+      expect(routeClass(mockRequest('POST', '/api/work-entries'))).toBe('write');
+      expect(routeClass(mockRequest('DELETE', '/api/clients/1'))).toBe('write');
+      expect(routeClass(mockRequest('GET', '/api/reports/export/pdf/1'))).toBe('export');
+    });
+  });
+
+  describe('rateLimitKey', () => {
+    test('should key authenticated requests by user', () => {
+      const token = issueTokens('test@example.com').accessToken;
+
+      expect(rateLimitKey(mockRequest('GET', '/api/clients', { authorization: `Bearer ${token}` }))).toBe('user:test@example.com');
+    });
+
+    test('should fall back to the client address', () => {
+      expect(rateLimitKey(mockRequest('POST', '/api/auth/login'))).toBe('ip:10.0.0.1');
+      expect(rateLimitKey(mockRequest('GET', '/api/clients', { authorization: 'Bearer not-a-token' }))).toBe('ip:10.0.0.1');
+    });
+
+    test('should key x-user-email requests by address even in compatibility mode', () => {
+      process.env.AUTH_ALLOW_EMAIL_HEADER = 'true';
+
+      // A fresh email per request must not buy a fresh bucket
+      expect(rateLimitKey(mockRequest('GET', '/api/clients', { 'x-user-email': 'a@example.com' }))).toBe('ip:10.0.0.1');
+      expect(rateLimitKey(mockRequest('GET', '/api/clients', { 'x-user-email': 'b@example.com' }))).toBe('ip:10.0.0.1');
+    });
+  });
+
+  describe('configuration', () => {
+    test('should default to the in-process store', () => {
+      const options = rateLimitOptionsFromEnv();
+
+      expect(options.store).toBe('memory');
+      expect(options.limits).toEqual({
+        read: { burst: 300, perMinute: 300 },
+        write: { burst: 60, perMinute: 60 },
+        export: { burst: 5, perMinute: 6 }
+      });
+    });
+
+    test('should read limits and the shared store from the environment', () => {
+      process.env.RATE_LIMIT_READ_BURST = '50';
+      process.env.RATE_LIMIT_EXPORT_PER_MINUTE = '0';
+      process.env.RATE_LIMIT_STORE = 'sqlite';
+      process.env.DATABASE_PATH = '/app/data/timesheet.db';
+
+      const options = rateLimitOptionsFromEnv();
+
+      expect(options.limits.read).toEqual({ burst: 50, perMinute: 300 });
+      expect(options.limits.export.perMinute).toBe(0);
+      expect(options.store).toBe('sqlite');
+      expect(options.dbPath).toBe('/app/data/ratelimit.db');
+    });
+  });
+
+  describe('RateLimiter', () => {
+    let now;
+    let limiter;
+    let next;
+
+    beforeEach(() => {
+      now = 0;
+      limiter = new RateLimiter({ limits }, new MemoryBucketStore(), () => now);
+      next = jest.fn();
+    });
+
+    test('should never count static assets or health checks', () => {
+      for (let i = 0; i < 10; i++) {
+        limiter.handle(mockRequest('GET', '/health'), mockResponse(), next);
+        limiter.handle(mockRequest('GET', '/assets/app.js'), mockResponse(), next);
+      }
+
+      expect(next).toHaveBeenCalledTimes(20);
+    });
+
+    test('should answer 429 with Retry-After once the bucket is empty', async () => {
+      const responses = Array.from({ length: 4 }, () => mockResponse());
+      for (const res of responses) {
+        limiter.handle(mockRequest('GET', '/api/clients'), res, next);
+        await flush();
+      }
+
+      expect(next).toHaveBeenCalledTimes(3);
+      expect(responses[2].set).toHaveBeenCalledWith('RateLimit-Remaining', '0');
+      expect(responses[3].status).toHaveBeenCalledWith(429);
+      expect(responses[3].set).toHaveBeenCalledWith('Retry-After', '1');
+      expect(responses[3].json).toHaveBeenCalledWith({ error: 'Too many requests, please try again later' });
+      expect(limiter.stats().read).toEqual({ allowed: 3, limited: 1 });
+    });
+
+    test('should refill the budget over time', async () => {
+      limiter.handle(mockRequest('POST', '/api/clients'), mockResponse(), next);
+      await flush();
+      limiter.handle(mockRequest('POST', '/api/clients'), mockResponse(), next);
+      await flush();
+      expect(next).toHaveBeenCalledTimes(1);
+
+      now = 1000;
+      limiter.handle(mockRequest('POST', '/api/clients'), mockResponse(), next);
+      await flush();
+      expect(next).toHaveBeenCalledTimes(2);
+    });
+
+    test('should keep separate budgets per class and per user', async () => {
+      const alice = { authorization: `Bearer ${issueTokens('alice@example.com').accessToken}` };
+      const bob = { authorization: `Bearer ${issueTokens('bob@example.com').accessToken}` };
+
+      limiter.handle(mockRequest('POST', '/api/clients', alice), mockResponse(), next);
+      await flush();
+      limiter.handle(mockRequest('POST', '/api/clients', bob), mockResponse(), next);
+      await flush();
+      limiter.handle(mockRequest('GET', '/api/clients', alice), mockResponse(), next);
+      await flush();
+
+      const limited = mockResponse();
+      limiter.handle(mockRequest('PUT', '/api/clients/1', alice), limited, next);
+      await flush();
+
+      expect(next).toHaveBeenCalledTimes(3);
+      expect(limited.status).toHaveBeenCalledWith(429);
+    });
+
+    test('should not limit a class whose rate is 0', async () => {
+      for (let i = 0; i < 5; i++) {
+        limiter.handle(mockRequest('GET', '/api/reports/export/csv/1'), mockResponse(), next);
+      }
+      await flush();
+
+      expect(next).toHaveBeenCalledTimes(5);
+    });
+
+    test('should let requests through when the store fails', async () => {
+      const loggerErrorSpy = jest.spyOn(getLogger(), 'error').mockImplementation();
+      const store = { take: jest.fn().mockRejectedValue(new Error('database is locked')) };
+      limiter = new RateLimiter({ limits }, store, () => now);
+
+      limiter.handle(mockRequest('GET', '/api/clients'), mockResponse(), next);
+      await flush();
+
+      expect(next).toHaveBeenCalledTimes(1);
+      expect(loggerErrorSpy).toHaveBeenCalledWith('Rate limit store error', expect.any(Error));
+      loggerErrorSpy.mockRestore();
+    });
+  });
+});
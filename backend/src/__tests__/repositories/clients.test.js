@@ -0,0 +1,115 @@
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { backends, seed } = require('../fixtures/repositories');
+
+describe.each(backends)('ClientsRepository (%s)', (name, backend) => {
+  let repositories;
+  let clients;
+  let seeded;
+  let consoleLogSpy;
+
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    repositories = await backend.open();
+    clients = repositories.clients;
+    seeded = await seed(repositories);
+  });
+
+  afterEach(async () => {
+    await backend.close();
+    consoleLogSpy.mockRestore();
+  });
+
+  test('should create a client with empty optional fields as null', async () => {
+    const client = await clients.create('a@example.com', { name: 'New', description: '', email: 'x@example.com' });
+
+    expect(Object.keys(client)).toEqual(['id', 'name', 'description', 'department', 'email', 'created_at', 'updated_at']);
+    expect(client).toEqual(expect.objectContaining({ name: 'New', description: null, department: null, email: 'x@example.com' }));
+  });
+
+  test('should list only the user\'s clients by name', async () => {
+    await clients.create('a@example.com', { name: 'Alpha' });
+
+    const listed = await clients.list('a@example.com');
+
+    expect(listed.map(client => client.name)).toEqual(['Alpha', 'Client A', 'Client B']);
+  });
+
+  test('should find and check ownership', async () => {
+    const { clientA, clientC } = seeded;
+
+    await expect(clients.find('a@example.com', clientA.id)).resolves.toEqual(clientA);
+    await expect(clients.find('a@example.com', clientC.id)).resolves.toBeUndefined();
+    await expect(clients.exists('a@example.com', clientA.id)).resolves.toBe(true);
+    await expect(clients.exists('a@example.com', clientC.id)).resolves.toBe(false);
+  });
+
+  test('should return only owned clients from a list of ids', async () => {
+    const { clientA, clientB, clientC } = seeded;
+
+    const owned = await clients.findMany('a@example.com', [clientA.id, clientC.id, clientB.id, 999]);
+
+    expect(owned.sort((a, b) => a.id - b.id)).toEqual([
+      { id: clientA.id, name: 'Client A' },
+      { id: clientB.id, name: 'Client B' }
+    ]);
+  });
+
+  test('should update the given fields of an owned client', async () => {
+    const { clientA } = seeded;
+    await clients.update('a@example.com', clientA.id, { description: 'Old', department: 'Ops' });
+
+    const updated = await clients.update('a@example.com', clientA.id, { name: 'Renamed', description: '' });
+
+    expect(updated).toEqual(expect.objectContaining({ id: clientA.id, name: 'Renamed', description: null, department: 'Ops' }));
+    await expect(clients.find('a@example.com', clientA.id)).resolves.toEqual(updated);
+  });
+
+  test('should not update another user\'s client', async () => {
+    const { clientC } = seeded;
+
+    await expect(clients.update('a@example.com', clientC.id, { name: 'Taken' })).resolves.toBeUndefined();
+    expect((await clients.find('b@example.com', clientC.id)).name).toBe('Client C');
+  });
+
+  test('should remove an owned client once', async () => {
+    const { clientA, clientC } = seeded;
+
+    await expect(clients.remove('a@example.com', clientC.id)).resolves.toBe(false);
+    await expect(clients.remove('a@example.com', clientA.id)).resolves.toBe(true);
+    await expect(clients.remove('a@example.com', clientA.id)).resolves.toBe(false);
+  });
+
+  test('should remove all of a user\'s clients', async () => {
+    await expect(clients.removeAll('a@example.com')).resolves.toBe(2);
+    await expect(clients.list('a@example.com')).resolves.toEqual([]);
+    await expect(clients.list('b@example.com')).resolves.toHaveLength(1);
+  });
+
+  test('should delete a removed client\'s entries and their totals', async () => {
+    const { workEntries, reports } = repositories;
+    const { clientA, clientB } = seeded;
+    const gone = await workEntries.create('a@example.com', { clientId: clientA.id, hours: 8, date: '2024-01-15' });
+    const kept = await workEntries.create('a@example.com', { clientId: clientB.id, hours: 2, date: '2024-01-15' });
+
+    await clients.remove('a@example.com', clientA.id);
+
+    await expect(workEntries.find('a@example.com', gone.id)).resolves.toBeUndefined();
+    await expect(workEntries.exists('a@example.com', kept.id)).resolves.toBe(true);
+    await expect(reports.dashboardTotals('a@example.com')).resolves.toEqual({ clientCount: 1, entryCount: 1, totalHours: 2 });
+  });
+
+  test('should delete every entry of the user when removing all clients', async () => {
+    const { workEntries, reports } = repositories;
+    const { clientA, clientB, clientC } = seeded;
+    const entry = await workEntries.create('a@example.com', { clientId: clientA.id, hours: 1, date: '2024-01-15' });
+    await workEntries.create('a@example.com', { clientId: clientB.id, hours: 2, date: '2024-01-16' });
+    await workEntries.create('b@example.com', { clientId: clientC.id, hours: 3, date: '2024-01-15' });
+
+    await clients.removeAll('a@example.com');
+
+    await expect(workEntries.find('a@example.com', entry.id)).resolves.toBeUndefined();
+    await expect(reports.dashboardTotals('a@example.com')).resolves.toEqual({ clientCount: 0, entryCount: 0, totalHours: 0 });
+    await expect(reports.dashboardTotals('b@example.com')).resolves.toEqual({ clientCount: 1, entryCount: 1, totalHours: 3 });
+  });
+});
@@ -0,0 +1,59 @@
+const { getRepositories, initializeStorage, closeStorage, repositoryBackendFromEnv } = require('../../repositories');
+const { ClientsRepository } = require('../../repositories/clients');
+const { PostgresBackend } = require('../../repositories/postgresBackend');
+
+describe('Repositories', () => {
+  const originalBackend = process.env.REPOSITORY_BACKEND;
+
+  afterEach(() => {
+    if (originalBackend === undefined) {
+      delete process.env.REPOSITORY_BACKEND;
+    } else {
+      process.env.REPOSITORY_BACKEND = originalBackend;
+    }
+  });
+
+  test('should default to sqlite', () => {
+    delete process.env.REPOSITORY_BACKEND;
+
+    expect(repositoryBackendFromEnv()).toBe('sqlite');
+    expect(getRepositories().clients).toBeInstanceOf(ClientsRepository);
+  });
+
+  test('should use the in-memory fake when configured', () => {
+    process.env.REPOSITORY_BACKEND = 'memory';
+
+    expect(repositoryBackendFromEnv()).toBe('memory');
+    expect(getRepositories().clients).not.toBeInstanceOf(ClientsRepository);
+  });
+
+  test('should use PostgreSQL when configured', () => {
+    process.env.REPOSITORY_BACKEND = 'postgres';
+
+    expect(repositoryBackendFromEnv()).toBe('postgres');
+    expect(getRepositories().clients.backend).toBeInstanceOf(PostgresBackend);
+  });
+
+  test('should have nothing to initialize or close for the in-memory fake', async () => {
+    process.env.REPOSITORY_BACKEND = 'memory';
+
+    await expect(initializeStorage()).resolves.toBeUndefined();
+    await expect(closeStorage()).resolves.toBeUndefined();
+  });
+
+  test('should ignore unknown backends', () => {
+    process.env.REPOSITORY_BACKEND = 'oracle';
+
+    expect(repositoryBackendFromEnv()).toBe('sqlite');
+  });
+
+  test('should reuse the repositories until the backend changes', () => {
+    process.env.REPOSITORY_BACKEND = 'memory';
+    const memory = getRepositories();
+
+    expect(getRepositories()).toBe(memory);
+
+    delete process.env.REPOSITORY_BACKEND;
+    expect(getRepositories()).not.toBe(memory);
+  });
+});
@@ -0,0 +1,42 @@
+const { MemoryStore, createMemoryRepositories } = require('../../repositories/memory');
+
+describe('Memory Repositories', () => {
+  test('should keep separate stores apart', async () => {
+    const first = createMemoryRepositories();
+    const second = createMemoryRepositories();
+
+    await first.users.create('a@example.com');
+
+    await expect(second.users.find('a@example.com')).resolves.toBeUndefined();
+    expect(first.users.source()).not.toBe(second.users.source());
+  });
+
+  test('should share one store across the repositories', async () => {
+    const store = new MemoryStore();
+    const { users, clients, reports } = createMemoryRepositories(store);
+
+    await clients.create('a@example.com', { name: 'Client A' });
+
+    expect(users.source()).toBe(store);
+    await expect(reports.dashboardTotals('a@example.com')).resolves.toEqual({ clientCount: 1, entryCount: 0, totalHours: 0 });
+  });
+
+  test('should hand out copies of stored rows', async () => {
+    const { clients } = createMemoryRepositories();
+    const client = await clients.create('a@example.com', { name: 'Client A' });
+
+    client.name = 'Changed';
+
+    expect((await clients.find('a@example.com', client.id)).name).toBe('Client A');
+  });
+
+  test('should delete a client\'s entries with it', async () => {
+    const { clients, workEntries } = createMemoryRepositories();
+    const client = await clients.create('a@example.com', { name: 'Client A' });
+    const entry = await workEntries.create('a@example.com', { clientId: client.id, hours: 1, date: '2024-01-01' });
+
+    await clients.remove('a@example.com', client.id);
+
+    await expect(workEntries.exists('a@example.com', entry.id)).resolves.toBe(false);
+  });
+});
@@ -0,0 +1,99 @@
+const { PostgresBackend } = require('../../repositories/postgresBackend');
+const { runPostgresMigrations } = require('../../database/postgresMigrations');
+const postgresStatements = require('../../database/postgresStatements');
+
+jest.mock('../../database/postgresMigrations', () => ({
+  runPostgresMigrations: jest.fn().mockResolvedValue(undefined)
+}));
+
+describe('PostgresBackend', () => {
+  let pool;
+  let createPool;
+  let backend;
+
+  beforeEach(() => {
+    pool = {
+      query: jest.fn().mockResolvedValue({ rows: [{ id: 1 }, { id: 2 }], rowCount: 2 }),
+      end: jest.fn().mockResolvedValue(undefined)
+    };
+    createPool = jest.fn(() => pool);
+    backend = new PostgresBackend({ poolSize: 4 }, createPool);
+    runPostgresMigrations.mockClear();
+  });
+
+  test('should open the pool on first use only', async () => {
+    expect(createPool).not.toHaveBeenCalled();
+
+    await backend.all('SELECT 1', []);
+    await backend.all('SELECT 1', []);
+
+    expect(createPool).toHaveBeenCalledTimes(1);
+    expect(createPool).toHaveBeenCalledWith({ poolSize: 4 });
+  });
+
+  test('should send named prepared statements with numbered placeholders', async () => {
+    await backend.get('SELECT id FROM clients WHERE id = ? AND user_email = ?', [3, 'a@example.com']);
+    await backend.get('SELECT id FROM clients WHERE id = ? AND user_email = ?', [4, 'b@example.com']);
+
+    const [first] = pool.query.mock.calls[0];
+    const [second] = pool.query.mock.calls[1];
+    expect(first).toEqual({
+      name: expect.stringMatching(/^s_/),
+      text: 'SELECT id FROM clients WHERE id = $1 AND user_email = $2',
+      values: [3, 'a@example.com']
+    });
+    expect(second.name).toBe(first.name);
+    expect(second.values).toEqual([4, 'b@example.com']);
+  });
+
+  test('should give different statements different names', async () => {
+    await backend.all('SELECT 1', []);
+    await backend.all('SELECT 2', []);
+
+    expect(pool.query.mock.calls[0][0].name).not.toBe(pool.query.mock.calls[1][0].name);
+  });
+
+  test('should resolve rows from get, all and writeAll', async () => {
+    await expect(backend.get('SELECT', [])).resolves.toEqual({ id: 1 });
+    await expect(backend.all('SELECT', [])).resolves.toEqual([{ id: 1 }, { id: 2 }]);
+    await expect(backend.writeAll('INSERT', [])).resolves.toEqual([{ id: 1 }, { id: 2 }]);
+
+    pool.query.mockResolvedValueOnce({ rows: [], rowCount: 0 });
+    await expect(backend.get('SELECT', [])).resolves.toBeUndefined();
+  });
+
+  test('should resolve the affected row count from run', async () => {
+    pool.query.mockResolvedValueOnce({ rows: [], rowCount: 5 });
+
+    await expect(backend.run('DELETE', [])).resolves.toEqual({ changes: 5, lastID: undefined });
+  });
+
+  test('should reject with the database error', async () => {
+    const error = new Error('connection terminated');
+    pool.query.mockRejectedValueOnce(error);
+
+    await expect(backend.get('SELECT', [])).rejects.toBe(error);
+  });
+
+  test('should use the PostgreSQL statement catalogues', () => {
+    expect(backend.queries).toBe(postgresStatements.queries);
+    expect(backend.writes).toBe(postgresStatements.writes);
+  });
+
+  test('should migrate through the pool', async () => {
+    await backend.initialize();
+
+    expect(runPostgresMigrations).toHaveBeenCalledWith(pool);
+  });
+
+  test('should end the pool on close and reopen on the next call', async () => {
+    expect(backend.source()).toBe(pool);
+
+    await backend.close();
+    await backend.close();
+    expect(pool.end).toHaveBeenCalledTimes(1);
+
+    await backend.all('SELECT 1', []);
+    expect(createPool).toHaveBeenCalledTimes(2);
+  });
+});
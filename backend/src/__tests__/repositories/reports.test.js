@@ -0,0 +1,62 @@
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { backends, seed } = require('../fixtures/repositories');
+
+describe.each(backends)('ReportsRepository (%s)', (name, backend) => {
+  let reports;
+  let clientA;
+  let clientC;
+  let consoleLogSpy;
+
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    const repositories = await backend.open();
+    reports = repositories.reports;
+    ({ clientA, clientC } = await seed(repositories));
+
+    await repositories.workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1.5, description: 'First', date: '2024-01-01' },
+      { clientId: clientA.id, hours: 2.25, date: '2024-01-03' },
+      { clientId: clientA.id, hours: 3, date: '2024-01-02' }
+    ]);
+    await repositories.workEntries.create('b@example.com', { clientId: clientC.id, hours: 8, date: '2024-01-01' });
+  });
+
+  afterEach(async () => {
+    await backend.close();
+    consoleLogSpy.mockRestore();
+  });
+
+  test('should find only the user\'s client', async () => {
+    await expect(reports.findClient('a@example.com', clientA.id)).resolves.toEqual({ id: clientA.id, name: 'Client A' });
+    await expect(reports.findClient('a@example.com', clientC.id)).resolves.toBeUndefined();
+  });
+
+  test('should total a client\'s entries', async () => {
+    await expect(reports.clientTotals('a@example.com', clientA.id)).resolves.toEqual({ totalHours: 6.75, entryCount: 3 });
+    await expect(reports.clientTotals('a@example.com', clientC.id)).resolves.toEqual({ totalHours: 0, entryCount: 0 });
+  });
+
+  test('should total the dashboard', async () => {
+    await expect(reports.dashboardTotals('a@example.com')).resolves.toEqual({ clientCount: 2, entryCount: 3, totalHours: 6.75 });
+  });
+
+  test('should list a client\'s entries newest first, whole or by page', async () => {
+    const all = await reports.listEntries('a@example.com', clientA.id);
+    const page = await reports.listEntries('a@example.com', clientA.id, { limit: 1, offset: 1 });
+
+    expect(Object.keys(all[0])).toEqual(['id', 'hours', 'description', 'date', 'created_at', 'updated_at']);
+    expect(all.map(entry => entry.date)).toEqual(['2024-01-03', '2024-01-02', '2024-01-01']);
+    expect(all[2].description).toBe('First');
+    expect(page.map(entry => entry.date)).toEqual(['2024-01-02']);
+  });
+
+  test('should read export batches after the previous one', async () => {
+    const first = await reports.listExportBatch('a@example.com', clientA.id, null, 2);
+    const second = await reports.listExportBatch('a@example.com', clientA.id, first[1], 2);
+
+    expect(Object.keys(first[0])).toEqual(['id', 'hours', 'description', 'date', 'created_at']);
+    expect(first.map(entry => entry.hours)).toEqual([2.25, 3]);
+    expect(second.map(entry => entry.hours)).toEqual([1.5]);
+  });
+});
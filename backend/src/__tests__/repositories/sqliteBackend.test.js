@@ -0,0 +1,56 @@
+const { SqliteBackend } = require('../../repositories/sqliteBackend');
+const queries = require('../../database/queries');
+const writes = require('../../database/writes');
+
+describe('SqliteBackend', () => {
+  let db;
+  let backend;
+
+  beforeEach(() => {
+    db = {
+      get: jest.fn((sql, params, callback) => callback(null, { id: 1 })),
+      all: jest.fn((sql, params, callback) => callback(null, [{ id: 1 }, { id: 2 }])),
+      run: jest.fn((sql, params, callback) => callback.call({ changes: 3, lastID: 7 }, null)),
+      writeAll: jest.fn((sql, params, callback) => callback(null, [{ id: 9 }]))
+    };
+    backend = new SqliteBackend(() => db);
+  });
+
+  test('should resolve rows from get, all and writeAll', async () => {
+    await expect(backend.get('SELECT 1', [1])).resolves.toEqual({ id: 1 });
+    await expect(backend.all('SELECT 2', [2])).resolves.toEqual([{ id: 1 }, { id: 2 }]);
+    await expect(backend.writeAll('INSERT 3', [3])).resolves.toEqual([{ id: 9 }]);
+
+    expect(db.get).toHaveBeenCalledWith('SELECT 1', [1], expect.any(Function));
+    expect(db.all).toHaveBeenCalledWith('SELECT 2', [2], expect.any(Function));
+    expect(db.writeAll).toHaveBeenCalledWith('INSERT 3', [3], expect.any(Function));
+  });
+
+  test('should resolve changes and lastID from run', async () => {
+    await expect(backend.run('UPDATE', [])).resolves.toEqual({ changes: 3, lastID: 7 });
+  });
+
+  test('should reject with the database error', async () => {
+    const error = new Error('SQLITE_BUSY');
+    db.get.mockImplementation((sql, params, callback) => callback(error));
+    db.run.mockImplementation((sql, params, callback) => callback(error));
+
+    await expect(backend.get('SELECT 1', [])).rejects.toBe(error);
+    await expect(backend.run('UPDATE', [])).rejects.toBe(error);
+  });
+
+  test('should look the database up on every call', async () => {
+    const handles = [db, { ...db, get: jest.fn((sql, params, callback) => callback(null, { id: 2 })) }];
+    backend = new SqliteBackend(() => handles[0]);
+
+    await expect(backend.get('SELECT 1', [])).resolves.toEqual({ id: 1 });
+    handles.shift();
+    await expect(backend.get('SELECT 1', [])).resolves.toEqual({ id: 2 });
+    expect(backend.source()).toBe(handles[0]);
+  });
+
+  test('should use the SQLite statement catalogues', () => {
+    expect(backend.queries).toBe(queries);
+    expect(backend.writes).toBe(writes);
+  });
+});
@@ -0,0 +1,41 @@
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { backends } = require('../fixtures/repositories');
+
+describe.each(backends)('UsersRepository (%s)', (name, backend) => {
+  let users;
+  let consoleLogSpy;
+
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    ({ users } = await backend.open());
+  });
+
+  afterEach(async () => {
+    await backend.close();
+    consoleLogSpy.mockRestore();
+  });
+
+  test('should create a user once', async () => {
+    await expect(users.create('new@example.com')).resolves.toBe(true);
+    await expect(users.create('new@example.com')).resolves.toBe(false);
+  });
+
+  test('should find a user with their creation time', async () => {
+    await users.create('new@example.com');
+
+    const user = await users.find('new@example.com');
+
+    expect(user.email).toBe('new@example.com');
+    expect(user.created_at).toMatch(/^\d{4}-\d{2}-\d{2} \d{2}:\d{2}:\d{2}$/);
+  });
+
+  test('should resolve undefined for an unknown user', async () => {
+    await expect(users.find('missing@example.com')).resolves.toBeUndefined();
+  });
+
+  test('should expose a stable source for caches', () => {
+    expect(users.source()).toBeDefined();
+    expect(users.source()).toBe(users.source());
+  });
+});
@@ -0,0 +1,178 @@
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+
+const { backends, seed } = require('../fixtures/repositories');
+const { FIRST_DATE, startPosition } = require('../../utils/cursor');
+
+describe.each(backends)('WorkEntriesRepository (%s)', (name, backend) => {
+  let workEntries;
+  let clientA;
+  let clientB;
+  let clientC;
+  let consoleLogSpy;
+
+  const firstPage = (options = {}) => workEntries.listPage('a@example.com', {
+    from: FIRST_DATE,
+    position: startPosition(),
+    limit: 50,
+    ...options
+  });
+
+  beforeEach(async () => {
+    consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+    const repositories = await backend.open();
+    workEntries = repositories.workEntries;
+    ({ clientA, clientB, clientC } = await seed(repositories));
+  });
+
+  afterEach(async () => {
+    await backend.close();
+    consoleLogSpy.mockRestore();
+  });
+
+  test('should create an entry for an owned client', async () => {
+    const entry = await workEntries.create('a@example.com', { clientId: clientA.id, hours: 5.5, description: 'Work', date: '2024-01-15' });
+
+    expect(Object.keys(entry)).toEqual(['id', 'client_id', 'hours', 'description', 'date', 'created_at', 'updated_at', 'client_name']);
+    expect(entry).toEqual(expect.objectContaining({
+      client_id: clientA.id,
+      hours: 5.5,
+      description: 'Work',
+      date: '2024-01-15',
+      client_name: 'Client A'
+    }));
+    await expect(workEntries.find('a@example.com', entry.id)).resolves.toEqual(entry);
+  });
+
+  test('should not create an entry for another user\'s client', async () => {
+    await expect(workEntries.create('a@example.com', { clientId: clientC.id, hours: 1, date: '2024-01-15' })).resolves.toBeUndefined();
+    await expect(firstPage()).resolves.toEqual([]);
+  });
+
+  test('should create many entries in input order', async () => {
+    const created = await workEntries.createMany('a@example.com', [
+      { clientId: clientB.id, hours: 1.25, date: '2024-01-02' },
+      { clientId: clientA.id, hours: 8, description: 'Monday', date: '2024-01-01' }
+    ]);
+
+    expect(created.map(({ client_id, hours, description, date }) => ({ client_id, hours, description, date }))).toEqual([
+      { client_id: clientB.id, hours: 1.25, description: null, date: '2024-01-02' },
+      { client_id: clientA.id, hours: 8, description: 'Monday', date: '2024-01-01' }
+    ]);
+    expect(created[0].id).toBeLessThan(created[1].id);
+  });
+
+  test('should create none of many entries if one client isn\'t the user\'s', async () => {
+    await expect(workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientC.id, hours: 2, date: '2024-01-02' }
+    ])).resolves.toBeUndefined();
+    await expect(firstPage()).resolves.toEqual([]);
+  });
+
+  test('should list the user\'s entries newest first in keyset pages', async () => {
+    await workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientB.id, hours: 2, date: '2024-01-03' },
+      { clientId: clientA.id, hours: 3, date: '2024-01-02' },
+      { clientId: clientA.id, hours: 4, date: '2024-01-03' }
+    ]);
+    await workEntries.create('b@example.com', { clientId: clientC.id, hours: 9, date: '2024-01-02' });
+
+    const all = await firstPage();
+    const first = await firstPage({ limit: 2 });
+    const last = first[first.length - 1];
+    const rest = await firstPage({ position: [last.date, last.created_at, last.id] });
+
+    expect(all.map(entry => entry.hours)).toEqual([4, 2, 3, 1]);
+    expect(all[1].client_name).toBe('Client B');
+    expect(first.map(entry => entry.hours)).toEqual([4, 2]);
+    expect(rest.map(entry => entry.hours)).toEqual([3, 1]);
+  });
+
+  test('should filter the listing by client and date range', async () => {
+    await workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientB.id, hours: 2, date: '2024-01-02' },
+      { clientId: clientA.id, hours: 3, date: '2024-01-03' }
+    ]);
+
+    const forClient = await firstPage({ clientId: clientA.id });
+    const inRange = await firstPage({ from: '2024-01-02', position: startPosition('2024-01-02') });
+
+    expect(forClient.map(entry => entry.hours)).toEqual([3, 1]);
+    expect(inRange.map(entry => entry.hours)).toEqual([2]);
+  });
+
+  test('should update the given fields and report the new client name', async () => {
+    const entry = await workEntries.create('a@example.com', { clientId: clientA.id, hours: 1, description: 'Old', date: '2024-01-15' });
+
+    const updated = await workEntries.update('a@example.com', entry.id, { clientId: clientB.id, hours: 3, description: '' });
+
+    expect(updated).toEqual(expect.objectContaining({
+      id: entry.id,
+      client_id: clientB.id,
+      hours: 3,
+      description: null,
+      date: '2024-01-15',
+      client_name: 'Client B'
+    }));
+  });
+
+  test('should not update someone else\'s entry or move it to someone else\'s client', async () => {
+    const entry = await workEntries.create('a@example.com', { clientId: clientA.id, hours: 1, date: '2024-01-15' });
+
+    await expect(workEntries.update('b@example.com', entry.id, { hours: 2 })).resolves.toBeUndefined();
+    await expect(workEntries.update('a@example.com', entry.id, { clientId: clientC.id })).resolves.toBeUndefined();
+    expect(await workEntries.find('a@example.com', entry.id)).toEqual(expect.objectContaining({ client_id: clientA.id, hours: 1 }));
+    await expect(workEntries.exists('a@example.com', entry.id)).resolves.toBe(true);
+    await expect(workEntries.exists('b@example.com', entry.id)).resolves.toBe(false);
+  });
+
+  test('should update many entries by id or filter', async () => {
+    const [first, second] = await workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientA.id, hours: 1, date: '2024-01-02' },
+      { clientId: clientB.id, hours: 1, date: '2024-01-03' }
+    ]);
+    const foreign = await workEntries.create('b@example.com', { clientId: clientC.id, hours: 1, date: '2024-01-01' });
+
+    await expect(workEntries.updateMany('a@example.com', { ids: [first.id, first.id, foreign.id] }, { hours: 2 })).resolves.toBe(1);
+    await expect(workEntries.updateMany('a@example.com', { filter: { clientId: clientA.id, from: '2024-01-02' } }, { description: 'Late' })).resolves.toBe(1);
+
+    expect((await firstPage()).map(({ hours, description }) => [hours, description])).toEqual([
+      [1, null],
+      [1, 'Late'],
+      [2, null]
+    ]);
+    expect((await workEntries.find('a@example.com', second.id)).description).toBe('Late');
+    expect((await workEntries.find('b@example.com', foreign.id)).hours).toBe(1);
+  });
+
+  test('should move many entries only to a client of the user', async () => {
+    const [first, second] = await workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientA.id, hours: 1, date: '2024-01-02' }
+    ]);
+
+    await expect(workEntries.updateMany('a@example.com', { ids: [first.id, second.id] }, { clientId: clientC.id, hours: 2 })).resolves.toBe(0);
+    await expect(workEntries.updateMany('a@example.com', { ids: [first.id] }, { clientId: clientB.id })).resolves.toBe(1);
+
+    expect(await workEntries.find('a@example.com', first.id)).toEqual(expect.objectContaining({ client_id: clientB.id, hours: 1 }));
+    expect(await workEntries.find('a@example.com', second.id)).toEqual(expect.objectContaining({ client_id: clientA.id, hours: 1 }));
+  });
+
+  test('should remove entries one at a time or by selection', async () => {
+    const [first] = await workEntries.createMany('a@example.com', [
+      { clientId: clientA.id, hours: 1, date: '2024-01-01' },
+      { clientId: clientA.id, hours: 2, date: '2024-02-01' },
+      { clientId: clientB.id, hours: 3, date: '2024-02-02' }
+    ]);
+
+    await expect(workEntries.remove('b@example.com', first.id)).resolves.toBe(false);
+    await expect(workEntries.remove('a@example.com', first.id)).resolves.toBe(true);
+    await expect(workEntries.remove('a@example.com', first.id)).resolves.toBe(false);
+    await expect(workEntries.removeMany('a@example.com', { filter: { from: '2024-02-01', to: '2024-02-01' } })).resolves.toBe(1);
+
+    expect((await firstPage()).map(entry => entry.hours)).toEqual([3]);
+  });
+});
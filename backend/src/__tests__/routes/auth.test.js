@@ -2,6 +2,7 @@ const request = require('supertest');
 const express = require('express');
 const authRoutes = require('../../routes/auth');
 const { getDatabase } = require('../../database/init');
+const { issueTokens, verifyToken } = require('../../utils/tokens');
 
 jest.mock('../../database/init');
 
@@ -18,8 +19,10 @@ app.use((err, req, res, next) => {
 
 describe('Auth Routes', () => {
   let mockDb;
+  const originalEnv = process.env;
 
   beforeEach(() => {
+    process.env = { ...originalEnv, JWT_SECRET: 'test-secret' };
     mockDb = {
       get: jest.fn(),
       run: jest.fn()
@@ -28,6 +31,7 @@ describe('Auth Routes', () => {
   });
 
   afterEach(() => {
+    process.env = originalEnv;
     jest.clearAllMocks();
   });
 
@@ -51,13 +55,28 @@ describe('Auth Routes', () => {
       expect(response.body.user.email).toBe('existing@example.com');
     });
 
+    test('should issue access and refresh tokens', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, { email: 'existing@example.com', created_at: '2024-01-01T00:00:00.000Z' });
+      });
+
+      const response = await request(app)
+        .post('/api/auth/login')
+        .send({ email: 'existing@example.com' });
+
+      expect(response.body.tokenType).toBe('Bearer');
+      expect(response.body.expiresIn).toBe(900);
+      expect(verifyToken(response.body.accessToken, 'access')).toBe('existing@example.com');
+      expect(verifyToken(response.body.refreshToken, 'refresh')).toBe('existing@example.com');
+    });
+
     test('should create new user on first login', async () => {
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(null, null); // User doesn't exist
       });
 
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        callback.call(this, null);
+      mockDb.run.mockImplementation((query, params, callback) => {
+        callback.call({ changes: 1 }, null);
       });
 
       const response = await request(app)
@@ -67,13 +86,32 @@ describe('Auth Routes', () => {
       expect(response.status).toBe(201);
       expect(response.body.message).toBe('User created and logged in successfully');
       expect(response.body.user.email).toBe('newuser@example.com');
+      expect(verifyToken(response.body.accessToken, 'access')).toBe('newuser@example.com');
       expect(mockDb.run).toHaveBeenCalledWith(
-        'INSERT INTO users (email) VALUES (?)',
+        'INSERT INTO users (email) VALUES (?) ON CONFLICT (email) DO NOTHING',
         ['newuser@example.com'],
         expect.any(Function)
       );
     });
 
+    test('should log in without error when a concurrent request created the user', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, null);
+      });
+
+      mockDb.run.mockImplementation((query, params, callback) => {
+        callback.call({ changes: 0 }, null);
+      });
+
+      const response = await request(app)
+        .post('/api/auth/login')
+        .send({ email: 'racer@example.com' });
+
+      expect(response.status).toBe(200);
+      expect(response.body.message).toBe('Login successful');
+      expect(response.body.user.email).toBe('racer@example.com');
+    });
+
     test('should return 400 for invalid email', async () => {
       const response = await request(app)
         .post('/api/auth/login')
@@ -136,7 +174,101 @@ describe('Auth Routes', () => {
     });
   });
 
+  describe('POST /api/auth/refresh', () => {
+    test('should issue a new token pair for a valid refresh token', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, { email: 'test@example.com' });
+      });
+
+      const response = await request(app)
+        .post('/api/auth/refresh')
+        .send({ refreshToken: issueTokens('test@example.com').refreshToken });
+
+      expect(response.status).toBe(200);
+      expect(verifyToken(response.body.accessToken, 'access')).toBe('test@example.com');
+      expect(verifyToken(response.body.refreshToken, 'refresh')).toBe('test@example.com');
+      expect(mockDb.get).toHaveBeenCalledWith('SELECT email, created_at FROM users WHERE email = ?', ['test@example.com'], expect.any(Function));
+    });
+
+    test('should reject an access token', async () => {
+      const response = await request(app)
+        .post('/api/auth/refresh')
+        .send({ refreshToken: issueTokens('test@example.com').accessToken });
+
+      expect(response.status).toBe(401);
+      expect(response.body).toEqual({ error: 'Invalid or expired refresh token' });
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should return 401 when the user no longer exists', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, undefined);
+      });
+
+      const response = await request(app)
+        .post('/api/auth/refresh')
+        .send({ refreshToken: issueTokens('gone@example.com').refreshToken });
+
+      expect(response.status).toBe(401);
+      expect(response.body).toEqual({ error: 'User not found' });
+    });
+
+    test('should return 400 without a refresh token', async () => {
+      const response = await request(app)
+        .post('/api/auth/refresh')
+        .send({});
+
+      expect(response.status).toBe(400);
+    });
+
+    test('should handle database errors', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(new Error('Database error'));
+      });
+
+      const response = await request(app)
+        .post('/api/auth/refresh')
+        .send({ refreshToken: issueTokens('test@example.com').refreshToken });
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Internal server error' });
+    });
+  });
+
   describe('GET /api/auth/me', () => {
+    test('should accept a Bearer access token', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        callback(null, { email: 'test@example.com', created_at: '2024-01-01T00:00:00.000Z' });
+      });
+      // First sight of the subject upserts its users row
+      mockDb.run.mockImplementation((query, params, callback) => {
+        callback.call({ changes: 0 }, null);
+      });
+
+      const response = await request(app)
+        .get('/api/auth/me')
+        .set('Authorization', `Bearer ${issueTokens('test@example.com').accessToken}`);
+
+      expect(response.status).toBe(200);
+      expect(response.body.user.email).toBe('test@example.com');
+      expect(mockDb.get).toHaveBeenCalledTimes(1);
+    });
+
+    test('should reject x-user-email outside compatibility mode', async () => {
+      const response = await request(app)
+        .get('/api/auth/me')
+        .set('x-user-email', 'test@example.com');
+
+      expect(response.status).toBe(401);
+      expect(response.body).toEqual({ error: 'Bearer token required' });
+    });
+  });
+
+  describe('GET /api/auth/me (x-user-email compatibility mode)', () => {
+    beforeEach(() => {
+      process.env.AUTH_ALLOW_EMAIL_HEADER = 'true';
+    });
+
     test('should return current user info', async () => {
       const user = {
         email: 'test@example.com',
@@ -164,15 +296,11 @@ describe('Auth Routes', () => {
     });
 
     test('should return 404 if user not found', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('SELECT email FROM users WHERE email = ?')) {
-          // Auth middleware check
-          callback(null, { email: 'test@example.com' });
-        } else {
-          // /me endpoint check
-          callback(null, null);
-        }
-      });
+      mockDb.get
+        // Auth middleware check
+        .mockImplementationOnce((query, params, callback) => callback(null, { email: 'test@example.com' }))
+        // /me endpoint check
+        .mockImplementationOnce((query, params, callback) => callback(null, null));
 
       const response = await request(app)
         .get('/api/auth/me')
@@ -29,7 +29,8 @@ describe('Client Routes', () => {
     mockDb = {
       all: jest.fn(),
       get: jest.fn(),
-      run: jest.fn()
+      run: jest.fn(),
+      writeAll: jest.fn()
     };
     getDatabase.mockReturnValue(mockDb);
   });
@@ -132,13 +133,8 @@ describe('Client Routes', () => {
       const newClient = { name: 'New Client', description: 'New Description' };
       const createdClient = { id: 1, ...newClient, created_at: '2024-01-01', updated_at: '2024-01-01' };
 
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        this.lastID = 1;
-        callback.call(this, null);
-      });
-
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, createdClient);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [createdClient]);
       });
 
       const response = await request(app)
@@ -148,19 +144,18 @@ describe('Client Routes', () => {
       expect(response.status).toBe(201);
       expect(response.body.message).toBe('Client created successfully');
       expect(response.body.client).toEqual(createdClient);
+      expect(mockDb.writeAll).toHaveBeenCalledTimes(1);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('RETURNING');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual(['New Client', 'New Description', null, null, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should create client without description', async () => {
       const newClient = { name: 'Client Without Desc' };
       const createdClient = { id: 1, name: 'Client Without Desc', description: null };
 
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        this.lastID = 1;
-        callback.call(this, null);
-      });
-
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, createdClient);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [createdClient]);
       });
 
       const response = await request(app)
@@ -168,6 +163,7 @@ describe('Client Routes', () => {
         .send(newClient);
 
       expect(response.status).toBe(201);
+      expect(response.body.client).toEqual(createdClient);
     });
 
     test('should return 400 for missing name', async () => {
@@ -187,7 +183,7 @@ describe('Client Routes', () => {
     });
 
     test('should handle database insert error', async () => {
-      mockDb.run.mockImplementation((query, params, callback) => {
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
         callback(new Error('Insert failed'));
       });
 
@@ -201,19 +197,11 @@ describe('Client Routes', () => {
   });
 
   describe('PUT /api/clients/:id', () => {
-    test('should update client name', async () => {
+    test('should update client name in one statement', async () => {
       const updatedClient = { id: 1, name: 'Updated Name', description: 'Old Desc' };
 
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 }); // Client exists
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, updatedClient);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [updatedClient]);
       });
 
       const response = await request(app)
@@ -223,19 +211,16 @@ describe('Client Routes', () => {
       expect(response.status).toBe(200);
       expect(response.body.message).toBe('Client updated successfully');
       expect(response.body.client).toEqual(updatedClient);
+      expect(mockDb.writeAll).toHaveBeenCalledTimes(1);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('SET name = ?, updated_at = CURRENT_TIMESTAMP');
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('WHERE id = ? AND user_email = ?');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual(['Updated Name', 1, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should update client description', async () => {
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1, name: 'Client', description: 'New Description' });
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1, name: 'Client', description: 'New Description' }]);
       });
 
       const response = await request(app)
@@ -246,8 +231,8 @@ describe('Client Routes', () => {
     });
 
     test('should return 404 if client not found', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, []);
       });
 
       const response = await request(app)
@@ -273,28 +258,28 @@ describe('Client Routes', () => {
         .send({});
 
       expect(response.status).toBe(400);
+      expect(mockDb.writeAll).not.toHaveBeenCalled();
     });
   });
 
   describe('DELETE /api/clients/:id', () => {
-    test('should delete existing client', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+    test('should delete existing client in one statement', async () => {
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 1 }, null);
       });
 
       const response = await request(app).delete('/api/clients/1');
 
       expect(response.status).toBe(200);
       expect(response.body).toEqual({ message: 'Client deleted successfully' });
+      expect(mockDb.run.mock.calls[0][0]).toBe('DELETE FROM clients WHERE id = ? AND user_email = ?');
+      expect(mockDb.run.mock.calls[0][1]).toEqual([1, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should return 404 if client not found', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, null);
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 0 }, null);
       });
 
       const response = await request(app).delete('/api/clients/999');
@@ -311,10 +296,6 @@ describe('Client Routes', () => {
     });
 
     test('should handle database delete error', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
       mockDb.run.mockImplementation((query, params, callback) => {
         callback(new Error('Delete failed'));
       });
@@ -324,59 +305,11 @@ describe('Client Routes', () => {
       expect(response.status).toBe(500);
       expect(response.body).toEqual({ error: 'Failed to delete client' });
     });
-
-    test('should handle database error when checking client existence', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
-      });
-
-      const response = await request(app).delete('/api/clients/1');
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
-    });
-  });
-
-  describe('POST /api/clients - Error Handling', () => {
-    test('should handle error retrieving client after creation', async () => {
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        this.lastID = 1;
-        callback.call(this, null);
-      });
-
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(new Error('Retrieval failed'), null);
-      });
-
-      const response = await request(app)
-        .post('/api/clients')
-        .send({ name: 'Test Client' });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Client created but failed to retrieve' });
-    });
   });
 
   describe('PUT /api/clients/:id - Error Handling', () => {
-    test('should handle database error when checking client existence', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
-      });
-
-      const response = await request(app)
-        .put('/api/clients/1')
-        .send({ name: 'Updated Name' });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
-    });
-
     test('should handle database error during update', async () => {
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
         callback(new Error('Update failed'));
       });
 
@@ -388,40 +321,11 @@ describe('Client Routes', () => {
       expect(response.body).toEqual({ error: 'Failed to update client' });
     });
 
-    test('should handle error retrieving client after update', async () => {
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(new Error('Retrieval failed'), null);
-      });
-
-      const response = await request(app)
-        .put('/api/clients/1')
-        .send({ name: 'Updated Name' });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Client updated but failed to retrieve' });
-    });
-
     test('should update both name and description', async () => {
       const updatedClient = { id: 1, name: 'New Name', description: 'New Description' };
 
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, updatedClient);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [updatedClient]);
       });
 
       const response = await request(app)
@@ -430,21 +334,14 @@ describe('Client Routes', () => {
 
       expect(response.status).toBe(200);
       expect(response.body.client).toEqual(updatedClient);
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual(['New Name', 'New Description', 1, 'test@example.com']);
     });
 
     test('should update description to null when empty string provided', async () => {
       const updatedClient = { id: 1, name: 'Client', description: null };
 
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      mockDb.get.mockImplementationOnce((query, params, callback) => {
-        callback(null, updatedClient);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [updatedClient]);
       });
 
       const response = await request(app)
@@ -452,6 +349,7 @@ describe('Client Routes', () => {
         .send({ description: '' });
 
       expect(response.status).toBe(200);
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([null, 1, 'test@example.com']);
     });
   });
 });
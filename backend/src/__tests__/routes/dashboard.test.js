@@ -0,0 +1,151 @@
+const request = require('supertest');
+const express = require('express');
+const dashboardRoutes = require('../../routes/dashboard');
+const clientRoutes = require('../../routes/clients');
+const workEntryRoutes = require('../../routes/workEntries');
+const { getRepositories } = require('../../repositories');
+const { getDatabase } = require('../../database/init');
+
+jest.mock('../../database/init');
+// The mocked init hands out mockDb; the real-SQLite tests below swap in the
+// actual database
+jest.mock('sqlite3', () => jest.requireActual('sqlite3'));
+jest.mock('../../middleware/auth', () => ({
+  authenticateUser: (req, res, next) => {
+    req.userEmail = 'test@example.com';
+    next();
+  }
+}));
+
+const app = express();
+app.use(express.json());
+app.use('/api/dashboard', dashboardRoutes);
+app.use('/api/clients', clientRoutes);
+app.use('/api/work-entries', workEntryRoutes);
+// Add error handler for Joi validation
+app.use((err, req, res, next) => {
+  if (err.isJoi) {
+    return res.status(400).json({ error: 'Validation error' });
+  }
+  res.status(500).json({ error: 'Internal server error' });
+});
+
+describe('Dashboard Routes', () => {
+  let mockDb;
+
+  beforeEach(() => {
+    mockDb = {
+      all: jest.fn(),
+      get: jest.fn(),
+      run: jest.fn()
+    };
+    getDatabase.mockReturnValue(mockDb);
+  });
+
+  afterEach(() => {
+    jest.clearAllMocks();
+  });
+
+  describe('GET /api/dashboard/summary', () => {
+    const totals = { clientCount: 3, entryCount: 120, totalHours: 412.5 };
+    const recentEntries = [
+      { id: 9, client_id: 1, hours: 2, description: 'Review', date: '2024-03-02', client_name: 'Client A' },
+      { id: 8, client_id: 2, hours: 6, description: null, date: '2024-03-01', client_name: 'Client B' }
+    ];
+
+    test('should return counters and recent entries', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, totals));
+      mockDb.all.mockImplementation((query, params, callback) => callback(null, recentEntries));
+
+      const response = await request(app).get('/api/dashboard/summary');
+
+      expect(response.status).toBe(200);
+      expect(response.body).toEqual({ ...totals, recentEntries });
+      expect(mockDb.get).toHaveBeenCalledWith(
+        expect.stringContaining('FROM work_entry_daily_rollup'),
+        ['test@example.com', 'test@example.com'],
+        expect.any(Function)
+      );
+      expect(mockDb.all).toHaveBeenCalledWith(
+        expect.stringContaining('ORDER BY we.date DESC, we.created_at DESC, we.id DESC'),
+        ['test@example.com', '0000-01-01', '9999-12-31', '~', Number.MAX_SAFE_INTEGER, 5],
+        expect.any(Function)
+      );
+    });
+
+    test('should honour the recent entry count', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, totals));
+      mockDb.all.mockImplementation((query, params, callback) => callback(null, []));
+
+      await request(app).get('/api/dashboard/summary?recent=10');
+
+      expect(mockDb.all.mock.calls[0][1][5]).toBe(10);
+    });
+
+    test('should skip the entry query when no recent entries are requested', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, totals));
+
+      const response = await request(app).get('/api/dashboard/summary?recent=0');
+
+      expect(response.status).toBe(200);
+      expect(response.body).toEqual({ ...totals, recentEntries: [] });
+      expect(mockDb.all).not.toHaveBeenCalled();
+    });
+
+    test('should return 400 for an out of range recent count', async () => {
+      const response = await request(app).get('/api/dashboard/summary?recent=21');
+
+      expect(response.status).toBe(400);
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should handle database error on totals', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app).get('/api/dashboard/summary');
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Internal server error' });
+    });
+
+    test('should handle database error on recent entries', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, totals));
+      mockDb.all.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app).get('/api/dashboard/summary');
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Internal server error' });
+    });
+  });
+
+  describe('with a real SQLite database', () => {
+    const database = jest.requireActual('../../database/init');
+    let consoleLogSpy;
+
+    beforeEach(async () => {
+      consoleLogSpy = jest.spyOn(console, 'log').mockImplementation();
+      getDatabase.mockImplementation(database.getDatabase);
+      await database.initializeDatabase();
+      await getRepositories().users.create('test@example.com');
+    });
+
+    afterEach(async () => {
+      await database.closeDatabase();
+      consoleLogSpy.mockRestore();
+    });
+
+    test('should drop a deleted client\'s hours from the totals', async () => {
+      const created = await request(app).post('/api/clients').send({ name: 'Client A' });
+      const clientId = created.body.client.id;
+      await request(app).post('/api/work-entries').send({ clientId, hours: 8, date: '2024-01-15' });
+
+      const before = await request(app).get('/api/dashboard/summary');
+      await request(app).delete(`/api/clients/${clientId}`).expect(200);
+      const after = await request(app).get('/api/dashboard/summary');
+
+      expect(before.body).toEqual(expect.objectContaining({ clientCount: 1, entryCount: 1, totalHours: 8 }));
+      expect(after.body).toEqual({ clientCount: 0, entryCount: 0, totalHours: 0, recentEntries: [] });
+    });
+  });
+});
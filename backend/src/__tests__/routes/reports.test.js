@@ -2,31 +2,16 @@ const request = require('supertest');
 const express = require('express');
 const { getDatabase } = require('../../database/init');
 const fs = require('fs');
-const path = require('path');
+const { EventEmitter } = require('events');
 
 jest.mock('../../database/init');
-jest.mock('fs');
-jest.mock('csv-writer', () => ({
-  createObjectCsvWriter: jest.fn(() => ({
-    writeRecords: jest.fn().mockResolvedValue(undefined)
-  }))
+jest.mock('../../workers/pdfRenderer', () => ({
+  renderPdf: jest.fn()
 }));
-jest.mock('pdfkit', () => {
-  return jest.fn().mockImplementation(() => ({
-    fontSize: jest.fn().mockReturnThis(),
-    text: jest.fn().mockReturnThis(),
-    moveDown: jest.fn().mockReturnThis(),
-    moveTo: jest.fn().mockReturnThis(),
-    lineTo: jest.fn().mockReturnThis(),
-    stroke: jest.fn().mockReturnThis(),
-    addPage: jest.fn().mockReturnThis(),
-    pipe: jest.fn(),
-    end: jest.fn(),
-    y: 100
-  }));
-});
 
 const reportRoutes = require('../../routes/reports');
+const { errorHandler } = require('../../middleware/errorHandler');
+const { renderPdf } = require('../../workers/pdfRenderer');
 jest.mock('../../middleware/auth', () => ({
   authenticateUser: (req, res, next) => {
     req.userEmail = 'test@example.com';
@@ -34,9 +19,17 @@ jest.mock('../../middleware/auth', () => ({
   }
 }));
 
+// supertest doesn't buffer unknown binary types by default
+const binaryParser = (res, callback) => {
+  const chunks = [];
+  res.on('data', chunk => chunks.push(chunk));
+  res.on('end', () => callback(null, Buffer.concat(chunks)));
+};
+
 const app = express();
 app.use(express.json());
 app.use('/api/reports', reportRoutes);
+app.use(errorHandler);
 
 describe('Report Routes', () => {
   let mockDb;
@@ -47,11 +40,6 @@ describe('Report Routes', () => {
       get: jest.fn()
     };
     getDatabase.mockReturnValue(mockDb);
-    
-    // Mock fs methods
-    fs.existsSync = jest.fn().mockReturnValue(true);
-    fs.mkdirSync = jest.fn();
-    fs.unlink = jest.fn((path, callback) => callback(null));
   });
 
   afterEach(() => {
@@ -67,6 +55,9 @@ describe('Report Routes', () => {
       ];
 
       mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(null, { totalHours: 8.5, entryCount: 2 });
+        }
         callback(null, mockClient);
       });
 
@@ -87,6 +78,9 @@ describe('Report Routes', () => {
       const mockClient = { id: 1, name: 'Empty Client' };
 
       mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(null, { totalHours: 0, entryCount: 0 });
+        }
         callback(null, mockClient);
       });
 
@@ -145,6 +139,45 @@ describe('Report Routes', () => {
       expect(response.body).toEqual({ error: 'Internal server error' });
     });
 
+    test('should read totals from the daily rollup', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(null, { totalHours: 12.25, entryCount: 7 });
+        }
+        callback(null, { id: 1, name: 'Test Client' });
+      });
+
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, []);
+      });
+
+      const response = await request(app).get('/api/reports/client/1');
+
+      expect(response.status).toBe(200);
+      expect(response.body.totalHours).toBe(12.25);
+      expect(response.body.entryCount).toBe(7);
+      expect(mockDb.get).toHaveBeenCalledWith(
+        expect.stringContaining('FROM work_entry_daily_rollup'),
+        ['test@example.com', 1],
+        expect.any(Function)
+      );
+    });
+
+    test('should handle database error when fetching totals', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(new Error('Database error'));
+        }
+        callback(null, { id: 1, name: 'Test Client' });
+      });
+
+      const response = await request(app).get('/api/reports/client/1');
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Internal server error' });
+      expect(mockDb.all).not.toHaveBeenCalled();
+    });
+
     test('should filter work entries by user email', async () => {
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(null, { id: 1, name: 'Test Client' });
@@ -165,6 +198,76 @@ describe('Report Routes', () => {
     });
   });
 
+  describe('GET /api/reports/client/:clientId report modes', () => {
+    const mockClient = { id: 1, name: 'Test Client' };
+
+    beforeEach(() => {
+      mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(null, { totalHours: 8.5, entryCount: 3 });
+        }
+        callback(null, mockClient);
+      });
+    });
+
+    test('should return only totals in summary mode', async () => {
+      const response = await request(app).get('/api/reports/client/1?summary=true');
+
+      expect(response.status).toBe(200);
+      expect(response.body).toEqual({ client: mockClient, totalHours: 8.5, entryCount: 3 });
+      expect(mockDb.all).not.toHaveBeenCalled();
+    });
+
+    test('should return a page of entries with pagination info', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 3 }, { id: 2 }, { id: 1 }]);
+      });
+
+      const response = await request(app).get('/api/reports/client/1?limit=2&offset=4');
+
+      expect(response.status).toBe(200);
+      expect(response.body.workEntries).toEqual([{ id: 3 }, { id: 2 }]);
+      expect(response.body.totalHours).toBe(8.5);
+      expect(response.body.entryCount).toBe(3);
+      expect(response.body.pagination).toEqual({ limit: 2, offset: 4, hasMore: true });
+      expect(mockDb.all).toHaveBeenCalledWith(
+        expect.stringContaining('LIMIT ? OFFSET ?'),
+        [1, 'test@example.com', 3, 4],
+        expect.any(Function)
+      );
+    });
+
+    test('should report the last page', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1 }]);
+      });
+
+      const response = await request(app).get('/api/reports/client/1?limit=2');
+
+      expect(response.body.workEntries).toEqual([{ id: 1 }]);
+      expect(response.body.pagination).toEqual({ limit: 2, offset: 0, hasMore: false });
+    });
+
+    test('should not paginate without a limit', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1 }]);
+      });
+
+      const response = await request(app).get('/api/reports/client/1');
+
+      expect(response.body.pagination).toBeUndefined();
+      expect(mockDb.all.mock.calls[0][0]).not.toContain('LIMIT');
+    });
+
+    test('should return 400 for an invalid limit', async () => {
+      const response = await request(app).get('/api/reports/client/1?limit=0');
+
+      expect(response.status).toBe(400);
+      expect(response.body.error).toBe('Validation error');
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+  });
+
   describe('GET /api/reports/export/csv/:clientId', () => {
     test('should return 400 for invalid client ID', async () => {
       const response = await request(app).get('/api/reports/export/csv/invalid');
@@ -265,10 +368,18 @@ describe('Report Routes', () => {
   });
 
   describe('Hours Calculation', () => {
-    test('should correctly sum decimal hours', async () => {
+    // Totals are summed in SQL from integer centihours in the daily rollup
+    const mockTotals = (totals) => {
       mockDb.get.mockImplementation((query, params, callback) => {
+        if (query.includes('work_entry_daily_rollup')) {
+          return callback(null, totals);
+        }
         callback(null, { id: 1, name: 'Test Client' });
       });
+    };
+
+    test('should correctly sum decimal hours', async () => {
+      mockTotals({ totalHours: 7.5, entryCount: 3 });
 
       mockDb.all.mockImplementation((query, params, callback) => {
         callback(null, [
@@ -284,9 +395,7 @@ describe('Report Routes', () => {
     });
 
     test('should handle integer hours', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1, name: 'Test Client' });
-      });
+      mockTotals({ totalHours: 12, entryCount: 2 });
 
       mockDb.all.mockImplementation((query, params, callback) => {
         callback(null, [
@@ -302,45 +411,123 @@ describe('Report Routes', () => {
   });
 
   describe('CSV Export Success Path', () => {
-    test('should handle CSV write error', async () => {
-      const mockClient = { id: 1, name: 'Test Client' };
-      const mockWorkEntries = [
-        { date: '2024-01-01', hours: 5, description: 'Work 1', created_at: '2024-01-01' }
-      ];
+    const mockClient = { id: 1, name: 'Test Client' };
+
+    const entry = (id, overrides = {}) => ({
+      id,
+      date: '2024-01-01',
+      hours: 5,
+      description: `Work ${id}`,
+      created_at: '2024-01-01 09:00:00',
+      ...overrides
+    });
 
+    beforeEach(() => {
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(null, mockClient);
       });
+    });
 
+    test('should stream header and rows as CSV', async () => {
       mockDb.all.mockImplementation((query, params, callback) => {
-        callback(null, mockWorkEntries);
+        callback(null, [entry(2, { date: '2024-01-02', hours: 7.5 }), entry(1, { description: null })]);
       });
 
-      const csvWriter = require('csv-writer');
-      csvWriter.createObjectCsvWriter.mockReturnValue({
-        writeRecords: jest.fn().mockRejectedValue(new Error('Write failed'))
+      const response = await request(app).get('/api/reports/export/csv/1');
+
+      expect(response.status).toBe(200);
+      expect(response.headers['content-type']).toContain('text/csv');
+      expect(response.headers['content-disposition']).toMatch(/^attachment; filename="Test_Client_report_.*\.csv"$/);
+      expect(response.text).toBe(
+        'Date,Hours,Description,Created At\n' +
+        '2024-01-02,7.5,Work 2,2024-01-01 09:00:00\n' +
+        '2024-01-01,5,,2024-01-01 09:00:00\n'
+      );
+    });
+
+    test('should quote values containing commas, quotes and newlines', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, [entry(1, { description: 'Review, "final"\nnotes' })]);
       });
 
       const response = await request(app).get('/api/reports/export/csv/1');
 
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Failed to generate CSV report' });
+      expect(response.text.split('\n').slice(1).join('\n')).toBe('2024-01-01,5,"Review, ""final""\nnotes",2024-01-01 09:00:00\n');
     });
 
-    test('should verify CSV export calls correct database queries', async () => {
-      const mockClient = { id: 1, name: 'Test Client' };
+    test('should read entries in keyset batches', async () => {
+      const firstBatch = Array.from({ length: 500 }, (_, i) => entry(1000 - i));
+      mockDb.all
+        .mockImplementationOnce((query, params, callback) => callback(null, firstBatch))
+        .mockImplementationOnce((query, params, callback) => callback(null, [entry(1)]));
 
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, mockClient);
+      const response = await request(app).get('/api/reports/export/csv/1');
+
+      expect(response.status).toBe(200);
+      expect(response.text.trim().split('\n')).toHaveLength(502);
+      expect(mockDb.all).toHaveBeenCalledTimes(2);
+      expect(mockDb.all.mock.calls[0][1]).toEqual([1, 'test@example.com', 500]);
+      expect(mockDb.all.mock.calls[1][0]).toContain('(date, created_at, id) < (?, ?, ?)');
+      expect(mockDb.all.mock.calls[1][1]).toEqual([1, 'test@example.com', '2024-01-01', '2024-01-01 09:00:00', 501, 500]);
+    });
+
+    test('should stop when the client disconnects while the response is full', async () => {
+      const firstBatch = Array.from({ length: 500 }, (_, i) => entry(1000 - i));
+      mockDb.all.mockImplementation((query, params, callback) => callback(null, firstBatch));
+
+      // A bare response stays full until it is closed, unlike a supertest socket
+      const res = new EventEmitter();
+      res.headersSent = false;
+      res.setHeader = jest.fn(() => {
+        res.headersSent = true;
       });
+      res.write = jest.fn(() => false);
+      res.end = jest.fn();
+      const next = jest.fn();
+      const tick = () => new Promise(resolve => setImmediate(resolve));
+
+      reportRoutes({ method: 'GET', url: '/export/csv/1', path: '/export/csv/1', headers: {} }, res, next);
+      await tick();
+      expect(res.write).toHaveBeenCalledTimes(1);
+      expect(res.listenerCount('drain')).toBe(1);
 
+      res.emit('close');
+      await tick();
+
+      expect(mockDb.all).toHaveBeenCalledTimes(1);
+      expect(res.end).not.toHaveBeenCalled();
+      expect(res.listenerCount('drain')).toBe(0);
+    });
+
+    test('should write header only for a client without entries', async () => {
       mockDb.all.mockImplementation((query, params, callback) => {
         callback(null, []);
       });
 
-      const csvWriter = require('csv-writer');
-      csvWriter.createObjectCsvWriter.mockReturnValue({
-        writeRecords: jest.fn().mockRejectedValue(new Error('Write failed'))
+      const response = await request(app).get('/api/reports/export/csv/1');
+
+      expect(response.status).toBe(200);
+      expect(response.text).toBe('Date,Hours,Description,Created At\n');
+    });
+
+    test('should not touch the filesystem', async () => {
+      const writeStreamSpy = jest.spyOn(fs, 'createWriteStream');
+      const writeFileSpy = jest.spyOn(fs, 'writeFile');
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, [entry(1)]);
+      });
+
+      await request(app).get('/api/reports/export/csv/1');
+
+      expect(writeStreamSpy).not.toHaveBeenCalled();
+      expect(writeFileSpy).not.toHaveBeenCalled();
+      writeStreamSpy.mockRestore();
+      writeFileSpy.mockRestore();
+    });
+
+    test('should verify CSV export calls correct database queries', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, []);
       });
 
       await request(app).get('/api/reports/export/csv/1');
@@ -350,84 +537,147 @@ describe('Report Routes', () => {
         expect.arrayContaining([1, 'test@example.com']),
         expect.any(Function)
       );
+      expect(mockDb.all).toHaveBeenCalledWith(
+        expect.stringContaining('WHERE client_id = ? AND user_email = ?'),
+        [1, 'test@example.com', 500],
+        expect.any(Function)
+      );
     });
+  });
 
-    test('should create temp directory if it does not exist', async () => {
-      const mockClient = { id: 1, name: 'Test Client' };
-      const mockWorkEntries = [
-        { date: '2024-01-01', hours: 5, description: 'Work 1', created_at: '2024-01-01' }
-      ];
 
+  describe('PDF Export Success Path', () => {
+    // Stands in for the worker: pulls batches until an empty one
+    const pullEntries = batches => (report, onChunk, nextEntries) => (async () => {
+      for (let entries = await nextEntries(); entries.length > 0; entries = await nextEntries()) {
+        batches.push(entries);
+      }
+      return true;
+    })();
+
+    test('should fail the render when reading entries for PDF fails', async () => {
       mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, mockClient);
+        callback(null, { id: 1, name: 'Test Client' });
       });
 
       mockDb.all.mockImplementation((query, params, callback) => {
-        callback(null, mockWorkEntries);
-      });
-
-      fs.existsSync.mockReturnValue(false);
-
-      const csvWriter = require('csv-writer');
-      csvWriter.createObjectCsvWriter.mockReturnValue({
-        writeRecords: jest.fn().mockRejectedValue(new Error('Write failed'))
+        callback(new Error('Database error'), null);
       });
+      renderPdf.mockImplementation(pullEntries([]));
 
-      await request(app).get('/api/reports/export/csv/1');
+      const response = await request(app).get('/api/reports/export/pdf/1');
 
-      expect(fs.mkdirSync).toHaveBeenCalledWith(expect.any(String), { recursive: true });
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Failed to generate PDF report' });
     });
 
-    test('should not create temp directory if it exists', async () => {
-      const mockClient = { id: 1, name: 'Test Client' };
-      const mockWorkEntries = [];
+    describe('rendering', () => {
+      beforeEach(() => {
+        mockDb.get.mockImplementation((query, params, callback) => {
+          if (query.includes('work_entry_daily_rollup')) {
+            return callback(null, { totalHours: 7.5, entryCount: 1 });
+          }
+          callback(null, { id: 1, name: 'Test Client' });
+        });
 
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, mockClient);
+        mockDb.all.mockImplementation((query, params, callback) => {
+          callback(null, [{ id: 1, hours: 7.5, description: 'Work', date: '2024-01-01', created_at: '2024-01-01 09:00:00' }]);
+        });
       });
 
-      mockDb.all.mockImplementation((query, params, callback) => {
-        callback(null, mockWorkEntries);
+      test('should stream the rendered PDF to the response', async () => {
+        renderPdf.mockImplementation((report, onChunk) => {
+          onChunk(Buffer.from('%PDF-1.3\n'));
+          onChunk(Buffer.from('%%EOF\n'));
+          return Promise.resolve(true);
+        });
+
+        const response = await request(app).get('/api/reports/export/pdf/1').buffer(true).parse(binaryParser);
+
+        expect(response.status).toBe(200);
+        expect(response.headers['content-type']).toBe('application/pdf');
+        expect(response.headers['content-disposition']).toMatch(/^attachment; filename="Test_Client_report_.*\.pdf"$/);
+        expect(response.body.toString()).toBe('%PDF-1.3\n%%EOF\n');
       });
 
-      fs.existsSync.mockReturnValue(true);
+      test('should hand totals from the daily rollup to the renderer', async () => {
+        renderPdf.mockResolvedValue(true);
+
+        await request(app).get('/api/reports/export/pdf/1');
 
-      const csvWriter = require('csv-writer');
-      csvWriter.createObjectCsvWriter.mockReturnValue({
-        writeRecords: jest.fn().mockRejectedValue(new Error('Write failed'))
+        expect(renderPdf).toHaveBeenCalledWith(
+          {
+            clientName: 'Test Client',
+            totalHours: 7.5,
+            entryCount: 1,
+            generatedAt: expect.any(String)
+          },
+          expect.any(Function),
+          expect.any(Function)
+        );
+        expect(mockDb.all).not.toHaveBeenCalled();
       });
 
-      await request(app).get('/api/reports/export/csv/1');
+      test('should feed the renderer entries in keyset batches', async () => {
+        const firstBatch = Array.from({ length: 500 }, (_, i) => ({
+          id: 1000 - i, hours: 1, description: 'Work', date: '2024-01-02', created_at: '2024-01-02 09:00:00'
+        }));
+        mockDb.all
+          .mockImplementationOnce((query, params, callback) => callback(null, firstBatch))
+          .mockImplementationOnce((query, params, callback) => {
+            callback(null, [{ id: 1, hours: 7.5, description: 'Work', date: '2024-01-01', created_at: '2024-01-01 09:00:00' }]);
+          });
+        const batches = [];
+        renderPdf.mockImplementation(pullEntries(batches));
 
-      expect(fs.mkdirSync).not.toHaveBeenCalled();
-    });
-  });
+        const response = await request(app).get('/api/reports/export/pdf/1');
 
+        expect(response.status).toBe(200);
+        expect(batches.map(batch => batch.length)).toEqual([500, 1]);
+        expect(batches[1]).toEqual([{ date: '2024-01-01', hours: 7.5, description: 'Work' }]);
+        expect(mockDb.all).toHaveBeenCalledTimes(2);
+        expect(mockDb.all.mock.calls[0][1]).toEqual([1, 'test@example.com', 500]);
+        expect(mockDb.all.mock.calls[1][1]).toEqual([1, 'test@example.com', '2024-01-02', '2024-01-02 09:00:00', 501, 500]);
+      });
 
-  describe('PDF Export Success Path', () => {
-    test('should handle database error when fetching work entries for PDF', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1, name: 'Test Client' });
+      test('should return 503 with Retry-After when the render queue is full', async () => {
+        const error = new Error('Worker pool queue is full');
+        error.code = 'EQUEUEFULL';
+        renderPdf.mockRejectedValue(error);
+
+        const response = await request(app).get('/api/reports/export/pdf/1');
+
+        expect(response.status).toBe(503);
+        expect(response.headers['retry-after']).toBe('5');
+        expect(response.body).toEqual({ error: 'Too many PDF exports in progress, please retry shortly' });
       });
 
-      mockDb.all.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
+      test('should return 503 when rendering times out', async () => {
+        const error = new Error('Worker job timed out after 30000ms');
+        error.code = 'ETIMEDOUT';
+        renderPdf.mockRejectedValue(error);
+
+        const response = await request(app).get('/api/reports/export/pdf/1');
+
+        expect(response.status).toBe(503);
+        expect(response.body).toEqual({ error: 'PDF generation timed out' });
       });
 
-      const response = await request(app).get('/api/reports/export/pdf/1');
+      test('should return 500 when rendering fails', async () => {
+        renderPdf.mockRejectedValue(new Error('Layout failed'));
 
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
+        const response = await request(app).get('/api/reports/export/pdf/1');
+
+        expect(response.status).toBe(500);
+        expect(response.body).toEqual({ error: 'Failed to generate PDF report' });
+      });
     });
 
     test('should verify PDF export calls correct database queries', async () => {
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(null, { id: 1, name: 'Test Client' });
       });
-
-      mockDb.all.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
-      });
+      renderPdf.mockResolvedValue(true);
 
       await request(app).get('/api/reports/export/pdf/1');
 
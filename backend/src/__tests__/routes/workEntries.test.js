@@ -2,6 +2,7 @@ const request = require('supertest');
 const express = require('express');
 const workEntryRoutes = require('../../routes/workEntries');
 const { getDatabase } = require('../../database/init');
+const { encodeCursor } = require('../../utils/cursor');
 
 jest.mock('../../database/init');
 jest.mock('../../middleware/auth', () => ({
@@ -29,7 +30,8 @@ describe('Work Entry Routes', () => {
     mockDb = {
       all: jest.fn(),
       get: jest.fn(),
-      run: jest.fn()
+      run: jest.fn(),
+      writeAll: jest.fn()
     };
     getDatabase.mockReturnValue(mockDb);
   });
@@ -39,10 +41,10 @@ describe('Work Entry Routes', () => {
   });
 
   describe('GET /api/work-entries', () => {
-    test('should return all work entries for user', async () => {
+    test('should return the first page of work entries for user', async () => {
       const mockEntries = [
-        { id: 1, client_id: 1, hours: 5, description: 'Work 1', date: '2024-01-01', client_name: 'Client A' },
-        { id: 2, client_id: 2, hours: 3, description: 'Work 2', date: '2024-01-02', client_name: 'Client B' }
+        { id: 2, client_id: 2, hours: 3, description: 'Work 2', date: '2024-01-02', created_at: '2024-01-02 09:00:00', client_name: 'Client B' },
+        { id: 1, client_id: 1, hours: 5, description: 'Work 1', date: '2024-01-01', created_at: '2024-01-01 09:00:00', client_name: 'Client A' }
       ];
 
       mockDb.all.mockImplementation((query, params, callback) => {
@@ -52,29 +54,89 @@ describe('Work Entry Routes', () => {
       const response = await request(app).get('/api/work-entries');
 
       expect(response.status).toBe(200);
-      expect(response.body).toEqual({ workEntries: mockEntries });
+      expect(response.body).toEqual({
+        workEntries: mockEntries,
+        pagination: { limit: 50, hasMore: false, nextCursor: null }
+      });
+      expect(mockDb.all).toHaveBeenCalledWith(
+        expect.stringContaining('(we.date, we.created_at, we.id) < (?, ?, ?)'),
+        ['test@example.com', '0000-01-01', '9999-12-31', '~', Number.MAX_SAFE_INTEGER, 51],
+        expect.any(Function)
+      );
+    });
+
+    test('should return a cursor when another page follows', async () => {
+      const mockEntries = [
+        { id: 3, date: '2024-01-03', created_at: '2024-01-03 09:00:00' },
+        { id: 2, date: '2024-01-02', created_at: '2024-01-02 09:00:00' },
+        { id: 1, date: '2024-01-01', created_at: '2024-01-01 09:00:00' }
+      ];
+
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, mockEntries);
+      });
+
+      const response = await request(app).get('/api/work-entries?limit=2');
+
+      expect(response.status).toBe(200);
+      expect(response.body.workEntries).toEqual(mockEntries.slice(0, 2));
+      expect(response.body.pagination).toEqual({
+        limit: 2,
+        hasMore: true,
+        nextCursor: encodeCursor(mockEntries[1])
+      });
+      expect(mockDb.all.mock.calls[0][1][5]).toBe(3);
+    });
+
+    test('should continue after the cursor position', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => {
+        callback(null, []);
+      });
+      const cursor = encodeCursor({ id: 42, date: '2024-01-15', created_at: '2024-01-15 10:00:00' });
+
+      const response = await request(app).get(`/api/work-entries?cursor=${cursor}`);
+
+      expect(response.status).toBe(200);
+      expect(mockDb.all.mock.calls[0][1]).toEqual(['test@example.com', '0000-01-01', '2024-01-15', '2024-01-15 10:00:00', 42, 51]);
     });
 
-    test('should filter by client ID when provided', async () => {
+    test('should filter by client ID and date range', async () => {
       mockDb.all.mockImplementation((query, params, callback) => {
-        expect(params).toEqual(['test@example.com', 1]);
         callback(null, []);
       });
 
-      await request(app).get('/api/work-entries?clientId=1');
+      await request(app).get('/api/work-entries?clientId=1&from=2024-01-01&to=2024-01-31&limit=10');
 
       expect(mockDb.all).toHaveBeenCalledWith(
         expect.stringContaining('AND we.client_id = ?'),
-        ['test@example.com', 1],
+        ['test@example.com', 1, '2024-01-01', '2024-01-31', '~', Number.MAX_SAFE_INTEGER, 11],
         expect.any(Function)
       );
     });
 
-    test('should return 400 for invalid client ID filter', async () => {
-      const response = await request(app).get('/api/work-entries?clientId=invalid');
+    test('should return 400 for an inverted date range', async () => {
+      const response = await request(app).get('/api/work-entries?from=2024-02-01&to=2024-01-01');
 
       expect(response.status).toBe(400);
-      expect(response.body).toEqual({ error: 'Invalid client ID' });
+      expect(response.body).toEqual({ error: 'from must not be after to' });
+      expect(mockDb.all).not.toHaveBeenCalled();
+    });
+
+    test('should return 400 for a malformed cursor', async () => {
+      const response = await request(app).get('/api/work-entries?cursor=not-a-cursor');
+
+      expect(response.status).toBe(400);
+      expect(response.body).toEqual({ error: 'Invalid cursor' });
+    });
+
+    test('should return 400 for invalid query parameters', async () => {
+      const invalid = ['clientId=invalid', 'limit=0', 'limit=201', 'from=yesterday'];
+
+      for (const query of invalid) {
+        const response = await request(app).get(`/api/work-entries?${query}`);
+        expect(response.status).toBe(400);
+      }
+      expect(mockDb.all).not.toHaveBeenCalled();
     });
 
     test('should handle database error', async () => {
@@ -123,25 +185,17 @@ describe('Work Entry Routes', () => {
   });
 
   describe('POST /api/work-entries', () => {
-    test('should create work entry with valid data', async () => {
+    test('should create work entry with valid data in one statement', async () => {
       const newEntry = {
         clientId: 1,
         hours: 5.5,
         description: 'Development work',
         date: '2024-01-15'
       };
+      const created = { id: 1, client_id: 1, hours: 5.5, description: 'Development work', date: '2024-01-15', client_name: 'Client A' };
 
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('clients')) {
-          callback(null, { id: 1 }); // Client exists
-        } else {
-          callback(null, { id: 1, ...newEntry, client_name: 'Client A' });
-        }
-      });
-
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        this.lastID = 1;
-        callback.call(this, null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [created]);
       });
 
       const response = await request(app)
@@ -150,11 +204,16 @@ describe('Work Entry Routes', () => {
 
       expect(response.status).toBe(201);
       expect(response.body.message).toBe('Work entry created successfully');
+      expect(response.body.workEntry).toEqual(created);
+      expect(mockDb.writeAll).toHaveBeenCalledTimes(1);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('FROM clients WHERE id = ? AND user_email = ?');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([550, 'Development work', '2024-01-15', 1, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should return 400 if client not found', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, null); // Client doesn't exist
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, []); // Client doesn't exist, nothing inserted
       });
 
       const response = await request(app)
@@ -202,11 +261,7 @@ describe('Work Entry Routes', () => {
     });
 
     test('should handle database error on insert', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
         callback(new Error('Insert failed'));
       });
 
@@ -223,55 +278,338 @@ describe('Work Entry Routes', () => {
     });
   });
 
-  describe('PUT /api/work-entries/:id', () => {
-    test('should update work entry hours', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries we')) {
-          callback(null, { id: 1, hours: 8, client_name: 'Client A' });
-        } else {
-          callback(null, { id: 1 });
-        }
+  describe('POST /api/work-entries/batch', () => {
+    const entries = [
+      { clientId: 1, hours: 8, description: 'Monday', date: '2024-01-01' },
+      { clientId: 2, hours: 1.25, date: '2024-01-01' },
+      { clientId: 1, hours: 7.5, date: '2024-01-02' }
+    ];
+
+    function ownClients(clients) {
+      mockDb.all.mockImplementation((query, params, callback) => callback(null, clients));
+    }
+
+    test('should insert every entry with one statement and return them', async () => {
+      ownClients([{ id: 1, name: 'Client A' }, { id: 2, name: 'Client B' }]);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [
+          { id: 12, client_id: 1, hours: 7.5, description: null, date: '2024-01-02' },
+          { id: 10, client_id: 1, hours: 8, description: 'Monday', date: '2024-01-01' },
+          { id: 11, client_id: 2, hours: 1.25, description: null, date: '2024-01-01' }
+        ]);
       });
 
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      const response = await request(app).post('/api/work-entries/batch').send({ entries });
+
+      expect(response.status).toBe(201);
+      expect(response.body.workEntries).toEqual([
+        { id: 10, client_id: 1, hours: 8, description: 'Monday', date: '2024-01-01', client_name: 'Client A' },
+        { id: 11, client_id: 2, hours: 1.25, description: null, date: '2024-01-01', client_name: 'Client B' },
+        { id: 12, client_id: 1, hours: 7.5, description: null, date: '2024-01-02', client_name: 'Client A' }
+      ]);
+      expect(mockDb.all).toHaveBeenCalledTimes(1);
+      expect(mockDb.all.mock.calls[0][1]).toEqual(['[1,2]', 'test@example.com']);
+      expect(mockDb.writeAll).toHaveBeenCalledTimes(1);
+      const batch = JSON.stringify([[1, 800, 'Monday', '2024-01-01'], [2, 125, null, '2024-01-01'], [1, 750, null, '2024-01-02']]);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('FROM json_each(?) JOIN clients');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([batch, 'test@example.com', batch, 'test@example.com']);
+    });
+
+    test('should report invalid items by index without writing', async () => {
+      const response = await request(app)
+        .post('/api/work-entries/batch')
+        .send({ entries: [entries[0], { clientId: 1, hours: 30, date: '2024-01-01' }, { hours: 2 }] });
+
+      expect(response.status).toBe(400);
+      expect(response.body.error).toBe('Validation error');
+      expect(response.body.errors.map(item => item.index)).toEqual([1, 2]);
+      expect(response.body.errors[1].details.length).toBeGreaterThanOrEqual(2);
+      expect(mockDb.all).not.toHaveBeenCalled();
+      expect(mockDb.writeAll).not.toHaveBeenCalled();
+    });
+
+    test('should report items for clients the user does not own', async () => {
+      ownClients([{ id: 1, name: 'Client A' }]);
+
+      const response = await request(app).post('/api/work-entries/batch').send({ entries });
+
+      expect(response.status).toBe(400);
+      expect(response.body.errors).toEqual([
+        { index: 1, details: ['Client not found or does not belong to user'] }
+      ]);
+      expect(mockDb.writeAll).not.toHaveBeenCalled();
+    });
+
+    test('should report items whose client was deleted after the ownership check', async () => {
+      mockDb.all
+        .mockImplementationOnce((query, params, callback) => callback(null, [{ id: 1, name: 'Client A' }, { id: 2, name: 'Client B' }]))
+        .mockImplementationOnce((query, params, callback) => callback(null, [{ id: 2, name: 'Client B' }]));
+      mockDb.writeAll.mockImplementation((query, params, callback) => callback(null, []));
+
+      const response = await request(app).post('/api/work-entries/batch').send({ entries });
+
+      expect(response.status).toBe(400);
+      expect(response.body.errors).toEqual([
+        { index: 0, details: ['Client not found or does not belong to user'] },
+        { index: 2, details: ['Client not found or does not belong to user'] }
+      ]);
+      expect(mockDb.all).toHaveBeenCalledTimes(2);
+    });
+
+    test('should reject empty and oversized batches', async () => {
+      const empty = await request(app).post('/api/work-entries/batch').send({ entries: [] });
+      const oversized = await request(app)
+        .post('/api/work-entries/batch')
+        .send({ entries: Array.from({ length: 501 }, () => entries[0]) });
+      const missing = await request(app).post('/api/work-entries/batch').send({});
+
+      expect(empty.status).toBe(400);
+      expect(oversized.status).toBe(400);
+      expect(missing.status).toBe(400);
+    });
+
+    test('should handle database error on ownership check', async () => {
+      mockDb.all.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app).post('/api/work-entries/batch').send({ entries });
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Internal server error' });
+    });
+
+    test('should handle database error on insert', async () => {
+      ownClients([{ id: 1, name: 'Client A' }, { id: 2, name: 'Client B' }]);
+      mockDb.writeAll.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app).post('/api/work-entries/batch').send({ entries });
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Failed to create work entries' });
+    });
+  });
+
+  describe('PUT /api/work-entries/batch', () => {
+    function changes(count) {
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: count }, null);
       });
+    }
+
+    test('should update entries by id in one statement', async () => {
+      changes(3);
 
       const response = await request(app)
-        .put('/api/work-entries/1')
-        .send({ hours: 8 });
+        .put('/api/work-entries/batch')
+        .send({ ids: [1, 2, 3], set: { hours: 4, description: 'Standup' } });
 
       expect(response.status).toBe(200);
-      expect(response.body.message).toBe('Work entry updated successfully');
+      expect(response.body).toEqual({ message: 'Work entries updated successfully', updated: 3 });
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(mockDb.run.mock.calls[0][0]).toBe(
+        'UPDATE work_entries SET centihours = ?, description = ?, updated_at = CURRENT_TIMESTAMP ' +
+        'WHERE user_email = ? AND id IN (SELECT value FROM json_each(?))'
+      );
+      expect(mockDb.run.mock.calls[0][1]).toEqual([400, 'Standup', 'test@example.com', '[1,2,3]']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
-    test('should update work entry client', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
+    test('should update entries matching a filter', async () => {
+      changes(2);
+
+      const response = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ filter: { clientId: 1, from: '2024-01-01' }, set: { date: '2024-02-01' } });
+
+      expect(response.status).toBe(200);
+      expect(response.body.updated).toBe(2);
+      expect(mockDb.run.mock.calls[0][0]).toContain('WHERE user_email = ? AND client_id = ? AND date >= ? AND date <= ?');
+      expect(mockDb.run.mock.calls[0][1]).toEqual(['2024-02-01', 'test@example.com', 1, '2024-01-01', '9999-12-31']);
+    });
+
+    test('should check ownership of the client entries move to in the update', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, null));
+      changes(0);
+
+      const response = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ ids: [1], set: { clientId: 999 } });
+
+      expect(response.status).toBe(400);
+      expect(response.body).toEqual({ error: 'Client not found or does not belong to user' });
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(mockDb.run.mock.calls[0][0]).toContain(
+        'WHERE user_email = ? AND id IN (SELECT value FROM json_each(?)) ' +
+        'AND EXISTS (SELECT 1 FROM clients WHERE id = ? AND user_email = ?)'
+      );
+      expect(mockDb.run.mock.calls[0][1]).toEqual([999, 'test@example.com', '[1]', 999, 'test@example.com']);
+      expect(mockDb.get.mock.calls[0][1]).toEqual([999, 'test@example.com']);
+    });
+
+    test('should move entries to an owned client', async () => {
+      changes(1);
+
+      const response = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ ids: [1], set: { clientId: 2 } });
+
+      expect(response.status).toBe(200);
+      expect(response.body.updated).toBe(1);
+      expect(mockDb.run.mock.calls[0][1]).toEqual([2, 'test@example.com', '[1]', 2, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should report no changes when moving an empty selection to an owned client', async () => {
+      mockDb.get.mockImplementation((query, params, callback) => callback(null, { id: 2 }));
+      changes(0);
+
+      const response = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ ids: [1], set: { clientId: 2 } });
+
+      expect(response.status).toBe(200);
+      expect(response.body.updated).toBe(0);
+    });
+
+    test('should require exactly one of ids and filter and something to set', async () => {
+      const both = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ ids: [1], filter: { clientId: 1 }, set: { hours: 1 } });
+      const neither = await request(app).put('/api/work-entries/batch').send({ set: { hours: 1 } });
+      const emptyFilter = await request(app).put('/api/work-entries/batch').send({ filter: {}, set: { hours: 1 } });
+      const emptySet = await request(app).put('/api/work-entries/batch').send({ ids: [1], set: {} });
+
+      expect(both.status).toBe(400);
+      expect(neither.status).toBe(400);
+      expect(emptyFilter.status).toBe(400);
+      expect(emptySet.status).toBe(400);
+      expect(mockDb.run).not.toHaveBeenCalled();
+    });
+
+    test('should handle database error', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app)
+        .put('/api/work-entries/batch')
+        .send({ ids: [1], set: { hours: 1 } });
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Failed to update work entries' });
+    });
+  });
+
+  describe('DELETE /api/work-entries/batch', () => {
+    test('should delete entries by id in one statement', async () => {
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 2 }, null);
       });
 
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      const response = await request(app).delete('/api/work-entries/batch').send({ ids: [4, 5, 6] });
+
+      expect(response.status).toBe(200);
+      expect(response.body).toEqual({ message: 'Work entries deleted successfully', deleted: 2 });
+      expect(mockDb.run).toHaveBeenCalledTimes(1);
+      expect(mockDb.run.mock.calls[0][0]).toBe(
+        'DELETE FROM work_entries WHERE user_email = ? AND id IN (SELECT value FROM json_each(?))'
+      );
+      expect(mockDb.run.mock.calls[0][1]).toEqual(['test@example.com', '[4,5,6]']);
+    });
+
+    test('should delete entries in a date range', async () => {
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 10 }, null);
       });
 
+      const response = await request(app)
+        .delete('/api/work-entries/batch')
+        .send({ filter: { from: '2024-01-01', to: '2024-01-31' } });
+
+      expect(response.status).toBe(200);
+      expect(response.body.deleted).toBe(10);
+      expect(mockDb.run.mock.calls[0][0]).toBe('DELETE FROM work_entries WHERE user_email = ? AND date >= ? AND date <= ?');
+      expect(mockDb.run.mock.calls[0][1]).toEqual(['test@example.com', '2024-01-01', '2024-01-31']);
+    });
+
+    test('should reject a missing or empty selection', async () => {
+      const missing = await request(app).delete('/api/work-entries/batch').send({});
+      const emptyIds = await request(app).delete('/api/work-entries/batch').send({ ids: [] });
+      const emptyFilter = await request(app).delete('/api/work-entries/batch').send({ filter: {} });
+
+      expect(missing.status).toBe(400);
+      expect(emptyIds.status).toBe(400);
+      expect(emptyFilter.status).toBe(400);
+      expect(mockDb.run).not.toHaveBeenCalled();
+    });
+
+    test('should handle database error', async () => {
+      mockDb.run.mockImplementation((query, params, callback) => callback(new Error('Database error')));
+
+      const response = await request(app).delete('/api/work-entries/batch').send({ ids: [1] });
+
+      expect(response.status).toBe(500);
+      expect(response.body).toEqual({ error: 'Failed to delete work entries' });
+    });
+  });
+
+  describe('PUT /api/work-entries/:id', () => {
+    function updated(rows) {
+      mockDb.writeAll.mockImplementation((query, params, callback) => callback(null, rows));
+    }
+
+    test('should update work entry hours in one statement', async () => {
+      const entry = { id: 1, hours: 8, client_name: 'Client A' };
+      updated([entry]);
+
+      const response = await request(app)
+        .put('/api/work-entries/1')
+        .send({ hours: 8 });
+
+      expect(response.status).toBe(200);
+      expect(response.body).toEqual({ message: 'Work entry updated successfully', workEntry: entry });
+      expect(mockDb.writeAll).toHaveBeenCalledTimes(1);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('SET centihours = ?, updated_at = CURRENT_TIMESTAMP');
+      expect(mockDb.writeAll.mock.calls[0][0]).not.toContain('EXISTS');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([800, 1, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should update work entry client with the ownership check in the update', async () => {
+      updated([{ id: 1, client_id: 2, client_name: 'Client B' }]);
+
       const response = await request(app)
         .put('/api/work-entries/1')
         .send({ clientId: 2 });
 
       expect(response.status).toBe(200);
+      expect(mockDb.writeAll.mock.calls[0][0]).toContain('EXISTS (SELECT 1 FROM clients WHERE id = ? AND user_email = ?)');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([2, 1, 'test@example.com', 2, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should return 404 if work entry not found', async () => {
+      updated([]);
+
+      const response = await request(app)
+        .put('/api/work-entries/999')
+        .send({ hours: 8 });
+
+      expect(response.status).toBe(404);
+      expect(response.body).toEqual({ error: 'Work entry not found' });
+      expect(mockDb.get).not.toHaveBeenCalled();
+    });
+
+    test('should return 404 if work entry not found while moving clients', async () => {
+      updated([]);
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(null, null);
       });
 
       const response = await request(app)
         .put('/api/work-entries/999')
-        .send({ hours: 8 });
+        .send({ clientId: 2 });
 
       expect(response.status).toBe(404);
       expect(response.body).toEqual({ error: 'Work entry not found' });
+      expect(mockDb.get.mock.calls[0][1]).toEqual([999, 'test@example.com']);
     });
 
     test('should return 400 for invalid work entry ID', async () => {
@@ -292,12 +630,9 @@ describe('Work Entry Routes', () => {
     });
 
     test('should return 400 if new client not found', async () => {
+      updated([]);
       mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries')) {
-          callback(null, { id: 1 });
-        } else {
-          callback(null, null); // Client doesn't exist
-        }
+        callback(null, { id: 1 }); // Entry exists, so the client is the problem
       });
 
       const response = await request(app)
@@ -310,24 +645,23 @@ describe('Work Entry Routes', () => {
   });
 
   describe('DELETE /api/work-entries/:id', () => {
-    test('should delete existing work entry', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+    test('should delete existing work entry in one statement', async () => {
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 1 }, null);
       });
 
       const response = await request(app).delete('/api/work-entries/1');
 
       expect(response.status).toBe(200);
       expect(response.body).toEqual({ message: 'Work entry deleted successfully' });
+      expect(mockDb.run.mock.calls[0][0]).toBe('DELETE FROM work_entries WHERE id = ? AND user_email = ?');
+      expect(mockDb.run.mock.calls[0][1]).toEqual([1, 'test@example.com']);
+      expect(mockDb.get).not.toHaveBeenCalled();
     });
 
     test('should return 404 if work entry not found', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, null);
+      mockDb.run.mockImplementation(function(query, params, callback) {
+        callback.call({ changes: 0 }, null);
       });
 
       const response = await request(app).delete('/api/work-entries/999');
@@ -344,10 +678,6 @@ describe('Work Entry Routes', () => {
     });
 
     test('should handle database delete error', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
       mockDb.run.mockImplementation((query, params, callback) => {
         callback(new Error('Delete failed'));
       });
@@ -357,17 +687,6 @@ describe('Work Entry Routes', () => {
       expect(response.status).toBe(500);
       expect(response.body).toEqual({ error: 'Failed to delete work entry' });
     });
-
-    test('should handle database error when checking work entry existence', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
-      });
-
-      const response = await request(app).delete('/api/work-entries/1');
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
-    });
   });
 
   describe('GET /api/work-entries/:id - Error Handling', () => {
@@ -383,78 +702,13 @@ describe('Work Entry Routes', () => {
     });
   });
 
-  describe('POST /api/work-entries - Error Handling', () => {
-    test('should handle database error when verifying client', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(new Error('Database error'), null);
-      });
-
-      const response = await request(app)
-        .post('/api/work-entries')
-        .send({
-          clientId: 1,
-          hours: 5,
-          date: '2024-01-15'
-        });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
-    });
-
-    test('should handle error retrieving work entry after creation', async () => {
-      let getCallCount = 0;
-      mockDb.get.mockImplementation((query, params, callback) => {
-        getCallCount++;
-        if (getCallCount === 1) {
-          callback(null, { id: 1 });
-        } else {
-          callback(new Error('Retrieval failed'), null);
-        }
-      });
-
-      mockDb.run.mockImplementation(function(query, params, callback) {
-        this.lastID = 1;
-        callback.call(this, null);
-      });
-
-      const response = await request(app)
-        .post('/api/work-entries')
-        .send({
-          clientId: 1,
-          hours: 5,
-          date: '2024-01-15'
-        });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Work entry created but failed to retrieve' });
-    });
-  });
-
   describe('PUT /api/work-entries/:id - Error Handling', () => {
-    test('should handle database error when checking work entry existence', async () => {
+    test('should handle database error when telling a missing entry from a foreign client', async () => {
+      mockDb.writeAll.mockImplementation((query, params, callback) => callback(null, []));
       mockDb.get.mockImplementation((query, params, callback) => {
         callback(new Error('Database error'), null);
       });
 
-      const response = await request(app)
-        .put('/api/work-entries/1')
-        .send({ hours: 8 });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Internal server error' });
-    });
-
-    test('should handle database error when verifying new client in update', async () => {
-      let callCount = 0;
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callCount++;
-        if (callCount === 1) {
-          callback(null, { id: 1 });
-        } else {
-          callback(new Error('Database error'), null);
-        }
-      });
-
       const response = await request(app)
         .put('/api/work-entries/1')
         .send({ clientId: 2 });
@@ -464,11 +718,7 @@ describe('Work Entry Routes', () => {
     });
 
     test('should handle database error during update', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        callback(null, { id: 1 });
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
         callback(new Error('Update failed'));
       });
 
@@ -480,40 +730,9 @@ describe('Work Entry Routes', () => {
       expect(response.body).toEqual({ error: 'Failed to update work entry' });
     });
 
-    test('should handle error retrieving work entry after update', async () => {
-      let getCallCount = 0;
-      mockDb.get.mockImplementation((query, params, callback) => {
-        getCallCount++;
-        if (getCallCount === 1) {
-          callback(null, { id: 1 });
-        } else {
-          callback(new Error('Retrieval failed'), null);
-        }
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
-      });
-
-      const response = await request(app)
-        .put('/api/work-entries/1')
-        .send({ hours: 8 });
-
-      expect(response.status).toBe(500);
-      expect(response.body).toEqual({ error: 'Work entry updated but failed to retrieve' });
-    });
-
     test('should update work entry date', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries we')) {
-          callback(null, { id: 1, date: '2024-02-01', client_name: 'Client A' });
-        } else {
-          callback(null, { id: 1 });
-        }
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1, date: '2024-02-01', client_name: 'Client A' }]);
       });
 
       const response = await request(app)
@@ -522,19 +741,12 @@ describe('Work Entry Routes', () => {
 
       expect(response.status).toBe(200);
       expect(response.body.message).toBe('Work entry updated successfully');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual(['2024-02-01', 1, 'test@example.com']);
     });
 
     test('should update work entry description', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries we')) {
-          callback(null, { id: 1, description: 'New description', client_name: 'Client A' });
-        } else {
-          callback(null, { id: 1 });
-        }
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1, description: 'New description', client_name: 'Client A' }]);
       });
 
       const response = await request(app)
@@ -545,16 +757,8 @@ describe('Work Entry Routes', () => {
     });
 
     test('should update description to null when empty string provided', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries we')) {
-          callback(null, { id: 1, description: null, client_name: 'Client A' });
-        } else {
-          callback(null, { id: 1 });
-        }
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1, description: null, client_name: 'Client A' }]);
       });
 
       const response = await request(app)
@@ -562,19 +766,12 @@ describe('Work Entry Routes', () => {
         .send({ description: '' });
 
       expect(response.status).toBe(200);
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([null, 1, 'test@example.com']);
     });
 
     test('should update multiple fields at once', async () => {
-      mockDb.get.mockImplementation((query, params, callback) => {
-        if (query.includes('work_entries we')) {
-          callback(null, { id: 1, hours: 10, description: 'Updated', date: '2024-03-01', client_name: 'Client A' });
-        } else {
-          callback(null, { id: 1 });
-        }
-      });
-
-      mockDb.run.mockImplementation((query, params, callback) => {
-        callback(null);
+      mockDb.writeAll.mockImplementation((query, params, callback) => {
+        callback(null, [{ id: 1, hours: 10, description: 'Updated', date: '2024-03-01', client_name: 'Client A' }]);
       });
 
       const response = await request(app)
@@ -583,6 +780,7 @@ describe('Work Entry Routes', () => {
 
       expect(response.status).toBe(200);
       expect(response.body.message).toBe('Work entry updated successfully');
+      expect(mockDb.writeAll.mock.calls[0][1]).toEqual([1000, 'Updated', '2024-03-01', 1, 'test@example.com']);
     });
   });
 });
@@ -20,3 +20,7 @@ jest.mock('sqlite3', () => {
     }))
   };
 });
+
+// Keep structured log records out of test output; logger tests use their own
+// Logger instances
+process.env.LOG_LEVEL = 'silent';
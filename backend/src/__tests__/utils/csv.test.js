@@ -0,0 +1,24 @@
+const { escapeCsvValue, toCsvRow } = require('../../utils/csv');
+
+describe('CSV Encoding', () => {
+  test('should leave plain values unquoted', () => {
+    expect(escapeCsvValue('Plain text')).toBe('Plain text');
+    expect(escapeCsvValue(7.5)).toBe('7.5');
+  });
+
+  test('should quote values with delimiters, quotes or line breaks', () => {
+    expect(escapeCsvValue('a,b')).toBe('"a,b"');
+    expect(escapeCsvValue('say "hi"')).toBe('"say ""hi"""');
+    expect(escapeCsvValue('line 1\nline 2')).toBe('"line 1\nline 2"');
+    expect(escapeCsvValue('line 1\r\nline 2')).toBe('"line 1\r\nline 2"');
+  });
+
+  test('should encode null and undefined as empty fields', () => {
+    expect(escapeCsvValue(null)).toBe('');
+    expect(escapeCsvValue(undefined)).toBe('');
+  });
+
+  test('should join a row and terminate it with a newline', () => {
+    expect(toCsvRow(['2024-01-15', 8, null, 'Notes, misc'])).toBe('2024-01-15,8,,"Notes, misc"\n');
+  });
+});
@@ -0,0 +1,28 @@
+const { encodeCursor, decodeCursor, startPosition } = require('../../utils/cursor');
+
+describe('Keyset Cursors', () => {
+  test('should round-trip the row position', () => {
+    const row = { id: 42, date: '2024-01-15', created_at: '2024-01-15 10:00:00', hours: 8 };
+
+    const cursor = encodeCursor(row);
+
+    expect(cursor).toMatch(/^[A-Za-z0-9_-]+$/);
+    expect(decodeCursor(cursor)).toEqual(['2024-01-15', '2024-01-15 10:00:00', 42]);
+  });
+
+  test('should reject malformed cursors', () => {
+    const encode = value => Buffer.from(JSON.stringify(value)).toString('base64url');
+
+    expect(decodeCursor('not-a-cursor')).toBeNull();
+    expect(decodeCursor(encode({ date: '2024-01-15' }))).toBeNull();
+    expect(decodeCursor(encode(['2024-01-15', '2024-01-15 10:00:00']))).toBeNull();
+    expect(decodeCursor(encode(['2024-01-15', '2024-01-15 10:00:00', '42']))).toBeNull();
+    expect(decodeCursor(encode(['2024-01-15', null, 42]))).toBeNull();
+  });
+
+  test('should start first pages after every entry up to the given date', () => {
+    expect(startPosition()).toEqual(['9999-12-31', '~', Number.MAX_SAFE_INTEGER]);
+    expect(startPosition('2024-01-31')[0]).toBe('2024-01-31');
+    expect('2024-01-31 23:59:59' < startPosition()[1]).toBe(true);
+  });
+});
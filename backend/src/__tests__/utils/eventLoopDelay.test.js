@@ -0,0 +1,109 @@
+const { EventLoopDelaySampler, eventLoopDelayOptionsFromEnv } = require('../../utils/eventLoopDelay');
+
+// Stands in for perf_hooks' histogram; values are in nanoseconds
+function mockMonitor() {
+  const monitor = {
+    p50: 0,
+    p99: 0,
+    max: 0,
+    enable: jest.fn(),
+    disable: jest.fn(),
+    percentile: jest.fn(p => (p === 50 ? monitor.p50 : monitor.p99)),
+    reset: jest.fn(() => {
+      monitor.p50 = 0;
+      monitor.p99 = 0;
+      monitor.max = 0;
+    })
+  };
+  return monitor;
+}
+
+function delay(monitor, p50, p99, max) {
+  Object.assign(monitor, { p50: p50 * 1e6, p99: p99 * 1e6, max: max * 1e6 });
+}
+
+describe('Event Loop Delay Sampler', () => {
+  let monitor;
+  let sampler;
+
+  beforeEach(() => {
+    jest.useFakeTimers();
+    monitor = mockMonitor();
+    sampler = new EventLoopDelaySampler({ intervalMs: 500, windowMs: 1000 }, () => monitor).start();
+  });
+
+  afterEach(() => {
+    sampler.stop();
+    jest.useRealTimers();
+  });
+
+  test('should pass each interval to listeners and reset the monitor', () => {
+    const listener = jest.fn();
+    sampler.onSample(listener);
+
+    delay(monitor, 1, 20, 30);
+    jest.advanceTimersByTime(500);
+
+    expect(listener).toHaveBeenCalledWith({ p50: 1, p99: 20, max: 30 });
+    expect(monitor.reset).toHaveBeenCalledTimes(1);
+  });
+
+  test('should stop calling a removed listener', () => {
+    const listener = jest.fn();
+    const remove = sampler.onSample(listener);
+
+    remove();
+    jest.advanceTimersByTime(500);
+
+    expect(listener).not.toHaveBeenCalled();
+  });
+
+  test('should report the worst interval of the window without resetting', () => {
+    delay(monitor, 2, 80, 120);
+    jest.advanceTimersByTime(500);
+    delay(monitor, 4, 10, 15);
+    jest.advanceTimersByTime(500);
+    delay(monitor, 1, 5, 6);
+
+    expect(sampler.window()).toEqual({ p50: 4, p99: 80, max: 120 });
+    expect(sampler.window()).toEqual({ p50: 4, p99: 80, max: 120 });
+    expect(monitor.reset).toHaveBeenCalledTimes(2);
+  });
+
+  test('should drop intervals older than the window', () => {
+    delay(monitor, 2, 80, 120);
+    jest.advanceTimersByTime(500);
+    jest.advanceTimersByTime(1000);
+
+    expect(sampler.window()).toEqual({ p50: 0, p99: 0, max: 0 });
+  });
+
+  test('should have no window once stopped', () => {
+    sampler.stop();
+
+    expect(sampler.window()).toBeNull();
+    expect(monitor.disable).toHaveBeenCalled();
+  });
+
+  describe('configuration', () => {
+    const originalEnv = process.env;
+
+    afterEach(() => {
+      process.env = originalEnv;
+    });
+
+    test('should use defaults when unset', () => {
+      process.env = { ...originalEnv };
+      delete process.env.EVENT_LOOP_SAMPLE_INTERVAL_MS;
+      delete process.env.EVENT_LOOP_WINDOW_MS;
+
+      expect(eventLoopDelayOptionsFromEnv()).toEqual({ intervalMs: 500, windowMs: 60000 });
+    });
+
+    test('should read the environment', () => {
+      process.env = { ...originalEnv, EVENT_LOOP_SAMPLE_INTERVAL_MS: '250', EVENT_LOOP_WINDOW_MS: '30000' };
+
+      expect(eventLoopDelayOptionsFromEnv()).toEqual({ intervalMs: 250, windowMs: 30000 });
+    });
+  });
+});
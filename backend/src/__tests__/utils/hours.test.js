@@ -0,0 +1,26 @@
+const { toCentihours, fromCentihours, sumHours } = require('../../utils/hours');
+
+describe('Hours Conversion', () => {
+  test('should convert decimal hours to integer hundredths', () => {
+    expect(toCentihours(7.35)).toBe(735);
+    expect(toCentihours(0.1)).toBe(10);
+    expect(toCentihours(24)).toBe(2400);
+  });
+
+  test('should round away binary floating point noise', () => {
+    // 0.29 * 100 === 28.999999999999996
+    expect(toCentihours(0.29)).toBe(29);
+    expect(toCentihours(1.15)).toBe(115);
+  });
+
+  test('should convert hundredths back to decimal hours', () => {
+    expect(fromCentihours(735)).toBe(7.35);
+    expect(fromCentihours(null)).toBe(0);
+  });
+
+  test('should sum decimal hours exactly', () => {
+    expect(sumHours([{ hours: 0.1 }, { hours: 0.2 }])).toBe(0.3);
+    expect(sumHours([{ hours: 2.5 }, { hours: 3.75 }, { hours: 1.25 }])).toBe(7.5);
+    expect(sumHours([])).toBe(0);
+  });
+});
@@ -0,0 +1,197 @@
+const { EventEmitter } = require('events');
+const { Logger, loggerOptionsFromEnv } = require('../../utils/logger');
+
+const options = {
+  level: 'info',
+  bufferSize: 4,
+  flushIntervalMs: 1000,
+  dedupWindowMs: 10000
+};
+
+function mockStream() {
+  const stream = new EventEmitter();
+  stream.write = jest.fn().mockReturnValue(true);
+  return stream;
+}
+
+// Records written so far, one object per JSON line
+function written(stream) {
+  return stream.write.mock.calls
+    .map(([chunk]) => chunk)
+    .join('')
+    .split('\n')
+    .filter(Boolean)
+    .map(line => JSON.parse(line));
+}
+
+describe('Logger', () => {
+  let stream;
+  let logger;
+
+  beforeEach(() => {
+    jest.useFakeTimers();
+    stream = mockStream();
+    logger = new Logger(options, stream);
+  });
+
+  afterEach(() => {
+    jest.useRealTimers();
+  });
+
+  describe('buffering', () => {
+    test('should write buffered records in one batch per flush interval', () => {
+      logger.info('first', { requestId: 1 });
+      logger.warn('second');
+
+      expect(stream.write).not.toHaveBeenCalled();
+
+      jest.advanceTimersByTime(1000);
+
+      expect(stream.write).toHaveBeenCalledTimes(1);
+      expect(written(stream)).toEqual([
+        { time: expect.any(Number), level: 'info', msg: 'first', requestId: 1 },
+        { time: expect.any(Number), level: 'warn', msg: 'second' }
+      ]);
+    });
+
+    test('should drop the oldest records when the buffer is full', () => {
+      for (let i = 1; i <= 6; i++) {
+        logger.info('record', { i });
+      }
+
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream).map(record => record.i)).toEqual([3, 4, 5, 6]);
+      expect(logger.stats()).toEqual({ buffered: 0, dropped: 2, suppressed: 0 });
+    });
+
+    test('should hold records until the stream drains', () => {
+      stream.write.mockReturnValueOnce(false);
+      logger.info('first');
+      jest.advanceTimersByTime(1000);
+
+      logger.info('second');
+      jest.advanceTimersByTime(1000);
+      expect(stream.write).toHaveBeenCalledTimes(1);
+
+      stream.emit('drain');
+
+      expect(stream.write).toHaveBeenCalledTimes(2);
+      expect(written(stream).map(record => record.msg)).toEqual(['first', 'second']);
+    });
+
+    test('should skip records below the configured level', () => {
+      logger = new Logger({ ...options, level: 'warn' }, stream);
+
+      logger.debug('debug');
+      logger.info('info');
+      logger.warn('warn');
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream).map(record => record.msg)).toEqual(['warn']);
+    });
+  });
+
+  describe('errors', () => {
+    test('should serialize the error with its stack', () => {
+      const err = new Error('database is locked');
+      err.code = 'SQLITE_BUSY';
+
+      logger.error('Database error', err, { url: '/api/clients' });
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream)).toEqual([{
+        time: expect.any(Number),
+        level: 'error',
+        msg: 'Database error',
+        url: '/api/clients',
+        err: { type: 'Error', message: 'database is locked', code: 'SQLITE_BUSY', stack: expect.stringContaining('database is locked') }
+      }]);
+    });
+
+    test('should fold repeats within the dedup window into one summary', () => {
+      const busy = Object.assign(new Error('database is locked'), { code: 'SQLITE_BUSY' });
+
+      for (let i = 0; i < 5; i++) {
+        logger.error('Database error', busy);
+      }
+      logger.error('Database error', new Error('no such table: clients'));
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream).map(record => record.err.message)).toEqual(['database is locked', 'no such table: clients']);
+      expect(logger.stats().suppressed).toBe(4);
+
+      jest.advanceTimersByTime(10000);
+
+      const summary = written(stream)[2];
+      expect(summary).toEqual({
+        time: expect.any(Number),
+        level: 'error',
+        msg: 'Database error',
+        err: { type: 'Error', message: 'database is locked', code: 'SQLITE_BUSY' },
+        repeated: 4
+      });
+      expect(written(stream)).toHaveLength(3);
+    });
+
+    test('should log the error again once its window has closed', () => {
+      logger.error('Database error', new Error('database is locked'));
+      jest.advanceTimersByTime(11000);
+      logger.error('Database error', new Error('database is locked'));
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream)).toHaveLength(2);
+      expect(written(stream)[1].repeated).toBeUndefined();
+    });
+
+    test('should log every occurrence when dedup is disabled', () => {
+      logger = new Logger({ ...options, dedupWindowMs: 0 }, stream);
+
+      logger.error('Database error', new Error('database is locked'));
+      logger.error('Database error', new Error('database is locked'));
+      jest.advanceTimersByTime(1000);
+
+      expect(written(stream)).toHaveLength(2);
+    });
+  });
+
+  describe('loggerOptionsFromEnv', () => {
+    const names = ['LOG_LEVEL', 'LOG_BUFFER_SIZE', 'LOG_FLUSH_INTERVAL_MS', 'LOG_DEDUP_WINDOW_MS'];
+    let saved;
+
+    beforeEach(() => {
+      saved = names.map(name => process.env[name]);
+      names.forEach(name => delete process.env[name]);
+    });
+
+    afterEach(() => {
+      names.forEach((name, i) => {
+        if (saved[i] === undefined) {
+          delete process.env[name];
+        } else {
+          process.env[name] = saved[i];
+        }
+      });
+    });
+
+    test('should use defaults when unset', () => {
+      expect(loggerOptionsFromEnv()).toEqual({
+        level: 'info',
+        bufferSize: 4096,
+        flushIntervalMs: 1000,
+        dedupWindowMs: 10000
+      });
+    });
+
+    test('should read overrides and ignore unknown levels', () => {
+      process.env.LOG_LEVEL = 'WARN';
+      process.env.LOG_BUFFER_SIZE = '100';
+      process.env.LOG_DEDUP_WINDOW_MS = '0';
+
+      expect(loggerOptionsFromEnv()).toMatchObject({ level: 'warn', bufferSize: 100, dedupWindowMs: 0 });
+
+      process.env.LOG_LEVEL = 'verbose';
+      expect(loggerOptionsFromEnv().level).toBe('info');
+    });
+  });
+});
@@ -0,0 +1,64 @@
+const { LRUCache } = require('../../utils/lru');
+
+describe('LRUCache', () => {
+  test('should reject a non-positive capacity', () => {
+    expect(() => new LRUCache(0)).toThrow('LRU capacity must be a positive integer');
+  });
+
+  test('should return stored values and count hits and misses', () => {
+    const cache = new LRUCache(2);
+    cache.set('a', 1);
+
+    expect(cache.get('a')).toBe(1);
+    expect(cache.get('b')).toBeUndefined();
+    expect(cache.stats()).toEqual({
+      size: 1,
+      capacity: 2,
+      hits: 1,
+      misses: 1,
+      evictions: 0,
+      hitRate: 0.5
+    });
+  });
+
+  test('should evict the least recently used entry', () => {
+    const onEvict = jest.fn();
+    const cache = new LRUCache(2, onEvict);
+
+    cache.set('a', 1);
+    cache.set('b', 2);
+    cache.get('a');
+    cache.set('c', 3);
+
+    expect(cache.has('a')).toBe(true);
+    expect(cache.has('b')).toBe(false);
+    expect(onEvict).toHaveBeenCalledWith('b', 2);
+    expect(cache.stats().evictions).toBe(1);
+  });
+
+  test('should not change recency or counters on peek', () => {
+    const cache = new LRUCache(2);
+    cache.set('a', 1);
+    cache.set('b', 2);
+
+    expect(cache.peek('a')).toBe(1);
+    cache.set('c', 3);
+
+    expect(cache.has('a')).toBe(false);
+    expect(cache.stats().hits).toBe(0);
+  });
+
+  test('should delete and clear entries without calling onEvict', () => {
+    const onEvict = jest.fn();
+    const cache = new LRUCache(3, onEvict);
+    cache.set('a', 1);
+    cache.set('b', 2);
+
+    cache.delete('a');
+    expect(cache.size).toBe(1);
+
+    cache.clear();
+    expect(cache.size).toBe(0);
+    expect(onEvict).not.toHaveBeenCalled();
+  });
+});
@@ -0,0 +1,109 @@
+const { MetricsRegistry } = require('../../utils/metrics');
+
+describe('MetricsRegistry', () => {
+  let registry;
+
+  beforeEach(() => {
+    registry = new MetricsRegistry();
+  });
+
+  describe('counters', () => {
+    test('should render labelled series in the text format', () => {
+      const requests = registry.counter('requests_total', 'Requests served', ['method']);
+
+      requests.labels('GET').inc();
+      requests.labels('GET').inc(2);
+      requests.labels('POST').inc();
+
+      expect(registry.render()).toBe(
+        '# HELP requests_total Requests served\n' +
+        '# TYPE requests_total counter\n' +
+        'requests_total{method="GET"} 3\n' +
+        'requests_total{method="POST"} 1\n'
+      );
+    });
+
+    test('should reuse the series for the same label values', () => {
+      const requests = registry.counter('requests_total', 'Requests served', ['method', 'status']);
+
+      expect(requests.labels('GET', 200)).toBe(requests.labels('GET', 200));
+      expect(requests.labels('GET', 200)).not.toBe(requests.labels('GET', 404));
+    });
+
+    test('should render an unlabelled counter at zero', () => {
+      registry.counter('errors_total', 'Errors');
+
+      expect(registry.render()).toContain('errors_total 0\n');
+    });
+
+    test('should escape label values', () => {
+      registry.counter('paths_total', 'Paths', ['path']).labels('a"b\\c\nd').inc();
+
+      expect(registry.render()).toContain('paths_total{path="a\\"b\\\\c\\nd"} 1\n');
+    });
+  });
+
+  describe('histograms', () => {
+    test('should render cumulative buckets, sum and count', () => {
+      const latency = registry.histogram('latency_seconds', 'Latency', ['route'], [0.1, 1]);
+      const series = latency.labels('/a');
+
+      series.observe(0.05);
+      series.observe(0.5);
+      series.observe(0.5);
+      series.observe(3);
+
+      expect(registry.render()).toBe(
+        '# HELP latency_seconds Latency\n' +
+        '# TYPE latency_seconds histogram\n' +
+        'latency_seconds_bucket{route="/a",le="0.1"} 1\n' +
+        'latency_seconds_bucket{route="/a",le="1"} 3\n' +
+        'latency_seconds_bucket{route="/a",le="+Inf"} 4\n' +
+        'latency_seconds_sum{route="/a"} 4.05\n' +
+        'latency_seconds_count{route="/a"} 4\n'
+      );
+    });
+
+    test('should count values on a bucket boundary in that bucket', () => {
+      const latency = registry.histogram('latency_seconds', 'Latency', [], [0.1, 1]);
+
+      latency.labels().observe(0.1);
+
+      expect(registry.render()).toContain('latency_seconds_bucket{le="0.1"} 1\n');
+    });
+  });
+
+  describe('collected metrics', () => {
+    test('should sample gauges when rendering', () => {
+      let value = 1;
+      registry.gauge('queue_depth', 'Queued jobs', [], () => value);
+
+      expect(registry.render()).toContain('queue_depth 1\n');
+      value = 5;
+      expect(registry.render()).toContain('queue_depth 5\n');
+    });
+
+    test('should render labelled samples and counters kept elsewhere', () => {
+      registry.collectedCounter('cache_hits_total', 'Cache hits', ['cache'], () => [[['a'], 3], [['b'], 4]]);
+
+      expect(registry.render()).toBe(
+        '# HELP cache_hits_total Cache hits\n' +
+        '# TYPE cache_hits_total counter\n' +
+        'cache_hits_total{cache="a"} 3\n' +
+        'cache_hits_total{cache="b"} 4\n'
+      );
+    });
+
+    test('should skip metrics whose source is not running', () => {
+      registry.gauge('pdf_queue_depth', 'Queued exports', [], () => null);
+
+      expect(registry.render()).toBe('');
+    });
+  });
+
+  test('should refuse duplicate metric names', () => {
+    registry.counter('requests_total', 'Requests');
+
+    expect(() => registry.counter('requests_total', 'Requests')).toThrow('Metric requests_total is already registered');
+  });
+});
@@ -0,0 +1,74 @@
+const { writeReportHeader, writeReportEntries } = require('../../utils/pdfReport');
+
+function mockDocument() {
+  const doc = {
+    y: 100,
+    fontSize: jest.fn().mockReturnThis(),
+    text: jest.fn().mockReturnThis(),
+    moveDown: jest.fn().mockReturnThis(),
+    moveTo: jest.fn().mockReturnThis(),
+    lineTo: jest.fn().mockReturnThis(),
+    stroke: jest.fn().mockReturnThis(),
+    addPage: jest.fn().mockReturnThis()
+  };
+  return doc;
+}
+
+const entry = (overrides = {}) => ({ date: '2024-01-01', hours: 8, description: 'Work', ...overrides });
+
+describe('PDF Report Layout', () => {
+  test('should print the title and totals', () => {
+    const doc = mockDocument();
+
+    writeReportHeader(doc, {
+      clientName: 'Test Client',
+      totalHours: 7.5,
+      entryCount: 3,
+      generatedAt: '2024-01-15T10:00:00.000Z'
+    });
+
+    expect(doc.text).toHaveBeenCalledWith('Time Report for Test Client', { align: 'center' });
+    expect(doc.text).toHaveBeenCalledWith('Total Hours: 7.50');
+    expect(doc.text).toHaveBeenCalledWith('Total Entries: 3');
+    expect(doc.text).toHaveBeenCalledWith(`Generated: ${new Date('2024-01-15T10:00:00.000Z').toLocaleString()}`);
+  });
+
+  test('should print a row per entry', () => {
+    const doc = mockDocument();
+
+    writeReportEntries(doc, [entry(), entry({ date: '2024-01-02', hours: 2.5, description: null })], 0);
+
+    expect(doc.text).toHaveBeenCalledWith('2024-01-01', 50, 100, { width: 100 });
+    expect(doc.text).toHaveBeenCalledWith('8', 150, 100, { width: 80 });
+    expect(doc.text).toHaveBeenCalledWith('2.5', 150, 100, { width: 80 });
+    expect(doc.text).toHaveBeenCalledWith('No description', 230, 100, { width: 300 });
+  });
+
+  test('should add a separator every five entries and break pages', () => {
+    const doc = mockDocument();
+    doc.y = 750;
+
+    writeReportEntries(doc, Array.from({ length: 5 }, () => entry()), 0);
+
+    // One line after the fifth entry
+    expect(doc.stroke).toHaveBeenCalledTimes(1);
+    expect(doc.addPage).toHaveBeenCalledTimes(5);
+  });
+
+  test('should keep separators every five entries across batches', () => {
+    const doc = mockDocument();
+
+    writeReportHeader(doc, {
+      clientName: 'Test Client',
+      totalHours: 40,
+      entryCount: 5,
+      generatedAt: '2024-01-15T10:00:00.000Z'
+    });
+    writeReportEntries(doc, [entry(), entry(), entry()], 0);
+    writeReportEntries(doc, [entry(), entry()], 3);
+
+    expect(doc.text).toHaveBeenCalledWith('Time Report for Test Client', { align: 'center' });
+    // One line under the table header plus one after the fifth entry
+    expect(doc.stroke).toHaveBeenCalledTimes(2);
+  });
+});
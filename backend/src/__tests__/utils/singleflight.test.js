@@ -0,0 +1,54 @@
+const { Singleflight } = require('../../utils/singleflight');
+
+describe('Singleflight', () => {
+  test('should share one call between concurrent callers of a key', async () => {
+    const group = new Singleflight();
+    let resolve;
+    const fn = jest.fn(() => new Promise(r => { resolve = r; }));
+
+    const calls = [group.do('a', fn), group.do('a', fn), group.do('a', fn)];
+    await Promise.resolve();
+    resolve('done');
+
+    expect(await Promise.all(calls)).toEqual(['done', 'done', 'done']);
+    expect(fn).toHaveBeenCalledTimes(1);
+  });
+
+  test('should run different keys independently', async () => {
+    const group = new Singleflight();
+    const fn = jest.fn(key => Promise.resolve(key));
+
+    const results = await Promise.all([group.do('a', () => fn('a')), group.do('b', () => fn('b'))]);
+
+    expect(results).toEqual(['a', 'b']);
+    expect(fn).toHaveBeenCalledTimes(2);
+  });
+
+  test('should start a new call once the previous one settles', async () => {
+    const group = new Singleflight();
+    const fn = jest.fn(() => Promise.resolve(1));
+
+    await group.do('a', fn);
+    await group.do('a', fn);
+
+    expect(fn).toHaveBeenCalledTimes(2);
+    expect(group.size).toBe(0);
+  });
+
+  test('should share rejections and then forget the key', async () => {
+    const group = new Singleflight();
+    const fn = jest.fn(() => Promise.reject(new Error('boom')));
+
+    await expect(Promise.all([group.do('a', fn), group.do('a', fn)])).rejects.toThrow('boom');
+
+    expect(fn).toHaveBeenCalledTimes(1);
+    expect(group.size).toBe(0);
+  });
+
+  test('should turn synchronous throws into rejections', async () => {
+    const group = new Singleflight();
+
+    await expect(group.do('a', () => { throw new Error('sync'); })).rejects.toThrow('sync');
+    expect(group.size).toBe(0);
+  });
+});
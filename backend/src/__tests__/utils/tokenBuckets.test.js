@@ -0,0 +1,95 @@
+const { MemoryBucketStore, SqliteBucketStore } = require('../../utils/tokenBuckets');
+
+// The shared store relies on SQLite's UPSERT ... RETURNING semantics
+const sqlite3 = jest.requireActual('sqlite3');
+
+// One token per second
+const RATE = 1 / 1000;
+
+function openSqliteStore() {
+  return new SqliteBucketStore(new sqlite3.Database(':memory:'));
+}
+
+describe.each([
+  ['MemoryBucketStore', () => new MemoryBucketStore()],
+  ['SqliteBucketStore', openSqliteStore]
+])('%s', (name, createStore) => {
+  let store;
+
+  beforeEach(() => {
+    store = createStore();
+  });
+
+  afterEach(async () => {
+    await store.close();
+  });
+
+  test('should allow a burst up to capacity and then refuse', async () => {
+    const results = [];
+    for (let i = 0; i < 4; i++) {
+      results.push(await store.take('a', 3, RATE, 0));
+    }
+
+    expect(results.map(result => result.allowed)).toEqual([true, true, true, false]);
+    expect(results.map(result => result.tokens)).toEqual([2, 1, 0, 0]);
+  });
+
+  test('should refill over time without exceeding capacity', async () => {
+    await store.take('a', 2, RATE, 0);
+    await store.take('a', 2, RATE, 0);
+
+    expect(await store.take('a', 2, RATE, 500)).toEqual({ allowed: false, tokens: 0.5 });
+    expect(await store.take('a', 2, RATE, 1000)).toEqual({ allowed: true, tokens: 0 });
+    expect(await store.take('a', 2, RATE, 60000)).toEqual({ allowed: true, tokens: 1 });
+  });
+
+  test('should not refill when a clock runs behind', async () => {
+    await store.take('a', 1, RATE, 5000);
+
+    expect((await store.take('a', 1, RATE, 1000)).allowed).toBe(false);
+  });
+
+  test('should keep separate buckets per key', async () => {
+    await store.take('a', 1, RATE, 0);
+
+    expect((await store.take('a', 1, RATE, 0)).allowed).toBe(false);
+    expect((await store.take('b', 1, RATE, 0)).allowed).toBe(true);
+  });
+
+  test('should hand out exactly capacity tokens to concurrent callers', async () => {
+    const results = await Promise.all(Array.from({ length: 10 }, () => store.take('a', 5, RATE, 0)));
+
+    expect(results.filter(result => result.allowed)).toHaveLength(5);
+  });
+});
+
+describe('SqliteBucketStore', () => {
+  test('should reject takes when the schema cannot be created', async () => {
+    const db = {
+      exec: jest.fn((sql, callback) => callback(new Error('unable to open database file'))),
+      get: jest.fn()
+    };
+    const store = new SqliteBucketStore(db);
+
+    await expect(store.take('a', 1, RATE, 0)).rejects.toThrow('unable to open database file');
+    expect(db.get).not.toHaveBeenCalled();
+  });
+
+  test('should prune buckets that have refilled completely', async () => {
+    const db = new sqlite3.Database(':memory:');
+    const store = new SqliteBucketStore(db, 3);
+    const keys = () => new Promise((resolve, reject) => {
+      db.all('SELECT key FROM rate_limit_buckets ORDER BY key', [], (err, rows) => (err ? reject(err) : resolve(rows.map(row => row.key))));
+    });
+
+    // Refilling 2 tokens takes 2000ms at RATE
+    await store.take('idle', 2, RATE, 0);
+    await store.take('recent', 2, RATE, 1500);
+    expect(await keys()).toEqual(['idle', 'recent']);
+
+    await store.take('now', 2, RATE, 2500);
+
+    expect(await keys()).toEqual(['now', 'recent']);
+    await store.close();
+  });
+});
@@ -2,8 +2,15 @@ const {
   clientSchema,
   workEntrySchema,
   updateWorkEntrySchema,
+  workEntryBatchSchema,
+  workEntryBulkUpdateSchema,
+  workEntryBulkDeleteSchema,
   updateClientSchema,
-  emailSchema
+  reportQuerySchema,
+  workEntryListQuerySchema,
+  dashboardQuerySchema,
+  emailSchema,
+  refreshTokenSchema
 } = require('../../validation/schemas');
 
 describe('Validation Schemas', () => {
@@ -205,6 +212,29 @@ describe('Validation Schemas', () => {
       const { error } = workEntrySchema.validate(entry);
       expect(error).toBeDefined();
     });
+
+    test('should normalize date to YYYY-MM-DD', () => {
+      const entry = {
+        clientId: 1,
+        hours: 5,
+        date: '2024-01-15T10:30:00.000Z'
+      };
+
+      const { error, value } = workEntrySchema.validate(entry);
+      expect(error).toBeUndefined();
+      expect(value.date).toBe('2024-01-15');
+    });
+
+    test('should keep plain YYYY-MM-DD date unchanged', () => {
+      const entry = {
+        clientId: 1,
+        hours: 5,
+        date: '2024-01-15'
+      };
+
+      const { value } = workEntrySchema.validate(entry);
+      expect(value.date).toBe('2024-01-15');
+    });
   });
 
   describe('updateWorkEntrySchema', () => {
@@ -253,6 +283,55 @@ describe('Validation Schemas', () => {
     });
   });
 
+  describe('workEntryBatchSchema', () => {
+    test('should accept between 1 and 500 entries', () => {
+      expect(workEntryBatchSchema.validate({ entries: [{}] }).error).toBeUndefined();
+      expect(workEntryBatchSchema.validate({ entries: new Array(500).fill({}) }).error).toBeUndefined();
+    });
+
+    test('should reject missing, empty and oversized batches', () => {
+      expect(workEntryBatchSchema.validate({}).error).toBeDefined();
+      expect(workEntryBatchSchema.validate({ entries: [] }).error).toBeDefined();
+      expect(workEntryBatchSchema.validate({ entries: new Array(501).fill({}) }).error).toBeDefined();
+    });
+  });
+
+  describe('workEntryBulkUpdateSchema', () => {
+    test('should accept ids or a filter with fields to set', () => {
+      expect(workEntryBulkUpdateSchema.validate({ ids: [1, 2], set: { hours: 2 } }).error).toBeUndefined();
+      const { error, value } = workEntryBulkUpdateSchema.validate({
+        filter: { clientId: 1, to: '2024-01-31' },
+        set: { date: '2024-02-01' }
+      });
+      expect(error).toBeUndefined();
+      expect(value.filter.to).toBe('2024-01-31');
+    });
+
+    test('should require exactly one selection and a non-empty set', () => {
+      expect(workEntryBulkUpdateSchema.validate({ set: { hours: 2 } }).error).toBeDefined();
+      expect(workEntryBulkUpdateSchema.validate({ ids: [1], filter: { clientId: 1 }, set: { hours: 2 } }).error).toBeDefined();
+      expect(workEntryBulkUpdateSchema.validate({ ids: [1] }).error).toBeDefined();
+      expect(workEntryBulkUpdateSchema.validate({ ids: [1], set: {} }).error).toBeDefined();
+      expect(workEntryBulkUpdateSchema.validate({ ids: [1], set: { hours: 25 } }).error).toBeDefined();
+    });
+  });
+
+  describe('workEntryBulkDeleteSchema', () => {
+    test('should accept up to 5000 ids or a non-empty filter', () => {
+      expect(workEntryBulkDeleteSchema.validate({ ids: new Array(5000).fill(1) }).error).toBeUndefined();
+      expect(workEntryBulkDeleteSchema.validate({ filter: { from: '2024-01-01' } }).error).toBeUndefined();
+    });
+
+    test('should reject empty, oversized and invalid selections', () => {
+      expect(workEntryBulkDeleteSchema.validate({}).error).toBeDefined();
+      expect(workEntryBulkDeleteSchema.validate({ ids: [] }).error).toBeDefined();
+      expect(workEntryBulkDeleteSchema.validate({ ids: new Array(5001).fill(1) }).error).toBeDefined();
+      expect(workEntryBulkDeleteSchema.validate({ ids: [0] }).error).toBeDefined();
+      expect(workEntryBulkDeleteSchema.validate({ filter: {} }).error).toBeDefined();
+      expect(workEntryBulkDeleteSchema.validate({ filter: { from: 'invalid' } }).error).toBeDefined();
+    });
+  });
+
   describe('updateClientSchema', () => {
     test('should validate name update', () => {
       const update = {
@@ -325,4 +404,74 @@ describe('Validation Schemas', () => {
       expect(error).toBeUndefined();
     });
   });
+
+  describe('reportQuerySchema', () => {
+    test('should default to full report without pagination', () => {
+      const { error, value } = reportQuerySchema.validate({});
+      expect(error).toBeUndefined();
+      expect(value).toEqual({ summary: false, offset: 0 });
+    });
+
+    test('should convert query string values', () => {
+      const { value } = reportQuerySchema.validate({ summary: 'true', limit: '25', offset: '50' });
+      expect(value).toEqual({ summary: true, limit: 25, offset: 50 });
+    });
+
+    test('should reject out of range limit and offset', () => {
+      expect(reportQuerySchema.validate({ limit: '0' }).error).toBeDefined();
+      expect(reportQuerySchema.validate({ limit: '501' }).error).toBeDefined();
+      expect(reportQuerySchema.validate({ offset: '-1' }).error).toBeDefined();
+    });
+
+    test('should reject unknown parameters', () => {
+      const { error } = reportQuerySchema.validate({ page: '2' });
+      expect(error).toBeDefined();
+    });
+  });
+
+  describe('workEntryListQuerySchema', () => {
+    test('should default to the first page of 50', () => {
+      const { error, value } = workEntryListQuerySchema.validate({});
+      expect(error).toBeUndefined();
+      expect(value).toEqual({ limit: 50 });
+    });
+
+    test('should convert query string values and normalize dates', () => {
+      const { value } = workEntryListQuerySchema.validate({
+        clientId: '3',
+        from: '2024-01-01',
+        to: '2024-01-31T12:00:00Z',
+        limit: '20',
+        cursor: 'abc'
+      });
+      expect(value).toEqual({ clientId: 3, from: '2024-01-01', to: '2024-01-31', limit: 20, cursor: 'abc' });
+    });
+
+    test('should reject out of range limits and bad dates', () => {
+      expect(workEntryListQuerySchema.validate({ limit: 0 }).error).toBeDefined();
+      expect(workEntryListQuerySchema.validate({ limit: 201 }).error).toBeDefined();
+      expect(workEntryListQuerySchema.validate({ from: 'yesterday' }).error).toBeDefined();
+      expect(workEntryListQuerySchema.validate({ clientId: 'abc' }).error).toBeDefined();
+    });
+  });
+
+  describe('dashboardQuerySchema', () => {
+    test('should default to five recent entries', () => {
+      expect(dashboardQuerySchema.validate({}).value).toEqual({ recent: 5 });
+      expect(dashboardQuerySchema.validate({ recent: '0' }).value).toEqual({ recent: 0 });
+    });
+
+    test('should cap the recent entry count', () => {
+      expect(dashboardQuerySchema.validate({ recent: 21 }).error).toBeDefined();
+      expect(dashboardQuerySchema.validate({ recent: -1 }).error).toBeDefined();
+    });
+  });
+
+  describe('refreshTokenSchema', () => {
+    test('should require a refresh token string', () => {
+      expect(refreshTokenSchema.validate({ refreshToken: 'abc.def.ghi' }).error).toBeUndefined();
+      expect(refreshTokenSchema.validate({}).error).toBeDefined();
+      expect(refreshTokenSchema.validate({ refreshToken: 42 }).error).toBeDefined();
+    });
+  });
 });
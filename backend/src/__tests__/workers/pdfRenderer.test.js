@@ -0,0 +1,105 @@
+const renderer = require('../../workers/pdfRenderer');
+const { WorkerPool } = require('../../workers/pool');
+
+jest.mock('../../workers/pool', () => ({
+  WorkerPool: jest.fn().mockImplementation(() => ({
+    run: jest.fn(),
+    stats: jest.fn(() => ({ size: 2, busy: 1, queued: 3 })),
+    close: jest.fn().mockResolvedValue(undefined)
+  }))
+}));
+
+describe('PDF Renderer', () => {
+  const originalEnv = process.env;
+
+  beforeEach(() => {
+    process.env = { ...originalEnv };
+  });
+
+  afterEach(async () => {
+    await renderer.closePdfRenderer();
+    process.env = originalEnv;
+    jest.clearAllMocks();
+  });
+
+  test('should read pool options from the environment', () => {
+    process.env.PDF_WORKER_THREADS = '4';
+    process.env.PDF_MAX_QUEUE = '0';
+    process.env.PDF_TIMEOUT_MS = '5000';
+
+    expect(renderer.pdfOptionsFromEnv()).toEqual({ workerThreads: 4, maxQueue: 0, timeoutMs: 5000 });
+  });
+
+  test('should fall back to defaults', () => {
+    expect(renderer.pdfOptionsFromEnv()).toEqual({ workerThreads: 2, maxQueue: 8, timeoutMs: 30000 });
+  });
+
+  test('should start the pool lazily on first render', async () => {
+    expect(WorkerPool).not.toHaveBeenCalled();
+    expect(renderer.pdfRendererStats()).toBeNull();
+
+    WorkerPool.mockImplementationOnce(() => ({
+      run: jest.fn().mockResolvedValue(true),
+      stats: jest.fn(() => ({ size: 2, busy: 0, queued: 0 })),
+      close: jest.fn().mockResolvedValue(undefined)
+    }));
+    await renderer.renderPdf({ clientName: 'Test Client' }, jest.fn());
+    await renderer.renderPdf({ clientName: 'Test Client' }, jest.fn());
+
+    expect(WorkerPool).toHaveBeenCalledTimes(1);
+    expect(WorkerPool).toHaveBeenCalledWith(
+      expect.stringContaining('pdfWorker.js'),
+      { size: 2, maxQueue: 8, timeoutMs: 30000 }
+    );
+    expect(renderer.pdfRendererStats()).toEqual({ size: 2, busy: 0, queued: 0 });
+  });
+
+  test('should pass worker chunks to the callback as Buffers', async () => {
+    const onChunk = jest.fn();
+    WorkerPool.mockImplementationOnce(() => ({
+      run: jest.fn((task, options) => {
+        const bytes = new Uint8Array([0, 37, 80, 68, 70, 0]);
+        options.onChunk(bytes.subarray(1, 5));
+        return Promise.resolve(true);
+      }),
+      close: jest.fn().mockResolvedValue(undefined)
+    }));
+
+    await renderer.renderPdf({ clientName: 'Test Client' }, onChunk);
+
+    expect(onChunk).toHaveBeenCalledTimes(1);
+    expect(Buffer.isBuffer(onChunk.mock.calls[0][0])).toBe(true);
+    expect(onChunk.mock.calls[0][0].toString()).toBe('%PDF');
+  });
+
+  test('should let the worker pull entries from the caller', async () => {
+    const nextEntries = jest.fn();
+    const run = jest.fn().mockResolvedValue(true);
+    WorkerPool.mockImplementationOnce(() => ({ run, close: jest.fn().mockResolvedValue(undefined) }));
+
+    await renderer.renderPdf({ clientName: 'Test Client' }, jest.fn(), nextEntries);
+
+    expect(run.mock.calls[0][1].onRequest).toBe(nextEntries);
+  });
+
+  test('should surface pool errors such as a full queue', async () => {
+    const error = new Error('Worker pool queue is full');
+    error.code = 'EQUEUEFULL';
+    WorkerPool.mockImplementationOnce(() => ({
+      run: jest.fn().mockRejectedValue(error),
+      close: jest.fn().mockResolvedValue(undefined)
+    }));
+
+    await expect(renderer.renderPdf({}, jest.fn())).rejects.toMatchObject({ code: 'EQUEUEFULL' });
+  });
+
+  test('should close the pool', async () => {
+    renderer.renderPdf({}, jest.fn());
+    const pool = WorkerPool.mock.results[0].value;
+
+    await renderer.closePdfRenderer();
+
+    expect(pool.close).toHaveBeenCalled();
+    expect(renderer.pdfRendererStats()).toBeNull();
+  });
+});
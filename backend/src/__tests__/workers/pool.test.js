@@ -0,0 +1,122 @@
+const path = require('path');
+const { WorkerPool } = require('../../workers/pool');
+
+const echoWorker = path.join(__dirname, '../fixtures/echoWorker.js');
+
+describe('WorkerPool', () => {
+  let pool;
+
+  afterEach(async () => {
+    if (pool) {
+      await pool.close();
+      pool = null;
+    }
+  });
+
+  test('should resolve with the worker result', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+
+    await expect(pool.run({ type: 'echo', value: { rows: [1, 2, 3] } })).resolves.toEqual({ rows: [1, 2, 3] });
+  });
+
+  test('should reject with the worker error message and code', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+
+    const error = await pool.run({ type: 'fail' }).catch(err => err);
+
+    expect(error.message).toBe('Task failed');
+    expect(error.code).toBe('SQLITE_ERROR');
+  });
+
+  test('should deliver streamed chunks before resolving', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+    const chunks = [];
+
+    const count = await pool.run({ type: 'chunks', chunks: ['a', 'b', 'c'] }, {
+      onChunk: chunk => chunks.push(chunk)
+    });
+
+    expect(chunks).toEqual(['a', 'b', 'c']);
+    expect(count).toBe(3);
+  });
+
+  test('should answer worker requests', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+    const onRequest = jest.fn(async question => `${question}: 42`);
+
+    await expect(pool.run({ type: 'ask', question: 'answer' }, { onRequest })).resolves.toBe('answer: 42');
+    expect(onRequest).toHaveBeenCalledWith('answer');
+  });
+
+  test('should fail the job and replace the worker when a request fails', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+    await pool.run({ type: 'echo', value: 'ready' });
+    const failure = new Error('Database error');
+
+    const error = await pool.run({ type: 'ask', question: 'rows' }, { onRequest: () => Promise.reject(failure) }).catch(err => err);
+    const unanswered = await pool.run({ type: 'ask', question: 'rows' }).catch(err => err);
+
+    expect(error).toBe(failure);
+    expect(unanswered.code).toBe('ENOREQUEST');
+    await expect(pool.run({ type: 'echo', value: 'recovered' })).resolves.toBe('recovered');
+  });
+
+  test('should not count time waiting for a reply towards the timeout', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1, timeoutMs: 100 });
+    const onRequest = () => new Promise(resolve => setTimeout(() => resolve('late'), 250));
+
+    await expect(pool.run({ type: 'ask', question: 'rows' }, { onRequest })).resolves.toBe('late');
+  });
+
+  test('should queue jobs beyond the pool size', async () => {
+    pool = new WorkerPool(echoWorker, { size: 2 });
+
+    const results = await Promise.all([1, 2, 3, 4, 5].map(value => pool.run({ type: 'echo', value })));
+
+    expect(results).toEqual([1, 2, 3, 4, 5]);
+    expect(pool.stats()).toEqual({ size: 2, busy: 0, queued: 0 });
+  });
+
+  test('should reject new jobs when the queue is full', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1, maxQueue: 1 });
+
+    const running = pool.run({ type: 'hang' }).catch(err => err);
+    const queued = pool.run({ type: 'hang' }).catch(err => err);
+    const rejected = await pool.run({ type: 'echo', value: 1 }).catch(err => err);
+
+    expect(rejected.code).toBe('EQUEUEFULL');
+    await pool.close();
+    pool = null;
+    expect((await running).code).toBe('EPOOLCLOSED');
+    expect((await queued).code).toBe('EPOOLCLOSED');
+  });
+
+  test('should time out hung jobs and replace the worker', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1, timeoutMs: 100 });
+
+    const error = await pool.run({ type: 'hang' }).catch(err => err);
+
+    expect(error.code).toBe('ETIMEDOUT');
+    await expect(pool.run({ type: 'echo', value: 'after' })).resolves.toBe('after');
+  });
+
+  test('should replace a worker that crashes mid-job', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+    await pool.run({ type: 'echo', value: 'ready' });
+
+    const error = await pool.run({ type: 'crash' }).catch(err => err);
+
+    expect(error.message).toBe('Worker crashed');
+    await expect(pool.run({ type: 'echo', value: 'recovered' })).resolves.toBe('recovered');
+  });
+
+  test('should reject jobs after close', async () => {
+    pool = new WorkerPool(echoWorker, { size: 1 });
+    await pool.close();
+
+    const error = await pool.run({ type: 'echo', value: 1 }).catch(err => err);
+
+    expect(error.code).toBe('EPOOLCLOSED');
+    pool = null;
+  });
+});
@@ -0,0 +1,113 @@
+const cluster = require('cluster');
+const crypto = require('crypto');
+const os = require('os');
+const { readIntEnv } = require('./utils/env');
+const { initializeStorage, closeStorage, repositoryBackendFromEnv } = require('./repositories');
+
+// Clustered entry point: the primary prepares the database and forks one
+// HTTP worker per core. Workers share the listening port and each opens the
+// file-backed storage profile, so reads are served from that worker's own
+// read-only connections. Writes from every worker go through SQLite's single
+// WAL writer lock; a writer that finds it taken waits up to
+// DB_BUSY_TIMEOUT_MS instead of failing. With REPOSITORY_BACKEND=postgres
+// every worker has its own pg pool instead.
+
+function defaultWorkerCount() {
+  return typeof os.availableParallelism === 'function' ? os.availableParallelism() : os.cpus().length;
+}
+
+function clusterOptionsFromEnv() {
+  return {
+    workers: readIntEnv('CLUSTER_WORKERS', 0) || defaultWorkerCount()
+  };
+}
+
+// An in-memory database is private to one process, so clustering needs a
+// file or a PostgreSQL server
+function canCluster() {
+  const backend = repositoryBackendFromEnv();
+  if (backend !== 'sqlite') {
+    return backend === 'postgres';
+  }
+  return (process.env.DATABASE_PATH || ':memory:') !== ':memory:';
+}
+
+async function startPrimary(options = clusterOptionsFromEnv()) {
+  // Create and migrate the schema once, before any worker opens the database
+  await initializeStorage();
+  await closeStorage();
+
+  // Workers must agree on the token signing key
+  if (!process.env.JWT_SECRET) {
+    console.warn('JWT_SECRET is not set; using a random secret shared by this cluster');
+    process.env.JWT_SECRET = crypto.randomBytes(32).toString('hex');
+  }
+
+  // Workers draw from shared rate-limit buckets unless told otherwise
+  if (!process.env.RATE_LIMIT_STORE) {
+    process.env.RATE_LIMIT_STORE = 'sqlite';
+  }
+
+  let shuttingDown = false;
+  const listening = new Set();
+
+  cluster.on('listening', (worker) => {
+    listening.add(worker.id);
+  });
+
+  cluster.on('exit', (worker, code, signal) => {
+    const started = listening.delete(worker.id);
+    if (shuttingDown) {
+      return;
+    }
+
+    // A worker that never got to listen would just fail again
+    if (!started) {
+      console.error(`Worker ${worker.process.pid} failed to start (${signal || code})`);
+      if (Object.keys(cluster.workers).length === 0) {
+        process.exit(1);
+      }
+      return;
+    }
+
+    console.error(`Worker ${worker.process.pid} exited (${signal || code}), starting a replacement`);
+    cluster.fork();
+  });
+
+  for (let i = 0; i < options.workers; i++) {
+    cluster.fork();
+  }
+  console.log(`Cluster primary ${process.pid} started ${options.workers} workers`);
+
+  return {
+    shutdown() {
+      shuttingDown = true;
+      Object.values(cluster.workers).forEach(worker => worker.kill('SIGTERM'));
+    }
+  };
+}
+
+if (require.main === module) {
+  if (cluster.isPrimary && canCluster()) {
+    startPrimary()
+      .then(({ shutdown }) => {
+        process.once('SIGTERM', shutdown);
+        process.once('SIGINT', shutdown);
+      })
+      .catch((error) => {
+        console.error('Failed to start cluster:', error);
+        process.exit(1);
+      });
+  } else {
+    if (cluster.isPrimary) {
+      console.warn('Cluster mode needs a file DATABASE_PATH or REPOSITORY_BACKEND=postgres; starting a single process');
+    }
+    require('./server');
+  }
+}
+
+module.exports = {
+  clusterOptionsFromEnv,
+  canCluster,
+  startPrimary
+};
@@ -0,0 +1,63 @@
+const path = require('path');
+const { WorkerPool } = require('../workers/pool');
+const { timedCallback } = require('./queryMetrics');
+
+const DEFAULT_WORKER_THREADS = 2;
+const DEFAULT_WORKER_TIMEOUT_MS = 30 * 1000;
+
+// Runs read queries on a worker_threads pool, each thread holding its own
+// read-only connection to the WAL file. Exposes the sqlite3 callback API
+// for get/all so PooledDatabase can use it in place of in-process readers.
+class WorkerExecutor {
+  constructor(filename, options = {}) {
+    this.pool = new WorkerPool(path.join(__dirname, '../workers/dbWorker.js'), {
+      size: options.workerThreads || DEFAULT_WORKER_THREADS,
+      timeoutMs: options.workerTimeoutMs ?? DEFAULT_WORKER_TIMEOUT_MS,
+      workerData: {
+        filename,
+        busyTimeoutMs: options.busyTimeoutMs,
+        statementCacheSize: options.statementCacheSize
+      }
+    });
+  }
+
+  query(method, sql, params, callback) {
+    if (typeof params === 'function') {
+      callback = params;
+      params = [];
+    }
+    if (callback) {
+      callback = timedCallback(sql, callback);
+    }
+
+    // Call back outside the promise chain so an exception in a route
+    // handler surfaces as usual instead of as an unhandled rejection.
+    this.pool.run({ method, sql, params }).then(
+      result => callback && process.nextTick(callback, null, result),
+      err => callback && process.nextTick(callback, err)
+    );
+    return this;
+  }
+
+  get(sql, params, callback) {
+    return this.query('get', sql, params, callback);
+  }
+
+  all(sql, params, callback) {
+    return this.query('all', sql, params, callback);
+  }
+
+  stats() {
+    return this.pool.stats();
+  }
+
+  close(callback) {
+    this.pool.close().then(() => callback && callback(null), err => callback && callback(err));
+  }
+}
+
+module.exports = {
+  WorkerExecutor,
+  DEFAULT_WORKER_THREADS,
+  DEFAULT_WORKER_TIMEOUT_MS
+};
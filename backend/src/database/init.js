@@ -1,5 +1,9 @@
 const sqlite3 = require('sqlite3').verbose();
 const path = require('path');
+const fs = require('fs');
+const { PooledDatabase, storageOptionsFromEnv } = require('./pool');
+const { CachedDatabase } = require('./statementCache');
+const { runMigrations } = require('./migrations');
 
 let db = null;
 let isClosing = false;
@@ -10,14 +14,32 @@ function getDatabase() {
     // Reset state when creating a new database connection
     isClosing = false;
     isClosed = false;
-    // Use in-memory database as specified in requirements
-    db = new sqlite3.Database(':memory:', (err) => {
-      if (err) {
-        console.error('Error opening database:', err);
-        throw err;
+    const dbPath = process.env.DATABASE_PATH || ':memory:';
+
+    if (dbPath === ':memory:') {
+      // Use in-memory database as specified in requirements
+      const connection = new sqlite3.Database(':memory:', (err) => {
+        if (err) {
+          console.error('Error opening database:', err);
+          throw err;
+        }
+        console.log('Connected to SQLite in-memory database');
+      });
+      // SQLite leaves foreign keys off per connection. Without them deleting
+      // a client would orphan its work entries and their rollup rows.
+      connection.run('PRAGMA foreign_keys = ON');
+      db = new CachedDatabase(connection, { capacity: storageOptionsFromEnv().statementCacheSize });
+    } else {
+      // File-backed storage profile: WAL mode, one writer, pooled readers
+      const dbDir = path.dirname(dbPath);
+      if (!fs.existsSync(dbDir)) {
+        fs.mkdirSync(dbDir, { recursive: true });
       }
-      console.log('Connected to SQLite in-memory database');
-    });
+
+      const options = storageOptionsFromEnv();
+      db = new PooledDatabase(dbPath, options);
+      console.log(`Connected to SQLite database (file: ${dbPath}, WAL, ${options.readPoolSize} readers)`);
+    }
   }
   return db;
 }
@@ -50,13 +72,14 @@ async function initializeDatabase() {
         )
       `);
 
-      // Create work_entries table
+      // Create work_entries table (hours are stored as integer hundredths and
+      // dates as YYYY-MM-DD text, enforced by triggers in migrations.js)
       database.run(`
         CREATE TABLE IF NOT EXISTS work_entries (
           id INTEGER PRIMARY KEY AUTOINCREMENT,
           client_id INTEGER NOT NULL,
           user_email TEXT NOT NULL,
-          hours DECIMAL(5,2) NOT NULL,
+          centihours INTEGER NOT NULL,
           description TEXT,
           date DATE NOT NULL,
           created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -70,10 +93,24 @@ async function initializeDatabase() {
       database.run(`CREATE INDEX IF NOT EXISTS idx_clients_user_email ON clients (user_email)`);
       database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_client_id ON work_entries (client_id)`);
       database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_user_email ON work_entries (user_email)`);
-      database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_date ON work_entries (date)`);
+      database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_date ON work_entries (date)`, (err) => {
+        if (err) {
+          console.error('Error creating database tables:', err);
+          return reject(err);
+        }
 
-      console.log('Database tables created successfully');
-      resolve();
+        // Resolve only once the schema exists and is migrated, so pooled
+        // readers never see a half-initialized file
+        runMigrations(database)
+          .then(() => {
+            console.log('Database tables created successfully');
+            resolve();
+          })
+          .catch((err) => {
+            console.error('Error migrating database:', err);
+            reject(err);
+          });
+      });
     });
   });
 }
@@ -118,8 +155,14 @@ function closeDatabase() {
   });
 }
 
+// Prepared-statement cache counters across every open connection
+function getStatementCacheStats() {
+  return db ? db.stats() : null;
+}
+
 module.exports = {
   getDatabase,
   initializeDatabase,
-  closeDatabase
+  closeDatabase,
+  getStatementCacheStats
 };
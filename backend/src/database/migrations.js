@@ -0,0 +1,192 @@
+const { ROLLUP_SCHEMA, REBUILD_ROLLUP } = require('./rollup');
+
+// Versioned schema migrations tracked in PRAGMA user_version. Fresh databases
+// are created with the current schema by initializeDatabase(), so every
+// migration inspects the live schema first and only rewrites data that is
+// still in an older shape.
+
+function run(db, sql, params = []) {
+  return new Promise((resolve, reject) => {
+    db.run(sql, ...(params.length ? [params] : []), function(err) {
+      if (err) {
+        return reject(err);
+      }
+      resolve(this);
+    });
+  });
+}
+
+function get(db, sql) {
+  return new Promise((resolve, reject) => {
+    db.get(sql, (err, row) => (err ? reject(err) : resolve(row)));
+  });
+}
+
+function all(db, sql) {
+  return new Promise((resolve, reject) => {
+    db.all(sql, (err, rows) => (err ? reject(err) : resolve(rows || [])));
+  });
+}
+
+function exec(db, sql) {
+  return new Promise((resolve, reject) => {
+    db.exec(sql, err => (err ? reject(err) : resolve()));
+  });
+}
+
+async function columnNames(db, table) {
+  const columns = await all(db, `PRAGMA table_info(${table})`);
+  return columns.map(column => column.name);
+}
+
+// v1: work_entries.hours DECIMAL(5,2) (stored as REAL) becomes an integer
+// count of hundredths so sums are exact and need no per-row parsing.
+// SQLite can't change a column type in place, so the table is rebuilt.
+async function centihoursUp(db) {
+  const columns = await columnNames(db, 'work_entries');
+  if (!columns.includes('hours') || columns.includes('centihours')) {
+    return false;
+  }
+
+  await exec(db, `
+    CREATE TABLE work_entries_v1 (
+      id INTEGER PRIMARY KEY AUTOINCREMENT,
+      client_id INTEGER NOT NULL,
+      user_email TEXT NOT NULL,
+      centihours INTEGER NOT NULL,
+      description TEXT,
+      date DATE NOT NULL,
+      created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+      updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+      FOREIGN KEY (client_id) REFERENCES clients (id) ON DELETE CASCADE,
+      FOREIGN KEY (user_email) REFERENCES users (email) ON DELETE CASCADE
+    );
+    INSERT INTO work_entries_v1 (id, client_id, user_email, centihours, description, date, created_at, updated_at)
+      SELECT id, client_id, user_email, CAST(ROUND(hours * 100) AS INTEGER), description, date, created_at, updated_at
+      FROM work_entries;
+    DROP TABLE work_entries;
+    ALTER TABLE work_entries_v1 RENAME TO work_entries;
+    CREATE INDEX IF NOT EXISTS idx_work_entries_client_id ON work_entries (client_id);
+    CREATE INDEX IF NOT EXISTS idx_work_entries_user_email ON work_entries (user_email);
+    CREATE INDEX IF NOT EXISTS idx_work_entries_date ON work_entries (date);
+  `);
+  return true;
+}
+
+// v2: work_entries.date becomes a canonical YYYY-MM-DD string. Dates bound
+// as JS Date objects were stored as epoch milliseconds and ISO timestamps as
+// full text, which mixed storage classes on idx_work_entries_date and broke
+// ordering and range scans. Triggers reject anything non-canonical from now on.
+async function canonicalDateUp(db) {
+  const fromEpoch = await run(db, `
+    UPDATE work_entries SET date = strftime('%Y-%m-%d', date / 1000.0, 'unixepoch')
+    WHERE typeof(date) IN ('integer', 'real')
+  `);
+  const fromText = await run(db, `
+    UPDATE work_entries SET date = date(date)
+    WHERE typeof(date) = 'text' AND date IS NOT date(date) AND date(date) IS NOT NULL
+  `);
+
+  // date() only round-trips well-formed calendar days, which also rules
+  // out numbers and timestamps with a time component
+  await exec(db, `
+    CREATE TRIGGER IF NOT EXISTS work_entries_date_insert
+    BEFORE INSERT ON work_entries
+    WHEN NEW.date IS NOT date(NEW.date)
+    BEGIN
+      SELECT RAISE(ABORT, 'work_entries.date must be YYYY-MM-DD');
+    END;
+    CREATE TRIGGER IF NOT EXISTS work_entries_date_update
+    BEFORE UPDATE OF date ON work_entries
+    WHEN NEW.date IS NOT date(NEW.date)
+    BEGIN
+      SELECT RAISE(ABORT, 'work_entries.date must be YYYY-MM-DD');
+    END;
+  `);
+  return fromEpoch.changes + fromText.changes > 0;
+}
+
+// v3: composite indexes matching the hot queries in database/queries.js, so
+// listing and report reads walk an index in ORDER BY order instead of
+// sorting in a temp B-tree. The report index also carries centihours so
+// totals never touch the table. Created here rather than in
+// initializeDatabase() because they reference columns added by v1.
+async function compositeIndexesUp(db) {
+  await exec(db, `
+    CREATE INDEX IF NOT EXISTS idx_clients_user_name ON clients (user_email, name);
+    CREATE INDEX IF NOT EXISTS idx_work_entries_user_date ON work_entries (user_email, date, created_at);
+    CREATE INDEX IF NOT EXISTS idx_work_entries_user_client_date
+      ON work_entries (user_email, client_id, date, created_at, centihours);
+  `);
+
+  // Building over existing rows is the only case worth reporting
+  const row = await get(db, 'SELECT EXISTS (SELECT 1 FROM work_entries) AS populated');
+  return row.populated === 1;
+}
+
+// v4: trigger-maintained daily rollup (see rollup.js), seeded from the
+// existing entries
+async function dailyRollupUp(db) {
+  await exec(db, ROLLUP_SCHEMA);
+  await exec(db, REBUILD_ROLLUP);
+
+  const row = await get(db, 'SELECT EXISTS (SELECT 1 FROM work_entries) AS populated');
+  return row.populated === 1;
+}
+
+// v5: report totals now come from the rollup, so the client listing index
+// no longer needs centihours. Without it the implicit trailing rowid follows
+// created_at, which gives exports a unique (date, created_at, id) keyset
+// order straight off the index.
+async function keysetClientIndexUp(db) {
+  await exec(db, `
+    DROP INDEX IF EXISTS idx_work_entries_user_client_date;
+    CREATE INDEX idx_work_entries_user_client_date ON work_entries (user_email, client_id, date, created_at);
+  `);
+
+  const row = await get(db, 'SELECT EXISTS (SELECT 1 FROM work_entries) AS populated');
+  return row.populated === 1;
+}
+
+const migrations = [
+  { version: 1, name: 'store work_entries hours as integer centihours', up: centihoursUp },
+  { version: 2, name: 'store work_entries dates as YYYY-MM-DD', up: canonicalDateUp },
+  { version: 3, name: 'add composite indexes for listing and reports', up: compositeIndexesUp },
+  { version: 4, name: 'add work_entry_daily_rollup', up: dailyRollupUp },
+  { version: 5, name: 'rebuild client listing index for keyset scans', up: keysetClientIndexUp }
+];
+
+// Each migration runs in its own IMMEDIATE transaction together with the
+// user_version bump, so a failure leaves the database at the previous version.
+// up() resolves to true when it rewrote anything.
+async function runMigrations(db) {
+  const row = await get(db, 'PRAGMA user_version');
+  const currentVersion = row ? row.user_version : 0;
+
+  for (const migration of migrations) {
+    if (migration.version <= currentVersion) {
+      continue;
+    }
+
+    await run(db, 'BEGIN IMMEDIATE');
+    let changed;
+    try {
+      changed = await migration.up(db);
+      await run(db, `PRAGMA user_version = ${migration.version}`);
+      await run(db, 'COMMIT');
+    } catch (err) {
+      await run(db, 'ROLLBACK').catch(() => {});
+      throw err;
+    }
+
+    // Fresh databases already have the current schema; only report real rewrites
+    if (changed) {
+      console.log(`Applied migration ${migration.version}: ${migration.name}`);
+    }
+  }
+}
+
+module.exports = {
+  runMigrations,
+  migrations
+};
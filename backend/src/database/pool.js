@@ -0,0 +1,254 @@
+const sqlite3 = require('sqlite3').verbose();
+const { CachedDatabase, mergeStatementStats, DEFAULT_STATEMENT_CACHE_SIZE } = require('./statementCache');
+const { WorkerExecutor, DEFAULT_WORKER_THREADS, DEFAULT_WORKER_TIMEOUT_MS } = require('./executor');
+const { readIntEnv } = require('../utils/env');
+
+const DEFAULT_READ_POOL_SIZE = 4;
+const DEFAULT_CHECKPOINT_INTERVAL_MS = 30 * 1000;
+const DEFAULT_BUSY_TIMEOUT_MS = 5000;
+
+// Storage profile options, overridable from the environment
+function storageOptionsFromEnv() {
+  return {
+    readPoolSize: readIntEnv('DB_READ_POOL_SIZE', DEFAULT_READ_POOL_SIZE),
+    checkpointIntervalMs: readIntEnv('DB_CHECKPOINT_INTERVAL_MS', DEFAULT_CHECKPOINT_INTERVAL_MS),
+    busyTimeoutMs: readIntEnv('DB_BUSY_TIMEOUT_MS', DEFAULT_BUSY_TIMEOUT_MS),
+    statementCacheSize: readIntEnv('DB_STATEMENT_CACHE_SIZE', DEFAULT_STATEMENT_CACHE_SIZE) || DEFAULT_STATEMENT_CACHE_SIZE,
+    executor: process.env.DB_EXECUTOR === 'worker' ? 'worker' : 'inline',
+    workerThreads: readIntEnv('DB_WORKER_THREADS', DEFAULT_WORKER_THREADS) || DEFAULT_WORKER_THREADS,
+    workerTimeoutMs: readIntEnv('DB_WORKER_TIMEOUT_MS', DEFAULT_WORKER_TIMEOUT_MS)
+  };
+}
+
+// File-backed SQLite in WAL mode: one writer connection for all mutations and
+// a pool of read-only connections for get/all/each. WAL lets readers run
+// against the last committed snapshot while the writer appends, so report
+// scans no longer queue behind inserts on a single handle.
+class PooledDatabase {
+  constructor(filename, options = {}) {
+    this.filename = filename;
+    this.readPoolSize = options.readPoolSize ?? DEFAULT_READ_POOL_SIZE;
+    this.checkpointIntervalMs = options.checkpointIntervalMs ?? DEFAULT_CHECKPOINT_INTERVAL_MS;
+    this.busyTimeoutMs = options.busyTimeoutMs ?? DEFAULT_BUSY_TIMEOUT_MS;
+    this.statementCacheSize = options.statementCacheSize || DEFAULT_STATEMENT_CACHE_SIZE;
+    this.executorOptions = options.executor === 'worker' ? options : null;
+
+    this.readers = [];
+    this.executor = null;
+    this.serializing = 0;
+    this.checkpointTimer = null;
+    this.closed = false;
+
+    const writer = new sqlite3.Database(filename, (err) => {
+      if (err) {
+        console.error('Error opening database:', err);
+        throw err;
+      }
+    });
+    writer.configure('busyTimeout', this.busyTimeoutMs);
+    this.writer = new CachedDatabase(writer, { capacity: this.statementCacheSize });
+
+    this.writer.serialize(() => {
+      this.writer.run('PRAGMA journal_mode = WAL');
+      this.writer.run('PRAGMA synchronous = NORMAL');
+      this.writer.run('PRAGMA foreign_keys = ON', (err) => {
+        if (err) {
+          console.error('Error configuring database:', err);
+          return;
+        }
+        // Readers are opened once the file exists and is in WAL mode;
+        // until then reads fall through to the writer.
+        this.openReaders();
+        this.startExecutor();
+        this.startCheckpoints();
+      });
+    });
+  }
+
+  openReaders() {
+    for (let i = 0; i < this.readPoolSize && !this.closed; i++) {
+      const reader = { db: null, pending: 0, ready: false };
+      const connection = new sqlite3.Database(this.filename, sqlite3.OPEN_READONLY, (err) => {
+        if (err) {
+          console.error('Error opening read connection:', err);
+          return;
+        }
+        reader.ready = true;
+      });
+      connection.configure('busyTimeout', this.busyTimeoutMs);
+      reader.db = new CachedDatabase(connection, { capacity: this.statementCacheSize });
+      this.readers.push(reader);
+    }
+  }
+
+  // Optional worker_threads executor: get/all run and decode rows off the
+  // main event loop. each() and serialized reads keep using local readers.
+  startExecutor() {
+    if (!this.executorOptions || this.closed) {
+      return;
+    }
+
+    this.executor = new WorkerExecutor(this.filename, {
+      workerThreads: this.executorOptions.workerThreads,
+      workerTimeoutMs: this.executorOptions.workerTimeoutMs,
+      busyTimeoutMs: this.busyTimeoutMs,
+      statementCacheSize: this.statementCacheSize
+    });
+  }
+
+  startCheckpoints() {
+    if (!this.checkpointIntervalMs || this.closed) {
+      return;
+    }
+
+    // PASSIVE never blocks readers or the writer; it copies whatever frames
+    // it can so the WAL file doesn't grow without bound between restarts.
+    this.checkpointTimer = setInterval(() => {
+      this.writer.run('PRAGMA wal_checkpoint(PASSIVE)', (err) => {
+        if (err) {
+          console.error('WAL checkpoint failed:', err);
+        }
+      });
+    }, this.checkpointIntervalMs);
+    this.checkpointTimer.unref();
+  }
+
+  // Pick the ready reader with the fewest queries in flight
+  acquireReader() {
+    let best = null;
+    for (const reader of this.readers) {
+      if (reader.ready && (!best || reader.pending < best.pending)) {
+        best = reader;
+      }
+    }
+    return best;
+  }
+
+  read(method, args) {
+    if (this.executor && method !== 'each' && !this.serializing) {
+      this.executor[method](...args);
+      return this;
+    }
+
+    const reader = this.serializing ? null : this.acquireReader();
+    if (!reader) {
+      return this.writer[method](...args);
+    }
+
+    reader.pending++;
+    const release = () => {
+      reader.pending--;
+    };
+
+    // each() takes (row, complete) callbacks; only the completion marks the end
+    const callbacks = args.filter(arg => typeof arg === 'function').length;
+    const last = args[args.length - 1];
+    if (typeof last === 'function' && (method !== 'each' || callbacks > 1)) {
+      args[args.length - 1] = function(...results) {
+        release();
+        return last.apply(this, results);
+      };
+    } else {
+      args.push(release);
+    }
+
+    reader.db[method](...args);
+    return this;
+  }
+
+  get(...args) {
+    return this.read('get', args);
+  }
+
+  all(...args) {
+    return this.read('all', args);
+  }
+
+  each(...args) {
+    return this.read('each', args);
+  }
+
+  run(...args) {
+    this.writer.run(...args);
+    return this;
+  }
+
+  writeAll(...args) {
+    this.writer.writeAll(...args);
+    return this;
+  }
+
+  exec(...args) {
+    this.writer.exec(...args);
+    return this;
+  }
+
+  prepare(...args) {
+    return this.writer.prepare(...args);
+  }
+
+  // Statements issued inside serialize() stay on the writer so they keep
+  // their ordering, reads included.
+  serialize(callback) {
+    this.writer.serialize(() => {
+      this.serializing++;
+      try {
+        callback();
+      } finally {
+        this.serializing--;
+      }
+    });
+  }
+
+  stats() {
+    return mergeStatementStats([this.writer, ...this.readers.map(reader => reader.db)].map(db => db.stats()));
+  }
+
+  executorStats() {
+    return this.executor ? this.executor.stats() : null;
+  }
+
+  close(callback) {
+    this.closed = true;
+    if (this.checkpointTimer) {
+      clearInterval(this.checkpointTimer);
+      this.checkpointTimer = null;
+    }
+
+    const connections = this.readers.map(reader => reader.db);
+    this.readers = [];
+    if (this.executor) {
+      connections.push(this.executor);
+      this.executor = null;
+    }
+
+    let firstError = null;
+    let remaining = connections.length;
+    const closeWriter = () => {
+      this.writer.close((err) => {
+        if (callback) {
+          callback(firstError || err || null);
+        }
+      });
+    };
+
+    if (remaining === 0) {
+      closeWriter();
+      return;
+    }
+
+    connections.forEach((connection) => {
+      connection.close((err) => {
+        firstError = firstError || err;
+        if (--remaining === 0) {
+          closeWriter();
+        }
+      });
+    });
+  }
+}
+
+module.exports = {
+  PooledDatabase,
+  storageOptionsFromEnv
+};
@@ -0,0 +1,96 @@
+const { createHash } = require('crypto');
+const { readIntEnv } = require('../utils/env');
+
+// PostgreSQL connection pool for REPOSITORY_BACKEND=postgres. The pg package
+// is only loaded when this backend is selected, so SQLite deployments don't
+// need it installed.
+
+// SQLite's CURRENT_TIMESTAMP text, 'YYYY-MM-DD HH:MM:SS' in UTC. Timestamps
+// are stored in that form so both backends hand out the same values.
+const CURRENT_TIMESTAMP_TEXT = 'to_char(now() AT TIME ZONE \'UTC\', \'YYYY-MM-DD HH24:MI:SS\')';
+
+const DEFAULT_POOL_SIZE = 10;
+const DEFAULT_IDLE_TIMEOUT_MS = 30 * 1000;
+const DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+
+// Column types pg returns as strings by default. Ids are BIGINT and counts
+// come back as BIGINT, but both stay far below 2^53; hours are NUMERIC
+// quotients of integer centihours.
+const INT8_OID = 20;
+const NUMERIC_OID = 1700;
+const TYPE_PARSERS = {
+  [INT8_OID]: Number,
+  [NUMERIC_OID]: parseFloat
+};
+
+function postgresOptionsFromEnv() {
+  return {
+    connectionString: process.env.DATABASE_URL,
+    poolSize: readIntEnv('PG_POOL_SIZE', DEFAULT_POOL_SIZE) || DEFAULT_POOL_SIZE,
+    idleTimeoutMs: readIntEnv('PG_IDLE_TIMEOUT_MS', DEFAULT_IDLE_TIMEOUT_MS),
+    connectTimeoutMs: readIntEnv('PG_CONNECT_TIMEOUT_MS', DEFAULT_CONNECT_TIMEOUT_MS)
+  };
+}
+
+function loadPg() {
+  try {
+    return require('pg');
+  } catch (err) {
+    if (err.code === 'MODULE_NOT_FOUND') {
+      throw new Error('REPOSITORY_BACKEND=postgres needs the optional pg package; install without --no-optional');
+    }
+    throw err;
+  }
+}
+
+// Without DATABASE_URL, pg falls back to the standard PGHOST/PGUSER/...
+// variables
+function createPostgresPool(options = postgresOptionsFromEnv()) {
+  const pg = loadPg();
+  const pool = new pg.Pool({
+    connectionString: options.connectionString,
+    max: options.poolSize,
+    idleTimeoutMillis: options.idleTimeoutMs,
+    connectionTimeoutMillis: options.connectTimeoutMs,
+    types: {
+      getTypeParser: (oid, format) => (format !== 'binary' && TYPE_PARSERS[oid]) || pg.types.getTypeParser(oid, format)
+    }
+  });
+
+  // An idle connection dropped by the server must not crash the process;
+  // the pool replaces it on the next checkout
+  pool.on('error', (err) => {
+    console.error('PostgreSQL pool error:', err.message);
+  });
+  return pool;
+}
+
+// The repositories write SQLite-style ? placeholders; Postgres numbers them.
+// Question marks inside string literals are left alone.
+function toPostgresPlaceholders(sql) {
+  let index = 0;
+  let quoted = false;
+  let text = '';
+  for (const char of sql) {
+    if (char === '\'') {
+      quoted = !quoted;
+    }
+    text += char === '?' && !quoted ? `$${++index}` : char;
+  }
+  return text;
+}
+
+// Server-side prepared statements are per connection and keyed by name, and
+// pg refuses to reuse a name for different text, so the name is derived from
+// the text itself
+function statementName(text) {
+  return `s_${createHash('sha1').update(text).digest('hex').slice(0, 20)}`;
+}
+
+module.exports = {
+  CURRENT_TIMESTAMP_TEXT,
+  postgresOptionsFromEnv,
+  createPostgresPool,
+  toPostgresPlaceholders,
+  statementName
+};
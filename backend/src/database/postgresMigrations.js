@@ -0,0 +1,143 @@
+// Schema for REPOSITORY_BACKEND=postgres, kept equivalent to the SQLite
+// schema after its migrations (init.js, migrations.js and rollup.js), so the
+// shared statements in queries.js and writes.js run unchanged. Applied
+// versions are recorded in schema_migrations.
+//
+// Text columns that are sorted or range-scanned use COLLATE "C" to compare
+// bytewise like SQLite does: client names list in the same order, and the
+// '~' keyset bound in utils/cursor.js still sorts after every timestamp.
+// Timestamps are stored as UTC 'YYYY-MM-DD HH:MM:SS' text, as in SQLite.
+
+const { CURRENT_TIMESTAMP_TEXT: NOW } = require('./postgres');
+
+// Any constant works as long as every node agrees on it
+const MIGRATION_LOCK_KEY = 727274;
+
+// v1: tables and the composite indexes behind the hot queries. Postgres
+// indexes have no implicit trailing rowid, so the keyset indexes name id
+// explicitly. Foreign keys are always enforced, and unlike SQLite, Postgres
+// doesn't index the referencing column by itself, hence
+// idx_work_entries_client_id for client deletes.
+const SCHEMA = `
+  CREATE TABLE users (
+    email TEXT PRIMARY KEY,
+    created_at TEXT COLLATE "C" DEFAULT ${NOW}
+  );
+
+  CREATE TABLE clients (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name TEXT COLLATE "C" NOT NULL,
+    description TEXT,
+    department TEXT,
+    email TEXT,
+    user_email TEXT NOT NULL REFERENCES users (email) ON DELETE CASCADE,
+    created_at TEXT COLLATE "C" DEFAULT ${NOW},
+    updated_at TEXT COLLATE "C" DEFAULT ${NOW}
+  );
+
+  CREATE TABLE work_entries (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    client_id BIGINT NOT NULL REFERENCES clients (id) ON DELETE CASCADE,
+    user_email TEXT NOT NULL REFERENCES users (email) ON DELETE CASCADE,
+    centihours INTEGER NOT NULL,
+    description TEXT,
+    date TEXT COLLATE "C" NOT NULL
+      CONSTRAINT work_entries_date_canonical
+      CHECK (date ~ '^[0-9]{4}-[0-9]{2}-[0-9]{2}$' AND to_char(date::date, 'YYYY-MM-DD') = date),
+    created_at TEXT COLLATE "C" DEFAULT ${NOW},
+    updated_at TEXT COLLATE "C" DEFAULT ${NOW}
+  );
+
+  CREATE INDEX idx_clients_user_name ON clients (user_email, name);
+  CREATE INDEX idx_work_entries_client_id ON work_entries (client_id);
+  CREATE INDEX idx_work_entries_user_date ON work_entries (user_email, date, created_at, id);
+  CREATE INDEX idx_work_entries_user_client_date ON work_entries (user_email, client_id, date, created_at, id);
+`;
+
+// v2: the trigger-maintained daily rollup from rollup.js, as one PL/pgSQL
+// row trigger, seeded from any existing entries
+const DAILY_ROLLUP = `
+  CREATE TABLE work_entry_daily_rollup (
+    user_email TEXT NOT NULL,
+    client_id BIGINT NOT NULL,
+    day TEXT COLLATE "C" NOT NULL,
+    total_centihours BIGINT NOT NULL DEFAULT 0,
+    entry_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_email, client_id, day)
+  );
+
+  CREATE FUNCTION work_entries_rollup() RETURNS trigger AS $$
+  BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+      UPDATE work_entry_daily_rollup r
+      SET total_centihours = r.total_centihours - OLD.centihours, entry_count = r.entry_count - 1
+      WHERE r.user_email = OLD.user_email AND r.client_id = OLD.client_id AND r.day = OLD.date;
+      DELETE FROM work_entry_daily_rollup r
+      WHERE r.user_email = OLD.user_email AND r.client_id = OLD.client_id AND r.day = OLD.date AND r.entry_count <= 0;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+      INSERT INTO work_entry_daily_rollup AS r (user_email, client_id, day, total_centihours, entry_count)
+      VALUES (NEW.user_email, NEW.client_id, NEW.date, NEW.centihours, 1)
+      ON CONFLICT (user_email, client_id, day) DO UPDATE SET
+        total_centihours = r.total_centihours + excluded.total_centihours,
+        entry_count = r.entry_count + 1;
+    END IF;
+    RETURN NULL;
+  END;
+  $$ LANGUAGE plpgsql;
+
+  CREATE TRIGGER work_entries_rollup
+  AFTER INSERT OR DELETE OR UPDATE OF user_email, client_id, date, centihours ON work_entries
+  FOR EACH ROW EXECUTE FUNCTION work_entries_rollup();
+
+  INSERT INTO work_entry_daily_rollup (user_email, client_id, day, total_centihours, entry_count)
+    SELECT user_email, client_id, date, SUM(centihours), COUNT(*)
+    FROM work_entries
+    GROUP BY user_email, client_id, date;
+`;
+
+// Created under the migration lock; concurrent CREATE TABLE IF NOT EXISTS
+// calls can otherwise still collide
+const CREATE_SCHEMA_MIGRATIONS = `CREATE TABLE IF NOT EXISTS schema_migrations (
+  version INTEGER PRIMARY KEY,
+  name TEXT NOT NULL,
+  applied_at TEXT DEFAULT ${NOW}
+)`;
+
+const migrations = [
+  { version: 1, name: 'create users, clients and work_entries', sql: SCHEMA },
+  { version: 2, name: 'add work_entry_daily_rollup', sql: DAILY_ROLLUP }
+];
+
+// Every API node runs this on startup. Each migration commits together with
+// its schema_migrations row, under a transaction-scoped advisory lock, so
+// nodes starting at once apply it exactly once and the rest wait, then skip.
+async function runPostgresMigrations(pool) {
+  const client = await pool.connect();
+  try {
+    for (const migration of migrations) {
+      await client.query('BEGIN');
+      try {
+        await client.query('SELECT pg_advisory_xact_lock($1)', [MIGRATION_LOCK_KEY]);
+        await client.query(CREATE_SCHEMA_MIGRATIONS);
+        const applied = await client.query('SELECT 1 FROM schema_migrations WHERE version = $1', [migration.version]);
+        if (applied.rowCount === 0) {
+          await client.query(migration.sql);
+          await client.query('INSERT INTO schema_migrations (version, name) VALUES ($1, $2)', [migration.version, migration.name]);
+          console.log(`Applied PostgreSQL migration ${migration.version}: ${migration.name}`);
+        }
+        await client.query('COMMIT');
+      } catch (err) {
+        await client.query('ROLLBACK').catch(() => {});
+        throw err;
+      }
+    }
+  } finally {
+    client.release();
+  }
+}
+
+module.exports = {
+  runPostgresMigrations,
+  migrations
+};
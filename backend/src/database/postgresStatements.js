@@ -0,0 +1,52 @@
+const queries = require('./queries');
+const writes = require('./writes');
+const { CURRENT_TIMESTAMP_TEXT } = require('./postgres');
+
+// The statement catalogues as run on PostgreSQL. Everything in queries.js and
+// writes.js is shared except what relies on SQLite-only functions or typing;
+// PostgresBackend numbers the ? placeholders.
+
+// Same columns as writes.js; RETURNING may use a subquery in Postgres too
+const WORK_ENTRY_COLUMNS = `id, client_id, centihours / 100.0 AS hours, description, date, created_at, updated_at,
+           (SELECT name FROM clients WHERE clients.id = work_entries.client_id) AS client_name`;
+
+const postgresQueries = {
+  ...queries,
+
+  // jsonb_array_elements_text() in place of json_each()
+  findOwnClients: `SELECT c.id, c.name
+         FROM jsonb_array_elements_text(?::jsonb) AS ids (value)
+         JOIN clients c ON c.id = ids.value::bigint
+         WHERE c.user_email = ?`
+};
+
+const postgresWrites = {
+  ...writes,
+
+  // Bare parameters in a SELECT list are typed as text, which an INTEGER
+  // column won't take without a cast
+  insertWorkEntry: `INSERT INTO work_entries (client_id, user_email, centihours, description, date)
+         SELECT id, user_email, ?::integer, ?, ? FROM clients WHERE id = ? AND user_email = ?
+         RETURNING ${WORK_ENTRY_COLUMNS}`,
+
+  insertWorkEntries: `INSERT INTO work_entries (client_id, user_email, centihours, description, date)
+         SELECT clients.id, clients.user_email, (value ->> 1)::integer, value ->> 2, value ->> 3
+         FROM jsonb_array_elements(?::jsonb) WITH ORDINALITY AS batch (value, key)
+         JOIN clients ON clients.id = (value ->> 0)::bigint AND clients.user_email = ?
+         WHERE NOT EXISTS (
+           SELECT 1 FROM jsonb_array_elements(?::jsonb) AS item (value)
+           WHERE NOT EXISTS (SELECT 1 FROM clients WHERE id = (item.value ->> 0)::bigint AND user_email = ?)
+         )
+         ORDER BY key
+         RETURNING id, client_id, centihours / 100.0 AS hours, description, date, created_at, updated_at`,
+
+  // CURRENT_TIMESTAMP is a timestamptz here; the columns hold SQLite-style text
+  setUpdatedAt: `updated_at = ${CURRENT_TIMESTAMP_TEXT}`,
+
+  workEntryIdsIn: 'id IN (SELECT value::bigint FROM jsonb_array_elements_text(?::jsonb))'
+};
+
+module.exports = {
+  queries: postgresQueries,
+  writes: postgresWrites
+};
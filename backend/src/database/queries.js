@@ -0,0 +1,99 @@
+// Read queries used by the repositories in src/repositories. They live in one
+// catalogue so __tests__/database/queryPlans.test.js can check the exact SQL
+// production runs against the real schema and its indexes. They are also run
+// on PostgreSQL, so camelCase aliases are quoted to keep their case; the few
+// statements that can't be shared are replaced in postgresStatements.js.
+
+const WORK_ENTRY_COLUMNS = `we.id, we.client_id, we.centihours / 100.0 AS hours, we.description, we.date,
+           we.created_at, we.updated_at, c.name as client_name`;
+
+const queries = {
+  // Keyset pages for GET /api/work-entries, newest first. Parameters are
+  // (user, [client,] from, cursor date, cursor created_at, cursor id, limit);
+  // the first page starts from a cursor just past the `to` date, so one
+  // statement serves every page and date range.
+  // idx_work_entries_user_date; the trailing id is the index's rowid
+  listWorkEntriesPage: `
+    SELECT ${WORK_ENTRY_COLUMNS}
+    FROM work_entries we
+    JOIN clients c ON we.client_id = c.id
+    WHERE we.user_email = ? AND we.date >= ? AND (we.date, we.created_at, we.id) < (?, ?, ?)
+    ORDER BY we.date DESC, we.created_at DESC, we.id DESC
+    LIMIT ?`,
+
+  // idx_work_entries_user_client_date
+  listWorkEntriesForClientPage: `
+    SELECT ${WORK_ENTRY_COLUMNS}
+    FROM work_entries we
+    JOIN clients c ON we.client_id = c.id
+    WHERE we.user_email = ? AND we.client_id = ? AND we.date >= ? AND (we.date, we.created_at, we.id) < (?, ?, ?)
+    ORDER BY we.date DESC, we.created_at DESC, we.id DESC
+    LIMIT ?`,
+
+  getWorkEntry: `
+    SELECT ${WORK_ENTRY_COLUMNS}
+    FROM work_entries we
+    JOIN clients c ON we.client_id = c.id
+    WHERE we.id = ? AND we.user_email = ?`,
+
+  findOwnWorkEntry: 'SELECT id FROM work_entries WHERE id = ? AND user_email = ?',
+
+  // Dashboard counters in one round trip: clients from idx_clients_user_name,
+  // entries and hours from the daily rollup's primary key
+  getDashboardTotals: `SELECT
+           (SELECT COUNT(*) FROM clients WHERE user_email = ?) AS "clientCount",
+           COALESCE(SUM(entry_count), 0) AS "entryCount",
+           COALESCE(SUM(total_centihours), 0) / 100.0 AS "totalHours"
+         FROM work_entry_daily_rollup
+         WHERE user_email = ?`,
+
+  getUser: 'SELECT email, created_at FROM users WHERE email = ?',
+
+  // idx_clients_user_name
+  listClients: 'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE user_email = ? ORDER BY name',
+
+  getClient: 'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE id = ? AND user_email = ?',
+
+  findOwnClient: 'SELECT id FROM clients WHERE id = ? AND user_email = ?',
+
+  // Ownership of every client in a batch; the parameter is a JSON array of ids
+  findOwnClients: `SELECT c.id, c.name
+         FROM json_each(?) AS ids
+         JOIN clients c ON c.id = ids.value
+         WHERE c.user_email = ?`,
+
+  getReportClient: 'SELECT id, name FROM clients WHERE id = ? AND user_email = ?',
+
+  // Primary key of work_entry_daily_rollup: one row per day with entries
+  getClientTotals: `SELECT COALESCE(SUM(total_centihours), 0) / 100.0 AS "totalHours",
+                COALESCE(SUM(entry_count), 0) AS "entryCount"
+         FROM work_entry_daily_rollup
+         WHERE user_email = ? AND client_id = ?`,
+
+  // idx_work_entries_user_client_date; the trailing id is the index's rowid
+  listReportEntries: `SELECT id, centihours / 100.0 AS hours, description, date, created_at, updated_at
+         FROM work_entries
+         WHERE client_id = ? AND user_email = ?
+         ORDER BY date DESC, created_at DESC, id DESC`,
+
+  listReportEntriesPage: `SELECT id, centihours / 100.0 AS hours, description, date, created_at, updated_at
+         FROM work_entries
+         WHERE client_id = ? AND user_email = ?
+         ORDER BY date DESC, created_at DESC, id DESC
+         LIMIT ? OFFSET ?`,
+
+  listExportEntries: `SELECT id, centihours / 100.0 AS hours, description, date, created_at
+         FROM work_entries
+         WHERE client_id = ? AND user_email = ?
+         ORDER BY date DESC, created_at DESC, id DESC
+         LIMIT ?`,
+
+  // Next export batch after the (date, created_at, id) of the previous one
+  listExportEntriesAfter: `SELECT id, centihours / 100.0 AS hours, description, date, created_at
+         FROM work_entries
+         WHERE client_id = ? AND user_email = ? AND (date, created_at, id) < (?, ?, ?)
+         ORDER BY date DESC, created_at DESC, id DESC
+         LIMIT ?`
+};
+
+module.exports = queries;
@@ -0,0 +1,66 @@
+const { performance } = require('perf_hooks');
+const { registry } = require('../utils/metrics');
+const queries = require('./queries');
+
+const QUERY_BUCKETS = [0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 5];
+
+const queryDuration = registry.histogram(
+  'db_query_duration_seconds',
+  'Database query time from dispatch to callback, by statement',
+  ['statement'],
+  QUERY_BUCKETS
+);
+
+// Catalogued queries are labelled by their name in queries.js; anything else
+// by verb and table, which keeps the label set small
+const catalogNames = new Map(Object.entries(queries).map(([name, sql]) => [sql, name]));
+const seriesBySql = new Map();
+
+function statementLabel(sql) {
+  if (catalogNames.has(sql)) {
+    return catalogNames.get(sql);
+  }
+  const match = /^\s*(SELECT|INSERT|UPDATE|DELETE|WITH)\b[\s\S]*?\b(?:FROM|INTO|UPDATE)\s+(\w+)/i.exec(sql) ||
+    /^\s*(UPDATE)\s+(\w+)/i.exec(sql);
+  return match ? `${match[1].toUpperCase()} ${match[2]}` : 'other';
+}
+
+function seriesFor(sql) {
+  let series = seriesBySql.get(sql);
+  if (!series) {
+    series = queryDuration.labels(statementLabel(sql));
+    // Bounded by the number of distinct SQL strings, all of which are
+    // parameterized constants or the fixed UPDATE shapes
+    seriesBySql.set(sql, series);
+  }
+  return series;
+}
+
+function timedCallback(sql, callback) {
+  const series = seriesFor(sql);
+  const start = performance.now();
+  return function(...results) {
+    series.observe((performance.now() - start) / 1000);
+    return callback.apply(this, results);
+  };
+}
+
+// Wraps the completion callback in a sqlite3-style argument list so the
+// query is timed when it calls back. each() completes on its second
+// callback; calls without a completion callback are left untimed.
+function timeQuery(method, sql, args) {
+  const last = args.length - 1;
+  if (last < 0 || typeof args[last] !== 'function') {
+    return;
+  }
+  if (method === 'each' && typeof args[last - 1] !== 'function') {
+    return;
+  }
+  args[last] = timedCallback(sql, args[last]);
+}
+
+module.exports = {
+  timeQuery,
+  timedCallback,
+  statementLabel
+};
@@ -0,0 +1,76 @@
+// Per-user, per-client, per-day totals of work_entries, kept in sync by
+// triggers so report and dashboard totals read one row per day instead of
+// every entry. The rollup can always be recomputed from work_entries.
+
+const ROLLUP_SCHEMA = `
+  CREATE TABLE IF NOT EXISTS work_entry_daily_rollup (
+    user_email TEXT NOT NULL,
+    client_id INTEGER NOT NULL,
+    day TEXT NOT NULL,
+    total_centihours INTEGER NOT NULL DEFAULT 0,
+    entry_count INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_email, client_id, day)
+  ) WITHOUT ROWID;
+
+  CREATE TRIGGER IF NOT EXISTS work_entries_rollup_insert
+  AFTER INSERT ON work_entries
+  BEGIN
+    INSERT INTO work_entry_daily_rollup (user_email, client_id, day, total_centihours, entry_count)
+    VALUES (NEW.user_email, NEW.client_id, NEW.date, NEW.centihours, 1)
+    ON CONFLICT (user_email, client_id, day) DO UPDATE SET
+      total_centihours = total_centihours + excluded.total_centihours,
+      entry_count = entry_count + 1;
+  END;
+
+  CREATE TRIGGER IF NOT EXISTS work_entries_rollup_delete
+  AFTER DELETE ON work_entries
+  BEGIN
+    UPDATE work_entry_daily_rollup
+    SET total_centihours = total_centihours - OLD.centihours, entry_count = entry_count - 1
+    WHERE user_email = OLD.user_email AND client_id = OLD.client_id AND day = OLD.date;
+    DELETE FROM work_entry_daily_rollup
+    WHERE user_email = OLD.user_email AND client_id = OLD.client_id AND day = OLD.date AND entry_count <= 0;
+  END;
+
+  CREATE TRIGGER IF NOT EXISTS work_entries_rollup_update
+  AFTER UPDATE OF user_email, client_id, date, centihours ON work_entries
+  BEGIN
+    UPDATE work_entry_daily_rollup
+    SET total_centihours = total_centihours - OLD.centihours, entry_count = entry_count - 1
+    WHERE user_email = OLD.user_email AND client_id = OLD.client_id AND day = OLD.date;
+    DELETE FROM work_entry_daily_rollup
+    WHERE user_email = OLD.user_email AND client_id = OLD.client_id AND day = OLD.date AND entry_count <= 0;
+    INSERT INTO work_entry_daily_rollup (user_email, client_id, day, total_centihours, entry_count)
+    VALUES (NEW.user_email, NEW.client_id, NEW.date, NEW.centihours, 1)
+    ON CONFLICT (user_email, client_id, day) DO UPDATE SET
+      total_centihours = total_centihours + excluded.total_centihours,
+      entry_count = entry_count + 1;
+  END;
+`;
+
+const REBUILD_ROLLUP = `
+  DELETE FROM work_entry_daily_rollup;
+  INSERT INTO work_entry_daily_rollup (user_email, client_id, day, total_centihours, entry_count)
+    SELECT user_email, client_id, date, SUM(centihours), COUNT(*)
+    FROM work_entries
+    GROUP BY user_email, client_id, date;
+`;
+
+// Recompute the whole rollup in one write transaction, e.g. after a bulk
+// import that bypassed the triggers or to repair drift
+function rebuildDailyRollup(db) {
+  return new Promise((resolve, reject) => {
+    db.exec(`BEGIN IMMEDIATE; ${REBUILD_ROLLUP} COMMIT;`, (err) => {
+      if (!err) {
+        return resolve();
+      }
+      db.exec('ROLLBACK', () => reject(err));
+    });
+  });
+}
+
+module.exports = {
+  ROLLUP_SCHEMA,
+  REBUILD_ROLLUP,
+  rebuildDailyRollup
+};
@@ -0,0 +1,156 @@
+const { LRUCache } = require('../utils/lru');
+const { timeQuery } = require('./queryMetrics');
+
+const DEFAULT_STATEMENT_CACHE_SIZE = 100;
+
+// Wraps a sqlite3.Database so parameterized get/all/run/each calls reuse a
+// prepared statement keyed by SQL text instead of re-parsing and re-planning
+// it on every request. The dynamic UPDATE ... SET shapes built by the PUT
+// handlers are keyed the same way; there is only a handful of them per table
+// since columns are always appended in a fixed order.
+class CachedDatabase {
+  constructor(connection, options = {}) {
+    this.connection = connection;
+    this.serializing = 0;
+    this.statements = new LRUCache(
+      options.capacity || DEFAULT_STATEMENT_CACHE_SIZE,
+      (sql, statement) => statement.finalize()
+    );
+  }
+
+  acquire(sql) {
+    const cached = this.statements.get(sql);
+    if (cached) {
+      return cached;
+    }
+
+    const statement = this.connection.prepare(sql, (err) => {
+      // Never keep a statement that failed to prepare; the queued call on it
+      // reports the same error to its own callback.
+      if (err && this.statements.peek(sql) === statement) {
+        this.statements.delete(sql);
+      }
+    });
+    this.statements.set(sql, statement);
+    return statement;
+  }
+
+  // Calls without bound parameters (DDL, PRAGMA) and anything issued inside
+  // serialize() go straight to the connection. Statement execution is queued
+  // per statement, not per database, so it would not honor serialize() order.
+  execute(method, sql, args) {
+    const hasParams = args.length > 0 && typeof args[0] !== 'function';
+    // Application queries are all parameterized; DDL and PRAGMAs go untimed
+    if (hasParams) {
+      timeQuery(method, sql, args);
+    }
+    if (!hasParams || this.serializing) {
+      return this.connection[method](sql, ...args);
+    }
+
+    const statement = this.acquire(sql);
+    statement[method](...args);
+
+    // get() stops after the first row; reset so the statement doesn't hold
+    // a read transaction open until its next use.
+    if (method === 'get') {
+      statement.reset();
+    }
+    return this;
+  }
+
+  get(sql, ...args) {
+    return this.execute('get', sql, args);
+  }
+
+  all(sql, ...args) {
+    return this.execute('all', sql, args);
+  }
+
+  run(sql, ...args) {
+    return this.execute('run', sql, args);
+  }
+
+  each(sql, ...args) {
+    return this.execute('each', sql, args);
+  }
+
+  // all() for INSERT/UPDATE/DELETE ... RETURNING. Same as all() on a single
+  // connection; the pool sends it to the writer instead of a reader.
+  writeAll(sql, ...args) {
+    return this.execute('all', sql, args);
+  }
+
+  exec(...args) {
+    this.connection.exec(...args);
+    return this;
+  }
+
+  prepare(...args) {
+    return this.connection.prepare(...args);
+  }
+
+  serialize(callback) {
+    this.connection.serialize(() => {
+      this.serializing++;
+      try {
+        callback();
+      } finally {
+        this.serializing--;
+      }
+    });
+  }
+
+  stats() {
+    return this.statements.stats();
+  }
+
+  // Finalize every cached statement; sqlite3 refuses to close a connection
+  // with unfinalized statements.
+  finalizeAll(callback) {
+    const statements = [...this.statements.values()];
+    this.statements.clear();
+
+    let remaining = statements.length;
+    if (remaining === 0) {
+      callback();
+      return;
+    }
+
+    statements.forEach((statement) => {
+      statement.finalize(() => {
+        if (--remaining === 0) {
+          callback();
+        }
+      });
+    });
+  }
+
+  close(callback) {
+    this.finalizeAll(() => {
+      this.connection.close(callback);
+    });
+  }
+}
+
+// Combine counters from several connections into one snapshot
+function mergeStatementStats(statsList) {
+  const merged = { size: 0, capacity: 0, hits: 0, misses: 0, evictions: 0, hitRate: 0 };
+  statsList.forEach((stats) => {
+    merged.size += stats.size;
+    merged.capacity += stats.capacity;
+    merged.hits += stats.hits;
+    merged.misses += stats.misses;
+    merged.evictions += stats.evictions;
+  });
+
+  const lookups = merged.hits + merged.misses;
+  merged.hitRate = lookups === 0 ? 0 : merged.hits / lookups;
+  return merged;
+}
+
+module.exports = {
+  CachedDatabase,
+  mergeStatementStats,
+  DEFAULT_STATEMENT_CACHE_SIZE
+};
@@ -0,0 +1,84 @@
+// Single-statement mutations. Each write carries its own ownership predicate
+// and RETURNs the row the route responds with, so a create or update is one
+// round trip on the writer instead of write, then re-select. Run them with
+// db.writeAll(); an empty result means the predicate matched nothing.
+
+const CLIENT_COLUMNS = 'id, name, description, department, email, created_at, updated_at';
+
+// Same shape as the work entry reads in queries.js. RETURNING can only name
+// the modified table, so the client name comes from a primary key lookup.
+const WORK_ENTRY_COLUMNS = `id, client_id, centihours / 100.0 AS hours, description, date, created_at, updated_at,
+           (SELECT name FROM clients WHERE clients.id = work_entries.client_id) AS client_name`;
+
+const writes = {
+  // Concurrent first logins race to create the same user; the loser's
+  // insert is a no-op rather than a UNIQUE error
+  insertUser: 'INSERT INTO users (email) VALUES (?) ON CONFLICT (email) DO NOTHING',
+
+  insertClient: `INSERT INTO clients (name, description, department, email, user_email)
+         VALUES (?, ?, ?, ?, ?)
+         RETURNING ${CLIENT_COLUMNS}`,
+
+  // Parameters are the SET values, then (id, user)
+  updateClient: assignments => `UPDATE clients SET ${assignments}
+         WHERE id = ? AND user_email = ?
+         RETURNING ${CLIENT_COLUMNS}`,
+
+  // Work entries go with the client through ON DELETE CASCADE
+  deleteClient: 'DELETE FROM clients WHERE id = ? AND user_email = ?',
+
+  deleteClients: 'DELETE FROM clients WHERE user_email = ?',
+
+  // Parameters are (centihours, description, date, client, user). Selecting
+  // from the user's client row makes ownership part of the insert: nothing is
+  // written for somebody else's client.
+  insertWorkEntry: `INSERT INTO work_entries (client_id, user_email, centihours, description, date)
+         SELECT id, user_email, ?, ?, ? FROM clients WHERE id = ? AND user_email = ?
+         RETURNING ${WORK_ENTRY_COLUMNS}`,
+
+  // Each element of the JSON parameter is [clientId, centihours, description, date].
+  // Parameters are (entries, user) twice. Like insertWorkEntry, each client
+  // is joined on ownership, and if any isn't the user's nothing is inserted.
+  // ORDER BY key inserts them in input order, so the new ids follow it; the
+  // sort is over the parameter, never a table.
+  insertWorkEntries: `INSERT INTO work_entries (client_id, user_email, centihours, description, date)
+         SELECT clients.id, clients.user_email, value ->> 1, value ->> 2, value ->> 3
+         FROM json_each(?) JOIN clients ON clients.id = value ->> 0 AND clients.user_email = ?
+         WHERE NOT EXISTS (
+           SELECT 1 FROM json_each(?) AS item
+           WHERE NOT EXISTS (SELECT 1 FROM clients WHERE id = item.value ->> 0 AND user_email = ?)
+         )
+         ORDER BY key
+         RETURNING id, client_id, centihours / 100.0 AS hours, description, date, created_at, updated_at`,
+
+  // Parameters are the SET values, then (id, user)
+  updateWorkEntry: assignments => `UPDATE work_entries SET ${assignments}
+         WHERE id = ? AND user_email = ?
+         RETURNING ${WORK_ENTRY_COLUMNS}`,
+
+  // Moving an entry to another client: parameters are the SET values, then
+  // (id, user, new client, user). Nothing changes unless both are the user's.
+  updateWorkEntryAndClient: assignments => `UPDATE work_entries SET ${assignments}
+         WHERE id = ? AND user_email = ?
+           AND EXISTS (SELECT 1 FROM clients WHERE id = ? AND user_email = ?)
+         RETURNING ${WORK_ENTRY_COLUMNS}`,
+
+  deleteWorkEntry: 'DELETE FROM work_entries WHERE id = ? AND user_email = ?',
+
+  // SET clause fragment every update ends with
+  setUpdatedAt: 'updated_at = CURRENT_TIMESTAMP',
+
+  // WHERE fragment for a bulk selection by id; the parameter is a JSON array
+  workEntryIdsIn: 'id IN (SELECT value FROM json_each(?))',
+
+  // WHERE fragment a bulk move adds so ownership of the target client is
+  // checked by the UPDATE itself; parameters are (client, user)
+  ownClientExists: 'EXISTS (SELECT 1 FROM clients WHERE id = ? AND user_email = ?)',
+
+  // Bulk changes over a user-scoped selection (see WorkEntriesRepository)
+  updateWorkEntries: (assignments, where) => `UPDATE work_entries SET ${assignments} WHERE ${where}`,
+
+  deleteWorkEntries: where => `DELETE FROM work_entries WHERE ${where}`
+};
+
+module.exports = writes;
@@ -1,7 +1,112 @@
-const { getDatabase } = require('../database/init');
+const { getRepositories } = require('../repositories');
+const { LRUCache } = require('../utils/lru');
+const { readIntEnv } = require('../utils/env');
+const { requestTokenSubject } = require('../utils/tokens');
+const { Singleflight } = require('../utils/singleflight');
+const { getLogger } = require('../utils/logger');
 
-// Simple email-based authentication middleware
+const logger = getLogger();
+
+const DEFAULT_AUTH_USER_CACHE_SIZE = 10000;
+
+// Emails known to have a users row, so repeat requests skip the lookup. The
+// cache belongs to one store and is dropped when that changes (e.g. a fresh
+// in-memory database after closeDatabase()).
+const knownUsers = new LRUCache(
+  readIntEnv('AUTH_USER_CACHE_SIZE', DEFAULT_AUTH_USER_CACHE_SIZE) || DEFAULT_AUTH_USER_CACHE_SIZE
+);
+let knownUsersSource = null;
+
+function knownUsersFor(users) {
+  const source = users.source();
+  if (knownUsersSource !== source) {
+    knownUsers.clear();
+    knownUsersSource = source;
+  }
+  return knownUsers;
+}
+
+// Record that a users row exists, e.g. after login created it
+function rememberUser(email) {
+  knownUsersFor(getRepositories().users).set(email, true);
+}
+
+// Must be called by anything that deletes users rows
+function forgetUser(email) {
+  knownUsers.delete(email);
+}
+
+function clearKnownUsers() {
+  knownUsers.clear();
+  knownUsersSource = null;
+}
+
+function getKnownUserCacheStats() {
+  return knownUsers.stats();
+}
+
+// A user's first page load fires several requests at once. Concurrent
+// creations of one email share a single insert, and the repository makes any
+// race with another path (or process) a no-op instead of a UNIQUE error.
+const userCreation = new Singleflight();
+
+// Resolves true if this call inserted the row, false if it already existed
+function createUser(email) {
+  const { users } = getRepositories();
+  const cache = knownUsersFor(users);
+  if (cache.peek(email)) {
+    return Promise.resolve(false);
+  }
+
+  return userCreation.do(email, async () => {
+    const created = await users.create(email);
+    cache.set(email, true);
+    return created;
+  });
+}
+
+// Legacy x-user-email identity is only accepted when explicitly enabled
+function emailHeaderAllowed() {
+  return process.env.AUTH_ALLOW_EMAIL_HEADER === 'true';
+}
+
+// Verifies a Bearer access token in-process (reusing the rate limiter's
+// check). A token can outlive its users row, e.g. across a restart of the
+// in-memory database, so the first sight of each subject in this process
+// upserts the row; after that identity needs no database work. Falls back to
+// the x-user-email header in compatibility mode.
 function authenticateUser(req, res, next) {
+  let subject;
+  try {
+    subject = requestTokenSubject(req);
+  } catch (err) {
+    return res.status(401).json({ error: 'Invalid or expired token' });
+  }
+
+  if (subject) {
+    if (knownUsersFor(getRepositories().users).get(subject)) {
+      req.userEmail = subject;
+      return next();
+    }
+
+    return createUser(subject).then(() => {
+      req.userEmail = subject;
+      next();
+    }, (err) => {
+      logger.error('Error creating user', err);
+      res.status(500).json({ error: 'Failed to create user' });
+    });
+  }
+
+  if (!emailHeaderAllowed()) {
+    return res.status(401).json({ error: 'Bearer token required' });
+  }
+
+  authenticateEmailHeader(req, res, next);
+}
+
+// Compatibility mode: trust x-user-email, creating the user on first sight
+function authenticateEmailHeader(req, res, next) {
   const userEmail = req.headers['x-user-email'];
   
   if (!userEmail) {
@@ -14,33 +119,40 @@ function authenticateUser(req, res, next) {
     return res.status(400).json({ error: 'Invalid email format' });
   }
 
-  const db = getDatabase();
+  const { users } = getRepositories();
+  const cache = knownUsersFor(users);
+
+  if (cache.get(userEmail)) {
+    req.userEmail = userEmail;
+    return next();
+  }
   
   // Check if user exists, create if not
-  db.get('SELECT email FROM users WHERE email = ?', [userEmail], (err, row) => {
-    if (err) {
-      console.error('Database error:', err);
-      return res.status(500).json({ error: 'Internal server error' });
+  users.find(userEmail).then((user) => {
+    if (user) {
+      cache.set(userEmail, true);
+      req.userEmail = userEmail;
+      return next();
     }
-    
-    if (!row) {
-      // Create new user
-      db.run('INSERT INTO users (email) VALUES (?)', [userEmail], (err) => {
-        if (err) {
-          console.error('Error creating user:', err);
-          return res.status(500).json({ error: 'Failed to create user' });
-        }
-        
-        req.userEmail = userEmail;
-        next();
-      });
-    } else {
+
+    createUser(userEmail).then(() => {
       req.userEmail = userEmail;
       next();
-    }
+    }, (err) => {
+      logger.error('Error creating user', err);
+      res.status(500).json({ error: 'Failed to create user' });
+    });
+  }, (err) => {
+    logger.error('Database error', err);
+    res.status(500).json({ error: 'Internal server error' });
   });
 }
 
 module.exports = {
-  authenticateUser
+  authenticateUser,
+  createUser,
+  rememberUser,
+  forgetUser,
+  clearKnownUsers,
+  getKnownUserCacheStats
 };
@@ -1,6 +1,8 @@
-function errorHandler(err, req, res, next) {
-  console.error('Error:', err);
+const { getLogger } = require('../utils/logger');
+
+const logger = getLogger();
 
+function errorHandler(err, req, res, next) {
   // Joi validation errors
   if (err.isJoi) {
     return res.status(400).json({
@@ -11,14 +13,19 @@ function errorHandler(err, req, res, next) {
 
   // SQLite errors
   if (err.code && err.code.startsWith('SQLITE_')) {
+    logger.error('Database error', err, { method: req.method, url: req.originalUrl });
     return res.status(500).json({
       error: 'Database error',
       message: 'An error occurred while processing your request'
     });
   }
 
-  // Default error
-  res.status(err.status || 500).json({
+  // Default error; client errors already show up in the access log
+  const status = err.status || 500;
+  if (status >= 500) {
+    logger.error('Request failed', err, { method: req.method, url: req.originalUrl });
+  }
+  res.status(status).json({
     error: err.message || 'Internal server error'
   });
 }
@@ -0,0 +1,155 @@
+const { readIntEnv } = require('../utils/env');
+const { getEventLoopDelaySampler } = require('../utils/eventLoopDelay');
+
+const DEFAULT_TARGET_LAG_MS = 100;
+const DEFAULT_MIN_CONCURRENCY = 8;
+const DEFAULT_MAX_CONCURRENCY = 256;
+const DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+// Share of the concurrency limit each priority may fill. Exports are shed
+// first, report reads next, timesheet CRUD and auth last.
+const PRIORITY_SHARES = {
+  low: 0.5,
+  normal: 0.75,
+  high: 1
+};
+
+function loadSheddingOptionsFromEnv() {
+  const minConcurrency = readIntEnv('LOAD_SHED_MIN_CONCURRENCY', DEFAULT_MIN_CONCURRENCY) || DEFAULT_MIN_CONCURRENCY;
+  return {
+    // 0 disables shedding
+    targetLagMs: readIntEnv('LOAD_SHED_TARGET_LAG_MS', DEFAULT_TARGET_LAG_MS),
+    minConcurrency,
+    maxConcurrency: Math.max(minConcurrency, readIntEnv('LOAD_SHED_MAX_CONCURRENCY', DEFAULT_MAX_CONCURRENCY)),
+    retryAfterSeconds: readIntEnv('LOAD_SHED_RETRY_AFTER_SECONDS', DEFAULT_RETRY_AFTER_SECONDS) || DEFAULT_RETRY_AFTER_SECONDS
+  };
+}
+
+function requestPriority(req) {
+  const path = req.originalUrl.split('?')[0];
+  if (path.startsWith('/api/reports/export/')) {
+    return 'low';
+  }
+  if (path.startsWith('/api/reports/')) {
+    return 'normal';
+  }
+  return 'high';
+}
+
+// Admission control driven by event-loop delay. Each interval of the shared
+// sampler (utils/eventLoopDelay.js) the p99 delay is compared with the
+// target: over it, the in-flight limit is cut multiplicatively; under it, the
+// limit grows by one (AIMD). While the loop is lagging, low-priority requests
+// are rejected outright.
+class LoadShedder {
+  constructor(options, sampler = null) {
+    this.targetLagMs = options.targetLagMs;
+    this.minConcurrency = options.minConcurrency;
+    this.maxConcurrency = options.maxConcurrency;
+    this.retryAfterSeconds = options.retryAfterSeconds;
+
+    this.limit = options.maxConcurrency;
+    this.inFlight = 0;
+    this.lagMs = 0;
+    this.overloaded = false;
+    this.shed = { low: 0, normal: 0, high: 0 };
+    this.sampler = sampler;
+    this.unsubscribe = null;
+  }
+
+  get enabled() {
+    return this.targetLagMs > 0;
+  }
+
+  start() {
+    if (!this.enabled || this.unsubscribe) {
+      return this;
+    }
+
+    const sampler = this.sampler || getEventLoopDelaySampler();
+    this.unsubscribe = sampler.onSample(sample => this.recordLag(sample.p99));
+    return this;
+  }
+
+  stop() {
+    if (this.unsubscribe) {
+      this.unsubscribe();
+      this.unsubscribe = null;
+    }
+  }
+
+  recordLag(lagMs) {
+    this.lagMs = lagMs;
+    this.overloaded = lagMs > this.targetLagMs;
+    this.limit = this.overloaded
+      ? Math.max(this.minConcurrency, Math.floor(this.limit * 0.75))
+      : Math.min(this.maxConcurrency, this.limit + 1);
+  }
+
+  admits(priority) {
+    if (!this.enabled) {
+      return true;
+    }
+    if (this.overloaded && priority === 'low') {
+      return false;
+    }
+    return this.inFlight < Math.max(1, Math.floor(this.limit * PRIORITY_SHARES[priority]));
+  }
+
+  handle(req, res, next) {
+    const priority = requestPriority(req);
+
+    if (!this.admits(priority)) {
+      this.shed[priority]++;
+      res.set('Retry-After', String(this.retryAfterSeconds));
+      return res.status(503).json({ error: 'Server is busy, please retry shortly' });
+    }
+
+    this.inFlight++;
+    let released = false;
+    const release = () => {
+      if (!released) {
+        released = true;
+        this.inFlight--;
+      }
+    };
+    res.on('finish', release);
+    res.on('close', release);
+    next();
+  }
+
+  stats() {
+    return {
+      lagMs: this.lagMs,
+      limit: this.limit,
+      inFlight: this.inFlight,
+      overloaded: this.overloaded,
+      shed: { ...this.shed }
+    };
+  }
+}
+
+let shedder = null;
+
+function getLoadShedder() {
+  if (!shedder) {
+    shedder = new LoadShedder(loadSheddingOptionsFromEnv()).start();
+  }
+  return shedder;
+}
+
+function loadShedding(req, res, next) {
+  getLoadShedder().handle(req, res, next);
+}
+
+function getLoadSheddingStats() {
+  return shedder ? shedder.stats() : null;
+}
+
+module.exports = {
+  LoadShedder,
+  loadShedding,
+  getLoadSheddingStats,
+  loadSheddingOptionsFromEnv,
+  requestPriority
+};
@@ -0,0 +1,158 @@
+const crypto = require('crypto');
+const { performance } = require('perf_hooks');
+const { registry } = require('../utils/metrics');
+const { getStatementCacheStats } = require('../database/init');
+const { getKnownUserCacheStats } = require('./auth');
+const { getLoadSheddingStats } = require('./loadShedding');
+const { getRateLimitStats } = require('./rateLimit');
+const { pdfRendererStats } = require('../workers/pdfRenderer');
+const { getLoggerStats } = require('../utils/logger');
+const { getEventLoopDelaySampler } = require('../utils/eventLoopDelay');
+
+const httpDuration = registry.histogram(
+  'http_request_duration_seconds',
+  'HTTP request time until the response finished, by route template',
+  ['method', 'route', 'status']
+);
+
+// Route template such as /api/work-entries/:id, so ids don't become labels
+function routeLabel(req) {
+  return req.route ? req.baseUrl + req.route.path : 'unmatched';
+}
+
+function recordRequestMetrics(req, res, next) {
+  const start = performance.now();
+  res.once('finish', () => {
+    httpDuration.labels(req.method, routeLabel(req), res.statusCode).observe((performance.now() - start) / 1000);
+  });
+  next();
+}
+
+// Read from the sampler load shedding uses; a scrape only reads its window,
+// so several scrapers (or none) don't change what each one sees
+const eventLoopDelay = getEventLoopDelaySampler();
+
+registry.gauge('nodejs_eventloop_delay_seconds', 'Event-loop delay of the worst sampling interval in the window', ['quantile'], () => {
+  const window = eventLoopDelay.window();
+  if (!window) {
+    return null;
+  }
+  return [
+    [['0.5'], window.p50 / 1000],
+    [['0.99'], window.p99 / 1000],
+    [['max'], window.max / 1000]
+  ];
+});
+
+registry.gauge('nodejs_memory_bytes', 'Process memory usage', ['type'], () => {
+  const usage = process.memoryUsage();
+  return [
+    [['rss'], usage.rss],
+    [['heap_total'], usage.heapTotal],
+    [['heap_used'], usage.heapUsed],
+    [['external'], usage.external]
+  ];
+});
+
+// Caches: prepared statements per connection and known users in auth
+function cacheStats() {
+  const caches = [['known_users', getKnownUserCacheStats()]];
+  const statements = getStatementCacheStats();
+  if (statements) {
+    caches.push(['statements', statements]);
+  }
+  return caches;
+}
+
+registry.collectedCounter('cache_hits_total', 'Cache lookups that hit', ['cache'],
+  () => cacheStats().map(([cache, stats]) => [[cache], stats.hits]));
+registry.collectedCounter('cache_misses_total', 'Cache lookups that missed', ['cache'],
+  () => cacheStats().map(([cache, stats]) => [[cache], stats.misses]));
+registry.gauge('cache_hit_ratio', 'Share of cache lookups that hit', ['cache'],
+  () => cacheStats().map(([cache, stats]) => [[cache], stats.hitRate]));
+registry.gauge('cache_entries', 'Entries currently cached', ['cache'],
+  () => cacheStats().map(([cache, stats]) => [[cache], stats.size]));
+
+registry.gauge('pdf_export_workers_busy', 'PDF worker threads rendering an export', [], () => {
+  const stats = pdfRendererStats();
+  return stats ? stats.busy : null;
+});
+registry.gauge('pdf_export_queue_depth', 'PDF exports waiting for a worker thread', [], () => {
+  const stats = pdfRendererStats();
+  return stats ? stats.queued : null;
+});
+
+registry.gauge('load_shed_in_flight', 'API requests currently admitted', [], () => {
+  const stats = getLoadSheddingStats();
+  return stats ? stats.inFlight : null;
+});
+registry.gauge('load_shed_limit', 'Current adaptive in-flight request limit', [], () => {
+  const stats = getLoadSheddingStats();
+  return stats ? stats.limit : null;
+});
+registry.collectedCounter('load_shed_rejected_total', 'API requests rejected with 503 by priority', ['priority'], () => {
+  const stats = getLoadSheddingStats();
+  return stats ? Object.entries(stats.shed).map(([priority, count]) => [[priority], count]) : null;
+});
+
+registry.collectedCounter('rate_limit_requests_total', 'Rate-limited route requests by class and outcome', ['class', 'result'], () => {
+  const stats = getRateLimitStats();
+  if (!stats) {
+    return null;
+  }
+  const samples = [];
+  for (const [routeClass, counts] of Object.entries(stats)) {
+    samples.push([[routeClass, 'allowed'], counts.allowed], [[routeClass, 'limited'], counts.limited]);
+  }
+  return samples;
+});
+
+registry.collectedCounter('log_records_dropped_total', 'Log records overwritten before they could be flushed', [], () => {
+  const stats = getLoggerStats();
+  return stats ? stats.dropped : null;
+});
+registry.collectedCounter('log_errors_suppressed_total', 'Repeated error records folded into a summary', [], () => {
+  const stats = getLoggerStats();
+  return stats ? stats.suppressed : null;
+});
+
+const LOOPBACK_ADDRESSES = new Set(['127.0.0.1', '::1', '::ffff:127.0.0.1']);
+
+function digest(value) {
+  return crypto.createHash('sha256').update(value).digest();
+}
+
+// The scrape reveals routes, cache sizes and load, and /metrics is neither
+// rate limited nor shed, so it is gated: with METRICS_TOKEN set the scraper
+// must send it as a Bearer token; without one only loopback peers may scrape.
+// The socket address is used rather than req.ip, which a proxy header can set.
+function metricsAccessError(req) {
+  const token = process.env.METRICS_TOKEN;
+  if (!token) {
+    return LOOPBACK_ADDRESSES.has(req.socket && req.socket.remoteAddress)
+      ? null
+      : [403, 'Metrics are only served to localhost unless METRICS_TOKEN is set'];
+  }
+
+  const header = req.headers.authorization || '';
+  const presented = header.startsWith('Bearer ') ? header.slice(7) : '';
+  // Compare digests so the check takes the same time for any token length
+  return crypto.timingSafeEqual(digest(presented), digest(token))
+    ? null
+    : [401, 'Metrics token required'];
+}
+
+function metricsHandler(req, res) {
+  const denied = metricsAccessError(req);
+  if (denied) {
+    return res.status(denied[0]).json({ error: denied[1] });
+  }
+
+  res.set('Content-Type', 'text/plain; version=0.0.4; charset=utf-8');
+  res.send(registry.render());
+}
+
+module.exports = {
+  recordRequestMetrics,
+  metricsHandler
+};
@@ -0,0 +1,153 @@
+const fs = require('fs');
+const path = require('path');
+const sqlite3 = require('sqlite3').verbose();
+const { readIntEnv } = require('../utils/env');
+const { requestTokenSubject } = require('../utils/tokens');
+const { MemoryBucketStore, SqliteBucketStore } = require('../utils/tokenBuckets');
+const { getLogger } = require('../utils/logger');
+
+const logger = getLogger();
+
+// Default budget per identity: burst size and sustained requests per minute.
+// Static assets and health probes are never limited.
+const DEFAULT_LIMITS = {
+  read: { burst: 300, perMinute: 300 },
+  write: { burst: 60, perMinute: 60 },
+  export: { burst: 5, perMinute: 6 }
+};
+
+const RATE_LIMIT_BUSY_TIMEOUT_MS = 1000;
+
+function rateLimitOptionsFromEnv() {
+  const limits = {};
+  for (const [routeClass, defaults] of Object.entries(DEFAULT_LIMITS)) {
+    const prefix = `RATE_LIMIT_${routeClass.toUpperCase()}`;
+    limits[routeClass] = {
+      burst: readIntEnv(`${prefix}_BURST`, defaults.burst) || 1,
+      // 0 disables limiting for the class
+      perMinute: readIntEnv(`${prefix}_PER_MINUTE`, defaults.perMinute)
+    };
+  }
+
+  return {
+    limits,
+    store: process.env.RATE_LIMIT_STORE === 'sqlite' ? 'sqlite' : 'memory',
+    dbPath: process.env.RATE_LIMIT_DB_PATH ||
+      path.join(path.dirname(process.env.DATABASE_PATH || './data/timesheet.db'), 'ratelimit.db')
+  };
+}
+
+function routeClass(req) {
+  const urlPath = req.originalUrl.split('?')[0];
+  if (urlPath === '/health') {
+    return 'health';
+  }
+  if (!urlPath.startsWith('/api/')) {
+    return 'static';
+  }
+  if (urlPath.startsWith('/api/reports/export/')) {
+    return 'export';
+  }
+  return req.method === 'GET' || req.method === 'HEAD' ? 'read' : 'write';
+}
+
+// Budgets follow a verified token's user across IPs. Anything else,
+// including the unsigned x-user-email header of compatibility mode (a client
+// could pick a new email for every request), falls back to the client address.
+function rateLimitKey(req) {
+  try {
+    const subject = requestTokenSubject(req);
+    if (subject) {
+      return `user:${subject}`;
+    }
+  } catch (err) {
+    // Invalid tokens are rejected later by authenticateUser
+  }
+  return `ip:${req.ip}`;
+}
+
+function createBucketStore(options) {
+  if (options.store !== 'sqlite') {
+    return new MemoryBucketStore();
+  }
+  fs.mkdirSync(path.dirname(options.dbPath), { recursive: true });
+  const db = new sqlite3.Database(options.dbPath);
+  db.configure('busyTimeout', RATE_LIMIT_BUSY_TIMEOUT_MS);
+  return new SqliteBucketStore(db);
+}
+
+class RateLimiter {
+  constructor(options, store, now = Date.now) {
+    this.limits = options.limits;
+    this.store = store;
+    this.now = now;
+    this.counts = {};
+    for (const routeClass of Object.keys(this.limits)) {
+      this.counts[routeClass] = { allowed: 0, limited: 0 };
+    }
+  }
+
+  handle(req, res, next) {
+    const requestClass = routeClass(req);
+    const limit = this.limits[requestClass];
+    if (!limit || limit.perMinute === 0) {
+      return next();
+    }
+
+    const ratePerMs = limit.perMinute / 60000;
+    const key = `${requestClass}:${rateLimitKey(req)}`;
+
+    this.store.take(key, limit.burst, ratePerMs, this.now()).then(({ allowed, tokens }) => {
+      res.set('RateLimit-Limit', String(limit.burst));
+      res.set('RateLimit-Remaining', String(Math.floor(tokens)));
+
+      if (!allowed) {
+        this.counts[requestClass].limited++;
+        res.set('Retry-After', String(Math.ceil((1 - tokens) / ratePerMs / 1000)));
+        return res.status(429).json({ error: 'Too many requests, please try again later' });
+      }
+
+      this.counts[requestClass].allowed++;
+      next();
+    }, (err) => {
+      // A broken limiter store shouldn't take the API down with it
+      logger.error('Rate limit store error', err);
+      next();
+    });
+  }
+
+  stats() {
+    const stats = {};
+    for (const [routeClass, counts] of Object.entries(this.counts)) {
+      stats[routeClass] = { ...counts };
+    }
+    return stats;
+  }
+}
+
+let limiter = null;
+
+function getRateLimiter() {
+  if (!limiter) {
+    const options = rateLimitOptionsFromEnv();
+    limiter = new RateLimiter(options, createBucketStore(options));
+  }
+  return limiter;
+}
+
+function rateLimit(req, res, next) {
+  getRateLimiter().handle(req, res, next);
+}
+
+function getRateLimitStats() {
+  return limiter ? limiter.stats() : null;
+}
+
+module.exports = {
+  RateLimiter,
+  rateLimit,
+  getRateLimitStats,
+  rateLimitOptionsFromEnv,
+  routeClass,
+  rateLimitKey
+};
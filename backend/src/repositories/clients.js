@@ -0,0 +1,83 @@
+// Every method is scoped to the owning user
+class ClientsRepository {
+  constructor(backend) {
+    this.backend = backend;
+    this.queries = backend.queries;
+    this.writes = backend.writes;
+  }
+
+  list(userEmail) {
+    return this.backend.all(this.queries.listClients, [userEmail]);
+  }
+
+  find(userEmail, id) {
+    return this.backend.get(this.queries.getClient, [id, userEmail]);
+  }
+
+  async exists(userEmail, id) {
+    return Boolean(await this.backend.get(this.queries.findOwnClient, [id, userEmail]));
+  }
+
+  // { id, name } of those ids the user owns
+  findMany(userEmail, ids) {
+    return this.backend.all(this.queries.findOwnClients, [JSON.stringify(ids), userEmail]);
+  }
+
+  async create(userEmail, { name, description, department, email }) {
+    const rows = await this.backend.writeAll(
+      this.writes.insertClient,
+      [name, description || null, department || null, email || null, userEmail]
+    );
+    return rows[0];
+  }
+
+  // The updated client, or undefined if the user has no such client.
+  // Columns are appended in a fixed order so each combination of fields
+  // maps to one cached statement.
+  async update(userEmail, id, fields) {
+    const updates = [];
+    const values = [];
+
+    if (fields.name !== undefined) {
+      updates.push('name = ?');
+      values.push(fields.name);
+    }
+
+    if (fields.description !== undefined) {
+      updates.push('description = ?');
+      values.push(fields.description || null);
+    }
+
+    if (fields.department !== undefined) {
+      updates.push('department = ?');
+      values.push(fields.department || null);
+    }
+
+    if (fields.email !== undefined) {
+      updates.push('email = ?');
+      values.push(fields.email || null);
+    }
+
+    updates.push(this.writes.setUpdatedAt);
+    values.push(id, userEmail);
+
+    const rows = await this.backend.writeAll(this.writes.updateClient(updates.join(', ')), values);
+    return rows[0];
+  }
+
+  // Resolves false if the user has no such client
+  async remove(userEmail, id) {
+    const { changes } = await this.backend.run(this.writes.deleteClient, [id, userEmail]);
+    return changes > 0;
+  }
+
+  // Resolves the number of clients deleted
+  async removeAll(userEmail) {
+    const { changes } = await this.backend.run(this.writes.deleteClients, [userEmail]);
+    return changes;
+  }
+}
+
+module.exports = {
+  ClientsRepository
+};
@@ -0,0 +1,75 @@
+const { SqliteBackend } = require('./sqliteBackend');
+const { PostgresBackend } = require('./postgresBackend');
+const { UsersRepository } = require('./users');
+const { ClientsRepository } = require('./clients');
+const { WorkEntriesRepository } = require('./workEntries');
+const { ReportsRepository } = require('./reports');
+const { createMemoryRepositories } = require('./memory');
+
+// Data access for the route handlers. Every repository method returns a
+// promise and the SQL comes from its backend's statement catalogues
+// (database/queries.js and database/writes.js, with the PostgreSQL variants
+// in database/postgresStatements.js).
+//
+// REPOSITORY_BACKEND picks the implementation:
+//   sqlite (default)  SQL over the storage profile from database/init.js;
+//                     DB_EXECUTOR=worker moves reads onto worker threads
+//   postgres          SQL over a pg pool (DATABASE_URL), shareable by any
+//                     number of API processes
+//   memory            in-process fake with no SQLite at all
+function createRepositories(backend) {
+  return {
+    users: new UsersRepository(backend),
+    clients: new ClientsRepository(backend),
+    workEntries: new WorkEntriesRepository(backend),
+    reports: new ReportsRepository(backend)
+  };
+}
+
+const BACKENDS = ['sqlite', 'postgres', 'memory'];
+
+function repositoryBackendFromEnv() {
+  const backend = process.env.REPOSITORY_BACKEND;
+  return BACKENDS.includes(backend) ? backend : 'sqlite';
+}
+
+let repositories = null;
+let repositoriesBackend = null;
+let storage = null;
+
+function getRepositories() {
+  const backend = repositoryBackendFromEnv();
+  if (!repositories || repositoriesBackend !== backend) {
+    if (backend === 'memory') {
+      storage = null;
+      repositories = createMemoryRepositories();
+    } else {
+      storage = backend === 'postgres' ? new PostgresBackend() : new SqliteBackend();
+      repositories = createRepositories(storage);
+    }
+    repositoriesBackend = backend;
+  }
+  return repositories;
+}
+
+// Creates or migrates the configured store's schema; run before serving
+async function initializeStorage() {
+  getRepositories();
+  if (storage) {
+    await storage.initialize();
+  }
+}
+
+async function closeStorage() {
+  if (storage) {
+    await storage.close();
+  }
+}
+
+module.exports = {
+  createRepositories,
+  getRepositories,
+  initializeStorage,
+  closeStorage,
+  repositoryBackendFromEnv
+};
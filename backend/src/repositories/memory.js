@@ -0,0 +1,368 @@
+const { toCentihours } = require('../utils/hours');
+const { FIRST_DATE, LAST_DATE } = require('../utils/cursor');
+
+// In-memory fake of the four repositories, for tests and local runs without
+// SQLite (REPOSITORY_BACKEND=memory). Same methods, result shapes, ordering
+// and ownership rules as the SQL repositories; the contract tests in
+// __tests__/repositories run against both. Rows are copied on the way in and
+// out so callers can't reach into the store.
+
+// SQLite's CURRENT_TIMESTAMP format
+function timestamp() {
+  return new Date().toISOString().slice(0, 19).replace('T', ' ');
+}
+
+// Newest first by (date, created_at, id), like the composite indexes
+function compareNewestFirst(a, b) {
+  if (a.date !== b.date) {
+    return a.date < b.date ? 1 : -1;
+  }
+  if (a.created_at !== b.created_at) {
+    return a.created_at < b.created_at ? 1 : -1;
+  }
+  return b.id - a.id;
+}
+
+function before(entry, [date, createdAt, id]) {
+  if (entry.date !== date) {
+    return entry.date < date;
+  }
+  if (entry.created_at !== createdAt) {
+    return entry.created_at < createdAt;
+  }
+  return entry.id < id;
+}
+
+class MemoryStore {
+  constructor() {
+    this.users = new Map();
+    this.clients = new Map();
+    this.entries = new Map();
+    this.nextClientId = 1;
+    this.nextEntryId = 1;
+  }
+
+  ownClient(userEmail, id) {
+    const client = this.clients.get(id);
+    return client && client.user_email === userEmail ? client : undefined;
+  }
+
+  ownEntry(userEmail, id) {
+    const entry = this.entries.get(id);
+    return entry && entry.user_email === userEmail ? entry : undefined;
+  }
+
+  entriesOf(userEmail) {
+    return [...this.entries.values()].filter(entry => entry.user_email === userEmail);
+  }
+}
+
+function clientRow(client) {
+  const { id, name, description, department, email, created_at, updated_at } = client;
+  return { id, name, description, department, email, created_at, updated_at };
+}
+
+class MemoryUsersRepository {
+  constructor(store) {
+    this.store = store;
+  }
+
+  async find(email) {
+    const user = this.store.users.get(email);
+    return user ? { ...user } : undefined;
+  }
+
+  async create(email) {
+    if (this.store.users.has(email)) {
+      return false;
+    }
+    this.store.users.set(email, { email, created_at: timestamp() });
+    return true;
+  }
+
+  source() {
+    return this.store;
+  }
+}
+
+class MemoryClientsRepository {
+  constructor(store) {
+    this.store = store;
+  }
+
+  async list(userEmail) {
+    return [...this.store.clients.values()]
+      .filter(client => client.user_email === userEmail)
+      .sort((a, b) => (a.name < b.name ? -1 : a.name > b.name ? 1 : a.id - b.id))
+      .map(clientRow);
+  }
+
+  async find(userEmail, id) {
+    const client = this.store.ownClient(userEmail, id);
+    return client ? clientRow(client) : undefined;
+  }
+
+  async exists(userEmail, id) {
+    return Boolean(this.store.ownClient(userEmail, id));
+  }
+
+  async findMany(userEmail, ids) {
+    return [...new Set(ids)]
+      .map(id => this.store.ownClient(userEmail, id))
+      .filter(Boolean)
+      .map(({ id, name }) => ({ id, name }));
+  }
+
+  async create(userEmail, { name, description, department, email }) {
+    const now = timestamp();
+    const client = {
+      id: this.store.nextClientId++,
+      name,
+      description: description || null,
+      department: department || null,
+      email: email || null,
+      user_email: userEmail,
+      created_at: now,
+      updated_at: now
+    };
+    this.store.clients.set(client.id, client);
+    return clientRow(client);
+  }
+
+  async update(userEmail, id, fields) {
+    const client = this.store.ownClient(userEmail, id);
+    if (!client) {
+      return undefined;
+    }
+
+    if (fields.name !== undefined) {
+      client.name = fields.name;
+    }
+    for (const column of ['description', 'department', 'email']) {
+      if (fields[column] !== undefined) {
+        client[column] = fields[column] || null;
+      }
+    }
+    client.updated_at = timestamp();
+    return clientRow(client);
+  }
+
+  // Work entries go with the client, as with ON DELETE CASCADE
+  async remove(userEmail, id) {
+    if (!this.store.ownClient(userEmail, id)) {
+      return false;
+    }
+    this.store.clients.delete(id);
+    for (const entry of this.store.entries.values()) {
+      if (entry.client_id === id) {
+        this.store.entries.delete(entry.id);
+      }
+    }
+    return true;
+  }
+
+  async removeAll(userEmail) {
+    const ids = [...this.store.clients.values()]
+      .filter(client => client.user_email === userEmail)
+      .map(client => client.id);
+    for (const id of ids) {
+      await this.remove(userEmail, id);
+    }
+    return ids.length;
+  }
+}
+
+class MemoryWorkEntriesRepository {
+  constructor(store) {
+    this.store = store;
+  }
+
+  row(entry) {
+    const { id, client_id, centihours, description, date, created_at, updated_at } = entry;
+    const client = this.store.clients.get(client_id);
+    return {
+      id,
+      client_id,
+      hours: centihours / 100,
+      description,
+      date,
+      created_at,
+      updated_at,
+      client_name: client ? client.name : null
+    };
+  }
+
+  insert(userEmail, { clientId, hours, description, date }) {
+    const now = timestamp();
+    const entry = {
+      id: this.store.nextEntryId++,
+      client_id: clientId,
+      user_email: userEmail,
+      centihours: toCentihours(hours),
+      description: description || null,
+      date,
+      created_at: now,
+      updated_at: now
+    };
+    this.store.entries.set(entry.id, entry);
+    return entry;
+  }
+
+  select(userEmail, selection) {
+    if (selection.ids) {
+      return [...new Set(selection.ids)].map(id => this.store.ownEntry(userEmail, id)).filter(Boolean);
+    }
+    const { clientId, from = FIRST_DATE, to = LAST_DATE } = selection.filter;
+    return this.store.entriesOf(userEmail).filter(entry =>
+      (clientId === undefined || entry.client_id === clientId) && entry.date >= from && entry.date <= to
+    );
+  }
+
+  apply(entry, fields) {
+    if (fields.clientId !== undefined) {
+      entry.client_id = fields.clientId;
+    }
+    if (fields.hours !== undefined) {
+      entry.centihours = toCentihours(fields.hours);
+    }
+    if (fields.description !== undefined) {
+      entry.description = fields.description || null;
+    }
+    if (fields.date !== undefined) {
+      entry.date = fields.date;
+    }
+    entry.updated_at = timestamp();
+  }
+
+  async listPage(userEmail, { clientId, from, position, limit }) {
+    return this.store.entriesOf(userEmail)
+      .filter(entry => (!clientId || entry.client_id === clientId) && entry.date >= from && before(entry, position))
+      .sort(compareNewestFirst)
+      .slice(0, limit)
+      .map(entry => this.row(entry));
+  }
+
+  async find(userEmail, id) {
+    const entry = this.store.ownEntry(userEmail, id);
+    return entry ? this.row(entry) : undefined;
+  }
+
+  async exists(userEmail, id) {
+    return Boolean(this.store.ownEntry(userEmail, id));
+  }
+
+  async create(userEmail, fields) {
+    if (!this.store.ownClient(userEmail, fields.clientId)) {
+      return undefined;
+    }
+    return this.row(this.insert(userEmail, fields));
+  }
+
+  async createMany(userEmail, entries) {
+    if (!entries.every(fields => this.store.ownClient(userEmail, fields.clientId))) {
+      return undefined;
+    }
+    return entries.map((fields) => {
+      const { id, client_id, hours, description, date, created_at, updated_at } = this.row(this.insert(userEmail, fields));
+      return { id, client_id, hours, description, date, created_at, updated_at };
+    });
+  }
+
+  async update(userEmail, id, fields) {
+    const entry = this.store.ownEntry(userEmail, id);
+    if (!entry || (fields.clientId !== undefined && !this.store.ownClient(userEmail, fields.clientId))) {
+      return undefined;
+    }
+    this.apply(entry, fields);
+    return this.row(entry);
+  }
+
+  async updateMany(userEmail, selection, fields) {
+    if (fields.clientId !== undefined && !this.store.ownClient(userEmail, fields.clientId)) {
+      return 0;
+    }
+    const entries = this.select(userEmail, selection);
+    entries.forEach(entry => this.apply(entry, fields));
+    return entries.length;
+  }
+
+  async remove(userEmail, id) {
+    if (!this.store.ownEntry(userEmail, id)) {
+      return false;
+    }
+    this.store.entries.delete(id);
+    return true;
+  }
+
+  async removeMany(userEmail, selection) {
+    const entries = this.select(userEmail, selection);
+    entries.forEach(entry => this.store.entries.delete(entry.id));
+    return entries.length;
+  }
+}
+
+class MemoryReportsRepository {
+  constructor(store) {
+    this.store = store;
+  }
+
+  entriesFor(userEmail, clientId) {
+    return this.store.entriesOf(userEmail)
+      .filter(entry => entry.client_id === clientId)
+      .sort(compareNewestFirst);
+  }
+
+  totals(entries) {
+    return {
+      totalHours: entries.reduce((sum, entry) => sum + entry.centihours, 0) / 100,
+      entryCount: entries.length
+    };
+  }
+
+  async findClient(userEmail, clientId) {
+    const client = this.store.ownClient(userEmail, clientId);
+    return client ? { id: client.id, name: client.name } : undefined;
+  }
+
+  async clientTotals(userEmail, clientId) {
+    return this.totals(this.store.entriesOf(userEmail).filter(entry => entry.client_id === clientId));
+  }
+
+  async dashboardTotals(userEmail) {
+    const clientCount = [...this.store.clients.values()].filter(client => client.user_email === userEmail).length;
+    return { clientCount, ...this.totals(this.store.entriesOf(userEmail)) };
+  }
+
+  async listEntries(userEmail, clientId, page) {
+    let entries = this.entriesFor(userEmail, clientId);
+    if (page) {
+      entries = entries.slice(page.offset, page.offset + page.limit);
+    }
+    return entries.map(({ id, centihours, description, date, created_at, updated_at }) => (
+      { id, hours: centihours / 100, description, date, created_at, updated_at }
+    ));
+  }
+
+  async listExportBatch(userEmail, clientId, after, limit) {
+    return this.entriesFor(userEmail, clientId)
+      .filter(entry => !after || before(entry, [after.date, after.created_at, after.id]))
+      .slice(0, limit)
+      .map(({ id, centihours, description, date, created_at }) => (
+        { id, hours: centihours / 100, description, date, created_at }
+      ));
+  }
+}
+
+function createMemoryRepositories(store = new MemoryStore()) {
+  return {
+    users: new MemoryUsersRepository(store),
+    clients: new MemoryClientsRepository(store),
+    workEntries: new MemoryWorkEntriesRepository(store),
+    reports: new MemoryReportsRepository(store)
+  };
+}
+
+module.exports = {
+  MemoryStore,
+  createMemoryRepositories
+};
@@ -0,0 +1,82 @@
+const statements = require('../database/postgresStatements');
+const { createPostgresPool, postgresOptionsFromEnv, toPostgresPlaceholders, statementName } = require('../database/postgres');
+const { runPostgresMigrations } = require('../database/postgresMigrations');
+
+// The repositories' get/all/run/writeAll surface over a pg connection pool,
+// so several stateless API processes or hosts can share one database.
+// Every statement is sent as a named, server-side prepared statement: each
+// pooled connection parses and plans it once and then only binds parameters.
+class PostgresBackend {
+  constructor(options = postgresOptionsFromEnv(), createPool = createPostgresPool) {
+    this.options = options;
+    this.createPool = createPool;
+    this.pool = null;
+    this.queries = statements.queries;
+    this.writes = statements.writes;
+
+    // Translated text and statement name by repository SQL. The dynamic
+    // UPDATEs only make a few dozen distinct statements, and pg keeps every
+    // statement a connection has prepared anyway, so this isn't bounded.
+    this.prepared = new Map();
+  }
+
+  // The pool is opened on first use, so selecting the backend costs nothing
+  // until a request needs it
+  connection() {
+    if (!this.pool) {
+      this.pool = this.createPool(this.options);
+    }
+    return this.pool;
+  }
+
+  statement(sql, params) {
+    let prepared = this.prepared.get(sql);
+    if (!prepared) {
+      const text = toPostgresPlaceholders(sql);
+      prepared = { name: statementName(text), text };
+      this.prepared.set(sql, prepared);
+    }
+    return { ...prepared, values: params };
+  }
+
+  async get(sql, params) {
+    const result = await this.connection().query(this.statement(sql, params));
+    return result.rows[0];
+  }
+
+  async all(sql, params) {
+    const result = await this.connection().query(this.statement(sql, params));
+    return result.rows;
+  }
+
+  // Postgres has no last insert id; writes that need the row use RETURNING
+  async run(sql, params) {
+    const result = await this.connection().query(this.statement(sql, params));
+    return { changes: result.rowCount, lastID: undefined };
+  }
+
+  // There is no separate writer connection; any pooled connection can write
+  writeAll(sql, params) {
+    return this.all(sql, params);
+  }
+
+  source() {
+    return this.connection();
+  }
+
+  initialize() {
+    return runPostgresMigrations(this.connection());
+  }
+
+  async close() {
+    if (this.pool) {
+      const pool = this.pool;
+      this.pool = null;
+      await pool.end();
+    }
+  }
+}
+
+module.exports = {
+  PostgresBackend
+};
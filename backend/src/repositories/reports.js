@@ -0,0 +1,46 @@
+// Read-only aggregates and entry listings for reports, exports and the
+// dashboard. Totals come from the daily rollup, not from summing entries.
+class ReportsRepository {
+  constructor(backend) {
+    this.backend = backend;
+    this.queries = backend.queries;
+  }
+
+  // { id, name } of the user's client, or undefined
+  findClient(userEmail, clientId) {
+    return this.backend.get(this.queries.getReportClient, [clientId, userEmail]);
+  }
+
+  // { totalHours, entryCount }
+  clientTotals(userEmail, clientId) {
+    return this.backend.get(this.queries.getClientTotals, [userEmail, clientId]);
+  }
+
+  // { clientCount, entryCount, totalHours }
+  dashboardTotals(userEmail) {
+    return this.backend.get(this.queries.getDashboardTotals, [userEmail, userEmail]);
+  }
+
+  // The client's entries, newest first; one page if { limit, offset } given
+  listEntries(userEmail, clientId, page) {
+    if (page) {
+      return this.backend.all(this.queries.listReportEntriesPage, [clientId, userEmail, page.limit, page.offset]);
+    }
+    return this.backend.all(this.queries.listReportEntries, [clientId, userEmail]);
+  }
+
+  // Next export batch after `after`, the last row of the previous batch
+  listExportBatch(userEmail, clientId, after, limit) {
+    if (after) {
+      return this.backend.all(
+        this.queries.listExportEntriesAfter,
+        [clientId, userEmail, after.date, after.created_at, after.id, limit]
+      );
+    }
+    return this.backend.all(this.queries.listExportEntries, [clientId, userEmail, limit]);
+  }
+}
+
+module.exports = {
+  ReportsRepository
+};
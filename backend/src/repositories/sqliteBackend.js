@@ -0,0 +1,65 @@
+const { getDatabase, initializeDatabase, closeDatabase } = require('../database/init');
+const queries = require('../database/queries');
+const writes = require('../database/writes');
+
+// Promise face of the sqlite3 callback API the repositories run their SQL
+// through. The handle is looked up per call, so a storage profile change
+// (inline or pooled, worker-thread reads via DB_EXECUTOR) or a fresh
+// database after closeDatabase() is picked up without rebuilding anything.
+class SqliteBackend {
+  constructor(database = getDatabase) {
+    this.database = database;
+    this.queries = queries;
+    this.writes = writes;
+  }
+
+  get(sql, params) {
+    return new Promise((resolve, reject) => {
+      this.database().get(sql, params, (err, row) => (err ? reject(err) : resolve(row)));
+    });
+  }
+
+  all(sql, params) {
+    return new Promise((resolve, reject) => {
+      this.database().all(sql, params, (err, rows) => (err ? reject(err) : resolve(rows)));
+    });
+  }
+
+  // Resolves { changes, lastID } for INSERT/UPDATE/DELETE without RETURNING
+  run(sql, params) {
+    return new Promise((resolve, reject) => {
+      this.database().run(sql, params, function(err) {
+        if (err) {
+          return reject(err);
+        }
+        const { changes, lastID } = this || {};
+        resolve({ changes, lastID });
+      });
+    });
+  }
+
+  // Rows of a write ... RETURNING, always on the writer connection
+  writeAll(sql, params) {
+    return new Promise((resolve, reject) => {
+      this.database().writeAll(sql, params, (err, rows) => (err ? reject(err) : resolve(rows)));
+    });
+  }
+
+  // Identity of the underlying store, for caches that must not outlive it
+  source() {
+    return this.database();
+  }
+
+  // Creates and migrates the schema of the configured storage profile
+  initialize() {
+    return initializeDatabase();
+  }
+
+  close() {
+    return closeDatabase();
+  }
+}
+
+module.exports = {
+  SqliteBackend
+};
@@ -0,0 +1,26 @@
+class UsersRepository {
+  constructor(backend) {
+    this.backend = backend;
+    this.queries = backend.queries;
+    this.writes = backend.writes;
+  }
+
+  // { email, created_at }, or undefined
+  find(email) {
+    return this.backend.get(this.queries.getUser, [email]);
+  }
+
+  // Resolves true if this call inserted the row, false if it already existed
+  async create(email) {
+    const { changes } = await this.backend.run(this.writes.insertUser, [email]);
+    return changes > 0;
+  }
+
+  source() {
+    return this.backend.source();
+  }
+}
+
+module.exports = {
+  UsersRepository
+};
@@ -0,0 +1,154 @@
+const { toCentihours } = require('../utils/hours');
+const { FIRST_DATE, LAST_DATE } = require('../utils/cursor');
+
+// SET clause for the fields present in an update, appended in a fixed order
+// so each combination maps to one cached statement
+function updateAssignments(fields, writes) {
+  const updates = [];
+  const values = [];
+
+  if (fields.clientId !== undefined) {
+    updates.push('client_id = ?');
+    values.push(fields.clientId);
+  }
+
+  if (fields.hours !== undefined) {
+    updates.push('centihours = ?');
+    values.push(toCentihours(fields.hours));
+  }
+
+  if (fields.description !== undefined) {
+    updates.push('description = ?');
+    values.push(fields.description || null);
+  }
+
+  if (fields.date !== undefined) {
+    updates.push('date = ?');
+    values.push(fields.date);
+  }
+
+  updates.push(writes.setUpdatedAt);
+  return { updates, values };
+}
+
+// WHERE clause for a bulk selection, always scoped to the user. Id lists
+// go in as one JSON parameter; filters range-scan the user's date indexes.
+function bulkSelection(selection, userEmail, writes) {
+  if (selection.ids) {
+    return {
+      where: `user_email = ? AND ${writes.workEntryIdsIn}`,
+      params: [userEmail, JSON.stringify(selection.ids)]
+    };
+  }
+
+  const { clientId, from, to } = selection.filter;
+  const conditions = ['user_email = ?'];
+  const params = [userEmail];
+  if (clientId !== undefined) {
+    conditions.push('client_id = ?');
+    params.push(clientId);
+  }
+  conditions.push('date >= ?', 'date <= ?');
+  params.push(from || FIRST_DATE, to || LAST_DATE);
+  return { where: conditions.join(' AND '), params };
+}
+
+// Work entries come back with hours as a number and their client's name.
+// Every method is scoped to the owning user.
+class WorkEntriesRepository {
+  constructor(backend) {
+    this.backend = backend;
+    this.queries = backend.queries;
+    this.writes = backend.writes;
+  }
+
+  // Newest first, strictly after `position` ([date, created_at, id]; see
+  // utils/cursor.js) and on or after `from`
+  listPage(userEmail, { clientId, from, position, limit }) {
+    if (clientId) {
+      return this.backend.all(this.queries.listWorkEntriesForClientPage, [userEmail, clientId, from, ...position, limit]);
+    }
+    return this.backend.all(this.queries.listWorkEntriesPage, [userEmail, from, ...position, limit]);
+  }
+
+  find(userEmail, id) {
+    return this.backend.get(this.queries.getWorkEntry, [id, userEmail]);
+  }
+
+  async exists(userEmail, id) {
+    return Boolean(await this.backend.get(this.queries.findOwnWorkEntry, [id, userEmail]));
+  }
+
+  // The new entry, or undefined if the client isn't the user's
+  async create(userEmail, { clientId, hours, description, date }) {
+    const rows = await this.backend.writeAll(
+      this.writes.insertWorkEntry,
+      [toCentihours(hours), description || null, date, clientId, userEmail]
+    );
+    return rows[0];
+  }
+
+  // Inserts every entry in one statement, so all are written or none.
+  // Rows come back in input order without client names, or undefined (and
+  // nothing is written) if any entry's client isn't the user's.
+  async createMany(userEmail, entries) {
+    const rows = entries.map(entry => [entry.clientId, toCentihours(entry.hours), entry.description || null, entry.date]);
+    const batch = JSON.stringify(rows);
+    const created = await this.backend.writeAll(this.writes.insertWorkEntries, [batch, userEmail, batch, userEmail]);
+    if (created.length < entries.length) {
+      return undefined;
+    }
+    // RETURNING order is unspecified; ids follow the insertion order
+    return created.sort((a, b) => a.id - b.id);
+  }
+
+  // The updated entry, or undefined if the user has no such entry or is
+  // moving it to a client that isn't theirs
+  async update(userEmail, id, fields) {
+    const { updates, values } = updateAssignments(fields, this.writes);
+    values.push(id, userEmail);
+
+    let sql = this.writes.updateWorkEntry(updates.join(', '));
+    if (fields.clientId !== undefined) {
+      sql = this.writes.updateWorkEntryAndClient(updates.join(', '));
+      values.push(fields.clientId, userEmail);
+    }
+
+    const rows = await this.backend.writeAll(sql, values);
+    return rows[0];
+  }
+
+  // Selection is { ids } or { filter: { clientId, from, to } }. A single
+  // statement, so the batch applies atomically. Nothing changes when moving
+  // entries to a client that isn't the user's. Resolves the number changed.
+  async updateMany(userEmail, selection, fields) {
+    const { updates, values } = updateAssignments(fields, this.writes);
+    let { where, params } = bulkSelection(selection, userEmail, this.writes);
+
+    if (fields.clientId !== undefined) {
+      where = `${where} AND ${this.writes.ownClientExists}`;
+      params = [...params, fields.clientId, userEmail];
+    }
+
+    const { changes } = await this.backend.run(this.writes.updateWorkEntries(updates.join(', '), where), [...values, ...params]);
+    return changes;
+  }
+
+  // Resolves false if the user has no such entry
+  async remove(userEmail, id) {
+    const { changes } = await this.backend.run(this.writes.deleteWorkEntry, [id, userEmail]);
+    return changes > 0;
+  }
+
+  // Resolves the number of entries deleted
+  async removeMany(userEmail, selection) {
+    const { where, params } = bulkSelection(selection, userEmail, this.writes);
+
+    const { changes } = await this.backend.run(this.writes.deleteWorkEntries(where), params);
+    return changes;
+  }
+}
+
+module.exports = {
+  WorkEntriesRepository
+};
@@ -1,80 +1,111 @@
 const express = require('express');
-const { getDatabase } = require('../database/init');
-const { emailSchema } = require('../validation/schemas');
-const { authenticateUser } = require('../middleware/auth');
+const { getRepositories } = require('../repositories');
+const { emailSchema, refreshTokenSchema } = require('../validation/schemas');
+const { authenticateUser, createUser, rememberUser } = require('../middleware/auth');
+const { issueTokens, verifyToken } = require('../utils/tokens');
+const { getLogger } = require('../utils/logger');
 
 const router = express.Router();
+const logger = getLogger();
 
 // Login endpoint - creates user if doesn't exist
 router.post('/login', async (req, res, next) => {
+  const { error, value } = emailSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  const { email } = value;
+
+  // Check if user exists
+  let user;
   try {
-    const { error, value } = emailSchema.validate(req.body);
-    if (error) {
-      return next(error);
-    }
+    user = await getRepositories().users.find(email);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
 
-    const { email } = value;
-    const db = getDatabase();
-
-    // Check if user exists
-    db.get('SELECT email, created_at FROM users WHERE email = ?', [email], (err, row) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-
-      if (row) {
-        // User exists
-        return res.json({
-          message: 'Login successful',
-          user: {
-            email: row.email,
-            createdAt: row.created_at
-          }
-        });
-      } else {
-        // Create new user
-        db.run('INSERT INTO users (email) VALUES (?)', [email], function(err) {
-          if (err) {
-            console.error('Error creating user:', err);
-            return res.status(500).json({ error: 'Failed to create user' });
-          }
-
-          res.status(201).json({
-            message: 'User created and logged in successfully',
-            user: {
-              email: email,
-              createdAt: new Date().toISOString()
-            }
-          });
-        });
-      }
+  if (user) {
+    rememberUser(email);
+    return res.json({
+      message: 'Login successful',
+      user: {
+        email: user.email,
+        createdAt: user.created_at
+      },
+      ...issueTokens(user.email)
     });
-  } catch (error) {
-    next(error);
   }
+
+  // Create new user; a concurrent login may have created it first
+  let created;
+  try {
+    created = await createUser(email);
+  } catch (err) {
+    logger.error('Error creating user', err);
+    return res.status(500).json({ error: 'Failed to create user' });
+  }
+
+  res.status(created ? 201 : 200).json({
+    message: created ? 'User created and logged in successfully' : 'Login successful',
+    user: {
+      email: email,
+      createdAt: new Date().toISOString()
+    },
+    ...issueTokens(email)
+  });
+});
+
+// Exchange a refresh token for a new token pair. This is the one place a
+// token holder is checked against the users table.
+router.post('/refresh', async (req, res, next) => {
+  const { error, value } = refreshTokenSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  let email;
+  try {
+    email = verifyToken(value.refreshToken, 'refresh');
+  } catch (err) {
+    return res.status(401).json({ error: 'Invalid or expired refresh token' });
+  }
+
+  let user;
+  try {
+    user = await getRepositories().users.find(email);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  if (!user) {
+    return res.status(401).json({ error: 'User not found' });
+  }
+
+  res.json(issueTokens(email));
 });
 
 // Get current user info
-router.get('/me', authenticateUser, (req, res) => {
-  const db = getDatabase();
-  
-  db.get('SELECT email, created_at FROM users WHERE email = ?', [req.userEmail], (err, row) => {
-    if (err) {
-      console.error('Database error:', err);
-      return res.status(500).json({ error: 'Internal server error' });
-    }
+router.get('/me', authenticateUser, async (req, res) => {
+  let user;
+  try {
+    user = await getRepositories().users.find(req.userEmail);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
 
-    if (!row) {
-      return res.status(404).json({ error: 'User not found' });
-    }
+  if (!user) {
+    return res.status(404).json({ error: 'User not found' });
+  }
 
-    res.json({
-      user: {
-        email: row.email,
-        createdAt: row.created_at
-      }
-    });
+  res.json({
+    user: {
+      email: user.email,
+      createdAt: user.created_at
+    }
   });
 });
 
@@ -1,251 +1,140 @@
 const express = require('express');
-const { getDatabase } = require('../database/init');
+const { getRepositories } = require('../repositories');
 const { authenticateUser } = require('../middleware/auth');
 const { clientSchema, updateClientSchema } = require('../validation/schemas');
+const { getLogger } = require('../utils/logger');
 
 const router = express.Router();
+const logger = getLogger();
 
 // All routes require authentication
 router.use(authenticateUser);
 
 // Get all clients for authenticated user
-router.get('/', (req, res) => {
-  const db = getDatabase();
-  
-  db.all(
-    'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE user_email = ? ORDER BY name',
-    [req.userEmail],
-    (err, rows) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      res.json({ clients: rows });
-    }
-  );
+router.get('/', async (req, res) => {
+  try {
+    const clients = await getRepositories().clients.list(req.userEmail);
+    res.json({ clients });
+  } catch (err) {
+    logger.error('Database error', err);
+    res.status(500).json({ error: 'Internal server error' });
+  }
 });
 
 // Get specific client
-router.get('/:id', (req, res) => {
+router.get('/:id', async (req, res) => {
   const clientId = parseInt(req.params.id);
   
   if (isNaN(clientId)) {
     return res.status(400).json({ error: 'Invalid client ID' });
   }
   
-  const db = getDatabase();
+  let client;
+  try {
+    client = await getRepositories().clients.find(req.userEmail, clientId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
   
-  db.get(
-    'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE id = ? AND user_email = ?',
-    [clientId, req.userEmail],
-    (err, row) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!row) {
-        return res.status(404).json({ error: 'Client not found' });
-      }
-      
-      res.json({ client: row });
-    }
-  );
+  if (!client) {
+    return res.status(404).json({ error: 'Client not found' });
+  }
+  
+  res.json({ client });
 });
 
 // Create new client
-router.post('/', (req, res, next) => {
-  try {
-    const { error, value } = clientSchema.validate(req.body);
-    if (error) {
-      return next(error);
-    }
-
-    const { name, description, department, email } = value;
-    const db = getDatabase();
-
-    db.run(
-      'INSERT INTO clients (name, description, department, email, user_email) VALUES (?, ?, ?, ?, ?)',
-      [name, description || null, department || null, email || null, req.userEmail],
-      function(err) {
-        if (err) {
-          console.error('Database error:', err);
-          return res.status(500).json({ error: 'Failed to create client' });
-        }
-
-        // Return the created client
-        db.get(
-          'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE id = ?',
-          [this.lastID],
-          (err, row) => {
-            if (err) {
-              console.error('Database error:', err);
-              return res.status(500).json({ error: 'Client created but failed to retrieve' });
-            }
-
-            res.status(201).json({ 
-              message: 'Client created successfully',
-              client: row 
-            });
-          }
-        );
-      }
-    );
-  } catch (error) {
-    next(error);
+router.post('/', async (req, res, next) => {
+  const { error, value } = clientSchema.validate(req.body);
+  if (error) {
+    return next(error);
   }
-});
 
-// Update client
-router.put('/:id', (req, res, next) => {
+  let client;
   try {
-    const clientId = parseInt(req.params.id);
-    
-    if (isNaN(clientId)) {
-      return res.status(400).json({ error: 'Invalid client ID' });
-    }
-
-    const { error, value } = updateClientSchema.validate(req.body);
-    if (error) {
-      return next(error);
-    }
-
-    const db = getDatabase();
-
-    // Check if client exists and belongs to user
-    db.get(
-      'SELECT id FROM clients WHERE id = ? AND user_email = ?',
-      [clientId, req.userEmail],
-      (err, row) => {
-        if (err) {
-          console.error('Database error:', err);
-          return res.status(500).json({ error: 'Internal server error' });
-        }
-
-        if (!row) {
-          return res.status(404).json({ error: 'Client not found' });
-        }
-
-        // Build update query dynamically
-        const updates = [];
-        const values = [];
-
-        if (value.name !== undefined) {
-          updates.push('name = ?');
-          values.push(value.name);
-        }
-
-        if (value.description !== undefined) {
-          updates.push('description = ?');
-          values.push(value.description || null);
-        }
-
-        if (value.department !== undefined) {
-          updates.push('department = ?');
-          values.push(value.department || null);
-        }
-
-        if (value.email !== undefined) {
-          updates.push('email = ?');
-          values.push(value.email || null);
-        }
+    client = await getRepositories().clients.create(req.userEmail, value);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to create client' });
+  }
 
-        updates.push('updated_at = CURRENT_TIMESTAMP');
-        values.push(clientId, req.userEmail);
+  res.status(201).json({ 
+    message: 'Client created successfully',
+    client 
+  });
+});
 
-        const query = `UPDATE clients SET ${updates.join(', ')} WHERE id = ? AND user_email = ?`;
+// Update client
+router.put('/:id', async (req, res, next) => {
+  const clientId = parseInt(req.params.id);
+  
+  if (isNaN(clientId)) {
+    return res.status(400).json({ error: 'Invalid client ID' });
+  }
 
-        db.run(query, values, function(err) {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Failed to update client' });
-          }
+  const { error, value } = updateClientSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
 
-          // Return updated client
-          db.get(
-            'SELECT id, name, description, department, email, created_at, updated_at FROM clients WHERE id = ?',
-            [clientId],
-            (err, row) => {
-              if (err) {
-                console.error('Database error:', err);
-                return res.status(500).json({ error: 'Client updated but failed to retrieve' });
-              }
+  // The ownership check is part of the update; nothing back means the
+  // client doesn't exist or belongs to someone else
+  let client;
+  try {
+    client = await getRepositories().clients.update(req.userEmail, clientId, value);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to update client' });
+  }
 
-              res.json({
-                message: 'Client updated successfully',
-                client: row
-              });
-            }
-          );
-        });
-      }
-    );
-  } catch (error) {
-    next(error);
+  if (!client) {
+    return res.status(404).json({ error: 'Client not found' });
   }
+
+  res.json({
+    message: 'Client updated successfully',
+    client
+  });
 });
 
 // Delete all clients for authenticated user
-router.delete('/', (req, res) => {
-  const db = getDatabase();
+router.delete('/', async (req, res) => {
+  let deletedCount;
+  try {
+    deletedCount = await getRepositories().clients.removeAll(req.userEmail);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to delete clients' });
+  }
   
-  db.run(
-    'DELETE FROM clients WHERE user_email = ?',
-    [req.userEmail],
-    function(err) {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Failed to delete clients' });
-      }
-      
-      res.json({ 
-        message: 'All clients deleted successfully',
-        deletedCount: this.changes
-      });
-    }
-  );
+  res.json({ 
+    message: 'All clients deleted successfully',
+    deletedCount
+  });
 });
 
-// Delete client
-router.delete('/:id', (req, res) => {
+// Delete client (work entries are deleted with it)
+router.delete('/:id', async (req, res) => {
   const clientId = parseInt(req.params.id);
   
   if (isNaN(clientId)) {
     return res.status(400).json({ error: 'Invalid client ID' });
   }
   
-  const db = getDatabase();
+  let deleted;
+  try {
+    deleted = await getRepositories().clients.remove(req.userEmail, clientId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to delete client' });
+  }
+  
+  if (!deleted) {
+    return res.status(404).json({ error: 'Client not found' });
+  }
   
-  // Check if client exists and belongs to user
-  db.get(
-    'SELECT id FROM clients WHERE id = ? AND user_email = ?',
-    [clientId, req.userEmail],
-    (err, row) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!row) {
-        return res.status(404).json({ error: 'Client not found' });
-      }
-      
-      // Delete client (work entries will be deleted due to CASCADE)
-      db.run(
-        'DELETE FROM clients WHERE id = ? AND user_email = ?',
-        [clientId, req.userEmail],
-        function(err) {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Failed to delete client' });
-          }
-          
-          res.json({ message: 'Client deleted successfully' });
-        }
-      );
-    }
-  );
+  res.json({ message: 'Client deleted successfully' });
 });
 
 module.exports = router;
@@ -0,0 +1,50 @@
+const express = require('express');
+const { getRepositories } = require('../repositories');
+const { authenticateUser } = require('../middleware/auth');
+const { dashboardQuerySchema } = require('../validation/schemas');
+const { FIRST_DATE, startPosition } = require('../utils/cursor');
+const { getLogger } = require('../utils/logger');
+
+const router = express.Router();
+const logger = getLogger();
+
+// All routes require authentication
+router.use(authenticateUser);
+
+// Landing page counters plus the most recent entries (?recent=, default 5).
+// Two indexed queries whatever the size of the user's history.
+router.get('/summary', async (req, res, next) => {
+  const { error, value } = dashboardQuerySchema.validate(req.query);
+  if (error) {
+    return next(error);
+  }
+
+  const { reports, workEntries } = getRepositories();
+
+  let totals;
+  let recentEntries = [];
+  try {
+    totals = await reports.dashboardTotals(req.userEmail);
+
+    // First page of the work entry listing
+    if (value.recent > 0) {
+      recentEntries = await workEntries.listPage(req.userEmail, {
+        from: FIRST_DATE,
+        position: startPosition(),
+        limit: value.recent
+      });
+    }
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  res.json({
+    clientCount: totals.clientCount,
+    entryCount: totals.entryCount,
+    totalHours: totals.totalHours,
+    recentEntries
+  });
+});
+
+module.exports = router;
@@ -1,247 +1,272 @@
 const express = require('express');
-const { getDatabase } = require('../database/init');
+const { getRepositories } = require('../repositories');
 const { authenticateUser } = require('../middleware/auth');
-const createCsvWriter = require('csv-writer').createObjectCsvWriter;
-const PDFDocument = require('pdfkit');
-const path = require('path');
-const fs = require('fs');
+const { reportQuerySchema } = require('../validation/schemas');
+const { toCsvRow } = require('../utils/csv');
+const { renderPdf } = require('../workers/pdfRenderer');
+const { getLogger } = require('../utils/logger');
 
 const router = express.Router();
+const logger = getLogger();
+
+const EXPORT_BATCH_SIZE = 500;
+const CSV_HEADER = ['Date', 'Hours', 'Description', 'Created At'];
+const PDF_RETRY_AFTER_SECONDS = 5;
+
+// Resolves once the response wants more data or has gone away. A client
+// that disconnects while the buffer is full never emits 'drain'.
+function drainedOrClosed(res) {
+  return new Promise((resolve) => {
+    const done = () => {
+      res.off('drain', done);
+      res.off('close', done);
+      resolve();
+    };
+    res.on('drain', done);
+    res.on('close', done);
+  });
+}
 
 // All routes require authentication
 router.use(authenticateUser);
 
-// Get hourly report for specific client
-router.get('/client/:clientId', (req, res) => {
+// Get hourly report for specific client. ?summary=true returns only the
+// totals; ?limit=&offset= returns one page of entries.
+router.get('/client/:clientId', async (req, res, next) => {
   const clientId = parseInt(req.params.clientId);
   
   if (isNaN(clientId)) {
     return res.status(400).json({ error: 'Invalid client ID' });
   }
+
+  const { error, value } = reportQuerySchema.validate(req.query);
+  if (error) {
+    return next(error);
+  }
   
-  const db = getDatabase();
-  
-  // Verify client belongs to user
-  db.get(
-    'SELECT id, name FROM clients WHERE id = ? AND user_email = ?',
-    [clientId, req.userEmail],
-    (err, client) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!client) {
-        return res.status(404).json({ error: 'Client not found' });
-      }
-      
-      // Get work entries for this client
-      db.all(
-        `SELECT id, hours, description, date, created_at, updated_at
-         FROM work_entries 
-         WHERE client_id = ? AND user_email = ? 
-         ORDER BY date DESC`,
-        [clientId, req.userEmail],
-        (err, workEntries) => {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Internal server error' });
-          }
-          
-          // Calculate total hours
-          const totalHours = workEntries.reduce((sum, entry) => sum + parseFloat(entry.hours), 0);
-          
-          res.json({
-            client: client,
-            workEntries: workEntries,
-            totalHours: totalHours,
-            entryCount: workEntries.length
-          });
-        }
-      );
-    }
-  );
+  const { reports } = getRepositories();
+  const paginated = value.limit !== undefined;
+
+  let client;
+  let totals;
+  let workEntries;
+  try {
+    // Verify client belongs to user
+    client = await reports.findClient(req.userEmail, clientId);
+    if (!client) {
+      return res.status(404).json({ error: 'Client not found' });
+    }
+
+    // Totals come from the daily rollup, one row per day with entries
+    totals = await reports.clientTotals(req.userEmail, clientId);
+
+    if (!value.summary) {
+      // Fetch one extra row to tell whether another page follows
+      const page = paginated ? { limit: value.limit + 1, offset: value.offset } : undefined;
+      workEntries = await reports.listEntries(req.userEmail, clientId, page);
+    }
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  if (value.summary) {
+    return res.json({
+      client: client,
+      totalHours: totals.totalHours,
+      entryCount: totals.entryCount
+    });
+  }
+
+  const report = {
+    client: client,
+    workEntries: paginated ? workEntries.slice(0, value.limit) : workEntries,
+    totalHours: totals.totalHours,
+    entryCount: totals.entryCount
+  };
+
+  if (paginated) {
+    report.pagination = {
+      limit: value.limit,
+      offset: value.offset,
+      hasMore: workEntries.length > value.limit
+    };
+  }
+
+  res.json(report);
 });
 
-// Export client report as CSV
-router.get('/export/csv/:clientId', (req, res) => {
+// Export client report as CSV. Rows are read in keyset batches and written
+// to the response as they arrive; the next batch is only fetched once the
+// socket has drained, so memory stays flat whatever the report size.
+router.get('/export/csv/:clientId', async (req, res) => {
   const clientId = parseInt(req.params.clientId);
   
   if (isNaN(clientId)) {
     return res.status(400).json({ error: 'Invalid client ID' });
   }
   
-  const db = getDatabase();
+  const { reports } = getRepositories();
   
   // Verify client belongs to user and get data
-  db.get(
-    'SELECT id, name FROM clients WHERE id = ? AND user_email = ?',
-    [clientId, req.userEmail],
-    (err, client) => {
-      if (err) {
-        console.error('Database error:', err);
+  let client;
+  try {
+    client = await reports.findClient(req.userEmail, clientId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+  
+  if (!client) {
+    return res.status(404).json({ error: 'Client not found' });
+  }
+  
+  const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
+  const filename = `${client.name.replace(/[^a-zA-Z0-9]/g, '_')}_report_${timestamp}.csv`;
+
+  let closed = false;
+  res.on('close', () => {
+    closed = true;
+  });
+
+  let after = null;
+  for (;;) {
+    let rows;
+    try {
+      rows = await reports.listExportBatch(req.userEmail, clientId, after, EXPORT_BATCH_SIZE);
+    } catch (err) {
+      logger.error('Database error', err);
+      if (!res.headersSent) {
         return res.status(500).json({ error: 'Internal server error' });
       }
-      
-      if (!client) {
-        return res.status(404).json({ error: 'Client not found' });
-      }
-      
-      // Get work entries
-      db.all(
-        `SELECT hours, description, date, created_at
-         FROM work_entries 
-         WHERE client_id = ? AND user_email = ? 
-         ORDER BY date DESC`,
-        [clientId, req.userEmail],
-        (err, workEntries) => {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Internal server error' });
-          }
-          
-          // Create temporary CSV file
-          const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
-          const filename = `${client.name.replace(/[^a-zA-Z0-9]/g, '_')}_report_${timestamp}.csv`;
-          const tempPath = path.join(__dirname, '../../temp', filename);
-          
-          // Ensure temp directory exists
-          const tempDir = path.dirname(tempPath);
-          if (!fs.existsSync(tempDir)) {
-            fs.mkdirSync(tempDir, { recursive: true });
-          }
-          
-          const csvWriter = createCsvWriter({
-            path: tempPath,
-            header: [
-              { id: 'date', title: 'Date' },
-              { id: 'hours', title: 'Hours' },
-              { id: 'description', title: 'Description' },
-              { id: 'created_at', title: 'Created At' }
-            ]
-          });
-          
-          csvWriter.writeRecords(workEntries)
-            .then(() => {
-              // Send file and clean up
-              res.download(tempPath, filename, (err) => {
-                if (err) {
-                  console.error('Error sending file:', err);
-                }
-                // Clean up temp file
-                fs.unlink(tempPath, (unlinkErr) => {
-                  if (unlinkErr) {
-                    console.error('Error deleting temp file:', unlinkErr);
-                  }
-                });
-              });
-            })
-            .catch((error) => {
-              console.error('Error creating CSV:', error);
-              res.status(500).json({ error: 'Failed to generate CSV report' });
-            });
-        }
-      );
-    }
-  );
+      // Mid-stream: abort so the client sees a truncated download
+      return res.destroy(err);
+    }
+
+    // Client went away; stop reading
+    if (closed) {
+      return;
+    }
+
+    let chunk = '';
+    if (!res.headersSent) {
+      res.setHeader('Content-Type', 'text/csv; charset=utf-8');
+      res.setHeader('Content-Disposition', `attachment; filename="${filename}"`);
+      chunk = toCsvRow(CSV_HEADER);
+    }
+    for (const row of rows) {
+      chunk += toCsvRow([row.date, row.hours, row.description, row.created_at]);
+    }
+
+    const drained = res.write(chunk);
+    if (rows.length < EXPORT_BATCH_SIZE) {
+      return res.end();
+    }
+
+    after = rows[rows.length - 1];
+    if (!drained && !closed) {
+      await drainedOrClosed(res);
+    }
+    if (closed) {
+      return;
+    }
+  }
 });
 
-// Export client report as PDF
-router.get('/export/pdf/:clientId', (req, res) => {
+// Export client report as PDF. Layout runs on the PDF worker pool, which
+// pulls the entries in the same keyset batches as the CSV export, and the
+// encoded bytes are streamed to the response as they are produced.
+router.get('/export/pdf/:clientId', async (req, res) => {
   const clientId = parseInt(req.params.clientId);
   
   if (isNaN(clientId)) {
     return res.status(400).json({ error: 'Invalid client ID' });
   }
   
-  const db = getDatabase();
+  const { reports } = getRepositories();
   
-  // Verify client belongs to user and get data
-  db.get(
-    'SELECT id, name FROM clients WHERE id = ? AND user_email = ?',
-    [clientId, req.userEmail],
-    (err, client) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!client) {
-        return res.status(404).json({ error: 'Client not found' });
-      }
-      
-      // Get work entries
-      db.all(
-        `SELECT hours, description, date, created_at
-         FROM work_entries 
-         WHERE client_id = ? AND user_email = ? 
-         ORDER BY date DESC`,
-        [clientId, req.userEmail],
-        (err, workEntries) => {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Internal server error' });
-          }
-          
-          // Create PDF
-          const doc = new PDFDocument();
-          const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
-          const filename = `${client.name.replace(/[^a-zA-Z0-9]/g, '_')}_report_${timestamp}.pdf`;
-          
-          // Set response headers
-          res.setHeader('Content-Type', 'application/pdf');
-          res.setHeader('Content-Disposition', `attachment; filename="${filename}"`);
-          
-          // Pipe PDF to response
-          doc.pipe(res);
-          
-          // Add content to PDF
-          doc.fontSize(20).text(`Time Report for ${client.name}`, { align: 'center' });
-          doc.moveDown();
-          
-          const totalHours = workEntries.reduce((sum, entry) => sum + parseFloat(entry.hours), 0);
-          doc.fontSize(14).text(`Total Hours: ${totalHours.toFixed(2)}`);
-          doc.text(`Total Entries: ${workEntries.length}`);
-          doc.text(`Generated: ${new Date().toLocaleString()}`);
-          doc.moveDown();
-          
-          // Add table header
-          doc.fontSize(12).text('Date', 50, doc.y, { width: 100 });
-          doc.text('Hours', 150, doc.y - 15, { width: 80 });
-          doc.text('Description', 230, doc.y - 15, { width: 300 });
-          doc.moveDown();
-          
-          // Add horizontal line
-          doc.moveTo(50, doc.y).lineTo(550, doc.y).stroke();
-          doc.moveDown(0.5);
-          
-          // Add work entries
-          workEntries.forEach((entry, index) => {
-            const y = doc.y;
-            
-            // Check if we need a new page
-            if (y > 700) {
-              doc.addPage();
-            }
-            
-            doc.text(entry.date, 50, doc.y, { width: 100 });
-            doc.text(entry.hours.toString(), 150, y, { width: 80 });
-            doc.text(entry.description || 'No description', 230, y, { width: 300 });
-            doc.moveDown();
-            
-            // Add separator line every 5 entries
-            if ((index + 1) % 5 === 0) {
-              doc.moveTo(50, doc.y).lineTo(550, doc.y).stroke();
-              doc.moveDown(0.5);
-            }
-          });
-          
-          // Finalize PDF
-          doc.end();
-        }
-      );
-    }
-  );
+  let client;
+  let totals;
+  try {
+    // Verify client belongs to user and get data
+    client = await reports.findClient(req.userEmail, clientId);
+    if (!client) {
+      return res.status(404).json({ error: 'Client not found' });
+    }
+
+    // Totals come from the daily rollup rather than summing every entry
+    totals = await reports.clientTotals(req.userEmail, clientId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
+  const filename = `${client.name.replace(/[^a-zA-Z0-9]/g, '_')}_report_${timestamp}.pdf`;
+
+  // Headers go out with the first chunk, so a full queue can still be
+  // answered with a 503
+  const startResponse = () => {
+    if (!res.headersSent) {
+      res.setHeader('Content-Type', 'application/pdf');
+      res.setHeader('Content-Disposition', `attachment; filename="${filename}"`);
+    }
+  };
+
+  let closed = false;
+  res.on('close', () => {
+    closed = true;
+  });
+
+  // The worker asks for the next batch once it has laid out the previous
+  // one. Reads wait for the socket to drain, and a closed response ends the
+  // document early.
+  let after = null;
+  let last = false;
+  const nextEntries = async () => {
+    if (res.writableNeedDrain && !closed) {
+      await drainedOrClosed(res);
+    }
+    if (last || closed) {
+      return [];
+    }
+
+    const rows = await reports.listExportBatch(req.userEmail, clientId, after, EXPORT_BATCH_SIZE);
+    last = rows.length < EXPORT_BATCH_SIZE;
+    after = rows[rows.length - 1];
+    return rows.map(({ date, hours, description }) => ({ date, hours, description }));
+  };
+
+  const report = {
+    clientName: client.name,
+    totalHours: totals.totalHours,
+    entryCount: totals.entryCount,
+    generatedAt: new Date().toISOString()
+  };
+
+  renderPdf(report, (chunk) => {
+    startResponse();
+    res.write(chunk);
+  }, nextEntries).then(() => {
+    startResponse();
+    res.end();
+  }, (err) => {
+    if (res.headersSent) {
+      logger.error('Error generating PDF', err);
+      return res.destroy(err);
+    }
+
+    if (err.code === 'EQUEUEFULL') {
+      res.setHeader('Retry-After', String(PDF_RETRY_AFTER_SECONDS));
+      return res.status(503).json({ error: 'Too many PDF exports in progress, please retry shortly' });
+    }
+
+    logger.error('Error generating PDF', err);
+    if (err.code === 'ETIMEDOUT') {
+      return res.status(503).json({ error: 'PDF generation timed out' });
+    }
+    res.status(500).json({ error: 'Failed to generate PDF report' });
+  });
 });
 
 module.exports = router;
@@ -1,301 +1,338 @@
 const express = require('express');
-const { getDatabase } = require('../database/init');
+const { getRepositories } = require('../repositories');
 const { authenticateUser } = require('../middleware/auth');
-const { workEntrySchema, updateWorkEntrySchema } = require('../validation/schemas');
+const {
+  workEntrySchema,
+  updateWorkEntrySchema,
+  workEntryBatchSchema,
+  workEntryBulkUpdateSchema,
+  workEntryBulkDeleteSchema,
+  workEntryListQuerySchema
+} = require('../validation/schemas');
+const { FIRST_DATE, LAST_DATE, startPosition, encodeCursor, decodeCursor } = require('../utils/cursor');
+const { getLogger } = require('../utils/logger');
 
 const router = express.Router();
+const logger = getLogger();
 
 // All routes require authentication
 router.use(authenticateUser);
 
-// Get all work entries for authenticated user (with optional client filter)
-router.get('/', (req, res) => {
-  const { clientId } = req.query;
-  const db = getDatabase();
-  
-  let query = `
-    SELECT we.id, we.client_id, we.hours, we.description, we.date, 
-           we.created_at, we.updated_at, c.name as client_name
-    FROM work_entries we
-    JOIN clients c ON we.client_id = c.id
-    WHERE we.user_email = ?
-  `;
-  
-  const params = [req.userEmail];
-  
-  if (clientId) {
-    const clientIdNum = parseInt(clientId);
-    if (isNaN(clientIdNum)) {
-      return res.status(400).json({ error: 'Invalid client ID' });
+// One page of the user's work entries, newest first. Filters: clientId and
+// an inclusive from/to date range; pass pagination.nextCursor back as
+// ?cursor= for the next page.
+router.get('/', async (req, res, next) => {
+  const { error, value } = workEntryListQuerySchema.validate(req.query);
+  if (error) {
+    return next(error);
+  }
+
+  const to = value.to || LAST_DATE;
+  if (value.from && value.from > to) {
+    return res.status(400).json({ error: 'from must not be after to' });
+  }
+
+  // Start just past the end of the range, or after the previous page
+  let position = startPosition(to);
+  if (value.cursor) {
+    const cursor = decodeCursor(value.cursor);
+    if (!cursor) {
+      return res.status(400).json({ error: 'Invalid cursor' });
+    }
+    if (cursor[0] <= to) {
+      position = cursor;
     }
-    query += ' AND we.client_id = ?';
-    params.push(clientIdNum);
   }
-  
-  query += ' ORDER BY we.date DESC, we.created_at DESC';
-  
-  db.all(query, params, (err, rows) => {
-    if (err) {
-      console.error('Database error:', err);
-      return res.status(500).json({ error: 'Internal server error' });
+
+  // Fetch one extra row to tell whether another page follows
+  let rows;
+  try {
+    rows = await getRepositories().workEntries.listPage(req.userEmail, {
+      clientId: value.clientId,
+      from: value.from || FIRST_DATE,
+      position,
+      limit: value.limit + 1
+    });
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  const hasMore = rows.length > value.limit;
+  const workEntries = hasMore ? rows.slice(0, value.limit) : rows;
+
+  res.json({
+    workEntries,
+    pagination: {
+      limit: value.limit,
+      hasMore,
+      nextCursor: hasMore ? encodeCursor(workEntries[workEntries.length - 1]) : null
     }
-    
-    res.json({ workEntries: rows });
   });
 });
 
 // Get specific work entry
-router.get('/:id', (req, res) => {
+router.get('/:id', async (req, res) => {
   const workEntryId = parseInt(req.params.id);
   
   if (isNaN(workEntryId)) {
     return res.status(400).json({ error: 'Invalid work entry ID' });
   }
   
-  const db = getDatabase();
+  let workEntry;
+  try {
+    workEntry = await getRepositories().workEntries.find(req.userEmail, workEntryId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+  
+  if (!workEntry) {
+    return res.status(404).json({ error: 'Work entry not found' });
+  }
   
-  db.get(
-    `SELECT we.id, we.client_id, we.hours, we.description, we.date, 
-            we.created_at, we.updated_at, c.name as client_name
-     FROM work_entries we
-     JOIN clients c ON we.client_id = c.id
-     WHERE we.id = ? AND we.user_email = ?`,
-    [workEntryId, req.userEmail],
-    (err, row) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!row) {
-        return res.status(404).json({ error: 'Work entry not found' });
-      }
-      
-      res.json({ workEntry: row });
-    }
-  );
+  res.json({ workEntry });
 });
 
-// Create new work entry
-router.post('/', (req, res, next) => {
+// Create new work entry. Checking the client and writing the entry is one
+// statement.
+router.post('/', async (req, res, next) => {
+  const { error, value } = workEntrySchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  let workEntry;
+  try {
+    workEntry = await getRepositories().workEntries.create(req.userEmail, value);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to create work entry' });
+  }
+
+  if (!workEntry) {
+    return res.status(400).json({ error: 'Client not found or does not belong to user' });
+  }
+
+  res.status(201).json({
+    message: 'Work entry created successfully',
+    workEntry
+  });
+});
+
+// Per-item errors for batch entries whose client isn't among the user's
+function unownedClientErrors(entries, clientNames) {
+  const errors = [];
+  entries.forEach((entry, index) => {
+    if (!clientNames.has(entry.clientId)) {
+      errors.push({ index, details: ['Client not found or does not belong to user'] });
+    }
+  });
+  return errors;
+}
+
+// Create many work entries at once, e.g. a week of timesheet rows. The
+// batch is written by a single statement, so it commits or fails as a whole.
+// Invalid items are reported by index and nothing is written.
+router.post('/batch', async (req, res, next) => {
+  const { error, value } = workEntryBatchSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  const entries = [];
+  const errors = [];
+  value.entries.forEach((item, index) => {
+    const result = workEntrySchema.validate(item, { abortEarly: false });
+    if (result.error) {
+      errors.push({ index, details: result.error.details.map(detail => detail.message) });
+    } else {
+      entries.push(result.value);
+    }
+  });
+
+  if (errors.length > 0) {
+    return res.status(400).json({ error: 'Validation error', errors });
+  }
+
+  const { clients, workEntries } = getRepositories();
+  const clientIds = [...new Set(entries.map(entry => entry.clientId))];
+
+  // One ownership check per distinct client
+  let owned;
+  try {
+    owned = await clients.findMany(req.userEmail, clientIds);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  let clientNames = new Map(owned.map(client => [client.id, client.name]));
+  errors.push(...unownedClientErrors(entries, clientNames));
+
+  if (errors.length > 0) {
+    return res.status(400).json({ error: 'Validation error', errors });
+  }
+
+  let created;
   try {
-    const { error, value } = workEntrySchema.validate(req.body);
-    if (error) {
-      return next(error);
+    created = await workEntries.createMany(req.userEmail, entries);
+    if (!created) {
+      // The insert checks ownership again; a client was deleted since the
+      // check above, so nothing was written. Report which items lost theirs.
+      clientNames = new Map((await clients.findMany(req.userEmail, clientIds)).map(client => [client.id, client.name]));
     }
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to create work entries' });
+  }
 
-    const { clientId, hours, description, date } = value;
-    const db = getDatabase();
-
-    // Verify client exists and belongs to user
-    db.get(
-      'SELECT id FROM clients WHERE id = ? AND user_email = ?',
-      [clientId, req.userEmail],
-      (err, row) => {
-        if (err) {
-          console.error('Database error:', err);
-          return res.status(500).json({ error: 'Internal server error' });
-        }
-
-        if (!row) {
-          return res.status(400).json({ error: 'Client not found or does not belong to user' });
-        }
-
-        // Create work entry
-        db.run(
-          'INSERT INTO work_entries (client_id, user_email, hours, description, date) VALUES (?, ?, ?, ?, ?)',
-          [clientId, req.userEmail, hours, description || null, date],
-          function(err) {
-            if (err) {
-              console.error('Database error:', err);
-              return res.status(500).json({ error: 'Failed to create work entry' });
-            }
-
-            // Return the created work entry with client name
-            db.get(
-              `SELECT we.id, we.client_id, we.hours, we.description, we.date, 
-                      we.created_at, we.updated_at, c.name as client_name
-               FROM work_entries we
-               JOIN clients c ON we.client_id = c.id
-               WHERE we.id = ?`,
-              [this.lastID],
-              (err, row) => {
-                if (err) {
-                  console.error('Database error:', err);
-                  return res.status(500).json({ error: 'Work entry created but failed to retrieve' });
-                }
-
-                res.status(201).json({
-                  message: 'Work entry created successfully',
-                  workEntry: row
-                });
-              }
-            );
-          }
-        );
-      }
-    );
-  } catch (error) {
-    next(error);
+  if (!created) {
+    return res.status(400).json({ error: 'Validation error', errors: unownedClientErrors(entries, clientNames) });
   }
+
+  res.status(201).json({
+    message: 'Work entries created successfully',
+    workEntries: created.map(row => ({ ...row, client_name: clientNames.get(row.client_id) }))
+  });
 });
 
-// Update work entry
-router.put('/:id', (req, res, next) => {
+// Bulk update: { ids: [...] } or { filter: { clientId, from, to } } plus
+// the fields to `set`, applied atomically; responds with the number of
+// entries changed.
+router.put('/batch', async (req, res, next) => {
+  const { error, value } = workEntryBulkUpdateSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  const { clients, workEntries } = getRepositories();
+
+  let updated;
   try {
-    const workEntryId = parseInt(req.params.id);
-    
-    if (isNaN(workEntryId)) {
-      return res.status(400).json({ error: 'Invalid work entry ID' });
+    updated = await workEntries.updateMany(req.userEmail, value, value.set);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to update work entries' });
+  }
+
+  // The UPDATE only moves entries to a client the user owns; when nothing
+  // changed, find out whether that was why
+  if (updated === 0 && value.set.clientId !== undefined) {
+    let owned;
+    try {
+      owned = await clients.exists(req.userEmail, value.set.clientId);
+    } catch (err) {
+      logger.error('Database error', err);
+      return res.status(500).json({ error: 'Internal server error' });
     }
 
-    const { error, value } = updateWorkEntrySchema.validate(req.body);
-    if (error) {
-      return next(error);
+    if (!owned) {
+      return res.status(400).json({ error: 'Client not found or does not belong to user' });
     }
+  }
+
+  res.json({
+    message: 'Work entries updated successfully',
+    updated
+  });
+});
+
+// Bulk delete by { ids: [...] } or { filter: { clientId, from, to } };
+// responds with the number removed.
+router.delete('/batch', async (req, res, next) => {
+  const { error, value } = workEntryBulkDeleteSchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
 
-    const db = getDatabase();
-
-    // Check if work entry exists and belongs to user
-    db.get(
-      'SELECT id FROM work_entries WHERE id = ? AND user_email = ?',
-      [workEntryId, req.userEmail],
-      (err, row) => {
-        if (err) {
-          console.error('Database error:', err);
-          return res.status(500).json({ error: 'Internal server error' });
-        }
-
-        if (!row) {
-          return res.status(404).json({ error: 'Work entry not found' });
-        }
-
-        // If clientId is being updated, verify it belongs to user
-        if (value.clientId) {
-          db.get(
-            'SELECT id FROM clients WHERE id = ? AND user_email = ?',
-            [value.clientId, req.userEmail],
-            (err, clientRow) => {
-              if (err) {
-                console.error('Database error:', err);
-                return res.status(500).json({ error: 'Internal server error' });
-              }
-
-              if (!clientRow) {
-                return res.status(400).json({ error: 'Client not found or does not belong to user' });
-              }
-
-              performUpdate();
-            }
-          );
-        } else {
-          performUpdate();
-        }
-
-        function performUpdate() {
-          // Build update query dynamically
-          const updates = [];
-          const values = [];
-
-          if (value.clientId !== undefined) {
-            updates.push('client_id = ?');
-            values.push(value.clientId);
-          }
-
-          if (value.hours !== undefined) {
-            updates.push('hours = ?');
-            values.push(value.hours);
-          }
-
-          if (value.description !== undefined) {
-            updates.push('description = ?');
-            values.push(value.description || null);
-          }
-
-          if (value.date !== undefined) {
-            updates.push('date = ?');
-            values.push(value.date);
-          }
-
-          updates.push('updated_at = CURRENT_TIMESTAMP');
-          values.push(workEntryId, req.userEmail);
-
-          const query = `UPDATE work_entries SET ${updates.join(', ')} WHERE id = ? AND user_email = ?`;
-
-          db.run(query, values, function(err) {
-            if (err) {
-              console.error('Database error:', err);
-              return res.status(500).json({ error: 'Failed to update work entry' });
-            }
-
-            // Return updated work entry with client name
-            db.get(
-              `SELECT we.id, we.client_id, we.hours, we.description, we.date, 
-                      we.created_at, we.updated_at, c.name as client_name
-               FROM work_entries we
-               JOIN clients c ON we.client_id = c.id
-               WHERE we.id = ?`,
-              [workEntryId],
-              (err, row) => {
-                if (err) {
-                  console.error('Database error:', err);
-                  return res.status(500).json({ error: 'Work entry updated but failed to retrieve' });
-                }
-
-                res.json({
-                  message: 'Work entry updated successfully',
-                  workEntry: row
-                });
-              }
-            );
-          });
-        }
-      }
-    );
-  } catch (error) {
-    next(error);
+  let deleted;
+  try {
+    deleted = await getRepositories().workEntries.removeMany(req.userEmail, value);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to delete work entries' });
   }
+
+  res.json({
+    message: 'Work entries deleted successfully',
+    deleted
+  });
+});
+
+// Update work entry. Ownership of the entry, and of the client it moves to,
+// is checked by the update itself.
+router.put('/:id', async (req, res, next) => {
+  const workEntryId = parseInt(req.params.id);
+  
+  if (isNaN(workEntryId)) {
+    return res.status(400).json({ error: 'Invalid work entry ID' });
+  }
+
+  const { error, value } = updateWorkEntrySchema.validate(req.body);
+  if (error) {
+    return next(error);
+  }
+
+  const { workEntries } = getRepositories();
+
+  let workEntry;
+  try {
+    workEntry = await workEntries.update(req.userEmail, workEntryId, value);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to update work entry' });
+  }
+
+  if (workEntry) {
+    return res.json({
+      message: 'Work entry updated successfully',
+      workEntry
+    });
+  }
+
+  if (value.clientId === undefined) {
+    return res.status(404).json({ error: 'Work entry not found' });
+  }
+
+  // Nothing updated while moving clients: tell a missing entry apart from
+  // a client that isn't the user's
+  let exists;
+  try {
+    exists = await workEntries.exists(req.userEmail, workEntryId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Internal server error' });
+  }
+
+  if (!exists) {
+    return res.status(404).json({ error: 'Work entry not found' });
+  }
+
+  res.status(400).json({ error: 'Client not found or does not belong to user' });
 });
 
 // Delete work entry
-router.delete('/:id', (req, res) => {
+router.delete('/:id', async (req, res) => {
   const workEntryId = parseInt(req.params.id);
   
   if (isNaN(workEntryId)) {
     return res.status(400).json({ error: 'Invalid work entry ID' });
   }
   
-  const db = getDatabase();
+  let deleted;
+  try {
+    deleted = await getRepositories().workEntries.remove(req.userEmail, workEntryId);
+  } catch (err) {
+    logger.error('Database error', err);
+    return res.status(500).json({ error: 'Failed to delete work entry' });
+  }
   
-  // Check if work entry exists and belongs to user
-  db.get(
-    'SELECT id FROM work_entries WHERE id = ? AND user_email = ?',
-    [workEntryId, req.userEmail],
-    (err, row) => {
-      if (err) {
-        console.error('Database error:', err);
-        return res.status(500).json({ error: 'Internal server error' });
-      }
-      
-      if (!row) {
-        return res.status(404).json({ error: 'Work entry not found' });
-      }
-      
-      // Delete work entry
-      db.run(
-        'DELETE FROM work_entries WHERE id = ? AND user_email = ?',
-        [workEntryId, req.userEmail],
-        function(err) {
-          if (err) {
-            console.error('Database error:', err);
-            return res.status(500).json({ error: 'Failed to delete work entry' });
-          }
-          
-          res.json({ message: 'Work entry deleted successfully' });
-        }
-      );
-    }
-  );
+  if (!deleted) {
+    return res.status(404).json({ error: 'Work entry not found' });
+  }
+  
+  res.json({ message: 'Work entry deleted successfully' });
 });
 
 module.exports = router;
@@ -0,0 +1,26 @@
+// Recompute work_entry_daily_rollup from work_entries.
+// Usage: DATABASE_PATH=./data/timesheet.db npm run db:rebuild-rollup
+
+const { getDatabase, initializeDatabase, closeDatabase } = require('../database/init');
+const { rebuildDailyRollup } = require('../database/rollup');
+
+async function main() {
+  if (!process.env.DATABASE_PATH || process.env.DATABASE_PATH === ':memory:') {
+    console.error('DATABASE_PATH must point at a database file');
+    process.exit(1);
+  }
+
+  try {
+    // Brings the schema up to date, which also creates the rollup table
+    await initializeDatabase();
+    await rebuildDailyRollup(getDatabase());
+    console.log('Daily rollup rebuilt');
+  } catch (error) {
+    console.error('Failed to rebuild daily rollup:', error);
+    process.exitCode = 1;
+  } finally {
+    await closeDatabase();
+  }
+}
+
+main();
@@ -1,16 +1,19 @@
 const express = require('express');
 const cors = require('cors');
 const helmet = require('helmet');
-const morgan = require('morgan');
-const rateLimit = require('express-rate-limit');
 
 const authRoutes = require('./routes/auth');
 const clientRoutes = require('./routes/clients');
 const workEntryRoutes = require('./routes/workEntries');
 const reportRoutes = require('./routes/reports');
+const dashboardRoutes = require('./routes/dashboard');
 
-const { initializeDatabase } = require('./database/init');
+const { initializeStorage } = require('./repositories');
 const { errorHandler } = require('./middleware/errorHandler');
+const { loadShedding } = require('./middleware/loadShedding');
+const { rateLimit } = require('./middleware/rateLimit');
+const { recordRequestMetrics, metricsHandler } = require('./middleware/metrics');
+const { accessLog } = require('./middleware/accessLog');
 
 const app = express();
 const PORT = process.env.PORT || 3001;
@@ -22,15 +25,18 @@ app.use(cors({
   credentials: true
 }));
 
-// Rate limiting
-const limiter = rateLimit({
-  windowMs: 15 * 60 * 1000, // 15 minutes
-  max: 100 // limit each IP to 100 requests per windowMs
-});
-app.use(limiter);
+// Latency histograms per route template, exposed at /metrics
+app.use(recordRequestMetrics);
+
+// Rate limiting: per-user token buckets by route class (read, write, export);
+// static assets and /health are not counted
+app.use(rateLimit);
 
-// Logging
-app.use(morgan('combined'));
+// Structured access log, buffered and flushed in batches
+app.use(accessLog);
+
+// Shed API work when the event loop falls behind, before parsing bodies
+app.use('/api', loadShedding);
 
 // Body parsing
 app.use(express.json({ limit: '10mb' }));
@@ -41,11 +47,15 @@ app.get('/health', (req, res) => {
   res.status(200).json({ status: 'OK', timestamp: new Date().toISOString() });
 });
 
+// Prometheus scrape endpoint; METRICS_TOKEN, or loopback peers only
+app.get('/metrics', metricsHandler);
+
 // Routes
 app.use('/api/auth', authRoutes);
 app.use('/api/clients', clientRoutes);
 app.use('/api/work-entries', workEntryRoutes);
 app.use('/api/reports', reportRoutes);
+app.use('/api/dashboard', dashboardRoutes);
 
 // Error handling
 app.use(errorHandler);
@@ -55,10 +65,10 @@ app.use('*', (req, res) => {
   res.status(404).json({ error: 'Route not found' });
 });
 
-// Initialize database and start server
+// Initialize storage and start server
 async function startServer() {
   try {
-    await initializeDatabase();
+    await initializeStorage();
     app.listen(PORT, () => {
       console.log(`Server running on port ${PORT}`);
       console.log(`Health check: http://localhost:${PORT}/health`);
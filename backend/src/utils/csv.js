@@ -0,0 +1,20 @@
+// RFC 4180 encoding for streamed exports. Values containing a delimiter,
+// quote or line break are quoted with embedded quotes doubled; null and
+// undefined become empty fields.
+function escapeCsvValue(value) {
+  if (value === null || value === undefined) {
+    return '';
+  }
+
+  const text = String(value);
+  return /[",\r\n]/.test(text) ? `"${text.replace(/"/g, '""')}"` : text;
+}
+
+function toCsvRow(values) {
+  return values.map(escapeCsvValue).join(',') + '\n';
+}
+
+module.exports = {
+  escapeCsvValue,
+  toCsvRow
+};
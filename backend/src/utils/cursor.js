@@ -0,0 +1,43 @@
+// Opaque keyset cursors: the (date, created_at, id) of the last row on a
+// page, as base64url JSON, so clients pass it back without parsing it
+
+// Bounds for list pages without a date range. Stored created_at values are
+// 'YYYY-MM-DD HH:MM:SS' text, which every '~' string sorts after.
+const FIRST_DATE = '0000-01-01';
+const LAST_DATE = '9999-12-31';
+const AFTER_ANY_TIMESTAMP = '~';
+
+// Position just past every entry on or before `to`, where a first page starts
+function startPosition(to = LAST_DATE) {
+  return [to, AFTER_ANY_TIMESTAMP, Number.MAX_SAFE_INTEGER];
+}
+
+function encodeCursor(row) {
+  return Buffer.from(JSON.stringify([row.date, row.created_at, row.id])).toString('base64url');
+}
+
+// The [date, created_at, id] tuple, or null when the cursor is malformed
+function decodeCursor(cursor) {
+  let position;
+  try {
+    position = JSON.parse(Buffer.from(cursor, 'base64url').toString('utf8'));
+  } catch (err) {
+    return null;
+  }
+  if (!Array.isArray(position) || position.length !== 3) {
+    return null;
+  }
+  const [date, createdAt, id] = position;
+  if (typeof date !== 'string' || typeof createdAt !== 'string' || !Number.isSafeInteger(id)) {
+    return null;
+  }
+  return position;
+}
+
+module.exports = {
+  FIRST_DATE,
+  LAST_DATE,
+  startPosition,
+  encodeCursor,
+  decodeCursor
+};
@@ -0,0 +1,10 @@
+// Non-negative integer from the environment, or the fallback when unset or
+// malformed
+function readIntEnv(name, fallback) {
+  const value = parseInt(process.env[name], 10);
+  return Number.isNaN(value) || value < 0 ? fallback : value;
+}
+
+module.exports = {
+  readIntEnv
+};
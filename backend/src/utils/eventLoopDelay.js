@@ -0,0 +1,105 @@
+const { monitorEventLoopDelay } = require('perf_hooks');
+const { readIntEnv } = require('./env');
+
+const DEFAULT_SAMPLE_INTERVAL_MS = 500;
+const DEFAULT_WINDOW_MS = 60 * 1000;
+
+function eventLoopDelayOptionsFromEnv() {
+  return {
+    intervalMs: readIntEnv('EVENT_LOOP_SAMPLE_INTERVAL_MS', DEFAULT_SAMPLE_INTERVAL_MS) || DEFAULT_SAMPLE_INTERVAL_MS,
+    windowMs: readIntEnv('EVENT_LOOP_WINDOW_MS', DEFAULT_WINDOW_MS) || DEFAULT_WINDOW_MS
+  };
+}
+
+function readSample(histogram) {
+  return {
+    p50: histogram.percentile(50) / 1e6,
+    p99: histogram.percentile(99) / 1e6,
+    max: histogram.max / 1e6
+  };
+}
+
+// The process's one event-loop delay monitor. Each interval the sampler
+// reads the interval's percentiles (in ms), resets the monitor and passes the
+// sample to its listeners. The samples of the last window are kept for
+// /metrics, so reading them changes nothing.
+class EventLoopDelaySampler {
+  constructor(options, createMonitor = () => monitorEventLoopDelay({ resolution: 10 })) {
+    this.intervalMs = options.intervalMs;
+    this.slots = Math.max(1, Math.ceil(options.windowMs / options.intervalMs));
+    this.createMonitor = createMonitor;
+    this.samples = [];
+    this.listeners = new Set();
+    this.histogram = null;
+    this.timer = null;
+  }
+
+  start() {
+    if (this.timer) {
+      return this;
+    }
+
+    this.histogram = this.createMonitor();
+    this.histogram.enable();
+    this.timer = setInterval(() => this.tick(), this.intervalMs);
+    this.timer.unref();
+    return this;
+  }
+
+  stop() {
+    if (this.timer) {
+      clearInterval(this.timer);
+      this.histogram.disable();
+      this.timer = null;
+      this.histogram = null;
+    }
+  }
+
+  tick() {
+    const sample = readSample(this.histogram);
+    this.histogram.reset();
+
+    this.samples.push(sample);
+    if (this.samples.length > this.slots) {
+      this.samples.shift();
+    }
+    this.listeners.forEach(listener => listener(sample));
+  }
+
+  // Returns a function that removes the listener
+  onSample(listener) {
+    this.listeners.add(listener);
+    return () => this.listeners.delete(listener);
+  }
+
+  // Worst interval of the window, counting the one in progress; null when
+  // the sampler isn't running
+  window() {
+    if (!this.histogram) {
+      return null;
+    }
+
+    const worst = readSample(this.histogram);
+    for (const sample of this.samples) {
+      worst.p50 = Math.max(worst.p50, sample.p50);
+      worst.p99 = Math.max(worst.p99, sample.p99);
+      worst.max = Math.max(worst.max, sample.max);
+    }
+    return worst;
+  }
+}
+
+let sampler = null;
+
+function getEventLoopDelaySampler() {
+  if (!sampler) {
+    sampler = new EventLoopDelaySampler(eventLoopDelayOptionsFromEnv()).start();
+  }
+  return sampler;
+}
+
+module.exports = {
+  EventLoopDelaySampler,
+  getEventLoopDelaySampler,
+  eventLoopDelayOptionsFromEnv
+};
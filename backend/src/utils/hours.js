@@ -0,0 +1,20 @@
+// Work entry hours are stored as integer hundredths ("centihours") so that
+// sums are exact; the API keeps speaking decimal hours.
+function toCentihours(hours) {
+  return Math.round(hours * 100);
+}
+
+function fromCentihours(centihours) {
+  return (centihours || 0) / 100;
+}
+
+// Total of rows that carry decimal hours, summed as integers
+function sumHours(entries) {
+  return fromCentihours(entries.reduce((sum, entry) => sum + toCentihours(entry.hours), 0));
+}
+
+module.exports = {
+  toCentihours,
+  fromCentihours,
+  sumHours
+};
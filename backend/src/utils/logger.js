@@ -0,0 +1,213 @@
+const fs = require('fs');
+const { readIntEnv } = require('./env');
+
+const DEFAULT_BUFFER_SIZE = 4096;
+const DEFAULT_FLUSH_INTERVAL_MS = 1000;
+const DEFAULT_DEDUP_WINDOW_MS = 10000;
+
+const LEVELS = {
+  debug: 10,
+  info: 20,
+  warn: 30,
+  error: 40,
+  silent: Infinity
+};
+
+function loggerOptionsFromEnv() {
+  const level = (process.env.LOG_LEVEL || 'info').toLowerCase();
+  return {
+    level: level in LEVELS ? level : 'info',
+    bufferSize: readIntEnv('LOG_BUFFER_SIZE', DEFAULT_BUFFER_SIZE) || DEFAULT_BUFFER_SIZE,
+    flushIntervalMs: readIntEnv('LOG_FLUSH_INTERVAL_MS', DEFAULT_FLUSH_INTERVAL_MS) || DEFAULT_FLUSH_INTERVAL_MS,
+    // 0 logs every occurrence
+    dedupWindowMs: readIntEnv('LOG_DEDUP_WINDOW_MS', DEFAULT_DEDUP_WINDOW_MS)
+  };
+}
+
+function serializeError(err, withStack) {
+  if (!(err instanceof Error)) {
+    return err;
+  }
+  const fields = { type: err.name, message: err.message };
+  if (err.code) {
+    fields.code = err.code;
+  }
+  if (withStack) {
+    fields.stack = err.stack;
+  }
+  return fields;
+}
+
+// JSON-lines logger. Records go into a fixed-size ring buffer and are written
+// in one batch per flush interval, so a request never waits on stdout. When
+// the stream can't keep up the oldest records are overwritten and counted.
+class Logger {
+  constructor(options, stream = process.stdout, now = Date.now) {
+    this.threshold = LEVELS[options.level];
+    this.flushIntervalMs = options.flushIntervalMs;
+    this.dedupWindowMs = options.dedupWindowMs;
+    this.stream = stream;
+    this.now = now;
+
+    this.buffer = new Array(options.bufferSize);
+    this.head = 0;
+    this.count = 0;
+    this.dropped = 0;
+    this.suppressed = 0;
+
+    this.timer = null;
+    this.waitingForDrain = false;
+    // Errors inside their dedup window: key -> { msg, fields, err, until, repeats }
+    this.recentErrors = new Map();
+  }
+
+  enabled(level) {
+    return LEVELS[level] >= this.threshold;
+  }
+
+  debug(msg, fields) {
+    this.log('debug', msg, fields);
+  }
+
+  info(msg, fields) {
+    this.log('info', msg, fields);
+  }
+
+  warn(msg, fields) {
+    this.log('warn', msg, fields);
+  }
+
+  // Repeats of the same message and error within the dedup window are
+  // counted instead of logged, then reported as one record with `repeated`
+  error(msg, err, fields) {
+    if (!this.enabled('error')) {
+      return;
+    }
+    if (err && this.dedupWindowMs > 0) {
+      const key = `${msg}\0${err.code || ''}\0${err.message || err}`;
+      const recent = this.recentErrors.get(key);
+      if (recent) {
+        recent.repeats++;
+        this.suppressed++;
+        this.schedule();
+        return;
+      }
+      this.recentErrors.set(key, {
+        msg,
+        fields,
+        err: serializeError(err, false),
+        until: this.now() + this.dedupWindowMs,
+        repeats: 0
+      });
+    }
+    this.push('error', msg, { ...fields, err: serializeError(err, true) });
+  }
+
+  log(level, msg, fields) {
+    if (this.enabled(level)) {
+      this.push(level, msg, fields);
+    }
+  }
+
+  push(level, msg, fields) {
+    const record = { time: this.now(), level, msg, ...fields };
+    const capacity = this.buffer.length;
+    if (this.count === capacity) {
+      this.head = (this.head + 1) % capacity;
+      this.count--;
+      this.dropped++;
+    }
+    this.buffer[(this.head + this.count) % capacity] = record;
+    this.count++;
+    this.schedule();
+  }
+
+  schedule() {
+    if (!this.timer && !this.waitingForDrain) {
+      this.timer = setTimeout(() => {
+        this.timer = null;
+        this.flush();
+      }, this.flushIntervalMs);
+      this.timer.unref();
+    }
+  }
+
+  // Serialize and empty the buffer as one newline-delimited chunk
+  drain() {
+    let chunk = '';
+    const capacity = this.buffer.length;
+    for (let i = 0; i < this.count; i++) {
+      const index = (this.head + i) % capacity;
+      chunk += `${JSON.stringify(this.buffer[index])}\n`;
+      this.buffer[index] = undefined;
+    }
+    this.head = 0;
+    this.count = 0;
+    return chunk;
+  }
+
+  // Close expired dedup windows, summarizing any repeats they absorbed
+  reportRepeats() {
+    const now = this.now();
+    for (const [key, recent] of this.recentErrors) {
+      if (now >= recent.until) {
+        this.recentErrors.delete(key);
+        if (recent.repeats > 0) {
+          this.push('error', recent.msg, { ...recent.fields, err: recent.err, repeated: recent.repeats });
+        }
+      }
+    }
+  }
+
+  flush() {
+    this.reportRepeats();
+    if (this.recentErrors.size > 0) {
+      // Come back to close the remaining dedup windows
+      this.schedule();
+    }
+    if (this.count === 0 || this.waitingForDrain) {
+      return;
+    }
+    if (!this.stream.write(this.drain())) {
+      // Let the stream catch up; records logged meanwhile stay in the ring
+      this.waitingForDrain = true;
+      this.stream.once('drain', () => {
+        this.waitingForDrain = false;
+        this.flush();
+      });
+    }
+  }
+
+  // Last-chance write on process exit, when timers no longer run
+  flushSync() {
+    this.reportRepeats();
+    if (this.count > 0 && typeof this.stream.fd === 'number') {
+      fs.writeSync(this.stream.fd, this.drain());
+    }
+  }
+
+  stats() {
+    return { buffered: this.count, dropped: this.dropped, suppressed: this.suppressed };
+  }
+}
+
+let logger = null;
+
+function getLogger() {
+  if (!logger) {
+    logger = new Logger(loggerOptionsFromEnv());
+    process.once('exit', () => logger.flushSync());
+  }
+  return logger;
+}
+
+function getLoggerStats() {
+  return logger ? logger.stats() : null;
+}
+
+module.exports = {
+  Logger,
+  getLogger,
+  getLoggerStats,
+  loggerOptionsFromEnv
+};
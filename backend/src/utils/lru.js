@@ -0,0 +1,87 @@
+// Bounded least-recently-used map. A Map iterates in insertion order, so
+// re-inserting a key on access keeps the oldest entry at the front.
+class LRUCache {
+  constructor(capacity, onEvict) {
+    if (!Number.isInteger(capacity) || capacity < 1) {
+      throw new Error('LRU capacity must be a positive integer');
+    }
+
+    this.capacity = capacity;
+    this.onEvict = onEvict;
+    this.entries = new Map();
+    this.hits = 0;
+    this.misses = 0;
+    this.evictions = 0;
+  }
+
+  get size() {
+    return this.entries.size;
+  }
+
+  get(key) {
+    if (!this.entries.has(key)) {
+      this.misses++;
+      return undefined;
+    }
+
+    const value = this.entries.get(key);
+    this.entries.delete(key);
+    this.entries.set(key, value);
+    this.hits++;
+    return value;
+  }
+
+  has(key) {
+    return this.entries.has(key);
+  }
+
+  // Read without touching recency or counters
+  peek(key) {
+    return this.entries.get(key);
+  }
+
+  set(key, value) {
+    if (this.entries.has(key)) {
+      this.entries.delete(key);
+    }
+    this.entries.set(key, value);
+
+    while (this.entries.size > this.capacity) {
+      const [oldestKey, oldestValue] = this.entries.entries().next().value;
+      this.entries.delete(oldestKey);
+      this.evictions++;
+      if (this.onEvict) {
+        this.onEvict(oldestKey, oldestValue);
+      }
+    }
+    return this;
+  }
+
+  delete(key) {
+    return this.entries.delete(key);
+  }
+
+  clear() {
+    this.entries.clear();
+  }
+
+  values() {
+    return this.entries.values();
+  }
+
+  stats() {
+    const lookups = this.hits + this.misses;
+    return {
+      size: this.entries.size,
+      capacity: this.capacity,
+      hits: this.hits,
+      misses: this.misses,
+      evictions: this.evictions,
+      hitRate: lookups === 0 ? 0 : this.hits / lookups
+    };
+  }
+}
+
+module.exports = {
+  LRUCache
+};
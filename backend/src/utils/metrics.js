@@ -0,0 +1,215 @@
+// Minimal in-process metrics registry rendered in the Prometheus text
+// format. Labelled series live in nested Maps keyed by label value, so
+// recording into an existing series allocates nothing beyond the call
+// itself; histogram buckets are a preallocated Float64Array.
+
+const DEFAULT_BUCKETS = [0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10];
+
+function escapeLabelValue(value) {
+  return String(value).replace(/\\/g, '\\\\').replace(/"/g, '\\"').replace(/\n/g, '\\n');
+}
+
+function formatLabels(names, values, extra = '') {
+  const pairs = names.map((name, i) => `${name}="${escapeLabelValue(values[i])}"`);
+  if (extra) {
+    pairs.push(extra);
+  }
+  return pairs.length ? `{${pairs.join(',')}}` : '';
+}
+
+function formatNumber(value) {
+  if (value === Infinity) {
+    return '+Inf';
+  }
+  return Number.isFinite(value) ? String(value) : 'NaN';
+}
+
+class Metric {
+  constructor(name, help, labelNames = []) {
+    this.name = name;
+    this.help = help;
+    this.labelNames = labelNames;
+    this.root = labelNames.length ? new Map() : null;
+  }
+
+  // Series for one combination of label values, created on first use
+  labels(...values) {
+    if (!this.labelNames.length) {
+      if (!this.root) {
+        this.root = this.createSeries([]);
+      }
+      return this.root;
+    }
+
+    let level = this.root;
+    const last = this.labelNames.length - 1;
+    for (let i = 0; i < last; i++) {
+      let next = level.get(values[i]);
+      if (!next) {
+        next = new Map();
+        level.set(values[i], next);
+      }
+      level = next;
+    }
+
+    let series = level.get(values[last]);
+    if (!series) {
+      series = this.createSeries(values.slice());
+      level.set(values[last], series);
+    }
+    return series;
+  }
+
+  series() {
+    if (!this.labelNames.length) {
+      return [this.labels()];
+    }
+    const result = [];
+    const walk = (level, depth) => {
+      for (const value of level.values()) {
+        if (depth === this.labelNames.length - 1) {
+          result.push(value);
+        } else {
+          walk(value, depth + 1);
+        }
+      }
+    };
+    walk(this.root, 0);
+    return result;
+  }
+
+  header(type) {
+    return `# HELP ${this.name} ${this.help}\n# TYPE ${this.name} ${type}\n`;
+  }
+}
+
+class Counter extends Metric {
+  createSeries(values) {
+    return {
+      values,
+      value: 0,
+      inc(amount = 1) {
+        this.value += amount;
+      }
+    };
+  }
+
+  render() {
+    return this.header('counter') + this.series()
+      .map(series => `${this.name}${formatLabels(this.labelNames, series.values)} ${formatNumber(series.value)}\n`)
+      .join('');
+  }
+}
+
+class Histogram extends Metric {
+  constructor(name, help, labelNames, buckets = DEFAULT_BUCKETS) {
+    super(name, help, labelNames);
+    this.buckets = buckets;
+  }
+
+  createSeries(values) {
+    const buckets = this.buckets;
+    return {
+      values,
+      counts: new Float64Array(buckets.length),
+      sum: 0,
+      count: 0,
+      observe(value) {
+        for (let i = 0; i < buckets.length; i++) {
+          if (value <= buckets[i]) {
+            this.counts[i]++;
+            break;
+          }
+        }
+        this.sum += value;
+        this.count++;
+      }
+    };
+  }
+
+  render() {
+    let text = this.header('histogram');
+    for (const series of this.series()) {
+      let cumulative = 0;
+      this.buckets.forEach((bound, i) => {
+        cumulative += series.counts[i];
+        text += `${this.name}_bucket${formatLabels(this.labelNames, series.values, `le="${bound}"`)} ${cumulative}\n`;
+      });
+      text += `${this.name}_bucket${formatLabels(this.labelNames, series.values, 'le="+Inf"')} ${series.count}\n`;
+      text += `${this.name}_sum${formatLabels(this.labelNames, series.values)} ${formatNumber(series.sum)}\n`;
+      text += `${this.name}_count${formatLabels(this.labelNames, series.values)} ${series.count}\n`;
+    }
+    return text;
+  }
+}
+
+// Sampled when rendered: collect() returns a number, or [labelValues, value]
+// pairs, or null to skip the metric
+class Gauge {
+  constructor(name, help, labelNames, collect, type = 'gauge') {
+    this.name = name;
+    this.help = help;
+    this.labelNames = labelNames || [];
+    this.collect = collect;
+    this.type = type;
+  }
+
+  render() {
+    const sample = this.collect();
+    if (sample === null || sample === undefined) {
+      return '';
+    }
+    const samples = typeof sample === 'number' ? [[[], sample]] : sample;
+    return `# HELP ${this.name} ${this.help}\n# TYPE ${this.name} ${this.type}\n` + samples
+      .map(([values, value]) => `${this.name}${formatLabels(this.labelNames, values)} ${formatNumber(value)}\n`)
+      .join('');
+  }
+}
+
+class MetricsRegistry {
+  constructor() {
+    this.metrics = new Map();
+  }
+
+  register(metric) {
+    if (this.metrics.has(metric.name)) {
+      throw new Error(`Metric ${metric.name} is already registered`);
+    }
+    this.metrics.set(metric.name, metric);
+    return metric;
+  }
+
+  counter(name, help, labelNames) {
+    return this.register(new Counter(name, help, labelNames));
+  }
+
+  histogram(name, help, labelNames, buckets) {
+    return this.register(new Histogram(name, help, labelNames, buckets));
+  }
+
+  gauge(name, help, labelNames, collect) {
+    return this.register(new Gauge(name, help, labelNames, collect));
+  }
+
+  // A running total kept elsewhere (e.g. cache hits), read when rendered
+  collectedCounter(name, help, labelNames, collect) {
+    return this.register(new Gauge(name, help, labelNames, collect, 'counter'));
+  }
+
+  render() {
+    let text = '';
+    for (const metric of this.metrics.values()) {
+      text += metric.render();
+    }
+    return text;
+  }
+}
+
+// Process-wide registry shared by the HTTP and database instrumentation
+const registry = new MetricsRegistry();
+
+module.exports = {
+  MetricsRegistry,
+  registry,
+  DEFAULT_BUCKETS
+};
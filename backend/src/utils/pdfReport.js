@@ -0,0 +1,53 @@
+// Client report layout, drawn onto a pdfkit document in batches. Runs inside
+// the PDF worker threads (see workers/pdfWorker.js).
+
+// Title, totals and the table header
+function writeReportHeader(doc, report) {
+  doc.fontSize(20).text(`Time Report for ${report.clientName}`, { align: 'center' });
+  doc.moveDown();
+
+  doc.fontSize(14).text(`Total Hours: ${report.totalHours.toFixed(2)}`);
+  doc.text(`Total Entries: ${report.entryCount}`);
+  doc.text(`Generated: ${new Date(report.generatedAt).toLocaleString()}`);
+  doc.moveDown();
+
+  // Add table header
+  doc.fontSize(12).text('Date', 50, doc.y, { width: 100 });
+  doc.text('Hours', 150, doc.y - 15, { width: 80 });
+  doc.text('Description', 230, doc.y - 15, { width: 300 });
+  doc.moveDown();
+
+  // Add horizontal line
+  doc.moveTo(50, doc.y).lineTo(550, doc.y).stroke();
+  doc.moveDown(0.5);
+}
+
+// Table rows for one batch of entries; `first` is the position of the batch
+// in the report, so separators stay every five entries across batches
+function writeReportEntries(doc, entries, first) {
+  entries.forEach((entry, offset) => {
+    const index = first + offset;
+    const y = doc.y;
+
+    // Check if we need a new page
+    if (y > 700) {
+      doc.addPage();
+    }
+
+    doc.text(entry.date, 50, doc.y, { width: 100 });
+    doc.text(entry.hours.toString(), 150, y, { width: 80 });
+    doc.text(entry.description || 'No description', 230, y, { width: 300 });
+    doc.moveDown();
+
+    // Add separator line every 5 entries
+    if ((index + 1) % 5 === 0) {
+      doc.moveTo(50, doc.y).lineTo(550, doc.y).stroke();
+      doc.moveDown(0.5);
+    }
+  });
+}
+
+module.exports = {
+  writeReportHeader,
+  writeReportEntries
+};
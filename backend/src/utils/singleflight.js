@@ -0,0 +1,27 @@
+// Coalesces concurrent calls for the same key: while a call is in flight,
+// later callers share its promise instead of starting their own.
+class Singleflight {
+  constructor() {
+    this.inFlight = new Map();
+  }
+
+  get size() {
+    return this.inFlight.size;
+  }
+
+  do(key, fn) {
+    if (this.inFlight.has(key)) {
+      return this.inFlight.get(key);
+    }
+
+    const promise = Promise.resolve()
+      .then(fn)
+      .finally(() => this.inFlight.delete(key));
+    this.inFlight.set(key, promise);
+    return promise;
+  }
+}
+
+module.exports = {
+  Singleflight
+};
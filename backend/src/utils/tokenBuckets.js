@@ -0,0 +1,112 @@
+const { LRUCache } = require('./lru');
+
+// Token buckets hold up to `capacity` tokens and refill continuously at
+// `ratePerMs`. take() refills for the time since the last call, then spends
+// one token if a whole one is available. Both stores resolve to
+// { allowed, tokens } with the tokens left afterwards.
+
+const DEFAULT_MEMORY_BUCKETS = 100000;
+const DEFAULT_PRUNE_EVERY = 1000;
+
+function refill(tokens, updatedMs, capacity, ratePerMs, nowMs) {
+  return Math.min(capacity, tokens + Math.max(0, nowMs - updatedMs) * ratePerMs);
+}
+
+// Per-process buckets. Evicting an idle bucket just refills it early.
+class MemoryBucketStore {
+  constructor(maxBuckets = DEFAULT_MEMORY_BUCKETS) {
+    this.buckets = new LRUCache(maxBuckets);
+  }
+
+  take(key, capacity, ratePerMs, nowMs) {
+    const bucket = this.buckets.get(key);
+    const available = bucket ? refill(bucket.tokens, bucket.updatedMs, capacity, ratePerMs, nowMs) : capacity;
+    const allowed = available >= 1;
+    const tokens = allowed ? available - 1 : available;
+
+    this.buckets.set(key, { tokens, updatedMs: bucket ? Math.max(bucket.updatedMs, nowMs) : nowMs });
+    return Promise.resolve({ allowed, tokens });
+  }
+
+  close() {
+    this.buckets.clear();
+    return Promise.resolve();
+  }
+}
+
+const BUCKET_SCHEMA = `
+  PRAGMA journal_mode = WAL;
+  PRAGMA synchronous = OFF;
+  CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    key TEXT PRIMARY KEY,
+    tokens REAL NOT NULL,
+    updated_ms INTEGER NOT NULL,
+    allowed INTEGER NOT NULL
+  ) WITHOUT ROWID;
+`;
+
+// Refill and spend in one statement so concurrent processes can't both take
+// the last token. SET expressions all see the row's previous values.
+// ?1 key, ?2 capacity, ?3 now, ?4 tokens per ms
+const TAKE_TOKEN = `
+  INSERT INTO rate_limit_buckets (key, tokens, updated_ms, allowed)
+  VALUES (?1, ?2 - 1, ?3, 1)
+  ON CONFLICT (key) DO UPDATE SET
+    tokens = MIN(?2, tokens + MAX(0, ?3 - updated_ms) * ?4)
+      - (MIN(?2, tokens + MAX(0, ?3 - updated_ms) * ?4) >= 1),
+    allowed = MIN(?2, tokens + MAX(0, ?3 - updated_ms) * ?4) >= 1,
+    updated_ms = MAX(updated_ms, ?3)
+  RETURNING tokens, allowed`;
+
+// A bucket untouched for longer than it takes to refill completely is full,
+// the same as having no row at all
+const PRUNE_BUCKETS = 'DELETE FROM rate_limit_buckets WHERE updated_ms < ?';
+
+// Buckets in a SQLite file of their own, so every process of a cluster
+// draws from the same buckets without contending for the data database's
+// writer lock. The rows are disposable, hence synchronous = OFF. Every
+// pruneEvery takes, buckets idle for longer than the slowest full refill seen
+// so far are deleted, so the file only holds recently active keys.
+class SqliteBucketStore {
+  constructor(db, pruneEvery = DEFAULT_PRUNE_EVERY) {
+    this.db = db;
+    this.pruneEvery = pruneEvery;
+    this.takes = 0;
+    this.maxRefillMs = 0;
+    this.ready = new Promise((resolve, reject) => {
+      db.exec(BUCKET_SCHEMA, err => (err ? reject(err) : resolve()));
+    });
+  }
+
+  async take(key, capacity, ratePerMs, nowMs) {
+    await this.ready;
+    this.maxRefillMs = Math.max(this.maxRefillMs, capacity / ratePerMs);
+    if (++this.takes % this.pruneEvery === 0) {
+      this.prune(nowMs - this.maxRefillMs);
+    }
+
+    return new Promise((resolve, reject) => {
+      this.db.get(TAKE_TOKEN, [key, capacity, nowMs, ratePerMs], (err, row) => {
+        if (err) {
+          return reject(err);
+        }
+        resolve({ allowed: row.allowed === 1, tokens: row.tokens });
+      });
+    });
+  }
+
+  // Best effort: a failure here leaves rows for the next prune, and a broken
+  // store shows up in take() anyway
+  prune(beforeMs) {
+    this.db.run(PRUNE_BUCKETS, [beforeMs], () => {});
+  }
+
+  close() {
+    return new Promise(resolve => this.db.close(() => resolve()));
+  }
+}
+
+module.exports = {
+  MemoryBucketStore,
+  SqliteBucketStore
+};
@@ -0,0 +1,82 @@
+const crypto = require('crypto');
+const jwt = require('jsonwebtoken');
+const { readIntEnv } = require('./env');
+
+const DEFAULT_ACCESS_TOKEN_TTL_SECONDS = 15 * 60;
+const DEFAULT_REFRESH_TOKEN_TTL_SECONDS = 7 * 24 * 60 * 60;
+
+let generatedSecret = null;
+
+// Without JWT_SECRET every process signs with its own random key, so tokens
+// stop verifying after a restart (as does the in-memory database's data)
+function tokenSecret() {
+  if (process.env.JWT_SECRET) {
+    return process.env.JWT_SECRET;
+  }
+  if (!generatedSecret) {
+    console.warn('JWT_SECRET is not set; using a random per-process secret');
+    generatedSecret = crypto.randomBytes(32).toString('hex');
+  }
+  return generatedSecret;
+}
+
+function tokenOptionsFromEnv() {
+  return {
+    accessTtlSeconds: readIntEnv('JWT_ACCESS_TTL_SECONDS', DEFAULT_ACCESS_TOKEN_TTL_SECONDS) || DEFAULT_ACCESS_TOKEN_TTL_SECONDS,
+    refreshTtlSeconds: readIntEnv('JWT_REFRESH_TTL_SECONDS', DEFAULT_REFRESH_TOKEN_TTL_SECONDS) || DEFAULT_REFRESH_TOKEN_TTL_SECONDS
+  };
+}
+
+// Short-lived access token plus a longer-lived refresh token for the same
+// user. The typ claim keeps one from being accepted in place of the other.
+function issueTokens(email) {
+  const secret = tokenSecret();
+  const { accessTtlSeconds, refreshTtlSeconds } = tokenOptionsFromEnv();
+
+  return {
+    tokenType: 'Bearer',
+    accessToken: jwt.sign({ typ: 'access' }, secret, { subject: email, expiresIn: accessTtlSeconds }),
+    refreshToken: jwt.sign({ typ: 'refresh' }, secret, { subject: email, expiresIn: refreshTtlSeconds }),
+    expiresIn: accessTtlSeconds
+  };
+}
+
+// Returns the token's email, or throws when the signature, expiry or type
+// don't check out. No database access.
+function verifyToken(token, type) {
+  const payload = jwt.verify(token, tokenSecret(), { algorithms: ['HS256'] });
+  if (payload.typ !== type || typeof payload.sub !== 'string') {
+    throw new jwt.JsonWebTokenError(`Expected a ${type} token`);
+  }
+  return payload.sub;
+}
+
+// The email in the request's Bearer access token, or null without one;
+// throws like verifyToken when it's invalid. The outcome is kept on the
+// request, so the rate limiter and authenticateUser check the signature once.
+function requestTokenSubject(req) {
+  if (!req.accessToken) {
+    const authorization = req.headers.authorization;
+    if (!authorization || !authorization.startsWith('Bearer ')) {
+      req.accessToken = { subject: null };
+    } else {
+      try {
+        req.accessToken = { subject: verifyToken(authorization.slice('Bearer '.length), 'access') };
+      } catch (err) {
+        req.accessToken = { error: err };
+      }
+    }
+  }
+
+  if (req.accessToken.error) {
+    throw req.accessToken.error;
+  }
+  return req.accessToken.subject;
+}
+
+module.exports = {
+  issueTokens,
+  verifyToken,
+  requestTokenSubject,
+  tokenOptionsFromEnv
+};
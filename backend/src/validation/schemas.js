@@ -7,20 +7,52 @@ const clientSchema = Joi.object({
   email: Joi.string().trim().email().max(255).optional().allow('')
 });
 
+// Work entry dates are stored as canonical YYYY-MM-DD strings (UTC day) so
+// they sort and range-scan correctly on idx_work_entries_date
+const workDate = Joi.date().iso().custom(value => value.toISOString().slice(0, 10));
+
 const workEntrySchema = Joi.object({
   clientId: Joi.number().integer().positive().required(),
   hours: Joi.number().positive().max(24).precision(2).required(),
   description: Joi.string().trim().max(1000).optional().allow(''),
-  date: Joi.date().iso().required()
+  date: workDate.required()
 });
 
 const updateWorkEntrySchema = Joi.object({
   clientId: Joi.number().integer().positive().optional(),
   hours: Joi.number().positive().max(24).precision(2).optional(),
   description: Joi.string().trim().max(1000).optional().allow(''),
-  date: Joi.date().iso().optional()
+  date: workDate.optional()
 }).min(1); // At least one field must be provided
 
+// POST /api/work-entries/batch. Items are validated one by one against
+// workEntrySchema so errors can be reported per index.
+const MAX_BATCH_SIZE = 500;
+
+const workEntryBatchSchema = Joi.object({
+  entries: Joi.array().min(1).max(MAX_BATCH_SIZE).required()
+});
+
+// Bulk update/delete select entries either by id or by a filter that
+// names at least a client or a date bound
+const MAX_BULK_IDS = 5000;
+
+const workEntrySelection = {
+  ids: Joi.array().items(Joi.number().integer().positive()).min(1).max(MAX_BULK_IDS),
+  filter: Joi.object({
+    clientId: Joi.number().integer().positive().optional(),
+    from: workDate.optional(),
+    to: workDate.optional()
+  }).min(1)
+};
+
+const workEntryBulkUpdateSchema = Joi.object({
+  ...workEntrySelection,
+  set: updateWorkEntrySchema.required()
+}).xor('ids', 'filter');
+
+const workEntryBulkDeleteSchema = Joi.object(workEntrySelection).xor('ids', 'filter');
+
 const updateClientSchema = Joi.object({
   name: Joi.string().trim().min(1).max(255).optional(),
   description: Joi.string().trim().max(1000).optional().allow(''),
@@ -28,14 +60,48 @@ const updateClientSchema = Joi.object({
   email: Joi.string().trim().email().max(255).optional().allow('')
 }).min(1); // At least one field must be provided
 
+// Query string for GET /api/reports/client/:clientId. Without a limit the
+// report returns every entry, as before.
+const reportQuerySchema = Joi.object({
+  summary: Joi.boolean().default(false),
+  limit: Joi.number().integer().min(1).max(500).optional(),
+  offset: Joi.number().integer().min(0).default(0)
+});
+
+// Query string for GET /api/work-entries: one keyset page, newest first,
+// optionally limited to a client and an inclusive date range
+const workEntryListQuerySchema = Joi.object({
+  clientId: Joi.number().integer().positive().optional(),
+  from: workDate.optional(),
+  to: workDate.optional(),
+  limit: Joi.number().integer().min(1).max(200).default(50),
+  cursor: Joi.string().max(200).optional()
+});
+
+// Query string for GET /api/dashboard/summary
+const dashboardQuerySchema = Joi.object({
+  recent: Joi.number().integer().min(0).max(20).default(5)
+});
+
 const emailSchema = Joi.object({
   email: Joi.string().email().required()
 });
 
+const refreshTokenSchema = Joi.object({
+  refreshToken: Joi.string().required()
+});
+
 module.exports = {
   clientSchema,
   workEntrySchema,
   updateWorkEntrySchema,
+  workEntryBatchSchema,
+  workEntryBulkUpdateSchema,
+  workEntryBulkDeleteSchema,
   updateClientSchema,
-  emailSchema
+  reportQuerySchema,
+  workEntryListQuerySchema,
+  dashboardQuerySchema,
+  emailSchema,
+  refreshTokenSchema
 };
@@ -0,0 +1,25 @@
+const { parentPort, workerData } = require('worker_threads');
+const sqlite3 = require('sqlite3').verbose();
+const { CachedDatabase } = require('../database/statementCache');
+
+// Read-only connection owned by this thread. Row decoding happens here, so
+// the main event loop only pays for receiving the structured clone.
+const connection = new sqlite3.Database(workerData.filename, sqlite3.OPEN_READONLY, (err) => {
+  if (err) {
+    console.error('Error opening worker read connection:', err);
+  }
+});
+connection.configure('busyTimeout', workerData.busyTimeoutMs);
+const db = new CachedDatabase(connection, { capacity: workerData.statementCacheSize });
+
+parentPort.on('message', ({ id, task }) => {
+  const { method, sql, params } = task;
+
+  db[method](sql, params || [], (err, result) => {
+    if (err) {
+      parentPort.postMessage({ id, error: { message: err.message, code: err.code } });
+      return;
+    }
+    parentPort.postMessage({ id, result });
+  });
+});
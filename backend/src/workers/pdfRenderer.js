@@ -0,0 +1,61 @@
+const path = require('path');
+const { WorkerPool } = require('./pool');
+const { readIntEnv } = require('../utils/env');
+
+const DEFAULT_PDF_WORKER_THREADS = 2;
+const DEFAULT_PDF_MAX_QUEUE = 8;
+const DEFAULT_PDF_TIMEOUT_MS = 30 * 1000;
+
+function pdfOptionsFromEnv() {
+  return {
+    workerThreads: readIntEnv('PDF_WORKER_THREADS', DEFAULT_PDF_WORKER_THREADS) || DEFAULT_PDF_WORKER_THREADS,
+    maxQueue: readIntEnv('PDF_MAX_QUEUE', DEFAULT_PDF_MAX_QUEUE),
+    timeoutMs: readIntEnv('PDF_TIMEOUT_MS', DEFAULT_PDF_TIMEOUT_MS)
+  };
+}
+
+// PDF layout is CPU-bound, so it runs on a small dedicated worker pool. The
+// queue is bounded: once every worker is busy and maxQueue exports are
+// waiting, renderPdf() rejects with EQUEUEFULL instead of piling up work.
+let pool = null;
+
+function getPool() {
+  if (!pool) {
+    const options = pdfOptionsFromEnv();
+    pool = new WorkerPool(path.join(__dirname, 'pdfWorker.js'), {
+      size: options.workerThreads,
+      maxQueue: options.maxQueue,
+      timeoutMs: options.timeoutMs
+    });
+  }
+  return pool;
+}
+
+// Resolves once the whole document has been passed to onChunk as Buffers.
+// The worker pulls rows from nextEntries(), which resolves the next batch
+// and an empty array after the last one.
+function renderPdf(report, onChunk, nextEntries) {
+  return getPool().run(report, {
+    onChunk: chunk => onChunk(Buffer.from(chunk.buffer, chunk.byteOffset, chunk.byteLength)),
+    onRequest: nextEntries
+  });
+}
+
+function pdfRendererStats() {
+  return pool ? pool.stats() : null;
+}
+
+async function closePdfRenderer() {
+  if (pool) {
+    const closing = pool;
+    pool = null;
+    await closing.close();
+  }
+}
+
+module.exports = {
+  renderPdf,
+  pdfRendererStats,
+  closePdfRenderer,
+  pdfOptionsFromEnv
+};
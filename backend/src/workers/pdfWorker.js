@@ -0,0 +1,54 @@
+const { parentPort } = require('worker_threads');
+const PDFDocument = require('pdfkit');
+const { writeReportHeader, writeReportEntries } = require('../utils/pdfReport');
+
+// Replies to this worker's requests; it renders one report at a time
+let awaitingReply = null;
+
+function nextEntries(id) {
+  return new Promise((resolve) => {
+    awaitingReply = resolve;
+    parentPort.postMessage({ id, request: 'entries' });
+  });
+}
+
+// Lays out one report per task and streams the encoded bytes back as
+// { id, chunk } messages, finishing with { id, result } once pdfkit ends.
+// Entries are pulled from the main thread batch by batch, so only one batch
+// of rows is held here at a time.
+async function render(id, task) {
+  const doc = new PDFDocument();
+
+  doc.on('data', (data) => {
+    // pdfkit chunks may share a pooled ArrayBuffer, so copy before transferring
+    const chunk = Uint8Array.from(data);
+    parentPort.postMessage({ id, chunk }, [chunk.buffer]);
+  });
+  doc.on('end', () => {
+    parentPort.postMessage({ id, result: true });
+  });
+
+  try {
+    writeReportHeader(doc, task);
+    let written = 0;
+    for (let entries = await nextEntries(id); entries.length > 0; entries = await nextEntries(id)) {
+      writeReportEntries(doc, entries, written);
+      written += entries.length;
+    }
+    doc.end();
+  } catch (err) {
+    parentPort.postMessage({ id, error: { message: err.message, code: err.code } });
+  }
+}
+
+parentPort.on('message', (message) => {
+  if (message.reply !== undefined) {
+    const resolve = awaitingReply;
+    awaitingReply = null;
+    if (resolve) {
+      resolve(message.reply);
+    }
+    return;
+  }
+  render(message.id, message.task);
+});
@@ -0,0 +1,227 @@
+const { Worker } = require('worker_threads');
+const os = require('os');
+
+function defaultPoolSize() {
+  const cpus = typeof os.availableParallelism === 'function' ? os.availableParallelism() : os.cpus().length;
+  return Math.max(1, cpus - 1);
+}
+
+function createError(message, code) {
+  const error = new Error(message);
+  error.code = code;
+  return error;
+}
+
+// Fixed-size pool of worker_threads running one script. Each worker handles
+// one job at a time; extra jobs wait in a bounded FIFO queue. Workers reply
+// with { id, result } or { id, error } and may stream { id, chunk } messages
+// before finishing. A worker can also ask the caller for more input with
+// { id, request }: the job's onRequest answer is posted back as { id, reply },
+// and a failed answer fails the job. A job whose worker spends more than
+// timeoutMs on it gets the worker terminated and replaced, since there is no
+// other way to interrupt it. Time spent waiting for a reply doesn't count.
+class WorkerPool {
+  constructor(script, options = {}) {
+    this.script = script;
+    this.size = options.size || defaultPoolSize();
+    this.maxQueue = options.maxQueue ?? Infinity;
+    this.timeoutMs = options.timeoutMs || 0;
+    this.workerData = options.workerData;
+
+    this.workers = [];
+    this.queue = [];
+    this.nextJobId = 1;
+    this.closed = false;
+
+    for (let i = 0; i < this.size; i++) {
+      this.spawn();
+    }
+  }
+
+  spawn() {
+    const entry = { worker: new Worker(this.script, { workerData: this.workerData }), job: null, online: false };
+
+    entry.worker.on('online', () => {
+      entry.online = true;
+    });
+    entry.worker.on('message', message => this.handleMessage(entry, message));
+    entry.worker.on('error', err => this.retire(entry, err));
+    entry.worker.on('exit', code => this.retire(entry, new Error(`Worker exited with code ${code}`)));
+    // Idle workers shouldn't keep the process alive on shutdown
+    entry.worker.unref();
+
+    this.workers.push(entry);
+    return entry;
+  }
+
+  run(task, options = {}) {
+    if (this.closed) {
+      return Promise.reject(createError('Worker pool is closed', 'EPOOLCLOSED'));
+    }
+
+    const idle = this.workers.some(entry => !entry.job);
+    if (!idle && this.queue.length >= this.maxQueue) {
+      return Promise.reject(createError('Worker pool queue is full', 'EQUEUEFULL'));
+    }
+
+    return new Promise((resolve, reject) => {
+      this.queue.push({
+        id: this.nextJobId++,
+        task,
+        transferList: options.transferList,
+        onChunk: options.onChunk,
+        onRequest: options.onRequest,
+        resolve,
+        reject,
+        timer: null,
+        remainingMs: this.timeoutMs,
+        resumedAt: 0
+      });
+      this.drain();
+    });
+  }
+
+  drain() {
+    for (const entry of this.workers) {
+      if (this.queue.length === 0) {
+        return;
+      }
+      if (!entry.job) {
+        this.dispatch(entry, this.queue.shift());
+      }
+    }
+  }
+
+  dispatch(entry, job) {
+    entry.job = job;
+    entry.worker.ref();
+    this.resumeTimer(entry, job);
+    entry.worker.postMessage({ id: job.id, task: job.task }, job.transferList);
+  }
+
+  handleMessage(entry, message) {
+    const job = entry.job;
+    if (!job || message.id !== job.id) {
+      return;
+    }
+
+    if (message.chunk !== undefined) {
+      if (job.onChunk) {
+        job.onChunk(message.chunk);
+      }
+      return;
+    }
+
+    if (message.request !== undefined) {
+      this.pauseTimer(job);
+      this.answer(entry, job, message.request);
+      return;
+    }
+
+    clearTimeout(job.timer);
+    entry.job = null;
+    entry.worker.unref();
+    if (message.error) {
+      job.reject(createError(message.error.message, message.error.code));
+    } else {
+      job.resolve(message.result);
+    }
+    this.drain();
+  }
+
+  // The timeout budget runs only while the worker is working on the job
+  resumeTimer(entry, job) {
+    if (!this.timeoutMs) {
+      return;
+    }
+    job.resumedAt = Date.now();
+    job.timer = setTimeout(() => {
+      this.retire(entry, createError(`Worker job timed out after ${this.timeoutMs}ms`, 'ETIMEDOUT'));
+    }, job.remainingMs);
+  }
+
+  pauseTimer(job) {
+    if (!this.timeoutMs) {
+      return;
+    }
+    clearTimeout(job.timer);
+    job.timer = null;
+    job.remainingMs = Math.max(0, job.remainingMs - (Date.now() - job.resumedAt));
+  }
+
+  // The worker waits for the reply, so a job that can't be answered has to
+  // be failed along with its worker
+  answer(entry, job, request) {
+    new Promise((resolve) => {
+      if (!job.onRequest) {
+        throw createError('Job does not accept requests', 'ENOREQUEST');
+      }
+      resolve(job.onRequest(request));
+    }).then((reply) => {
+      if (entry.job === job) {
+        this.resumeTimer(entry, job);
+        entry.worker.postMessage({ id: job.id, reply });
+      }
+    }, (err) => {
+      if (entry.job === job) {
+        this.retire(entry, err);
+      }
+    });
+  }
+
+  // Fail the in-flight job, drop the worker and start a replacement
+  retire(entry, err) {
+    const index = this.workers.indexOf(entry);
+    if (index === -1) {
+      return;
+    }
+    this.workers.splice(index, 1);
+
+    const job = entry.job;
+    entry.job = null;
+    if (job) {
+      clearTimeout(job.timer);
+      job.reject(err);
+    }
+    entry.worker.terminate();
+
+    if (this.closed) {
+      return;
+    }
+
+    // A worker that dies before coming online would die again on respawn
+    if (entry.online) {
+      this.spawn();
+      this.drain();
+    } else if (this.workers.length === 0) {
+      this.queue.splice(0).forEach(queued => queued.reject(err));
+    }
+  }
+
+  stats() {
+    return {
+      size: this.workers.length,
+      busy: this.workers.filter(entry => entry.job).length,
+      queued: this.queue.length
+    };
+  }
+
+  async close() {
+    this.closed = true;
+    const error = createError('Worker pool is closed', 'EPOOLCLOSED');
+    this.queue.splice(0).forEach(job => job.reject(error));
+
+    const workers = this.workers.splice(0);
+    await Promise.all(workers.map((entry) => {
+      if (entry.job) {
+        clearTimeout(entry.job.timer);
+        entry.job.reject(error);
+      }
+      return entry.worker.terminate();
+    }));
+  }
+}
+
+module.exports = {
+  WorkerPool
+};
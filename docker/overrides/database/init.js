@@ -1,6 +1,9 @@
 const sqlite3 = require('sqlite3').verbose();
 const path = require('path');
 const fs = require('fs');
+const { PooledDatabase, storageOptionsFromEnv } = require('./pool');
+const { CachedDatabase } = require('./statementCache');
+const { runMigrations } = require('./migrations');
 
 let db = null;
 let isClosing = false;
@@ -22,14 +25,24 @@ function getDatabase() {
       }
     }
     
-    db = new sqlite3.Database(dbPath, (err) => {
-      if (err) {
-        console.error('Error opening database:', err);
-        throw err;
-      }
-      const dbType = dbPath === ':memory:' ? 'in-memory' : `file: ${dbPath}`;
-      console.log(`Connected to SQLite database (${dbType})`);
-    });
+    if (dbPath === ':memory:') {
+      const connection = new sqlite3.Database(dbPath, (err) => {
+        if (err) {
+          console.error('Error opening database:', err);
+          throw err;
+        }
+        console.log('Connected to SQLite database (in-memory)');
+      });
+      // SQLite leaves foreign keys off per connection. Without them deleting
+      // a client would orphan its work entries and their rollup rows.
+      connection.run('PRAGMA foreign_keys = ON');
+      db = new CachedDatabase(connection, { capacity: storageOptionsFromEnv().statementCacheSize });
+    } else {
+      // WAL mode with a dedicated writer and a pool of read-only connections
+      const options = storageOptionsFromEnv();
+      db = new PooledDatabase(dbPath, options);
+      console.log(`Connected to SQLite database (file: ${dbPath}, WAL, ${options.readPoolSize} readers)`);
+    }
   }
   return db;
 }
@@ -63,13 +76,14 @@ async function initializeDatabase() {
         )
       `);
 
-      // Create work_entries table
+      // Create work_entries table (hours are stored as integer hundredths and
+      // dates as YYYY-MM-DD text, enforced by triggers in migrations.js)
       database.run(`
         CREATE TABLE IF NOT EXISTS work_entries (
           id INTEGER PRIMARY KEY AUTOINCREMENT,
           client_id INTEGER NOT NULL,
           user_email TEXT NOT NULL,
-          hours DECIMAL(5,2) NOT NULL,
+          centihours INTEGER NOT NULL,
           description TEXT,
           date DATE NOT NULL,
           created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -83,10 +97,24 @@ async function initializeDatabase() {
       database.run(`CREATE INDEX IF NOT EXISTS idx_clients_user_email ON clients (user_email)`);
       database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_client_id ON work_entries (client_id)`);
       database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_user_email ON work_entries (user_email)`);
-      database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_date ON work_entries (date)`);
+      database.run(`CREATE INDEX IF NOT EXISTS idx_work_entries_date ON work_entries (date)`, (err) => {
+        if (err) {
+          console.error('Error creating database tables:', err);
+          return reject(err);
+        }
 
-      console.log('Database tables created successfully');
-      resolve();
+        // Resolve only once the schema exists and is migrated, so pooled
+        // readers never see a half-initialized file
+        runMigrations(database)
+          .then(() => {
+            console.log('Database tables created successfully');
+            resolve();
+          })
+          .catch((err) => {
+            console.error('Error migrating database:', err);
+            reject(err);
+          });
+      });
     });
   });
 }
@@ -131,8 +159,14 @@ function closeDatabase() {
   });
 }
 
+// Prepared-statement cache counters across every open connection
+function getStatementCacheStats() {
+  return db ? db.stats() : null;
+}
+
 module.exports = {
   getDatabase,
   initializeDatabase,
-  closeDatabase
+  closeDatabase,
+  getStatementCacheStats
 };
@@ -2,16 +2,19 @@ const express = require('express');
 const cors = require('cors');
 const path = require('path');
 const helmet = require('helmet');
-const morgan = require('morgan');
-const rateLimit = require('express-rate-limit');
 
 const authRoutes = require('./routes/auth');
 const clientRoutes = require('./routes/clients');
 const workEntryRoutes = require('./routes/workEntries');
 const reportRoutes = require('./routes/reports');
+const dashboardRoutes = require('./routes/dashboard');
 
-const { initializeDatabase } = require('./database/init');
+const { initializeStorage } = require('./repositories');
 const { errorHandler } = require('./middleware/errorHandler');
+const { loadShedding } = require('./middleware/loadShedding');
+const { rateLimit } = require('./middleware/rateLimit');
+const { recordRequestMetrics, metricsHandler } = require('./middleware/metrics');
+const { accessLog } = require('./middleware/accessLog');
 
 const app = express();
 const PORT = process.env.PORT || 3001;
@@ -41,15 +44,18 @@ app.use(cors({
   credentials: true
 }));
 
-// Rate limiting
-const limiter = rateLimit({
-  windowMs: 15 * 60 * 1000, // 15 minutes
-  max: 100 // limit each IP to 100 requests per windowMs
-});
-app.use(limiter);
+// Latency histograms per route template, exposed at /metrics
+app.use(recordRequestMetrics);
+
+// Rate limiting: per-user token buckets by route class (read, write, export);
+// static assets and /health are not counted
+app.use(rateLimit);
 
-// Logging
-app.use(morgan('combined'));
+// Structured access log, buffered and flushed in batches
+app.use(accessLog);
+
+// Shed API work when the event loop falls behind, before parsing bodies
+app.use('/api', loadShedding);
 
 // Body parsing
 app.use(express.json({ limit: '10mb' }));
@@ -60,11 +66,15 @@ app.get('/health', (req, res) => {
   res.status(200).json({ status: 'OK', timestamp: new Date().toISOString() });
 });
 
+// Prometheus scrape endpoint; METRICS_TOKEN, or loopback peers only
+app.get('/metrics', metricsHandler);
+
 // API Routes
 app.use('/api/auth', authRoutes);
 app.use('/api/clients', clientRoutes);
 app.use('/api/work-entries', workEntryRoutes);
 app.use('/api/reports', reportRoutes);
+app.use('/api/dashboard', dashboardRoutes);
 
 // Error handling for API routes
 app.use('/api', errorHandler);
@@ -85,10 +95,10 @@ if (process.env.NODE_ENV === 'production') {
   });
 }
 
-// Initialize database and start server
+// Initialize storage and start server
 async function startServer() {
   try {
-    await initializeDatabase();
+    await initializeStorage();
     app.listen(PORT, '0.0.0.0', () => {
       console.log(`Server running on port ${PORT}`);
       console.log(`Health check: http://localhost:${PORT}/health`);
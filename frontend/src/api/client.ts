@@ -1,11 +1,23 @@
-import axios, { type AxiosInstance, type AxiosResponse } from 'axios';
+import axios, { type AxiosInstance, type AxiosResponse, type InternalAxiosRequestConfig } from 'axios';
+import {
+  type AuthTokens,
+  type DashboardSummary,
+  type LoginResponse,
+  type WorkEntryListParams,
+  type WorkEntryPage,
+} from '../types/api';
 
 // Use empty string to make requests relative to the current origin
 // Vite proxy will forward /api requests to the backend
 const API_BASE_URL = '';
 
+const ACCESS_TOKEN_KEY = 'accessToken';
+const REFRESH_TOKEN_KEY = 'refreshToken';
+
 class ApiClient {
   private client: AxiosInstance;
+  // Shared so concurrent 401s trigger a single refresh
+  private refreshing: Promise<string> | null = null;
 
   constructor() {
     this.client = axios.create({
@@ -16,12 +28,12 @@ class ApiClient {
       },
     });
 
-    // Request interceptor to add email header
+    // Request interceptor to add the access token
     this.client.interceptors.request.use(
       (config) => {
-        const userEmail = localStorage.getItem('userEmail');
-        if (userEmail) {
-          config.headers['x-user-email'] = userEmail;
+        const accessToken = localStorage.getItem(ACCESS_TOKEN_KEY);
+        if (accessToken) {
+          config.headers['Authorization'] = `Bearer ${accessToken}`;
         }
         return config;
       },
@@ -30,13 +42,26 @@ class ApiClient {
       }
     );
 
-    // Response interceptor for error handling
+    // Response interceptor: refresh an expired access token once, then retry
     this.client.interceptors.response.use(
       (response: AxiosResponse) => response,
-      (error) => {
+      async (error) => {
+        const original = error.config as (InternalAxiosRequestConfig & { _retry?: boolean }) | undefined;
+
+        if (error.response?.status === 401 && original && !original._retry && this.hasSession()) {
+          original._retry = true;
+          try {
+            const accessToken = await this.refreshAccessToken();
+            original.headers['Authorization'] = `Bearer ${accessToken}`;
+            return this.client(original);
+          } catch {
+            // Fall through to sign-out below
+          }
+        }
+
         if (error.response?.status === 401) {
-          // Clear stored email on auth error
-          localStorage.removeItem('userEmail');
+          // Clear stored tokens on auth error
+          this.clearSession();
           window.location.href = '/login';
         }
         return Promise.reject(error);
@@ -44,9 +69,41 @@ class ApiClient {
     );
   }
 
+  // Session tokens
+  setSession(tokens: AuthTokens) {
+    localStorage.setItem(ACCESS_TOKEN_KEY, tokens.accessToken);
+    localStorage.setItem(REFRESH_TOKEN_KEY, tokens.refreshToken);
+  }
+
+  clearSession() {
+    localStorage.removeItem(ACCESS_TOKEN_KEY);
+    localStorage.removeItem(REFRESH_TOKEN_KEY);
+  }
+
+  hasSession() {
+    return localStorage.getItem(REFRESH_TOKEN_KEY) !== null;
+  }
+
+  private refreshAccessToken(): Promise<string> {
+    if (!this.refreshing) {
+      const refreshToken = localStorage.getItem(REFRESH_TOKEN_KEY);
+      // Plain axios so a failed refresh doesn't re-enter the interceptors
+      this.refreshing = axios
+        .post<AuthTokens>(`${API_BASE_URL}/api/auth/refresh`, { refreshToken })
+        .then((response) => {
+          this.setSession(response.data);
+          return response.data.accessToken;
+        })
+        .finally(() => {
+          this.refreshing = null;
+        });
+    }
+    return this.refreshing;
+  }
+
   // Auth endpoints
-  async login(email: string) {
-    const response = await this.client.post('/api/auth/login', { email });
+  async login(email: string): Promise<LoginResponse> {
+    const response = await this.client.post<LoginResponse>('/api/auth/login', { email });
     return response.data;
   }
 
@@ -86,9 +143,9 @@ class ApiClient {
     return response.data;
   }
 
-  // Work entry endpoints
-  async getWorkEntries(clientId?: number) {
-    const params = clientId ? { clientId } : {};
+  // Work entry endpoints. Returns one page, newest first; pass
+  // pagination.nextCursor back as `cursor` for the next one.
+  async getWorkEntries(params: WorkEntryListParams = {}): Promise<WorkEntryPage> {
     const response = await this.client.get('/api/work-entries', { params });
     return response.data;
   }
@@ -113,6 +170,12 @@ class ApiClient {
     return response.data;
   }
 
+  // Dashboard endpoint
+  async getDashboardSummary(recent = 5): Promise<DashboardSummary> {
+    const response = await this.client.get('/api/dashboard/summary', { params: { recent } });
+    return response.data;
+  }
+
   // Report endpoints
   async getClientReport(clientId: number) {
     const response = await this.client.get(`/api/reports/client/${clientId}`);
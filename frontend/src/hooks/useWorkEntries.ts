@@ -0,0 +1,20 @@
+import { useInfiniteQuery } from '@tanstack/react-query';
+import apiClient from '../api/client';
+import { type WorkEntryListParams } from '../types/api';
+
+export type WorkEntryFilters = Omit<WorkEntryListParams, 'cursor'>;
+
+// Work entries one keyset page at a time. Keys start with 'workEntries', so
+// invalidating ['workEntries'] after a mutation refetches every filter.
+export const useInfiniteWorkEntries = (filters: WorkEntryFilters = {}) => {
+  const query = useInfiniteQuery({
+    queryKey: ['workEntries', filters],
+    queryFn: ({ pageParam }) => apiClient.getWorkEntries({ ...filters, cursor: pageParam }),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage) => lastPage.pagination.nextCursor ?? undefined,
+  });
+
+  const workEntries = query.data?.pages.flatMap((page) => page.workEntries) ?? [];
+
+  return { ...query, workEntries };
+};
@@ -21,40 +21,32 @@ import apiClient from '../api/client';
 const DashboardPage: React.FC = () => {
   const navigate = useNavigate();
 
-  const { data: clientsData } = useQuery({
-    queryKey: ['clients'],
-    queryFn: () => apiClient.getClients(),
+  // Counters and recent entries in one small response, whatever the history size
+  const { data: summary } = useQuery({
+    queryKey: ['dashboardSummary'],
+    queryFn: () => apiClient.getDashboardSummary(),
   });
 
-  const { data: workEntriesData } = useQuery({
-    queryKey: ['workEntries'],
-    queryFn: () => apiClient.getWorkEntries(),
-  });
-
-  const clients = clientsData?.clients || [];
-  const workEntries = workEntriesData?.workEntries || [];
-
-  const totalHours = workEntries.reduce((sum: number, entry: { hours: number }) => sum + entry.hours, 0);
-  const recentEntries = workEntries.slice(0, 5);
+  const recentEntries = summary?.recentEntries ?? [];
 
   const statsCards = [
     {
       title: 'Total Clients',
-      value: clients.length,
+      value: summary?.clientCount ?? 0,
       icon: <BusinessIcon />,
       color: '#1976d2',
       action: () => navigate('/clients'),
     },
     {
       title: 'Total Work Entries',
-      value: workEntries.length,
+      value: summary?.entryCount ?? 0,
       icon: <AssignmentIcon />,
       color: '#388e3c',
       action: () => navigate('/work-entries'),
     },
     {
       title: 'Total Hours',
-      value: totalHours.toFixed(2),
+      value: (summary?.totalHours ?? 0).toFixed(2),
       icon: <AssessmentIcon />,
       color: '#f57c00',
       action: () => navigate('/reports'),
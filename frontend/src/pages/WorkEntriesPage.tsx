@@ -34,6 +34,7 @@ import { DatePicker } from '@mui/x-date-pickers/DatePicker';
 import { LocalizationProvider } from '@mui/x-date-pickers/LocalizationProvider';
 import { AdapterDateFns } from '@mui/x-date-pickers/AdapterDateFns';
 import apiClient from '../api/client';
+import { useInfiniteWorkEntries } from '../hooks/useWorkEntries';
 import { type WorkEntry } from '../types/api';
 
 const WorkEntriesPage: React.FC = () => {
@@ -49,10 +50,13 @@ const WorkEntriesPage: React.FC = () => {
 
   const queryClient = useQueryClient();
 
-  const { data: workEntriesData, isLoading: entriesLoading } = useQuery({
-    queryKey: ['workEntries'],
-    queryFn: () => apiClient.getWorkEntries(),
-  });
+  const {
+    workEntries,
+    isLoading: entriesLoading,
+    hasNextPage,
+    fetchNextPage,
+    isFetchingNextPage,
+  } = useInfiniteWorkEntries();
 
   const { data: clientsData, isLoading: clientsLoading } = useQuery({
     queryKey: ['clients'],
@@ -96,7 +100,6 @@ const WorkEntriesPage: React.FC = () => {
     },
   });
 
-  const workEntries = workEntriesData?.workEntries || [];
   const clients = clientsData?.clients || [];
 
   const handleOpen = (entry?: WorkEntry) => {
@@ -282,6 +285,17 @@ const WorkEntriesPage: React.FC = () => {
                 </TableBody>
               </Table>
             </TableContainer>
+            {hasNextPage && (
+              <Box display="flex" justifyContent="center" p={2}>
+                <Button
+                  variant="outlined"
+                  onClick={() => fetchNextPage()}
+                  disabled={isFetchingNextPage}
+                >
+                  {isFetchingNextPage ? <CircularProgress size={24} /> : 'Load more'}
+                </Button>
+              </Box>
+            )}
           </Paper>
         )}
 
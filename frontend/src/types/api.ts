@@ -3,6 +3,18 @@ export interface User {
   createdAt: string;
 }
 
+export interface AuthTokens {
+  tokenType: 'Bearer';
+  accessToken: string;
+  refreshToken: string;
+  expiresIn: number;
+}
+
+export interface LoginResponse extends AuthTokens {
+  message: string;
+  user: User;
+}
+
 export interface Client {
   id: number;
   name: string;
@@ -28,6 +40,30 @@ export interface WorkEntryWithClient extends WorkEntry {
   client_name: string;
 }
 
+export interface WorkEntryListParams {
+  clientId?: number;
+  from?: string;
+  to?: string;
+  limit?: number;
+  cursor?: string;
+}
+
+export interface WorkEntryPage {
+  workEntries: WorkEntryWithClient[];
+  pagination: {
+    limit: number;
+    hasMore: boolean;
+    nextCursor: string | null;
+  };
+}
+
+export interface DashboardSummary {
+  clientCount: number;
+  entryCount: number;
+  totalHours: number;
+  recentEntries: WorkEntryWithClient[];
+}
+
 export interface ClientReport {
   client: Client;
   workEntries: WorkEntry[];